@@ -0,0 +1,279 @@
+package jpp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+import jpp.parser.JavaPlusPlusParser;
+import jtree.nodes.CompilationUnit;
+import jtree.parser.SyntaxError;
+import jtree.util.CodeWriter;
+import jtree.util.FormatProfile;
+import jtree.util.SourceFiles;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * Converts Java++ files to Java files, optionally on several threads.
+ * Messages about each file are printed in the order the files were given in,
+ * regardless of the order in which they finish.
+ */
+public class Converter {
+	/** Which files in a directory are converted */
+	static final String FILE_REGEX = "(?i).*\\.j(pp|ava(pp)?)";
+
+	private final BiFunction<CharSequence, String, JavaPlusPlusParser> parserCreator;
+	@Getter
+	private final boolean recursive;
+	@Getter
+	private final int jobs;
+	/** If set, files which have not changed since they were last converted are skipped */
+	@Getter @Setter
+	private Manifest manifest;
+	/** How the converted files are laid out */
+	@Getter @Setter @NonNull
+	private FormatProfile format = FormatProfile.DEFAULT;
+	/** Where messages about converted and failed files are printed */
+	@Getter @Setter @NonNull
+	private PrintStream out = System.out, err = System.err;
+
+	/**
+	 * @param jobs how many files to convert at once
+	 */
+	public Converter(@NonNull BiFunction<CharSequence, String, JavaPlusPlusParser> parserCreator, boolean recursive, int jobs) {
+		if(jobs < 1) {
+			throw new IllegalArgumentException("jobs < 1");
+		}
+		this.parserCreator = parserCreator;
+		this.recursive = recursive;
+		this.jobs = jobs;
+	}
+
+	/**
+	 * A file to convert, and the directory to put the converted file in.
+	 */
+	protected static class Task {
+		final File file;
+		final Path outDir;
+
+		Task(File file, Path outDir) {
+			this.file = file;
+			this.outDir = outDir;
+		}
+	}
+
+	/**
+	 * Converts the given files and the files in the given directories.
+	 * A file which fails to convert is reported without stopping the others.
+	 * If there is a {@link #getManifest() manifest}, the outputs of inputs which no longer
+	 * exist are deleted, and the manifest is saved afterwards.
+	 *
+	 * @return the number of files which failed to convert
+	 */
+	public int convert(List<File> files, Path outDir) throws IOException {
+		var tasks = new ArrayList<Task>();
+		for(var file : files) {
+			if(file.isDirectory()) {
+				collect(listFiles(file), outDir.resolve(file.getName()), tasks);
+			} else {
+				tasks.add(new Task(file, outDir));
+			}
+		}
+		int failures = run(tasks);
+		if(manifest != null) {
+			for(var removed : manifest.removeDeleted()) {
+				out.print("Removed ");
+				out.println(removed);
+			}
+			manifest.save();
+		}
+		return failures;
+	}
+
+	private void collect(File[] files, Path outDir, List<Task> tasks) {
+		for(var file : files) {
+			if(file.isDirectory()) {
+				if(recursive) {
+					collect(listFiles(file), outDir.resolve(file.getName()), tasks);
+				}
+			} else {
+				tasks.add(new Task(file, outDir));
+			}
+		}
+	}
+
+	private static File[] listFiles(File dir) {
+		var files = dir.listFiles(f -> f.isDirectory() || f.getName().matches(FILE_REGEX));
+		Arrays.sort(files, Comparator.comparing(File::getName));
+		return files;
+	}
+
+	protected int run(List<Task> tasks) {
+		int failures = 0;
+		if(jobs == 1 || tasks.size() <= 1) {
+			for(var task : tasks) {
+				try {
+					out.println(convert(task));
+				} catch(Throwable e) {
+					// like the pool below, which hands back any Throwable through ExecutionException,
+					// so that a file which overflows the stack does not stop the others
+					reportFailure(task, e);
+					failures++;
+				}
+			}
+			return failures;
+		}
+
+		var pool = new ForkJoinPool(jobs);
+		try {
+			// Only a limited number of files are in flight at once, so that the parse trees of
+			// files which are done but whose messages are still waiting do not pile up.
+			int maxInFlight = jobs * 2;
+			var inFlight = new ArrayDeque<Future<String>>(maxInFlight);
+			var taskIter = tasks.iterator();
+			int reported = 0;
+			while(reported < tasks.size()) {
+				while(inFlight.size() < maxInFlight && taskIter.hasNext()) {
+					var task = taskIter.next();
+					inFlight.add(pool.submit(() -> convert(task)));
+				}
+				var task = tasks.get(reported++);
+				try {
+					out.println(inFlight.remove().get());
+				} catch(ExecutionException e) {
+					reportFailure(task, e.getCause());
+					failures++;
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return failures;
+	}
+
+	private void reportFailure(Task task, Throwable e) {
+		if(manifest != null && !(e instanceof SyntaxError || e instanceof Manifest.RecordedFailure)) {
+			manifest.remove(task.file.toPath());
+		}
+		err.print("Failed to convert ");
+		err.print(task.file);
+		err.print(": ");
+		if(e instanceof SyntaxError || e instanceof Manifest.RecordedFailure) {
+			err.println(message(e));
+		} else {
+			err.println(e);
+		}
+	}
+
+	/**
+	 * @return the message to report for the file
+	 */
+	protected String convert(Task task) throws Exception {
+		var file = task.file;
+		if(file.length() == 0) {
+			return "Skipped " + file;
+		}
+
+		var output = outputPath(task);
+		Manifest.Entry entry = null;
+		if(manifest != null) {
+			entry = manifest.check(file.toPath(), output);
+			if(entry == null) {
+				return "Unchanged " + file;
+			}
+		}
+
+		var text = SourceFiles.read(file.toPath());
+
+		var parser = parserCreator.apply(text, file.getName());
+
+		CompilationUnit unit;
+		try {
+			unit = parser.parseCompilationUnit();
+			var diagnostics = parser.getDiagnostics();
+			if(!diagnostics.isEmpty()) {
+				// the other errors go along with the first one, so that all of them are reported
+				var error = diagnostics.get(0);
+				for(var other : diagnostics.subList(1, diagnostics.size())) {
+					error.addSuppressed(other);
+				}
+				throw error;
+			}
+		} catch(SyntaxError e) {
+			if(manifest != null) {
+				manifest.recordFailure(file.toPath(), entry, message(e));
+			}
+			throw e;
+		}
+
+		Files.createDirectories(task.outDir);
+		// written next to the output and moved over it, so that a failed emit leaves no half-written output
+		var temp = output.resolveSibling(output.getFileName() + ".tmp");
+		try {
+			try(var writer = Files.newBufferedWriter(temp)) {
+				unit.emit(new CodeWriter(writer, format));
+			} catch(UncheckedIOException e) {
+				throw e.getCause();
+			}
+			try {
+				Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch(AtomicMoveNotSupportedException e) {
+				Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		if(manifest != null) {
+			manifest.record(file.toPath(), entry);
+		}
+		return "Converted " + file;
+	}
+
+	/**
+	 * @return the message of {@code e} and of the errors {@link Throwable#addSuppressed(Throwable) added} to it, one after another
+	 */
+	private static String message(Throwable e) {
+		var message = new StringBuilder(e.getMessage());
+		for(var other : e.getSuppressed()) {
+			message.append('\n').append(other.getMessage());
+		}
+		return message.toString();
+	}
+
+	/**
+	 * @return the path to write the converted file to
+	 */
+	protected static Path outputPath(Task task) {
+		var file = task.file;
+		String name;
+		if(file.getName().matches("(?i).*\\.java") && task.outDir.toAbsolutePath().equals(file.getAbsoluteFile().getParentFile().toPath())) {
+			name = file.getName();
+			int i = name.lastIndexOf('.');
+			name = name.substring(0, i) + "_converted.java";
+		} else {
+			name = file.getName();
+			int i = name.lastIndexOf('.');
+			name = name.substring(0, i) + ".java";
+		}
+		return task.outDir.resolve(name);
+	}
+
+}
@@ -1,20 +1,17 @@
 package jpp;
 
 import java.io.File;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
-import jpp.parser.JavaPlusPlusParser;
 import jpp.parser.JavaPlusPlusParser.Feature;
+import jtree.parser.JavaParser.TokenStorage;
+import jtree.util.FormatProfile;
 import lombok.SneakyThrows;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.helper.MessageLocalization;
@@ -29,6 +26,7 @@ import net.sourceforge.argparse4j.inf.Namespace;
 
 public class Main {
 	
+	@SneakyThrows
 	public static void main(String[] args) {
 		var parser = ArgumentParsers.newFor("java++")
 				.fromFilePrefix("@")
@@ -53,11 +51,62 @@ public class Main {
         		.action(new FeatureJoiningAction())
         		.metavar("FEATURES")
         		.setDefault(EnumSet.noneOf(Feature.class));
-		parser.addArgument("--out", "-o")
+		var outArg = parser.addArgument("--out", "-o")
 				.type(Arguments.fileType().verifyIsDirectory().verifyNotExists().verifyCanCreate().or().verifyIsDirectory().verifyExists());
 		parser.addArgument("--recursive", "-r")
 				.action(Arguments.storeTrue())
 				.help("Look through subdirectories of folders as well");
+		parser.addArgument("--tokens")
+				.type(Arguments.caseInsensitiveEnumType(TokenStorage.class))
+				.help("How to store the tokens of a file: LIST keeps all of them, STREAMING tokenizes the file while parsing it, "
+					+ "and COMPACT stores them in primitive arrays. STREAMING and COMPACT reduce memory usage on large files");
+		parser.addArgument("--memoize")
+				.action(Arguments.storeTrue())
+				.help("Remember the results of parses which are tried and then abandoned, so that they are not parsed again. "
+					+ "Speeds up files with deeply nested expressions, such as long builder chains with lambda arguments");
+		parser.addArgument("--recover")
+				.action(Arguments.storeTrue())
+				.help("Keep parsing a file after a syntax error, so that all of its errors are reported at once. "
+					+ "Files with errors are still not converted");
+		parser.addArgument("--format")
+				.type(new FormatProfileType())
+				.metavar("PROFILE")
+				.help("How to lay out the converted files, as comma-separated settings: indent=N or indent=tab, tab-width=N, "
+					+ "width=N to wrap argument lists and operator chains which run past N columns, "
+					+ "and blank-lines=N to put N blank lines between members. "
+					+ "For example: --format indent=tab,width=100,blank-lines=1");
+		parser.addArgument("--jobs", "-j")
+				.type(Integer.class)
+				.choices(Arguments.range(1, Integer.MAX_VALUE))
+				.metavar("N")
+				.setDefault(Runtime.getRuntime().availableProcessors())
+				.help("How many files to convert at once (default: the number of available processors)");
+		parser.addArgument("--incremental", "-i")
+				.action(Arguments.storeTrue())
+				.help("Only convert files which changed since they were last converted into the output directory, "
+					+ "and delete the outputs of files which no longer exist. Uses a " + Manifest.FILE_NAME + " file in the output directory");
+		var watchArg = parser.addArgument("--watch", "-w")
+				.action(Arguments.storeTrue())
+				.help("Keep running and convert files again when they change");
+		var serverArg = parser.addArgument("--server")
+				.action(Arguments.storeTrue())
+				.help("Keep running and convert files for clients. Requests are read from standard input, "
+					+ "or from clients connecting to --port");
+		parser.addArgument("--port")
+				.type(Integer.class)
+				.choices(Arguments.range(0, 65535))
+				.help("The local port for --server to listen on, 0 to pick a free one. "
+					+ "Only clients which can read the server's token from ~/.java++/server-PORT are answered");
+		parser.addArgument("--connect")
+				.type(Integer.class)
+				.choices(Arguments.range(1, 65535))
+				.metavar("PORT")
+				.help("Send the conversion to the server listening on the given local port instead of running it in this process");
+		parser.addArgument("--shutdown")
+				.type(Integer.class)
+				.choices(Arguments.range(1, 65535))
+				.metavar("PORT")
+				.help("Stop the server listening on the given local port and exit");
 		
 		Namespace ns;
 		try {
@@ -75,6 +124,20 @@ public class Main {
     					argName = "out";
     				} else if(ns.getBoolean("recursive")) {
     					argName = "recursive";
+    				} else if(ns.getBoolean("incremental")) {
+    					argName = "incremental";
+    				} else if(ns.get("tokens") != null) {
+    					argName = "tokens";
+    				} else if(ns.getBoolean("memoize")) {
+    					argName = "memoize";
+    				} else if(ns.getBoolean("recover")) {
+    					argName = "recover";
+    				} else if(ns.get("format") != null) {
+    					argName = "format";
+    				} else if(ns.getBoolean("server")) {
+    					argName = "server";
+    				} else if(ns.getBoolean("watch")) {
+    					argName = "watch";
     				} else {
     					break validate_args;
     				}
@@ -84,6 +147,15 @@ public class Main {
     								parser.getConfig().getResourceBundle(),
     								"notAllowedWithArgumentError"),
     						argName), parser, listFeaturesArg);
+    			} else if(ns.getBoolean("server") || ns.get("shutdown") != null) {
+    				if(!ns.getList("files").isEmpty()) {
+    					throw new ArgumentParserException(String.format(
+    							TextHelper.LOCALE_ROOT,
+    							MessageLocalization.localize(
+    									parser.getConfig().getResourceBundle(),
+    									"notAllowedWithArgumentError"),
+    							"FILE"), parser, serverArg);
+    				}
     			} else if(ns.getList("files").isEmpty()) {
     				throw new ArgumentParserException(String.format(
     	                    TextHelper.LOCALE_ROOT,
@@ -91,6 +163,15 @@ public class Main {
     	                    		parser.getConfig().getResourceBundle(),
     	                    		"expectedNArgumentsError"),
     	                    1), parser, filesArg);
+    			} else if(ns.get("out") == null) {
+    				throw new ArgumentParserException("argument " + outArg.textualName() + " is required", parser, outArg);
+    			} else if(ns.getBoolean("watch") && ns.get("connect") != null) {
+    				throw new ArgumentParserException(String.format(
+    						TextHelper.LOCALE_ROOT,
+    						MessageLocalization.localize(
+    								parser.getConfig().getResourceBundle(),
+    								"notAllowedWithArgumentError"),
+    						"connect"), parser, watchArg);
     			}
 		} catch(ArgumentParserException e) {
 			parser.handleError(e);
@@ -106,81 +187,51 @@ public class Main {
 			System.exit(1);
 		}
 		
-		File out = ns.get("out");
-		if(!out.exists()) {
-			out.mkdirs();
+		if(ns.getBoolean("server")) {
+			Integer port = ns.get("port");
+			if(port == null) {
+				Server.serve(System.in, System.out);
+			} else {
+				var server = Server.listen(port);
+				System.out.println("Listening on port " + server.getPort());
+				server.run();
+			}
+			return;
 		}
 		
-		Path outPath = out.toPath();
+		if(ns.get("shutdown") != null) {
+			Server.shutdown(ns.getInt("shutdown"));
+			return;
+		}
 		
 		EnumSet<Feature> enabledFeatures = ns.get("enable"),
 						 disabledFeatures = ns.get("disable");
-		BiFunction<CharSequence, String, JavaPlusPlusParser> parserSupplier;
-		if(enabledFeatures.isEmpty() && disabledFeatures.isEmpty()) {
-			parserSupplier = JavaPlusPlusParser::new;
-		} else {
-			var features = Feature.enabledByDefault();
-			features.addAll(enabledFeatures);
-			features.removeAll(disabledFeatures);
-			parserSupplier = (code, filename) -> new JavaPlusPlusParser(code, filename, features);
+		var features = Feature.enabledByDefault();
+		features.addAll(enabledFeatures);
+		features.removeAll(disabledFeatures);
+		
+		var files = new ArrayList<Path>();
+		for(var file : ns.<File>getList("files")) {
+			files.add(file.toPath());
 		}
 		
-		parseFiles(ns.getList("files"), parserSupplier, ns.getBoolean("recursive"), outPath);
-	}
-	
-	private static void parseFiles(List<File> files, BiFunction<CharSequence, String, JavaPlusPlusParser> parserCreator, boolean recursive, Path outDir) {
-		for(var file : files) {
-			if(file.isDirectory()) {
-				var newOutDir = outDir.resolve(file.getName());
-				for(var subfile : file.listFiles(f -> f.isDirectory() || f.getName().matches("(?i).*\\.j(pp|ava(pp)?)"))) {
-					parseFile(subfile, parserCreator, recursive, newOutDir);
-				}
-			} else {
-				parseFile(file, parserCreator, recursive, outDir);
-			}
+		var request = new Request(files, ns.<File>get("out").toPath(), features, ns.getBoolean("recursive"), ns.getInt("jobs"), ns.getBoolean("incremental"),
+				ns.get("tokens") == null? TokenStorage.LIST : ns.get("tokens"), ns.getBoolean("memoize"), ns.getBoolean("recover"),
+				ns.get("format") == null? FormatProfile.DEFAULT : ns.get("format"));
+		
+		if(ns.getBoolean("watch")) {
+			request.watch(System.out, System.err);
+			return;
 		}
-	}
-	
-	@SneakyThrows
-	private static void parseFile(File file, BiFunction<CharSequence, String, JavaPlusPlusParser> parserCreator, boolean recursive, Path outDir) {
-		if(file.isDirectory()) {
-			if(recursive) {
-				var newOutDir = outDir.resolve(file.getName());
-				for(var subfile : file.listFiles(f -> f.isDirectory() || f.getName().matches("(?i).*\\.j(pp|ava(pp)?)"))) {
-					parseFile(subfile, parserCreator, recursive, newOutDir);
-				}
-			}
+		
+		int status;
+		if(ns.get("connect") == null) {
+			status = request.run(System.out, System.err);
 		} else {
-			CharSequence text;
-			try(var scan = new Scanner(file)) {
-				scan.useDelimiter("\\A");
-				text = scan.next();
-			} catch(NoSuchElementException e) {
-				System.out.print("Skipped ");
-				System.out.println(file);
-				return;
-			}
-			
-			var parser = parserCreator.apply(text, file.getName());
-			
-			var unit = parser.parseCompilationUnit();
-			
-			String name;
-			if(file.getName().matches("(?i).*\\.java") && outDir.toAbsolutePath().equals(file.getParentFile().toPath())) {
-				name = file.getName();
-				int i = name.lastIndexOf('.');
-				name = name.substring(0, i) + "_converted.java";
-			} else {
-				name = file.getName();
-				int i = name.lastIndexOf('.');
-				name = name.substring(0, i) + ".java";
-			}
-			
-			Path out = outDir.resolve(name);
-			
-			Files.writeString(out, unit.toCode(), StandardOpenOption.CREATE);
-			System.out.print("Converted ");
-			System.out.println(file);
+			status = Server.send(ns.getInt("connect"), request, System.out, System.err);
+		}
+		if(status != 0) {
+			System.exit(status);
 		}
 	}
 	
@@ -239,6 +290,19 @@ class FeatureType implements ArgumentType<EnumSet<Feature>> {
 	
 }
 
+class FormatProfileType implements ArgumentType<FormatProfile> {
+
+	@Override
+	public FormatProfile convert(ArgumentParser parser, Argument arg, String value) throws ArgumentParserException {
+		try {
+			return FormatProfile.parse(value);
+		} catch(IllegalArgumentException e) {
+			throw new ArgumentParserException(e.getMessage(), parser, arg);
+		}
+	}
+	
+}
+
 class FeatureJoiningAction implements ArgumentAction {
 	@SuppressWarnings("unchecked")
 	@Override
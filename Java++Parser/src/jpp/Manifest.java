@@ -0,0 +1,311 @@
+package jpp;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import jpp.parser.JavaPlusPlusParser.Feature;
+import jtree.parser.JavaParser;
+import jtree.util.FormatProfile;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Records which input files have been converted into an output directory, so that
+ * files which have not changed since they were last converted can be skipped.
+ * For each input the manifest keeps the output path, the size, modification time and
+ * SHA-256 hash of the input, the enabled features and format and the converter version.
+ * The hash is only computed when the size or modification time of an input has changed.
+ * Syntax errors are recorded as well, so that they are reported again without reparsing
+ * inputs which have not changed.
+ */
+public class Manifest {
+	public static final String FILE_NAME = ".jpp-manifest";
+	private static final String HEADER = "# java++ manifest 1";
+
+	/**
+	 * The version of the converter: a checksum of the classes of the converter and the parser,
+	 * so that any change to them converts every file again. If the classes cannot be read,
+	 * it is different on every run, and nothing is taken to be up to date.
+	 */
+	public static final String VERSION = converterVersion();
+
+	private static String converterVersion() {
+		try {
+			// a CRC rather than a SHA-256 hash, since this is computed on every run
+			var checksum = new CRC32C();
+			var locations = new LinkedHashSet<Path>();
+			for(var type : List.of(Manifest.class, JavaParser.class)) {
+				var codeSource = type.getProtectionDomain().getCodeSource();
+				if(codeSource == null) {
+					return "unknown-" + UUID.randomUUID();
+				}
+				locations.add(Path.of(codeSource.getLocation().toURI()));
+			}
+			for(var location : locations) {
+				if(Files.isDirectory(location)) {
+					List<Path> classes;
+					try(Stream<Path> files = Files.walk(location)) {
+						classes = files.filter(file -> file.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+					}
+					for(var file : classes) {
+						checksum.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+						checksum.update(0);
+						update(checksum, file);
+					}
+				} else {
+					update(checksum, location);
+				}
+			}
+			return String.format("%08x", checksum.getValue());
+		} catch(IOException | URISyntaxException | RuntimeException e) {
+			return "unknown-" + UUID.randomUUID();
+		}
+	}
+
+	@Value
+	public static class Entry {
+		Path output;
+		long size, modified;
+		String hash, features, version;
+		/** The syntax error the input failed to convert with, or {@code null} if it was converted */
+		String error;
+
+		Entry withError(String error) {
+			return new Entry(output, size, modified, hash, features, version, error);
+		}
+	}
+
+	/**
+	 * Thrown by {@link #check(Path, Path)} if an unchanged input failed to convert last time.
+	 */
+	public static class RecordedFailure extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public RecordedFailure(String message) {
+			super(message, null, false, false);
+		}
+	}
+
+	private final Path file;
+	private final String features;
+	private final Map<Path,Entry> entries = new ConcurrentHashMap<>();
+
+	private Manifest(Path file, String features) {
+		this.file = file;
+		this.features = features;
+	}
+
+	/**
+	 * Reads the manifest in {@code outDir}, or creates an empty one if there is none.
+	 * @param features the features the files will be converted with
+	 * @param format how the converted files will be formatted
+	 */
+	public static Manifest load(@NonNull Path outDir, @NonNull Collection<Feature> features, @NonNull FormatProfile format) throws IOException {
+		var featureString = features.stream().map(feature -> feature.id).sorted().collect(Collectors.joining(","));
+		if(!format.equals(FormatProfile.DEFAULT)) {
+			// outputs converted with another format are converted again
+			featureString += ";" + format;
+		}
+		var manifest = new Manifest(outDir.resolve(FILE_NAME), featureString);
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(manifest.file);
+		} catch(NoSuchFileException e) {
+			return manifest;
+		}
+		if(lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+			// unknown format, start over
+			return manifest;
+		}
+		for(var line : lines.subList(1, lines.size())) {
+			var fields = line.split("\t", -1);
+			if(fields.length != 8) {
+				continue;
+			}
+			try {
+				var input = Path.of(StringEscapeUtils.unescapeJava(fields[0]));
+				var output = Path.of(StringEscapeUtils.unescapeJava(fields[1]));
+				manifest.entries.put(input, new Entry(output, Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4], fields[5], fields[6],
+						fields[7].isEmpty()? null : StringEscapeUtils.unescapeJava(fields[7])));
+			} catch(IllegalArgumentException e) {
+				continue;
+			}
+		}
+		return manifest;
+	}
+
+	private static Path key(Path input) {
+		return input.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Checks whether {@code output} is up to date with {@code input}.
+	 * @return {@code null} if it is, else the entry to {@link #record(Path, Entry) record}
+	 *         once {@code input} has been converted
+	 * @throws RecordedFailure if {@code input} has not changed since it failed to convert
+	 */
+	public Entry check(@NonNull Path input, @NonNull Path output) throws IOException, RecordedFailure {
+		input = key(input);
+		output = key(output);
+		var attrs = Files.readAttributes(input, BasicFileAttributes.class);
+		long size = attrs.size(), modified = attrs.lastModifiedTime().toMillis();
+		var entry = entries.get(input);
+		if(entry != null && entry.output.equals(output) && entry.features.equals(features) && entry.version.equals(VERSION)
+				&& (entry.error != null || Files.exists(output))) {
+			if(entry.size == size && entry.modified == modified) {
+				return upToDate(entry);
+			}
+			if(entry.size == size) {
+				var hash = hash(input);
+				if(hash.equals(entry.hash)) {
+					entry = new Entry(output, size, modified, hash, features, VERSION, entry.error);
+					entries.put(input, entry);
+					return upToDate(entry);
+				}
+				return new Entry(output, size, modified, hash, features, VERSION, null);
+			}
+		}
+		return new Entry(output, size, modified, hash(input), features, VERSION, null);
+	}
+
+	private static Entry upToDate(Entry entry) throws RecordedFailure {
+		if(entry.error != null) {
+			throw new RecordedFailure(entry.error);
+		}
+		return null;
+	}
+
+	/**
+	 * Records that {@code input} has been converted.
+	 * @param entry the entry returned by {@link #check(Path, Path)}
+	 */
+	public void record(@NonNull Path input, @NonNull Entry entry) {
+		entries.put(key(input), entry);
+	}
+
+	/**
+	 * Records that {@code input} failed to convert with the given syntax error.
+	 * @param entry the entry returned by {@link #check(Path, Path)}
+	 */
+	public void recordFailure(@NonNull Path input, @NonNull Entry entry, @NonNull String error) {
+		entries.put(key(input), entry.withError(error));
+	}
+
+	public void remove(@NonNull Path input) {
+		entries.remove(key(input));
+	}
+
+	/**
+	 * Deletes the outputs of inputs which no longer exist.
+	 * @return the deleted outputs
+	 */
+	public List<Path> removeDeleted() throws IOException {
+		var removed = new ArrayList<Path>();
+		for(var iter = entries.entrySet().iterator(); iter.hasNext();) {
+			var entry = iter.next();
+			if(!Files.exists(entry.getKey())) {
+				if(Files.deleteIfExists(entry.getValue().output)) {
+					removed.add(entry.getValue().output);
+				}
+				iter.remove();
+			}
+		}
+		removed.sort(null);
+		return removed;
+	}
+
+	public void save() throws IOException {
+		var sb = new StringBuilder(HEADER).append('\n');
+		entries.entrySet().stream()
+			.sorted(Map.Entry.comparingByKey())
+			.forEachOrdered(mapEntry -> {
+				var entry = mapEntry.getValue();
+				sb.append(StringEscapeUtils.escapeJava(mapEntry.getKey().toString())).append('\t')
+				  .append(StringEscapeUtils.escapeJava(entry.output.toString())).append('\t')
+				  .append(entry.size).append('\t')
+				  .append(entry.modified).append('\t')
+				  .append(entry.hash).append('\t')
+				  .append(entry.features).append('\t')
+				  .append(entry.version).append('\t')
+				  .append(entry.error == null? "" : StringEscapeUtils.escapeJava(entry.error)).append('\n');
+			});
+		Files.createDirectories(file.getParent());
+		var temp = file.resolveSibling(FILE_NAME + ".tmp");
+		Files.writeString(temp, sb);
+		try {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static String hash(Path input) throws IOException {
+		var digest = newDigest();
+		update(digest, input);
+		return hex(digest);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, Path file) throws IOException {
+		try(var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var buffer = ByteBuffer.allocate(64 * 1024);
+			while(channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+	}
+
+	private static void update(Checksum checksum, Path file) throws IOException {
+		try(var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var buffer = ByteBuffer.allocate(64 * 1024);
+			while(channel.read(buffer) != -1) {
+				buffer.flip();
+				checksum.update(buffer);
+				buffer.clear();
+			}
+		}
+	}
+
+	private static String hex(MessageDigest digest) {
+		var sb = new StringBuilder(64);
+		for(byte b : digest.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+}
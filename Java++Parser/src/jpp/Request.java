@@ -0,0 +1,172 @@
+package jpp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import jpp.parser.JavaPlusPlusParser;
+import jpp.parser.JavaPlusPlusParser.Feature;
+import jtree.parser.JavaParser.TokenStorage;
+import jtree.util.FormatProfile;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Everything needed to run a conversion: the files to convert, where to put them and
+ * how to parse them. Requests can be sent to a {@link Server} as lines of text.
+ */
+@Value
+public class Request {
+	List<Path> files;
+	Path outDir;
+	Set<Feature> features;
+	boolean recursive;
+	int jobs;
+	boolean incremental;
+	TokenStorage tokenStorage;
+	/** @see JavaPlusPlusParser#setMemoizing(boolean) */
+	boolean memoize;
+	/** @see JavaPlusPlusParser#setRecovering(boolean) */
+	boolean recover;
+	/** @see Converter#setFormat(FormatProfile) */
+	FormatProfile format;
+
+	public Request(@NonNull List<Path> files, @NonNull Path outDir, @NonNull Set<Feature> features, boolean recursive, int jobs, boolean incremental, @NonNull TokenStorage tokenStorage, boolean memoize, boolean recover, @NonNull FormatProfile format) {
+		this.files = files.stream().map(file -> file.toAbsolutePath().normalize()).collect(Collectors.toUnmodifiableList());
+		this.outDir = outDir.toAbsolutePath().normalize();
+		this.features = Set.copyOf(features);
+		this.recursive = recursive;
+		this.jobs = jobs;
+		this.incremental = incremental;
+		this.tokenStorage = tokenStorage;
+		this.memoize = memoize;
+		this.recover = recover;
+		this.format = format;
+	}
+
+	/**
+	 * Converts the files.
+	 * @return the exit status, {@code 0} if all files were converted
+	 */
+	public int run(@NonNull PrintStream out, @NonNull PrintStream err) throws IOException {
+		return createConverter(out, err).convert(getInputFiles(), outDir) == 0? 0 : 1;
+	}
+
+	/**
+	 * Converts the files, then keeps converting them as they change until the thread is interrupted.
+	 * @see Watcher
+	 */
+	public void watch(@NonNull PrintStream out, @NonNull PrintStream err) throws IOException, InterruptedException {
+		var converter = createConverter(out, err);
+		var files = getInputFiles();
+		var watcher = new Watcher(converter, files, outDir);
+		converter.convert(files, outDir);
+		watcher.run();
+	}
+
+	private Converter createConverter(PrintStream out, PrintStream err) throws IOException {
+		Files.createDirectories(outDir);
+		var features = this.features.isEmpty()? EnumSet.noneOf(Feature.class) : EnumSet.copyOf(this.features);
+		var converter = new Converter((code, filename) -> {
+			var parser = new JavaPlusPlusParser(code, filename, features, tokenStorage);
+			parser.setMemoizing(memoize);
+			parser.setRecovering(recover);
+			return parser;
+		}, recursive, jobs);
+		converter.setFormat(format);
+		converter.setOut(out);
+		converter.setErr(err);
+		if(incremental) {
+			converter.setManifest(Manifest.load(outDir, features, format));
+		}
+		return converter;
+	}
+
+	private List<File> getInputFiles() {
+		var files = new ArrayList<File>(this.files.size());
+		for(var file : this.files) {
+			files.add(file.toFile());
+		}
+		return files;
+	}
+
+	/**
+	 * Writes the request as lines of the form {@code key value}, followed by a line {@code end}.
+	 */
+	public void write(@NonNull PrintWriter writer) {
+		for(var file : files) {
+			writer.println("file " + file);
+		}
+		writer.println("out " + outDir);
+		writer.println("features " + features.stream().map(feature -> feature.id).sorted().collect(Collectors.joining(",")));
+		writer.println("recursive " + recursive);
+		writer.println("jobs " + jobs);
+		writer.println("incremental " + incremental);
+		writer.println("tokens " + tokenStorage);
+		writer.println("memoize " + memoize);
+		writer.println("recover " + recover);
+		writer.println("format " + format);
+		writer.println("end");
+	}
+
+	/**
+	 * Reads a request written by {@link #write(PrintWriter)}.
+	 * @param first the first line of the request, which has already been read
+	 * @throws IllegalArgumentException if the request is malformed
+	 */
+	public static Request read(@NonNull String first, @NonNull BufferedReader reader) throws IOException {
+		var files = new ArrayList<Path>();
+		Path outDir = null;
+		var features = EnumSet.noneOf(Feature.class);
+		boolean recursive = false, incremental = false, memoize = false, recover = false;
+		int jobs = 1;
+		var tokenStorage = TokenStorage.LIST;
+		var format = FormatProfile.DEFAULT;
+		for(String line = first; !line.equals("end"); line = reader.readLine()) {
+			if(line == null) {
+				throw new IllegalArgumentException("unexpected end of request");
+			}
+			int i = line.indexOf(' ');
+			if(i == -1) {
+				throw new IllegalArgumentException("malformed line: " + line);
+			}
+			String key = line.substring(0, i), value = line.substring(i+1);
+			switch(key) {
+				case "file" -> files.add(Path.of(value));
+				case "out" -> outDir = Path.of(value);
+				case "features" -> {
+					for(var id : value.split(",")) {
+						if(!id.isEmpty()) {
+							features.add(Feature.VALUES.stream()
+											.filter(feature -> feature.id.equals(id))
+											.findAny()
+											.orElseThrow(() -> new IllegalArgumentException("unknown feature " + id)));
+						}
+					}
+				}
+				case "recursive" -> recursive = Boolean.parseBoolean(value);
+				case "jobs" -> jobs = Integer.parseInt(value);
+				case "incremental" -> incremental = Boolean.parseBoolean(value);
+				case "tokens" -> tokenStorage = TokenStorage.valueOf(value);
+				case "memoize" -> memoize = Boolean.parseBoolean(value);
+				case "recover" -> recover = Boolean.parseBoolean(value);
+				case "format" -> format = FormatProfile.parse(value);
+				default -> throw new IllegalArgumentException("unknown key " + key);
+			}
+		}
+		if(outDir == null) {
+			throw new IllegalArgumentException("no output directory given");
+		}
+		return new Request(files, outDir, features, recursive, jobs, incremental, tokenStorage, memoize, recover, format);
+	}
+
+}
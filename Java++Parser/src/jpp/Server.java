@@ -0,0 +1,301 @@
+package jpp;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import lombok.NonNull;
+
+/**
+ * Runs conversions for clients in a long-lived JVM, so that they do not pay for JVM startup,
+ * class loading and a cold JIT on every invocation.
+ * <p>
+ * The protocol is line-based UTF-8 text. A client sends a {@link Request} as written by
+ * {@link Request#write(PrintWriter)}, or the line {@code shutdown} to stop the server.
+ * The server answers each request with the lines of its standard output prefixed by
+ * {@code "out "} and the lines of its standard error prefixed by {@code "err "}, followed by
+ * a line {@code exit <status>}. A malformed request is answered with a single {@code err}
+ * line and {@code exit 2}.
+ * <p>
+ * A server listening on a port only answers clients which know its token. The token is
+ * random, and is written to a {@linkplain #tokenFile(int) file} which only the user running
+ * the server can read. A client connecting to the port must send the line
+ * {@code token <token>} before anything else, or it is disconnected without being answered.
+ */
+public class Server {
+	/** How long a client has to send its token before it is disconnected, in milliseconds. */
+	private static final int TOKEN_TIMEOUT = 10_000;
+
+	private final ServerSocket socket;
+	private final byte[] token;
+	private final Path tokenFile;
+
+	private Server(ServerSocket socket, String token, Path tokenFile) {
+		this.socket = socket;
+		this.token = token.getBytes(StandardCharsets.UTF_8);
+		this.tokenFile = tokenFile;
+	}
+
+	/**
+	 * Starts listening for clients on the loopback interface, and writes a new token
+	 * to the {@linkplain #tokenFile(int) token file} for the port.
+	 * @param port the port to listen on, or {@code 0} to pick any free port
+	 */
+	public static Server listen(int port) throws IOException {
+		var socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		try {
+			var bytes = new byte[32];
+			new SecureRandom().nextBytes(bytes);
+			var token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+			var tokenFile = tokenFile(socket.getLocalPort());
+			writePrivate(tokenFile, token);
+			return new Server(socket, token, tokenFile);
+		} catch(IOException | RuntimeException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * The file holding the token of the server listening on {@code port}.
+	 * It is in the {@code .java++} directory in the user's home directory.
+	 */
+	public static Path tokenFile(int port) {
+		return Paths.get(System.getProperty("user.home"), ".java++", "server-" + port);
+	}
+
+	/**
+	 * Writes {@code content} to a new file which only the current user can read or write.
+	 */
+	private static void writePrivate(Path file, String content) throws IOException {
+		boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+		if(posix) {
+			Files.createDirectories(file.getParent(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} else {
+			Files.createDirectories(file.getParent());
+		}
+		Files.deleteIfExists(file);
+		if(posix) {
+			Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} else {
+			Files.createFile(file);
+			var f = file.toFile();
+			if(!(f.setReadable(false, false) && f.setReadable(true, true) && f.setWritable(false, false) && f.setWritable(true, true))) {
+				Files.delete(file);
+				throw new IOException("cannot make " + file + " private");
+			}
+		}
+		Files.writeString(file, content);
+	}
+
+	/**
+	 * Reads the token of the server listening on {@code port}.
+	 */
+	private static String readToken(int port) throws IOException {
+		try {
+			return Files.readString(tokenFile(port)).strip();
+		} catch(NoSuchFileException e) {
+			throw new IOException("no server is listening on port " + port + " (" + e.getFile() + " does not exist)");
+		}
+	}
+
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	/**
+	 * Serves clients until one of them sends {@code shutdown}, then deletes the token file.
+	 * Each client is served on its own thread.
+	 */
+	public void run() throws IOException {
+		try(socket) {
+			while(!socket.isClosed()) {
+				Socket client;
+				try {
+					client = socket.accept();
+				} catch(IOException e) {
+					if(socket.isClosed()) {
+						break;
+					}
+					throw e;
+				}
+				var thread = new Thread(() -> {
+					try(client) {
+						var reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+						client.setSoTimeout(TOKEN_TIMEOUT);
+						if(!authenticate(reader.readLine())) {
+							return;
+						}
+						client.setSoTimeout(0);
+						var writer = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8), false);
+						if(!serve(reader, writer)) {
+							socket.close();
+						}
+					} catch(IOException e) {
+						// the client went away
+					}
+				}, "java++ client " + client.getRemoteSocketAddress());
+				thread.setDaemon(true);
+				thread.start();
+			}
+		} finally {
+			Files.deleteIfExists(tokenFile);
+		}
+	}
+
+	/**
+	 * @return whether {@code line} is {@code token} followed by this server's token
+	 */
+	private boolean authenticate(String line) {
+		if(line == null || !line.startsWith("token ")) {
+			return false;
+		}
+		return MessageDigest.isEqual(token, line.substring(6).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Answers requests read from {@code in} until it ends or a {@code shutdown} request is read.
+	 * @return {@code false} if the requests ended with {@code shutdown}
+	 */
+	public static boolean serve(@NonNull InputStream in, @NonNull OutputStream out) throws IOException {
+		return serve(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)),
+		             new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), false));
+	}
+
+	private static boolean serve(BufferedReader reader, PrintWriter writer) throws IOException {
+		String line;
+		while((line = reader.readLine()) != null) {
+			if(line.isEmpty()) {
+				continue;
+			}
+			if(line.equals("shutdown")) {
+				return false;
+			}
+			int status;
+			try {
+				var request = Request.read(line, reader);
+				try(var stdout = new PrintStream(new LinePrefixer(writer, "out "), true, StandardCharsets.UTF_8);
+					var stderr = new PrintStream(new LinePrefixer(writer, "err "), true, StandardCharsets.UTF_8)) {
+					status = request.run(stdout, stderr);
+				} catch(Exception e) {
+					writer.println("err " + e);
+					status = 1;
+				}
+			} catch(IllegalArgumentException e) {
+				writer.println("err invalid request: " + e.getMessage());
+				status = 2;
+			}
+			writer.println("exit " + status);
+			writer.flush();
+		}
+		return true;
+	}
+
+	/**
+	 * Sends {@code request} to the server on {@code port} and copies its answer to
+	 * {@code out} and {@code err}, authenticating with the token in the server's token file.
+	 * @return the exit status sent by the server
+	 */
+	public static int send(int port, @NonNull Request request, @NonNull PrintStream out, @NonNull PrintStream err) throws IOException {
+		var token = readToken(port);
+		try(var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			var writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), false);
+			writer.println("token " + token);
+			request.write(writer);
+			writer.flush();
+			var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.startsWith("out ")) {
+					out.println(line.substring(4));
+				} else if(line.startsWith("err ")) {
+					err.println(line.substring(4));
+				} else if(line.startsWith("exit ")) {
+					return Integer.parseInt(line.substring(5));
+				}
+			}
+			throw new IOException("the server closed the connection");
+		}
+	}
+
+	/**
+	 * Sends {@code shutdown} to the server on {@code port}, authenticating with the token in
+	 * the server's token file.
+	 */
+	public static void shutdown(int port) throws IOException {
+		var token = readToken(port);
+		try(var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.getOutputStream().write(("token " + token + "\nshutdown\n").getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Writes each complete line written to it to a shared writer with a prefix.
+	 */
+	private static class LinePrefixer extends OutputStream {
+		private final PrintWriter writer;
+		private final String prefix;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		LinePrefixer(PrintWriter writer, String prefix) {
+			this.writer = writer;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public void write(int b) {
+			if(b == '\n') {
+				writeLine();
+			} else {
+				line.write(b);
+			}
+		}
+
+		private void writeLine() {
+			var str = line.toString(StandardCharsets.UTF_8);
+			if(str.endsWith("\r")) {
+				str = str.substring(0, str.length()-1);
+			}
+			synchronized(writer) {
+				writer.print(prefix);
+				writer.println(str);
+			}
+			line.reset();
+		}
+
+		@Override
+		public void flush() {
+			synchronized(writer) {
+				writer.flush();
+			}
+		}
+
+		@Override
+		public void close() {
+			if(line.size() != 0) {
+				writeLine();
+			}
+			flush();
+		}
+	}
+
+}
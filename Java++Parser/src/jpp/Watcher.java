@@ -0,0 +1,220 @@
+package jpp;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import jpp.Converter.Task;
+import lombok.NonNull;
+
+/**
+ * Watches the inputs of a conversion and converts files again as they change.
+ * Events are collected until none have arrived for {@link #DEBOUNCE_MILLIS}, so that a burst
+ * of changes, such as an editor saving several files, is converted as one batch.
+ * The outputs of deleted inputs are deleted as well.
+ * Changes to the outputs themselves are ignored, since an output written into a watched
+ * directory would otherwise be converted again as a new input.
+ */
+public class Watcher {
+	public static final long DEBOUNCE_MILLIS = 100;
+
+	private final Converter converter;
+	private final List<File> files;
+	private final Path outDir;
+	/** {@link #outDir}, made absolute */
+	private final Path outRoot;
+	/** {@link #files}, made absolute */
+	private final ArrayList<Path> inputs = new ArrayList<>();
+	/** The outputs of the inputs found so far */
+	private final HashSet<Path> outputs = new HashSet<>();
+	private final WatchService service;
+	private final HashMap<WatchKey,Path> keyDirs = new HashMap<>();
+	/** The output directories of watched directories whose files are converted */
+	private final HashMap<Path,Path> dirOutDirs = new HashMap<>();
+	/** The output directories of files which were given on their own */
+	private final HashMap<Path,Path> fileOutDirs = new HashMap<>();
+
+	/**
+	 * @param files the files and directories given to {@link Converter#convert(List, Path)}
+	 */
+	public Watcher(@NonNull Converter converter, @NonNull List<File> files, @NonNull Path outDir) throws IOException {
+		this.converter = converter;
+		this.files = files;
+		this.outDir = outDir;
+		this.outRoot = outDir.toAbsolutePath().normalize();
+		this.service = FileSystems.getDefault().newWatchService();
+		for(var file : files) {
+			inputs.add(file.toPath().toAbsolutePath().normalize());
+		}
+		for(var file : files) {
+			var path = file.toPath().toAbsolutePath().normalize();
+			if(file.isDirectory()) {
+				registerTree(path, outDir.resolve(file.getName()), null);
+			} else {
+				fileOutDirs.put(path, outDir);
+				addOutput(path, outDir);
+				register(path.getParent());
+			}
+		}
+	}
+
+	private void addOutput(Path file, Path fileOutDir) {
+		outputs.add(Converter.outputPath(new Task(file.toFile(), fileOutDir)).toAbsolutePath().normalize());
+	}
+
+	/**
+	 * @return whether {@code path} is written by the conversion: the output of an input found so far,
+	 *         or anything in the output directory which is not also in an input inside it. So with
+	 *         {@code -o src/out src}, all of {@code src/out} is ignored, while with {@code -o . src}
+	 *         only the outputs in {@code src} are.
+	 */
+	private boolean isOutput(Path path) {
+		if(outputs.contains(path)) {
+			return true;
+		}
+		if(!path.startsWith(outRoot)) {
+			return false;
+		}
+		for(var input : inputs) {
+			if(path.startsWith(input) && input.startsWith(outRoot)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void register(Path dir) throws IOException {
+		if(!keyDirs.containsValue(dir)) {
+			keyDirs.put(dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+		}
+	}
+
+	/**
+	 * Watches {@code dir}, and its subdirectories if the conversion is recursive.
+	 * @param found if not {@code null}, the files to convert in the directories are added to it
+	 */
+	private void registerTree(Path dir, Path dirOutDir, LinkedHashMap<Path,Path> found) throws IOException {
+		register(dir);
+		dirOutDirs.put(dir, dirOutDir);
+		List<Path> children;
+		try(var stream = Files.list(dir)) {
+			children = stream.sorted().collect(Collectors.toList());
+		}
+		for(var child : children) {
+			if(isOutput(child)) {
+				continue;
+			}
+			if(Files.isDirectory(child)) {
+				if(converter.isRecursive()) {
+					registerTree(child, dirOutDir.resolve(child.getFileName()), found);
+				}
+			} else if(child.getFileName().toString().matches(Converter.FILE_REGEX)) {
+				addOutput(child, dirOutDir);
+				if(found != null) {
+					found.put(child, dirOutDir);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts changed files until the thread is interrupted.
+	 */
+	public void run() throws IOException, InterruptedException {
+		try(service) {
+			for(;;) {
+				var pending = new LinkedHashMap<Path,Path>();
+				boolean overflow = poll(service.take(), pending);
+				WatchKey key;
+				while((key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					overflow |= poll(key, pending);
+				}
+				if(overflow) {
+					converter.convert(files, outDir);
+				} else if(!pending.isEmpty()) {
+					convert(pending);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the files changed according to the events of {@code key} to {@code pending}.
+	 * @return whether events were lost
+	 */
+	private boolean poll(WatchKey key, LinkedHashMap<Path,Path> pending) throws IOException {
+		var dir = keyDirs.get(key);
+		boolean overflow = false;
+		for(var event : key.pollEvents()) {
+			if(event.kind() == OVERFLOW) {
+				overflow = true;
+				continue;
+			}
+			var path = dir.resolve((Path)event.context());
+			if(isOutput(path)) {
+				continue;
+			}
+			var dirOutDir = dirOutDirs.get(dir);
+			if(fileOutDirs.containsKey(path)) {
+				pending.put(path, fileOutDirs.get(path));
+			} else if(dirOutDir != null) {
+				if(event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+					if(converter.isRecursive()) {
+						registerTree(path, dirOutDir.resolve(path.getFileName()), pending);
+					}
+				} else if(path.getFileName().toString().matches(Converter.FILE_REGEX)) {
+					addOutput(path, dirOutDir);
+					pending.put(path, dirOutDir);
+				}
+			}
+		}
+		if(!key.reset()) {
+			keyDirs.remove(key);
+			dirOutDirs.remove(dir);
+		}
+		return overflow;
+	}
+
+	private void convert(LinkedHashMap<Path,Path> pending) throws IOException {
+		var out = converter.getOut();
+		var manifest = converter.getManifest();
+		var tasks = new ArrayList<Task>();
+		for(var entry : pending.entrySet()) {
+			var task = new Task(entry.getKey().toFile(), entry.getValue());
+			if(Files.isRegularFile(entry.getKey())) {
+				tasks.add(task);
+			} else if(!Files.exists(entry.getKey())) {
+				var output = Converter.outputPath(task);
+				if(Files.deleteIfExists(output)) {
+					out.print("Removed ");
+					out.println(output);
+				}
+				if(manifest != null) {
+					manifest.remove(entry.getKey());
+				}
+			}
+		}
+		converter.run(tasks);
+		if(manifest != null) {
+			for(var removed : manifest.removeDeleted()) {
+				out.print("Removed ");
+				out.println(removed);
+			}
+			manifest.save();
+		}
+	}
+
+}
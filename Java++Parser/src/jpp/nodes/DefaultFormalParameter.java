@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.function.Consumer;
 
 import jtree.nodes.*;
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -58,7 +59,12 @@ public class DefaultFormalParameter extends FormalParameter {
 	
 	@Override
 	public String toCode() {
-		return super.toCode() + " = " + getDefaultValue().toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(super.toCode() + " = ").write(getDefaultValue());
 	}
 	
 	public FormalParameter toFormalParameter() {
@@ -7,6 +7,7 @@ import static jtree.parser.JavaTokenType.*;
 import static jtree.util.Utils.emptyList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -35,6 +36,7 @@ import jtree.parser.JavaTokenType;
 import jtree.parser.JavaTokenType.Tag;
 import jtree.parser.JavaTokenizer;
 import jtree.parser.ModsAndAnnotations;
+import jtree.parser.Outline;
 import jtree.parser.SyntaxError;
 import jtree.parser.Token;
 import jtree.parser.TokenPredicate;
@@ -171,14 +173,17 @@ public class JavaPlusPlusParser extends JavaParser {
 			return id;
 		}
 		
-		public static EnumSet<Feature> enabledByDefault() {
-			var features = EnumSet.noneOf(Feature.class);
+		private static final EnumSet<Feature> ENABLED_BY_DEFAULT = EnumSet.noneOf(Feature.class);
+		static {
 			for(var feature : VALUES) {
 				if(feature.isEnabledByDefault()) {
-					features.add(feature);
+					ENABLED_BY_DEFAULT.add(feature);
 				}
 			}
-			return features;
+		}
+
+		public static EnumSet<Feature> enabledByDefault() {
+			return ENABLED_BY_DEFAULT.clone();
 		}
 	}
 	
@@ -195,8 +200,15 @@ public class JavaPlusPlusParser extends JavaParser {
 	protected final ContextStack<Context> context = new ContextStack<>(Context.STATIC);
 	
 	protected EnumSet<Feature> enabledFeatures;
+	/** The features given to the constructor, which {@link #reset(CharSequence, String) reset} enables again, or {@code null} for the defaults */
+	private EnumSet<Feature> initialFeatures;
 	protected final Set<ImportDecl> imports = new HashSet<>();
 	
+	protected static final TokenPredicate<JavaTokenType> PARAMETER_END = RPAREN.or(COMMA),
+														 PARAMETER_END_OR_DEFAULT = PARAMETER_END.or(EQ),
+														 PARAMETER_END_OR_DEFAULT_OR_DIMENSION = PARAMETER_END_OR_DEFAULT.or(AT).or(LBRACKET),
+														 OPTIONAL_EXPR_END = RPAREN.or(RBRACE).or(RBRACKET).or(COMMA).or(SEMI);
+	
 	public JavaPlusPlusParser(CharSequence text) {
 		super(text);
 	}
@@ -207,21 +219,70 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	public JavaPlusPlusParser(CharSequence text, Collection<Feature> features) {
 		super(text);
-		enabledFeatures.clear();
-		enabledFeatures.addAll(features);
+		setInitialFeatures(features);
 	}
 	
 	public JavaPlusPlusParser(CharSequence text, String filename, Collection<Feature> features) {
 		super(text, filename);
+		setInitialFeatures(features);
+	}
+	
+	public JavaPlusPlusParser(CharSequence text, String filename, TokenStorage storage) {
+		super(text, filename, storage);
+	}
+	
+	public JavaPlusPlusParser(CharSequence text, String filename, Collection<Feature> features, TokenStorage storage) {
+		super(text, filename, storage);
+		setInitialFeatures(features);
+	}
+
+	private void setInitialFeatures(Collection<Feature> features) {
+		initialFeatures = EnumSet.noneOf(Feature.class);
+		initialFeatures.addAll(features);
 		enabledFeatures.clear();
-		enabledFeatures.addAll(features);
+		enabledFeatures.addAll(initialFeatures);
+	}
+
+	@Override
+	public void reset(CharSequence text, String filename) {
+		super.reset(text, filename);
+		if(initialFeatures != null) {
+			enabledFeatures.clear();
+			enabledFeatures.addAll(initialFeatures);
+		}
+		scope.clear();
+		scope.enter(Scope.NORMAL);
+		context.clear();
+		context.enter(Context.STATIC);
+		imports.clear();
+		functionParameters.clear();
 	}
 	
 	@Override
 	protected JavaTokenizer<JavaTokenType> createTokenizer(CharSequence text, String filename) {
 		return new JavaPlusPlusTokenizer(text, filename, enabledFeatures = Feature.enabledByDefault());
 	}
-	
+
+	/**
+	 * Java++ bodies depend on the declarations around them, such as the parameters of their method,
+	 * so they cannot be parsed on their own later.
+	 */
+	@Override
+	public void setLazy(boolean lazy) {
+		if(lazy) {
+			throw new UnsupportedOperationException("Java++ bodies cannot be parsed lazily");
+		}
+	}
+
+	/**
+	 * Java++ class bodies do not go through {@link #parseMember(Supplier) parseMember},
+	 * so where their members are is not known.
+	 */
+	@Override
+	public Outline parseOutline() {
+		throw new UnsupportedOperationException("Java++ compilation units cannot be outlined");
+	}
+
 	public boolean enabled(Feature feature) {
 		return enabledFeatures.contains(feature);
 	}
@@ -348,7 +409,7 @@ public class JavaPlusPlusParser extends JavaParser {
     			entries.addAll((List<? extends REPLEntry>)parseClassMember(false, docComment, modsAndAnnos));
     		} else {
     			boolean fallthru = false;
-        		switch(token.getType()) {
+        		switch(tokenType()) {
         			case AT, INTERFACE, CLASS, ENUM:
         				entries.add(parseTypeDecl(getDocComment(), new ModsAndAnnotations()));
         				break;
@@ -509,13 +570,13 @@ public class JavaPlusPlusParser extends JavaParser {
 		} else {
 			var features = new ArrayList<FeatureId>(1);
 			var firstTokens = new ArrayList<Token<JavaTokenType>>(1);
-			firstTokens.add(this.token);
+			firstTokens.add(getToken());
 			features.add(parseFeatureId());
 			while(accept(COMMA)) {
 				if(enabled(TRAILING_COMMAS) && wouldAccept(SEMI)) {
 					break;
 				}
-				firstTokens.add(this.token);
+				firstTokens.add(getToken());
 				features.add(parseFeatureId());
 			}
 			requireSemi();
@@ -559,7 +620,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	}
 	
 	protected Pair<Token<JavaTokenType>, String> parseFeatureName() {
-		var firstToken = token;
+		var firstToken = getToken();
 		var sb = new StringBuilder();
 		sb.append(parseIdent());
 		while(accept(DOT)) {
@@ -609,8 +670,9 @@ public class JavaPlusPlusParser extends JavaParser {
 
 	@Override
 	public List<ImportDecl> parseImport() {
+		int start = startOffset();
 		require(IMPORT);
-		return parseImportRest(false);
+		return at(start, parseImportRest(false));
 	}
 	
 	protected List<ImportDecl> parseImportRest(boolean unimport) {
@@ -627,7 +689,7 @@ public class JavaPlusPlusParser extends JavaParser {
 				names.add(parseName());
 			}
 		}
-		imports.add(new ImportDecl(new QualifiedName(names), isStatic, wildcard));
+		imports.add(new ImportDecl(span(names.get(0), names.get(names.size()-1), new QualifiedName(names)), isStatic, wildcard));
 		if(enabled(COMMA_IMPORTS)) {
     		while(accept(COMMA)) {
     			if(enabled(TRAILING_COMMAS) && wouldAccept(SEMI)) {
@@ -644,7 +706,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	    				names.add(parseName());
 	    			}
 	    		}
-	    		imports.add(new ImportDecl(new QualifiedName(names), isStatic, wildcard));
+	    		imports.add(new ImportDecl(span(names.get(0), names.get(names.size()-1), new QualifiedName(names)), isStatic, wildcard));
     		}
 		}
 		requireSemi();
@@ -656,6 +718,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	}
 	
 	public List<ImportDecl> parseFromImport(List<ImportDecl> imports1, Set<ImportDecl> imports2) {
+		int start = startOffset();
 		require(FROM);
 		var pckg = parseQualName();
 		boolean unimport;
@@ -695,11 +758,12 @@ public class JavaPlusPlusParser extends JavaParser {
 			}
 			return emptyList();
 		} else {
-			return imports;
+			return at(start, imports);
 		}
 	}
 	
 	public ImportDecl parseFromImportRest(QualifiedName pckg, boolean isStatic) {
+		int start = startOffset();
 		if(accept(STAR)) {
 			return new ImportDecl(pckg, isStatic, true);
 		} else {
@@ -714,12 +778,12 @@ public class JavaPlusPlusParser extends JavaParser {
 					names.add(parseName());
 				}
 			}
-			return new ImportDecl(pckg.append(names), isStatic, wildcard);
+			return new ImportDecl(at(start, pckg.append(names)), isStatic, wildcard);
 		}
 	}
 	
 	protected Pair<Token<JavaTokenType>, String> parseFromJavaPlusPlusImportRest() {
-		var firstToken = token;
+		var firstToken = getToken();
 		if(accept(STAR)) {
 			return Pair.of(firstToken, "*");
 		} else {
@@ -938,10 +1002,11 @@ public class JavaPlusPlusParser extends JavaParser {
 					return applyMemberPreStmts(parseConstructor(typeParameters, docComment, modsAndAnnos));
 				}
 			} else {
+				int typeStart = startOffset();
 				var typeAnnotations = parseAnnotations();
 				Type type;
 				if(accept(VOID)) {
-					type = new VoidType(typeAnnotations);
+					type = at(typeStart, new VoidType(typeAnnotations));
 				} else {
 					type = parseType(typeAnnotations);
 				}
@@ -960,19 +1025,23 @@ public class JavaPlusPlusParser extends JavaParser {
 			return List.of(parseTypeDecl(docComment, modsAndAnnos));
 		} else if(modsAndAnnos.canBeMethodMods() && wouldAccept(LT)) {
 			var typeParameters = parseTypeParameters();
+			int typeStart = startOffset();
 			var typeAnnotations = parseAnnotations();
 			Type type;
 			if(accept(VOID)) {
-				type = new VoidType(typeAnnotations);
+				type = at(typeStart, new VoidType(typeAnnotations));
 			} else {
 				type = parseType(typeAnnotations);
 			}
 			try(var $1 = preStmts.enter(); var $2 = context.enter(modsAndAnnos.hasModifier("static")? Context.STATIC : Context.DYNAMIC)) {
 				return applyMemberPreStmts(parseMethod(inInterface, type, typeParameters, parseName(), docComment, modsAndAnnos));
 			}
-		} else if(accept(VOID)) {
+		} else if(wouldAccept(VOID)) {
+			int typeStart = startOffset();
+			nextToken();
+			var type = at(typeStart, new VoidType());
 			try(var $1 = preStmts.enter(); var $2 = context.enter(modsAndAnnos.hasModifier("static")? Context.STATIC : Context.DYNAMIC)) {
-				return applyMemberPreStmts(parseMethod(inInterface, new VoidType(), emptyList(), parseName(), docComment, modsAndAnnos));
+				return applyMemberPreStmts(parseMethod(inInterface, type, emptyList(), parseName(), docComment, modsAndAnnos));
 			}
 		} else {
 			var type = parseType();
@@ -989,6 +1058,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	}
 	
 	@Override
+	@SuppressWarnings("unchecked")
 	public <M extends Member> ArrayList<M> parseClassBody(Supplier<? extends List<M>> memberParser) {
 		if(enabled(EMPTY_TYPE_BODIES) && accept(SEMI)) {
 			return new ArrayList<>(0);
@@ -998,6 +1068,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			var members = new ArrayList<M>();
 			List<Modifier> parentModifiers = emptyList();
 			while(wouldNotAccept(RBRACE)) {
+				clearMemo();
 				if(!accept(SEMI)) {
 					List<M> parsedMembers;
 					if(enabled(DEFAULT_MODIFIERS)) {
@@ -1006,20 +1077,20 @@ public class JavaPlusPlusParser extends JavaParser {
     						try(var state = tokens.enter()) {
     							var mods = new ArrayList<Modifier>();
     							do {
-    								mods.add(createModifier(token));
+    								mods.add(createModifier(getToken()));
     								nextToken();
     							} while(wouldAccept(KEYWORD_MODIFIER));
     							if(accept(COLON)) {
     								parentModifiers = mods;
-    								parsedMembers = memberParser.get();
+    								parsedMembers = recover(() -> parseMember(memberParser), error -> List.of((M)error));
     								break defaultmods;
     							} else {
     								state.reset();
     							}
     						}
-    						parsedMembers = memberParser.get();
+    						parsedMembers = recover(() -> parseMember(memberParser), error -> List.of((M)error));
 						} else {
-							parsedMembers = memberParser.get();
+							parsedMembers = recover(() -> parseMember(memberParser), error -> List.of((M)error));
 						}
 						for(var member : parsedMembers) {
 							if(member instanceof Modified) {
@@ -1027,12 +1098,12 @@ public class JavaPlusPlusParser extends JavaParser {
 							}
 						}
 					} else {
-						parsedMembers = memberParser.get();
+						parsedMembers = recover(() -> parseMember(memberParser), error -> List.of((M)error));
 					}
 					members.addAll(parsedMembers);
 				}
 			}
-			require(RBRACE);
+			requireClosingBrace();
 			return members;
 		}
 	}
@@ -1068,6 +1139,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			members = new ArrayList<>();
 			List<Modifier> parentModifiers = emptyList();
 			while(wouldNotAccept(RBRACE)) {
+				clearMemo();
 				if(!accept(SEMI)) {
 					List<Member> parsedMembers;
 					if(enabled(DEFAULT_MODIFIERS)) {
@@ -1076,20 +1148,20 @@ public class JavaPlusPlusParser extends JavaParser {
     						try(var state = tokens.enter()) {
     							var mods = new ArrayList<Modifier>();
     							do {
-    								mods.add(createModifier(token));
+    								mods.add(createModifier(getToken()));
     								nextToken();
     							} while(wouldAccept(KEYWORD_MODIFIER));
     							if(accept(COLON)) {
     								parentModifiers = mods;
-    								parsedMembers = parseClassMember(false);
+    								parsedMembers = recover(() -> parseMember(() -> parseClassMember(false)), error -> List.of(error));
     								break defaultmods;
     							} else {
     								state.reset();
     							}
     						}
-    						parsedMembers = parseClassMember(false);
+    						parsedMembers = recover(() -> parseMember(() -> parseClassMember(false)), error -> List.of(error));
 						} else {
-							parsedMembers = parseClassMember(false);
+							parsedMembers = recover(() -> parseMember(() -> parseClassMember(false)), error -> List.of(error));
 						}
 						for(var member : parsedMembers) {
 							if(member instanceof Modified) {
@@ -1097,7 +1169,7 @@ public class JavaPlusPlusParser extends JavaParser {
 							}
 						}
 					} else {
-						parsedMembers = parseClassMember(false);
+						parsedMembers = recover(() -> parseMember(() -> parseClassMember(false)), error -> List.of(error));
 					}
 					members.addAll(parsedMembers);
 				}
@@ -1105,7 +1177,7 @@ public class JavaPlusPlusParser extends JavaParser {
 		} else {
 			members = emptyList();
 		}
-		require(RBRACE);
+		requireClosingBrace();
 		return Pair.of(fields, members);
 	}
 	
@@ -1157,27 +1229,27 @@ public class JavaPlusPlusParser extends JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + token.getString())) {
-					throw syntaxError("Incompatible modifiers 'non-" + token.getString() + "' and '" + token.getString() + "'");
+				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + tokenString())) {
+					throw syntaxError("Incompatible modifiers 'non-" + tokenString() + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(enabled(DEFAULT_MODIFIERS) && wouldAcceptPseudoOp(test("non"), SUB, KEYWORD_MODIFIER)) {
 				nextToken(2);
-				if(mods.contains(token.getString())) {
-					throw syntaxError("Incompatible modifiers '" + token.getString() + "' and 'non-" + token.getString() + "'");
+				if(mods.contains(tokenString())) {
+					throw syntaxError("Incompatible modifiers '" + tokenString() + "' and 'non-" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier("non-" + token.getString()))) {
-					throw syntaxError("Duplicate modifier 'non-" + token.getString() + "'");
+				if(!mods.add(createModifier("non-" + tokenString()))) {
+					throw syntaxError("Duplicate modifier 'non-" + tokenString() + "'");
 				}
 				nextToken();
 			} else {
@@ -1198,31 +1270,31 @@ public class JavaPlusPlusParser extends JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.CLASS_MODIFIER)) {
-				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + token.getString())) {
-					throw syntaxError("Incompatible modifiers 'non-" + token.getString() + "' and '" + token.getString() + "'");
+				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + tokenString())) {
+					throw syntaxError("Incompatible modifiers 'non-" + tokenString() + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(enabled(DEFAULT_MODIFIERS) && wouldAcceptPseudoOp(test("non"), SUB, Tag.CLASS_MODIFIER)) {
 				nextToken(2);
-				if(mods.contains(token.getString())) {
-					throw syntaxError("Incompatible modifiers '" + token.getString() + "' and 'non-" + token.getString() + "'");
+				if(mods.contains(tokenString())) {
+					throw syntaxError("Incompatible modifiers '" + tokenString() + "' and 'non-" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier("non-" + token.getString()))) {
-					throw syntaxError("Duplicate modifier 'non-" + token.getString() + "'");
+				if(!mods.add(createModifier("non-" + tokenString()))) {
+					throw syntaxError("Duplicate modifier 'non-" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos, EnumSet.of(ModsAndAnnotations.Type.CLASS));
 			}
@@ -1240,21 +1312,21 @@ public class JavaPlusPlusParser extends JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(ABSTRACT)) {
 				if(foundAbstract) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				foundAbstract = true;
-				mods.add(createModifier(token));
+				mods.add(createModifier(getToken()));
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos);
 			}
@@ -1273,31 +1345,31 @@ public class JavaPlusPlusParser extends JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.METHOD_MODIFIER)) {
-				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + token.getString())) {
-					throw syntaxError("Incompatible modifiers 'non-" + token.getString() + "' and '" + token.getString() + "'");
+				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + tokenString())) {
+					throw syntaxError("Incompatible modifiers 'non-" + tokenString() + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(enabled(DEFAULT_MODIFIERS) && wouldAcceptPseudoOp(test("non"), SUB, Tag.METHOD_MODIFIER)) {
 				nextToken(2);
-				if(mods.contains(token.getString())) {
-					throw syntaxError("Incompatible modifiers '" + token.getString() + "' and 'non-" + token.getString() + "'");
+				if(mods.contains(tokenString())) {
+					throw syntaxError("Incompatible modifiers '" + tokenString() + "' and 'non-" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier("non-" + token.getString()))) {
-					throw syntaxError("Duplicate modifier 'non-" + token.getString() + "'");
+				if(!mods.add(createModifier("non-" + tokenString()))) {
+					throw syntaxError("Duplicate modifier 'non-" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos, EnumSet.of(ModsAndAnnotations.Type.METHOD));
 			}
@@ -1316,31 +1388,31 @@ public class JavaPlusPlusParser extends JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.CONSTRUCTOR_MODIFIER)) {
-				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + token.getString())) {
-					throw syntaxError("Incompatible modifiers 'non-" + token.getString() + "' and '" + token.getString() + "'");
+				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + tokenString())) {
+					throw syntaxError("Incompatible modifiers 'non-" + tokenString() + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(enabled(DEFAULT_MODIFIERS) && wouldAcceptPseudoOp(test("non"), SUB, Tag.CONSTRUCTOR_MODIFIER)) {
 				nextToken(2);
-				if(mods.contains(token.getString())) {
-					throw syntaxError("Incompatible modifiers '" + token.getString() + "' and 'non-" + token.getString() + "'");
+				if(mods.contains(tokenString())) {
+					throw syntaxError("Incompatible modifiers '" + tokenString() + "' and 'non-" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier("non-" + token.getString()))) {
-					throw syntaxError("Duplicate modifier 'non-" + token.getString() + "'");
+				if(!mods.add(createModifier("non-" + tokenString()))) {
+					throw syntaxError("Duplicate modifier 'non-" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos, EnumSet.of(ModsAndAnnotations.Type.CONSTRUCTOR));
 			}
@@ -1359,31 +1431,31 @@ public class JavaPlusPlusParser extends JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.FIELD_MODIFIER)) {
-				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + token.getString())) {
-					throw syntaxError("Incompatible modifiers 'non-" + token.getString() + "' and '" + token.getString() + "'");
+				if(enabled(DEFAULT_MODIFIERS) && mods.contains("non-" + tokenString())) {
+					throw syntaxError("Incompatible modifiers 'non-" + tokenString() + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(enabled(DEFAULT_MODIFIERS) && wouldAcceptPseudoOp(test("non"), SUB, Tag.FIELD_MODIFIER)) {
 				nextToken(2);
-				if(mods.contains(token.getString())) {
-					throw syntaxError("Incompatible modifiers '" + token.getString() + "' and 'non-" + token.getString() + "'");
+				if(mods.contains(tokenString())) {
+					throw syntaxError("Incompatible modifiers '" + tokenString() + "' and 'non-" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier("non-" + token.getString()))) {
-					throw syntaxError("Duplicate modifier 'non-" + token.getString() + "'");
+				if(!mods.add(createModifier("non-" + tokenString()))) {
+					throw syntaxError("Duplicate modifier 'non-" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos, EnumSet.of(ModsAndAnnotations.Type.FIELD));
 			}
@@ -1458,11 +1530,18 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	protected ContextStack<List<FormalParameter>> functionParameters = new ContextStack<>();
 
+	@Override
+	protected Object memoContext() {
+		return Arrays.asList(scope.current(), context.current(), functionParameters.currentOrElse(null),
+							 typeNames.currentOrElse(null), preStmts.isWithinContext());
+	}
+
 	@Override
 	public Block parseConstructorBody(List<FormalParameter> parameters) {
+		int start = startOffset();
 		if(enabled(EMPTY_CONSTRUCTOR_BODIES)) {
 			if(accept(SEMI)) {
-				return new Block();
+				return at(start, new Block());
 			}
 			if(accept(COLON)) {
 				Optional<Expression> object;
@@ -1497,7 +1576,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					}
 				}
 				endStatement();
-				return new Block(new ConstructorCall(object, typeArguments, callType, args));
+				return at(start, new Block(new ConstructorCall(object, typeArguments, callType, args)));
 			}
 		}
 		try(var $ = functionParameters.enter(parameters)) {
@@ -1557,13 +1636,14 @@ public class JavaPlusPlusParser extends JavaParser {
 		}
 		require(RPAREN);
 		if(enabled(LAST_LAMBDA_ARGUMENT) && wouldAccept(LBRACE)) {
-			args.add(new Lambda(Either.second(emptyList()), Either.first(parseBlock())));
+			args.add(at(startOffset(), new Lambda(Either.second(emptyList()), Either.first(parseBlock()))));
 		}
 		return args;
 	}
 
 	@Override
 	public Optional<Block> parseMethodBody(boolean isVoidMethod, List<FormalParameter> parameters) {
+		int start = startOffset();
 		if(accept(SEMI)) {
 			return Optional.empty();
 		} else {
@@ -1571,7 +1651,7 @@ public class JavaPlusPlusParser extends JavaParser {
     			if(enabled(SIMPLE_METHOD_BODIES) && accept(ARROW)) {
     				var expr = parseExpression();
     				endStatement();
-    				return Optional.of(new Block(isVoidMethod? new ExpressionStmt(expr) : new ReturnStmt(expr)));
+    				return Optional.of(at(start, new Block(isVoidMethod? new ExpressionStmt(expr) : new ReturnStmt(expr))));
     			} else {
     				return Optional.of(parseBlock());
     			}
@@ -1653,13 +1733,14 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@SuppressWarnings("unchecked")
 	public Either<DefaultFormalParameter,FormalParameter> parseFormalParameterWithOptDefault(Supplier<Name> parseName, ModsAndAnnotations modsAndAnnos, Optional<FormalParameter> prevParam) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeLocalVarMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
 		Type type;
 		boolean variadic;
 		Name name;
-		var predicate = enabled(DEFAULT_ARGUMENTS)? (enabled(SIZED_ARRAY_INITIALIZER)? RPAREN.or(COMMA).or(EQ).or(AT).or(LBRACKET) : RPAREN.or(COMMA).or(EQ)) : RPAREN.or(COMMA);
+		var predicate = enabled(DEFAULT_ARGUMENTS)? (enabled(SIZED_ARRAY_INITIALIZER)? PARAMETER_END_OR_DEFAULT_OR_DIMENSION : PARAMETER_END_OR_DEFAULT) : PARAMETER_END;
 		if(modsAndAnnos.isEmpty() && enabled(IMPLICIT_PARAMETER_TYPES) && prevParam.isPresent() && (wouldAccept(Tag.NAMED, predicate) || wouldAccept(Tag.NAMED, ELLIPSIS, predicate) || wouldAccept(THIS, DOT, Tag.NAMED, predicate) || wouldAccept(THIS, DOT, Tag.NAMED, ELLIPSIS, predicate))) {
 			var prev = prevParam.get();
 			modifiers = Node.clone(prev.getModifiers());
@@ -1673,7 +1754,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			name = parseName.get();
 		}		
 		var dimensions = parseDimensions();
-		if(enabled(DEFAULT_ARGUMENTS) && (wouldAccept(EQ) || enabled(SIZED_ARRAY_INITIALIZER) && wouldAccept(AT.or(LBRACKET)))) {
+		if(enabled(DEFAULT_ARGUMENTS) && (wouldAccept(EQ) || enabled(SIZED_ARRAY_INITIALIZER) && wouldAccept(DIMENSION_START))) {
 			Type initType;
 			if(variadic) {
 				if(type instanceof ArrayType) {
@@ -1685,7 +1766,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			} else {
 				initType = type;
 			}
-			boolean arraySizeInit = wouldAccept(AT.or(LBRACKET));
+			boolean arraySizeInit = wouldAccept(DIMENSION_START);
 			var initializer = parseVariableInitializer(initType, dimensions);
 			if(variadic && arraySizeInit) {
 				dimensions.remove(0);
@@ -1747,9 +1828,9 @@ public class JavaPlusPlusParser extends JavaParser {
 			} else {
 				defaultValue = (Expression)initializer;
 			}
-			return Either.first(new DefaultFormalParameter(type, name, variadic, dimensions, defaultValue, modifiers, annotations));
+			return Either.first(at(start, new DefaultFormalParameter(type, name, variadic, dimensions, defaultValue, modifiers, annotations)));
 		} else {
-			return Either.second(new FormalParameter(type, name, variadic, dimensions, modifiers, annotations));
+			return Either.second(at(start, new FormalParameter(type, name, variadic, dimensions, modifiers, annotations)));
 		}
 	}
 	
@@ -1775,13 +1856,14 @@ public class JavaPlusPlusParser extends JavaParser {
 
 	@SuppressWarnings("unchecked")
 	public FormalParameter parseFormalParameterWithDefault(Supplier<Name> parseName, ModsAndAnnotations modsAndAnnos, Optional<FormalParameter> prevParam) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeLocalVarMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
 		Type type;
 		boolean variadic;
 		Name name;
-		var predicate = enabled(SIZED_ARRAY_INITIALIZER)? RPAREN.or(COMMA).or(EQ).or(AT).or(LBRACKET) : RPAREN.or(COMMA).or(EQ);
+		var predicate = enabled(SIZED_ARRAY_INITIALIZER)? PARAMETER_END_OR_DEFAULT_OR_DIMENSION : PARAMETER_END_OR_DEFAULT;
 		if(modsAndAnnos.isEmpty() && enabled(IMPLICIT_PARAMETER_TYPES) && prevParam.isPresent() && (wouldAccept(Tag.NAMED, predicate) || wouldAccept(Tag.NAMED, ELLIPSIS, predicate) || wouldAccept(THIS, DOT, Tag.NAMED, predicate) || wouldAccept(THIS, DOT, Tag.NAMED, ELLIPSIS, predicate))) {
 			var prev = prevParam.get();
 			modifiers = Node.clone(prev.getModifiers());
@@ -1797,10 +1879,10 @@ public class JavaPlusPlusParser extends JavaParser {
 		var dimensions = parseDimensions();
 		if(variadic) {
 			if(!wouldAccept(EQ) && (!enabled(SIZED_ARRAY_INITIALIZER) || !wouldAccept(LBRACKET))) {
-				return new FormalParameter(type, name, variadic, dimensions, modifiers, annotations);
+				return at(start, new FormalParameter(type, name, variadic, dimensions, modifiers, annotations));
 			}
 		}
-		boolean arraySizeInit = wouldAccept(AT.or(LBRACKET));
+		boolean arraySizeInit = wouldAccept(DIMENSION_START);
 		var initializer = parseVariableInitializer(type, dimensions);
 		if(variadic && arraySizeInit) {
 			dimensions.remove(0);
@@ -1862,7 +1944,7 @@ public class JavaPlusPlusParser extends JavaParser {
 		} else {
 			defaultValue = (Expression)initializer;
 		}
-		return new DefaultFormalParameter(type, name, variadic, dimensions, defaultValue, modifiers, annotations);
+		return at(start, new DefaultFormalParameter(type, name, variadic, dimensions, defaultValue, modifiers, annotations));
 	}
 	
 	protected int firstDefaultIndex(List<FormalParameter> parameters) {
@@ -2339,6 +2421,7 @@ public class JavaPlusPlusParser extends JavaParser {
 
 	@Override
 	public VariableDecl parseVariableDecl(Type type, Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, type.start());
 		assert modsAndAnnos.canBeFieldMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
@@ -2351,7 +2434,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			declarators.add(parseVariableDeclarator(type));
 		}
 		endStatement();
-		return new VariableDecl(type, declarators, modifiers, annotations, docComment);
+		return at(start, new VariableDecl(type, declarators, modifiers, annotations, docComment));
 	}
 	
 	protected Expression wrapInNot(Expression expr) {
@@ -2372,7 +2455,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public void endStatement() {
-		if(enabled(IMPLICIT_SEMICOLONS) && (wouldAccept(RBRACE.or(ENDMARKER)) || tokens.look(-2).getType() == RBRACE)) {
+		if(enabled(IMPLICIT_SEMICOLONS) && (wouldAccept(RBRACE.or(ENDMARKER)) || lookType(-2) == RBRACE)) {
 			accept(SEMI);
 		} else {
 			requireSemi();
@@ -2444,22 +2527,23 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Type parseType(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var base = parseNonArrayType(annotations);
-		if(wouldAccept(AT.or(LBRACKET))) {
+		if(wouldAccept(DIMENSION_START)) {
 			var dimensions = parseDimensions();
 			base.setAnnotations(emptyList());
-			Type type = new ArrayType(base, dimensions, annotations);
+			Type type = at(start, new ArrayType(base, dimensions, annotations));
 			if(enabled(OPTIONAL_LITERALS) && wouldAccept(QUES)) {
 				base = type;
 				var qualifier = makeImportedQualifiedName(QualNames.java_util_Optional);
 				for(;;) {
         			while(accept(QUES)) {
-        				type = new GenericType(qualifier, List.of(type));
+        				type = at(start, new GenericType(qualifier, List.of(type)));
         			}
-        			if(wouldAccept(AT.or(LBRACKET))) {
+        			if(wouldAccept(DIMENSION_START)) {
         				base.setAnnotations(emptyList());
         				dimensions = parseDimensions();
-        				type = base = new ArrayType(type, dimensions, annotations);
+        				type = base = at(start, new ArrayType(type, dimensions, annotations));
         				if(!wouldAccept(QUES)) {
         					break;
         				}
@@ -2477,24 +2561,25 @@ public class JavaPlusPlusParser extends JavaParser {
 	@Override
 	public Type parseNonArrayType(List<Annotation> annotations) {
 		if(enabled(OPTIONAL_LITERALS)) {
+			int start = start(annotations, startOffset());
 			Type type;
 			if(accept(INT, QUES)) {
-				type = new GenericType(makeImportedQualifiedName(QualNames.java_util_OptionalInt), emptyList(), annotations);
+				type = at(start, new GenericType(makeImportedQualifiedName(QualNames.java_util_OptionalInt), emptyList(), annotations));
 			} else if(accept(DOUBLE, QUES)) {
-				type = new GenericType(makeImportedQualifiedName(QualNames.java_util_OptionalDouble), emptyList(), annotations);
+				type = at(start, new GenericType(makeImportedQualifiedName(QualNames.java_util_OptionalDouble), emptyList(), annotations));
 			} else if(accept(LONG, QUES)) {
-				type = new GenericType(makeImportedQualifiedName(QualNames.java_util_OptionalLong), emptyList(), annotations);
+				type = at(start, new GenericType(makeImportedQualifiedName(QualNames.java_util_OptionalLong), emptyList(), annotations));
 			} else if(wouldAccept(PRIMITIVE_TYPES)) {
-				var name = token.getString();
+				var name = tokenString();
 				nextToken();
-				return new PrimitiveType(name, annotations);
+				return at(start, new PrimitiveType(name, annotations));
 			} else {
 				type = parseGenericType(annotations);
 			}
 			if(wouldAccept(QUES)) {
 				var qualifier = makeImportedQualifiedName(QualNames.java_util_Optional);
     			while(accept(QUES)) {
-    				type = new GenericType(qualifier, List.of(type));
+    				type = at(start, new GenericType(qualifier, List.of(type)));
     			}
 			}
 			return type;
@@ -2505,6 +2590,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public ReferenceType parseReferenceType(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var base = parseNonArrayType(annotations);
 		ReferenceType type;
 		if(base instanceof PrimitiveType) {
@@ -2512,11 +2598,11 @@ public class JavaPlusPlusParser extends JavaParser {
 			var dimension = parseDimension();
 			var dimensions = parseDimensions();
 			dimensions.add(0, dimension);
-			type = new ArrayType(base, dimensions, annotations);
-		} else if(wouldAccept(AT.or(LBRACKET))) {
+			type = at(start, new ArrayType(base, dimensions, annotations));
+		} else if(wouldAccept(DIMENSION_START)) {
 			var dimensions = parseDimensions();
 			base.setAnnotations(emptyList());
-			type = new ArrayType(base, dimensions, annotations);
+			type = at(start, new ArrayType(base, dimensions, annotations));
 		} else {
 			type = (GenericType)base;
 		}
@@ -2525,12 +2611,12 @@ public class JavaPlusPlusParser extends JavaParser {
 			var qualifier = makeImportedQualifiedName(QualNames.java_util_Optional);
 			for(;;) {
     			while(accept(QUES)) {
-    				type = new GenericType(qualifier, List.of(type));
+    				type = at(start, new GenericType(qualifier, List.of(type)));
     			}
-    			if(wouldAccept(AT.or(LBRACKET))) {
+    			if(wouldAccept(DIMENSION_START)) {
     				base.setAnnotations(emptyList());
     				var dimensions = parseDimensions();
-    				base = type = new ArrayType(type, dimensions, annotations);
+    				base = type = at(start, new ArrayType(type, dimensions, annotations));
     				if(!wouldAccept(QUES)) {
     					break;
     				}
@@ -2556,11 +2642,12 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Block parseBlock() {
+		int start = startOffset();
 		try(var $1 = preStmts.enter(); var $2 = scope.enter(Scope.NORMAL)) {
 			require(LBRACE);
 			var stmts = new ArrayList<Statement>();
 			while(wouldNotAccept(RBRACE)) {
-				var stmt = parseBlockStatement();
+				Statement stmt = recover(this::parseBlockStatement, error -> error);
 				if(enabled(MULTIPLE_VAR_DECLARATIONS) && isMultiVarDecl(stmt)) {
 					var varDecl = (VariableDecl)stmt;
 					for(var declarator : varDecl.getDeclarators()) {
@@ -2570,24 +2657,25 @@ public class JavaPlusPlusParser extends JavaParser {
 					stmts.add(stmt);
 				}
 			}
-			require(RBRACE);
-			return preStmts.apply(new Block(stmts));
+			requireClosingBrace();
+			return preStmts.apply(at(start, new Block(stmts)));
 		}
 	}
 
 	@Override
 	public Block parseBodyAsBlock() {
+		int start = startOffset();
 		if(enabled(IMPLICIT_BLOCKS)) {
 			var stmt = parseBlockStatement();
 			if(stmt instanceof Block) {
 				return (Block)stmt;
 			} else if(enabled(MULTIPLE_VAR_DECLARATIONS) && isMultiVarDecl(stmt)) {
 				var varDecl = (VariableDecl)stmt;
-				return new Block(varDecl.getDeclarators().stream()
+				return at(start, new Block(varDecl.getDeclarators().stream()
 						.map(declarator -> new VariableDecl(varDecl.getType().clone(), declarator, Node.clone(varDecl.getModifiers()), Node.clone(varDecl.getAnnotations()), varDecl.getDocComment()))
-						.collect(Collectors.toList()));
+						.collect(Collectors.toList())));
 			} else {
-				return new Block(stmt);
+				return at(start, new Block(stmt));
 			}
 		} else {
 			return parseBlock();
@@ -2596,7 +2684,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Statement parseBlockStatement() {
-		switch(token.getType()) {
+		switch(tokenType()) {
 			case PRINT, PRINTLN, PRINTF, PRINTFLN -> {
 				if(enabled(PRINT_STATEMENT)) {
 					return parseStatement();
@@ -2619,36 +2707,37 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Statement parseStatement() {
+		int start = startOffset();
 		try(var $ = preStmts.enter()) {
-    		switch(token.getType()) {
+    		switch(tokenType()) {
     			case WITH -> {
     				if(enabled(WITH_STATEMENT)) {
-    					return preStmts.apply(parseWithStmt());
+    					return atIfAbsent(start, preStmts.apply(parseWithStmt()));
     				}
     			}
     			case PRINT -> {
     				if(enabled(PRINT_STATEMENT)) {
-    					return preStmts.apply(parsePrintStmt());
+    					return atIfAbsent(start, preStmts.apply(parsePrintStmt()));
     				}
     			}
     			case PRINTLN -> {
     				if(enabled(PRINT_STATEMENT)) {
-    					return preStmts.apply(parsePrintlnStmt());
+    					return atIfAbsent(start, preStmts.apply(parsePrintlnStmt()));
     				}
     			}
     			case PRINTF -> {
     				if(enabled(PRINT_STATEMENT)) {
-    					return preStmts.apply(parsePrintfStmt(false));
+    					return atIfAbsent(start, preStmts.apply(parsePrintfStmt(false)));
     				}
     			}
     			case PRINTFLN -> {
     				if(enabled(PRINT_STATEMENT)) {
-    					return preStmts.apply(parsePrintfStmt(true));
+    					return atIfAbsent(start, preStmts.apply(parsePrintfStmt(true)));
     				}
     			}
     			case EXIT -> {
     				if(enabled(EXIT_STATEMENT)) {
-    					return preStmts.apply(parseExitStmt());
+    					return atIfAbsent(start, preStmts.apply(parseExitStmt()));
     				}
     			}
     			default -> {}
@@ -2658,15 +2747,16 @@ public class JavaPlusPlusParser extends JavaParser {
 	}
 	
 	public Statement parsePrintStmt() {
+		int start = startOffset();
 		require(PRINT);
 		var args = parsePrintStmtArgs();
 		var qualifier = new MemberAccess(makeQualifier(QualNames.java_lang_System), Names.out);
 		var funcName = Names.print;
 		switch(args.size()) {
 			case 0:
-				return new EmptyStmt();
+				return at(start, new EmptyStmt());
 			case 1:
-				return new ExpressionStmt(new FunctionCall(qualifier, funcName, args));
+				return at(start, new ExpressionStmt(new FunctionCall(qualifier, funcName, args)));
 			default:
 				var stmts = new ArrayList<Statement>();
 				for(int i = 0; i < args.size(); i++) {
@@ -2675,24 +2765,25 @@ public class JavaPlusPlusParser extends JavaParser {
 					}
 					stmts.add(new ExpressionStmt(new FunctionCall(qualifier, funcName, args.get(i))));
 				}
-				return new Block(stmts);
+				return at(start, new Block(stmts));
 		}
 	}
 	
 	public Statement parsePrintlnStmt() {
+		int start = startOffset();
 		require(PRINTLN);
 		var args = parsePrintStmtArgs();
 		var qualifier = new MemberAccess(makeQualifier(QualNames.java_lang_System), Names.out);
 		var funcName = Names.println;
 		switch(args.size()) {
 			case 0:
-				return new EmptyStmt();
+				return at(start, new EmptyStmt());
 			case 1:
 				var arg = args.get(0);
 				if(arg instanceof ParensExpr) {
 					arg = ((ParensExpr)arg).getExpression();
 				}
-				return new ExpressionStmt(new FunctionCall(qualifier, funcName, arg));
+				return at(start, new ExpressionStmt(new FunctionCall(qualifier, funcName, arg)));
 			default:
 				var funcName2 = Names.print;
 				var stmts = new ArrayList<Statement>();
@@ -2702,7 +2793,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					}
 					stmts.add(new ExpressionStmt(new FunctionCall(qualifier, i+1 == args.size()? funcName : funcName2, args.get(i))));
 				}
-				return new Block(stmts);
+				return at(start, new Block(stmts));
 		}
 	}
 	
@@ -2719,10 +2810,10 @@ public class JavaPlusPlusParser extends JavaParser {
 					}
 					args.add(parseExpression());
 				} while(accept(COMMA));
-			} else if(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || tokens.look(-2).getType() != RBRACE)) {
+			} else if(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || lookType(-2) != RBRACE)) {
 				do {
 					args.add(parseExpression());
-				} while(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || tokens.look(-2).getType() != RBRACE));
+				} while(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || lookType(-2) != RBRACE));
 			}
 			endStatement();
 			return args;
@@ -2730,6 +2821,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	}
 	
 	public Statement parsePrintfStmt(boolean isPrintfln) {
+		int start = startOffset();
 		require(isPrintfln? PRINTFLN : PRINTF);
 		var qualifier = new MemberAccess(makeQualifier(java_lang_System), Names.out);
 		var args = new ArrayList<Expression>();
@@ -2750,16 +2842,17 @@ public class JavaPlusPlusParser extends JavaParser {
 				}
 				args.add(parseExpression());
 			} while(accept(COMMA));
-		} else if(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || tokens.look(-2).getType() != RBRACE)) {
+		} else if(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || lookType(-2) != RBRACE)) {
 			do {
 				args.add(parseExpression());
-			} while(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || tokens.look(-2).getType() != RBRACE));
+			} while(!wouldAccept(SEMI) && (!enabled(IMPLICIT_SEMICOLONS) || lookType(-2) != RBRACE));
 		}
 		endStatement();
-		return new ExpressionStmt(new FunctionCall(qualifier, Names.printf, args));
+		return at(start, new ExpressionStmt(new FunctionCall(qualifier, Names.printf, args)));
 	}
 	
 	public Statement parseExitStmt() {
+		int start = startOffset();
 		require(EXIT);
 		var qualifier = makeQualifier(QualNames.java_lang_System);
 		Expression argument;
@@ -2772,10 +2865,11 @@ public class JavaPlusPlusParser extends JavaParser {
 				argument = ((ParensExpr)argument).getExpression();
 			}
 		}
-		return new ExpressionStmt(new FunctionCall(qualifier, Names.exit, argument));
+		return at(start, new ExpressionStmt(new FunctionCall(qualifier, Names.exit, argument)));
 	}
 	
 	public Statement parseWithStmt() {
+		int start = startOffset();
 		require(WITH);
 		var resources = new ArrayList<ResourceSpecifier>();
 		if(enabled(OPTIONAL_STATEMENT_PARENTHESIS) && !wouldAccept(LPAREN)) {
@@ -2791,11 +2885,12 @@ public class JavaPlusPlusParser extends JavaParser {
 			require(RPAREN);
 		}
 		var body = parseBodyAsBlock();
-		return new TryStmt(resources, body);
+		return at(start, new TryStmt(resources, body));
 	}
 	
 	public ResourceSpecifier parseWithResource(boolean inParens, int count) {
-		if(wouldAccept(AT.or(Tag.NAMED).or(Tag.PRIMITIVE_TYPE).or(Tag.LOCAL_VAR_MODIFIER))) {
+		int start = startOffset();
+		if(wouldAccept(LOCAL_VAR_START)) {
     	vardecl:
     		try(var state = tokens.enter()) {
 				var modsAndAnnos = parseFinalAndAnnotations();
@@ -2816,7 +2911,7 @@ public class JavaPlusPlusParser extends JavaParser {
     			if(inParens && !wouldAccept(RPAREN)) {
     				endStatement();
     			}
-    			return new VariableDecl(type, name, dimensions, init, modsAndAnnos.mods, modsAndAnnos.annos, Optional.empty());
+    			return at(start, new VariableDecl(type, name, dimensions, init, modsAndAnnos.mods, modsAndAnnos.annos, Optional.empty()));
     		}
 		}
 		var expr = parseExpression();
@@ -2824,34 +2919,25 @@ public class JavaPlusPlusParser extends JavaParser {
 			endStatement();
 		}
 		if(expr instanceof MemberAccess || expr instanceof Variable) {
-			return new ExpressionStmt(expr);
+			return at(start, new ExpressionStmt(expr));
 		} else {
-			return new VariableDecl(new GenericType(QualNames.var), Name(syntheticName("with" + count, expr)), expr);
+			return at(start, new VariableDecl(new GenericType(QualNames.var), Name(syntheticName("with" + count, expr)), expr));
 		}
 	}
 	
 	@Override
-	public IfStmt parseIfStmt() {
-		require(IF);
-		Expression condition;
+	public Expression parseIfCondition() {
 		if(enabled(IF_NOT) && !enabled(OPTIONAL_STATEMENT_PARENTHESIS) && accept(BANG)) {
-			condition = wrapInNot(parseCondition());
+			return wrapInNot(parseCondition());
 		} else {
-			condition = parseCondition();
+			return parseCondition();
 		}
-		var body = parseBody();
-		Optional<Statement> elseBody;
-		if(accept(ELSE)) {
-			elseBody = Optional.of(parseBody());
-		} else {
-			elseBody = Optional.empty();
-		}
-		return new IfStmt(condition, body, elseBody);
 	}
 
 
 	@Override
 	public WhileStmt parseWhileStmt() {
+		int start = startOffset();
 		require(WHILE);
 		Expression condition;
 		if(enabled(IF_NOT) && !enabled(OPTIONAL_STATEMENT_PARENTHESIS) && accept(BANG)) {
@@ -2860,11 +2946,12 @@ public class JavaPlusPlusParser extends JavaParser {
 			condition = parseCondition();
 		}
 		var body = parseBody();
-		return new WhileStmt(condition, body);
+		return at(start, new WhileStmt(condition, body));
 	}
 
 	@Override
 	public DoStmt parseDoStmt() {
+		int start = startOffset();
 		require(DO);
 		var body = parseBody();
 		require(WHILE);
@@ -2875,16 +2962,17 @@ public class JavaPlusPlusParser extends JavaParser {
 			condition = parseCondition();
 		}
 		endStatement();
-		return new DoStmt(body, condition);
+		return at(start, new DoStmt(body, condition));
 	}
 	
 	@Override
 	public Statement parseForStmt() {
+		int start = startOffset();
 		require(FOR);
 		
 		if(enabled(EMPTY_FOR) && wouldAccept(enabled(OPTIONAL_STATEMENT_PARENTHESIS)? LBRACE : not(LPAREN))) {
 			var body = parseStatement();
-			return new ForStmt(Optional.empty(), Optional.empty(), emptyList(), body);
+			return at(start, new ForStmt(Optional.empty(), Optional.empty(), emptyList(), body));
 		} else {
 			require(LPAREN);
 		}
@@ -2905,11 +2993,11 @@ public class JavaPlusPlusParser extends JavaParser {
 				entryName = name;
 				name = parseName();
 			}
-			FormalParameter param = new FormalParameter(new GenericType(QualNames.var), name),
+			FormalParameter param = span(name, name, new FormalParameter(new GenericType(QualNames.var), name)),
 							param2 = null;
 			if(enabled(FOR_ENTRIES) && accept(COMMA)) {
 				name = parseName();
-				param2 = new FormalParameter(new GenericType(QualNames.var), name);
+				param2 = span(name, name, new FormalParameter(new GenericType(QualNames.var), name));
 				if(entryName != null) {
 					require(RPAREN);
 				}
@@ -2919,7 +3007,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			require(RPAREN);
 			var body = parseStatement();
 			if(param2 == null) {
-				return new ForEachStmt(param, iterable, body);
+				return at(start, new ForEachStmt(param, iterable, body));
 			} else {
 				if(entryName == null) {
 					entryName = Name(syntheticName("entry", iterable));
@@ -2935,23 +3023,25 @@ public class JavaPlusPlusParser extends JavaParser {
 				} else {
 					body = new Block(decl1, decl2, body);
 				}
-				return new ForEachStmt(entryDecl, iterable, body);
+				return at(start, new ForEachStmt(entryDecl, iterable, body));
 			}
 		}
 		
-		boolean mayHaveVariable = wouldAccept(AT.or(Tag.NAMED).or(Tag.PRIMITIVE_TYPE).or(Tag.LOCAL_VAR_MODIFIER));
+		boolean mayHaveVariable = wouldAccept(LOCAL_VAR_START);
 		if(mayHaveVariable) {
 			foreach: 
 			try(var state = tokens.enter()) {
 				FormalParameter param, param2 = null, entryDecl = null;
 				try {
+					int paramStart = startOffset();
 					var modsAndAnnos = parseFinalAndAnnotations();
 					var type = parseType();
 					var name = parseName();
 					var dimensions = parseDimensions();
 					
 					if(enabled(FOR_ENTRIES) && accept(LPAREN)) {
-						entryDecl = new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos);
+						entryDecl = at(paramStart, new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos));
+						paramStart = startOffset();
 						modsAndAnnos = parseFinalAndAnnotations();
 						type = parseType();
 						name = parseName();
@@ -2961,14 +3051,15 @@ public class JavaPlusPlusParser extends JavaParser {
 						}
 					}
 					
-					param = new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos);
+					param = at(paramStart, new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos));
 					
 					if(enabled(FOR_ENTRIES) && accept(COMMA)) {
+						paramStart = startOffset();
 						modsAndAnnos = parseFinalAndAnnotations();
 						type = parseType();
 						name = parseName();
 						dimensions = parseDimensions();
-						param2 = new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos);
+						param2 = at(paramStart, new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos));
 						if(entryDecl != null) {
 							require(RPAREN);
 						}
@@ -2985,7 +3076,7 @@ public class JavaPlusPlusParser extends JavaParser {
 				var body = parseBody();
 				
 				if(param2 == null) {
-					return new ForEachStmt(param, iterable, body);
+					return at(start, new ForEachStmt(param, iterable, body));
 				} else {
 					Name entryName;
 					if(entryDecl == null) {
@@ -3004,7 +3095,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					} else {
 						body = new Block(decl1, decl2, body);
 					}
-					return new ForEachStmt(entryDecl, iterable, body);
+					return at(start, new ForEachStmt(entryDecl, iterable, body));
 				}
 			}
 		}
@@ -3013,6 +3104,7 @@ public class JavaPlusPlusParser extends JavaParser {
 		if(mayHaveVariable) {
 			vardecl: 
 			try(var state = tokens.enter()) {
+				int varStart = startOffset();
 				var modsAndAnnos = parseFinalAndAnnotations();
 				Type type;
 				Name name;
@@ -3029,7 +3121,7 @@ public class JavaPlusPlusParser extends JavaParser {
 				Optional<? extends Initializer> init = parseVariableInitializerOpt(type, dimensions);
 
 				var declarators = new ArrayList<VariableDeclarator>();
-				declarators.add(new VariableDeclarator(name, dimensions, init));
+				declarators.add(at(name.start(), new VariableDeclarator(name, dimensions, init)));
 
 				while(accept(COMMA)) {
 					declarators.add(parseVariableDeclarator(type));
@@ -3037,7 +3129,7 @@ public class JavaPlusPlusParser extends JavaParser {
 
 				endStatement();
 
-				initializer = Optional.of(Either.first(new VariableDecl(type, declarators, modsAndAnnos.mods, modsAndAnnos.annos, Optional.empty())));
+				initializer = Optional.of(Either.first(at(varStart, new VariableDecl(type, declarators, modsAndAnnos.mods, modsAndAnnos.annos, Optional.empty()))));
 			}
 			if(initializer.isEmpty()) {
 				initializer = Optional.of(Either.second(parseExpressionStmt()));
@@ -3060,16 +3152,17 @@ public class JavaPlusPlusParser extends JavaParser {
 		}
 		require(RPAREN);
 		var body = parseBody();
-		return new ForStmt(initializer, condition, updates, body);
+		return at(start, new ForStmt(initializer, condition, updates, body));
 	}
 	
 	@Override
 	public SynchronizedStmt parseSynchronizedStmt() {
+		int start = startOffset();
 		if(wouldAccept(SYNCHRONIZED, LBRACE) || enabled(IMPLICIT_BLOCKS) && !enabled(OPTIONAL_STATEMENT_PARENTHESIS) && wouldAccept(SYNCHRONIZED, not(LPAREN)) || wouldAccept(SYNCHRONIZED, Tag.STATEMENT_KW.and(not(Tag.NAMED)))) {
 			require(SYNCHRONIZED);
 			var lock = context.current() == Context.STATIC && !typeNames.isEmpty()? new ClassLiteral(new GenericType(typeNames.current().toQualifiedName())) : new This();
 			var body = parseBodyAsBlock();
-			return new SynchronizedStmt(lock, body);
+			return at(start, new SynchronizedStmt(lock, body));
 		} else {
 			return super.parseSynchronizedStmt();
 		}
@@ -3077,9 +3170,10 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public EmptyStmt parseEmptyStmt() {
+		int start = startOffset();
 		if(enabled(EMPTY_STATEMENTS)) {
 			require(SEMI);
-			return new EmptyStmt();
+			return at(start, new EmptyStmt());
 		} else {
 			throw syntaxError("Use {} for empty statements");
 		}
@@ -3087,6 +3181,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Statement parseTryStmt() {
+		int start = startOffset();
 		require(TRY);
 		List<ResourceSpecifier> resources;
 		if(accept(LPAREN)) {
@@ -3111,7 +3206,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			lastToken = null;
 		}
 		
-		if(enabled(TRY_ELSE) && wouldAccept(ELSE) && lastToken != null && token.getStart().getLine() == lastToken.getEnd().getLine()) {
+		if(enabled(TRY_ELSE) && wouldAccept(ELSE) && lastToken != null && getToken().getStart().getLine() == lastToken.getEnd().getLine()) {
 		elsebody:
 			try(var state = tokens.enter()) {
 				require(ELSE);
@@ -3134,11 +3229,11 @@ public class JavaPlusPlusParser extends JavaParser {
 				
 				if(finallyBody.isEmpty()) {
     				var tryStmt = new TryStmt(resources, body, catches, finallyBody);
-    				return new Block(new VariableDecl(new PrimitiveType(PrimitiveType.BOOLEAN), successName, new Literal(true)), tryStmt, new IfStmt(new Variable(successName), elseBlock));
+    				return at(start, new Block(new VariableDecl(new PrimitiveType(PrimitiveType.BOOLEAN), successName, new Literal(true)), tryStmt, new IfStmt(new Variable(successName), elseBlock)));
 				} else {
 					var tryStmt = new TryStmt(resources, body, catches, Optional.empty());
     				var block = new Block(new VariableDecl(new PrimitiveType(PrimitiveType.BOOLEAN), successName, new Literal(true)), tryStmt, new IfStmt(new Variable(successName), elseBlock));
-    				return new TryStmt(block, emptyList(), finallyBody);
+    				return at(start, new TryStmt(block, emptyList(), finallyBody));
 					//finallyBody = Optional.of(new Block(new TryStmt(emptyList(), new Block(new IfStmt(new Variable(successName), elseBlock)), emptyList(), finallyBody)));
 					//var tryStmt = new TryStmt(resources, body, catches, finallyBody);
     				//return new Block(new VariableDecl(new PrimitiveType(PrimitiveType.BOOLEAN), successName, new Literal(true)), tryStmt);
@@ -3148,10 +3243,10 @@ public class JavaPlusPlusParser extends JavaParser {
 		
 		Optional<Block> finallyBody = parseFinally();
 		if(resources.isEmpty() && catches.isEmpty() && finallyBody.isEmpty()) {
-			throw syntaxError("expected 'catch' or 'finally' here, got " + token);
+			throw syntaxError(got -> "expected 'catch' or 'finally' here, got " + got);
 		}
 		
-		return new TryStmt(resources, body, catches, finallyBody);
+		return at(start, new TryStmt(resources, body, catches, finallyBody));
 	}
 	
 	@Override
@@ -3159,10 +3254,11 @@ public class JavaPlusPlusParser extends JavaParser {
 		var catches = new ArrayList<Catch>();
 		while(wouldAccept(CATCH)) {
 			if(enabled(DEFAULT_CATCH) && wouldAccept(CATCH, not(LPAREN))) {
+				int start = startOffset();
 				require(CATCH);
 				var body = parseBodyAsBlock();
 				var param = new FormalParameter(new GenericType(QualifiedName(enabled(FULLY_QUALIFIED_NAMES)? "java.lang.Throwable" : "Throwable")), Name(syntheticName("defaultException", body)));
-				catches.add(new Catch(param, body));
+				catches.add(at(start, new Catch(param, body)));
 				if(wouldAccept(CATCH)) {
 					throw syntaxError("default catch must be the last catch");
 				}
@@ -3176,6 +3272,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Statement parseArrowCaseBody() {
+		int start = startOffset();
 		if(wouldAccept(THROW)) {
 			return parseThrowStmt();
 		} else if(wouldAccept(LBRACE)) {
@@ -3184,18 +3281,18 @@ public class JavaPlusPlusParser extends JavaParser {
 			if(enabled(IMPLICIT_BLOCKS)) {
 				var stmt = parseStatement();
 				if(!(stmt instanceof ExpressionStmt)) {
-					stmt = new Block(stmt);
+					stmt = at(start, new Block(stmt));
 				}
 				return stmt;
 			} else if(enabled(BETTER_ARROW_CASE_BODIES)) {
-				switch(token.getType()) {
+				switch(tokenType()) {
 					case IF, RETURN, TRY, SYNCHRONIZED -> {
-						return new Block(parseStatement());
+						return at(start, new Block(parseStatement()));
 					}
 					case WITH -> {
 						if(enabled(WITH_STATEMENT)) {
 							try(var $ = preStmts.enter()) {
-								return preStmts.apply(new Block(parseWithStmt()));
+								return preStmts.apply(at(start, new Block(parseWithStmt())));
 							}
 						}
 					}
@@ -3208,13 +3305,14 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public ReturnStmt parseReturnStmt() {
+		int start = startOffset();
 		require(RETURN);
 		if(accept(SEMI) || enabled(IMPLICIT_SEMICOLONS) && wouldAccept(RBRACE.or(ENDMARKER))) {
-			return new ReturnStmt();
+			return at(start, new ReturnStmt());
 		} else {
 			var expr = parseExpression();
 			endStatement();
-			return new ReturnStmt(expr);
+			return at(start, new ReturnStmt(expr));
 		}
 	}
 
@@ -3253,7 +3351,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Initializer parseVariableInitializer(Type type, ArrayList<Dimension> dimensions) {
-		if(enabled(SIZED_ARRAY_INITIALIZER) && dimensions.isEmpty() && wouldAccept(AT.or(LBRACKET))) {
+		if(enabled(SIZED_ARRAY_INITIALIZER) && dimensions.isEmpty() && wouldAccept(DIMENSION_START)) {
 			var sizes = new ArrayList<Size>();
 			var newdimensions = new ArrayList<Dimension>();
 			var annotations = parseAnnotations();
@@ -3261,7 +3359,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			dimensions.add(new Dimension(Node.clone(annotations)));
 			sizes.add(new Size(parseExpression(), annotations));
 			require(RBRACKET);
-			while(wouldAccept(AT.or(LBRACKET))) {
+			while(wouldAccept(DIMENSION_START)) {
 				annotations = parseAnnotations();
 				require(LBRACKET);
 				dimensions.add(new Dimension(Node.clone(annotations)));
@@ -3273,7 +3371,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					require(RBRACKET);
 				}
 			}
-			while(wouldAccept(AT.or(LBRACKET))) {
+			while(wouldAccept(DIMENSION_START)) {
 				annotations = parseAnnotations();
 				require(LBRACKET, RBRACKET);
 				dimensions.add(new Dimension(Node.clone(annotations)));
@@ -3313,7 +3411,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	public Optional<? extends Initializer> parseVariableInitializerOpt(Type type, ArrayList<Dimension> dimensions) {
 		if(accept(EQ)) {
 			return Optional.of(parseInitializer(dimensionCount(type, dimensions)));
-		} else if(enabled(SIZED_ARRAY_INITIALIZER) && dimensions.isEmpty() && wouldAccept(AT.or(LBRACKET))) {
+		} else if(enabled(SIZED_ARRAY_INITIALIZER) && dimensions.isEmpty() && wouldAccept(DIMENSION_START)) {
 			var sizes = new ArrayList<Size>();
 			var newdimensions = new ArrayList<Dimension>();
 			var annotations = parseAnnotations();
@@ -3321,7 +3419,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			dimensions.add(new Dimension(Node.clone(annotations)));
 			sizes.add(new Size(parseExpression(), annotations));
 			require(RBRACKET);
-			while(wouldAccept(AT.or(LBRACKET))) {
+			while(wouldAccept(DIMENSION_START)) {
 				annotations = parseAnnotations();
 				require(LBRACKET);
 				dimensions.add(new Dimension(Node.clone(annotations)));
@@ -3333,7 +3431,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					require(RBRACKET);
 				}
 			}
-			while(wouldAccept(AT.or(LBRACKET))) {
+			while(wouldAccept(DIMENSION_START)) {
 				annotations = parseAnnotations();
 				require(LBRACKET, RBRACKET);
 				dimensions.add(new Dimension(Node.clone(annotations)));
@@ -3371,12 +3469,13 @@ public class JavaPlusPlusParser extends JavaParser {
 	@Override
 	public ArrayList<Dimension> parseDimensions() {
 		var dimensions = new ArrayList<Dimension>();
-		while(wouldAccept(AT.or(LBRACKET))) {
+		while(wouldAccept(DIMENSION_START)) {
+			int start = startOffset();
 			if(wouldAccept(AT)) {
 				try(var state = tokens.enter()) {
 					var annotations = parseAnnotations();
 					if(accept(LBRACKET, RBRACKET)) {
-						dimensions.add(new Dimension(annotations));
+						dimensions.add(at(start, new Dimension(annotations)));
 					} else {
 						state.reset();
 						break;
@@ -3384,7 +3483,7 @@ public class JavaPlusPlusParser extends JavaParser {
 				}
 			} else {
 				if(accept(LBRACKET, RBRACKET)) {
-					dimensions.add(new Dimension());
+					dimensions.add(at(start, new Dimension()));
 				} else {
 					break;
 				}
@@ -3412,22 +3511,23 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Expression parseConditionalExpr() {
+		int start = startOffset();
 		var expr = parseLogicalOrExpr();
 		if(enabled(NULL_SAFE_EXPRESSIONS) && acceptPseudoOp(QUES, COLON)) {
 			var expr2 = parseLambdaOr(this::parseConditionalExpr);
 			if(isSimple(expr)) {
-				return new ConditionalExpr(new BinaryExpr(expr.clone(), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), expr2, expr);
+				return at(start, new ConditionalExpr(new BinaryExpr(expr.clone(), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), expr2, expr));
 			} else if(preStmts.isWithinContext() && !functionParameters.isEmpty()) {
 				var name = Name(syntheticName("nullSafe", expr));
 				var varDecl = new VariableDecl(new GenericType(QualNames.var), name, new ConditionalExpr(new Literal(false), expr.clone(), new Literal(/*null*/)));
 				preStmts.append(varDecl);
-				return new ConditionalExpr(new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), expr)), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), expr2, new Variable(name));
+				return at(start, new ConditionalExpr(new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), expr)), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), expr2, new Variable(name)));
 			} else {
 				var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
 				if(isSimple(expr2)) {
-					return new FunctionCall(qualifier, Names.requireNonNullElse, expr, expr2);
+					return at(start, new FunctionCall(qualifier, Names.requireNonNullElse, expr, expr2));
 				} else {
-					return new FunctionCall(qualifier, Names.requireNonNullElseGet, expr, new Lambda(emptyList(), expr2));
+					return at(start, new FunctionCall(qualifier, Names.requireNonNullElseGet, expr, new Lambda(emptyList(), expr2)));
 				}
 			}
 		}
@@ -3438,13 +3538,13 @@ public class JavaPlusPlusParser extends JavaParser {
     					var annotations = parseAnnotations();
     					if(accept(INT, GT)) {
     						var qualifier = makeImportedQualifier(QualNames.java_util_OptionalInt);
-    						return new FunctionCall(qualifier, Names.of, expr);
+    						return at(start, new FunctionCall(qualifier, Names.of, expr));
     					} else if(accept(LONG, GT)) {
     						var qualifier = makeImportedQualifier(QualNames.java_util_OptionalLong);
-    						return new FunctionCall(qualifier, Names.of, expr);
+    						return at(start, new FunctionCall(qualifier, Names.of, expr));
     					} else if(accept(DOUBLE, GT)) {
     						var qualifier = makeImportedQualifier(QualNames.java_util_OptionalDouble);
-    						return new FunctionCall(qualifier, Names.of, expr);
+    						return at(start, new FunctionCall(qualifier, Names.of, expr));
     					} else {
     						var type = parseTypeArgument(annotations);
     						require(GT);
@@ -3455,11 +3555,11 @@ public class JavaPlusPlusParser extends JavaParser {
     								hasNonNullAnnotation = true;
     							}
     						}
-    						return new FunctionCall(qualifier, hasNonNullAnnotation? Names.of : Names.ofNullable, List.of(type), expr);
+    						return at(start, new FunctionCall(qualifier, hasNonNullAnnotation? Names.of : Names.ofNullable, List.of(type), expr));
     					}
-    				} else if(wouldAccept(RPAREN.or(RBRACE).or(RBRACKET).or(COMMA).or(SEMI))) {
+    				} else if(wouldAccept(OPTIONAL_EXPR_END)) {
     					var qualifier = makeImportedQualifier(QualNames.java_util_Optional);
-    					return new FunctionCall(qualifier, Names.ofNullable, expr);
+    					return at(start, new FunctionCall(qualifier, Names.ofNullable, expr));
     				} else {
     					state.reset();
     				}
@@ -3468,7 +3568,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			var truepart = parseExpression();
 			require(COLON);
 			var falsepart = parseLambdaOr(this::parseConditionalExpr);
-			return new ConditionalExpr(expr, truepart, falsepart);
+			return at(start, new ConditionalExpr(expr, truepart, falsepart));
 		} else {
 			return expr;
 		}
@@ -3485,111 +3585,99 @@ public class JavaPlusPlusParser extends JavaParser {
 		}
 	}
 
+	/** The precedence of {@code as} casts, between relational and shift operators */
+	protected static final int PREC_AS = 75;
+
 	@Override
-	public Expression parseEqualityExpr() {
-		var expr = parseRelExpr();
-		for(;;) {
-			if(accept(EQEQ)) {
-				var arg = parseRelExpr();
-				if(enabled(EQUALITY_OPERATOR) && !isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
-					var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
-					expr = new FunctionCall(qualifier, Names.deepEquals, expr, arg);
-				} else {
-					expr = new BinaryExpr(expr, BinaryExpr.Op.EQUAL, arg);
-				}
-			} else if(accept(BANGEQ)) {
-				var arg = parseRelExpr();
-				if(enabled(EQUALITY_OPERATOR) && !isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
-					var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
-					expr = wrapInNot(new FunctionCall(qualifier, Names.deepEquals, expr, arg));
-				} else {
-					expr = new BinaryExpr(expr, BinaryExpr.Op.NEQUAL, arg);
-				}
-			} else if(enabled(EQUALITY_OPERATOR) && acceptPseudoOp(IS, BANG)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.NEQUAL, parseRelExpr());
-			} else if(enabled(EQUALITY_OPERATOR) && accept(IS)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.EQUAL, parseRelExpr());
-			} else if(enabled(DEEP_EQUALS_OPERATOR) && acceptPseudoOp(QUES, EQ)) {
-				var arg = parseRelExpr();
-				if(!isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
-					var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
-					expr = new FunctionCall(qualifier, Names.deepEquals, expr, arg);
-				} else {
-					expr = new BinaryExpr(expr, BinaryExpr.Op.EQUAL, arg);
-				}
-			} else if(enabled(DEEP_EQUALS_OPERATOR) && acceptPseudoOp(BANG, QUES, EQ)) {
-				var arg = parseRelExpr();
-				if(!isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
-					var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
-					expr = wrapInNot(new FunctionCall(qualifier, Names.deepEquals, expr, arg));
+	protected void addInfixOperators() {
+		super.addInfixOperators();
+
+		removeInfixOperators(PREC_EQUALITY);
+		addBinaryOperator(PREC_EQUALITY, EQEQ, () -> accept(EQEQ), (expr, arg) -> {
+			if(enabled(EQUALITY_OPERATOR) && !isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
+				var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
+				return new FunctionCall(qualifier, Names.deepEquals, expr, arg);
+			} else {
+				return new BinaryExpr(expr, BinaryExpr.Op.EQUAL, arg);
+			}
+		});
+		addBinaryOperator(PREC_EQUALITY, BANGEQ, () -> accept(BANGEQ), (expr, arg) -> {
+			if(enabled(EQUALITY_OPERATOR) && !isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
+				var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
+				return wrapInNot(new FunctionCall(qualifier, Names.deepEquals, expr, arg));
+			} else {
+				return new BinaryExpr(expr, BinaryExpr.Op.NEQUAL, arg);
+			}
+		});
+		addBinaryOperator(PREC_EQUALITY, IS, () -> enabled(EQUALITY_OPERATOR) && acceptPseudoOp(IS, BANG), BinaryExpr.Op.NEQUAL);
+		addBinaryOperator(PREC_EQUALITY, IS, () -> enabled(EQUALITY_OPERATOR) && accept(IS), BinaryExpr.Op.EQUAL);
+		addBinaryOperator(PREC_EQUALITY, QUES, () -> enabled(DEEP_EQUALS_OPERATOR) && acceptPseudoOp(QUES, EQ), (expr, arg) -> {
+			if(!isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
+				var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
+				return new FunctionCall(qualifier, Names.deepEquals, expr, arg);
+			} else {
+				return new BinaryExpr(expr, BinaryExpr.Op.EQUAL, arg);
+			}
+		});
+		addBinaryOperator(PREC_EQUALITY, BANG, () -> enabled(DEEP_EQUALS_OPERATOR) && acceptPseudoOp(BANG, QUES, EQ), (expr, arg) -> {
+			if(!isInvalidDeepEqualsArgument(expr) && !isInvalidDeepEqualsArgument(arg)) {
+				var qualifier = makeImportedQualifier(QualNames.java_util_Objects);
+				return wrapInNot(new FunctionCall(qualifier, Names.deepEquals, expr, arg));
+			} else {
+				return new BinaryExpr(expr, BinaryExpr.Op.NEQUAL, arg);
+			}
+		});
+
+		// only <=> can be followed by another relational operator
+		removeInfixOperators(PREC_RELATIONAL);
+		addBinaryOperator(PREC_RELATIONAL, LTEQ, () -> enabled(COMPARE_TO_OPERATOR) && acceptPseudoOp(LTEQ, GT), (expr, arg) -> {
+			var qualifier1 = makeImportedQualifier(QualNames.java_util_Objects);
+			var qualifier2 = makeImportedQualifier(QualNames.java_util_Comparator);
+			return new FunctionCall(qualifier1, Names.compare, expr, arg, new FunctionCall(qualifier2, Names.naturalOrder));
+		});
+		addRelationalOperator(LT, BinaryExpr.Op.LTHAN);
+		addRelationalOperator(GT, BinaryExpr.Op.GTHAN);
+		addRelationalOperator(LTEQ, BinaryExpr.Op.LEQUAL);
+		addRelationalOperator(GTEQ, BinaryExpr.Op.GEQUAL);
+		addInfixOperator(new InfixOperator(PREC_RELATIONAL, false, INSTANCEOF, () -> accept(INSTANCEOF), expr -> {
+			var type = parseReferenceType();
+			if(enabled(VARDECL_EXPRESSIONS) && wouldAccept(Tag.NAMED)) {
+				var name = parseName();
+				preStmts.append(new VariableDecl(type.clone(), name));
+				if(isSimple(expr)) {
+					return new ParensExpr(new BinaryExpr(new TypeTest(expr, type), BinaryExpr.Op.AND, new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), new CastExpr(type, expr.clone()))), BinaryExpr.Op.NEQUAL, new Literal(/*null*/))));
 				} else {
-					expr = new BinaryExpr(expr, BinaryExpr.Op.NEQUAL, arg);
+					var synthname = Name(syntheticName("typeTest", expr));
+					preStmts.append(new VariableDecl(new GenericType(makeQualifiedName(QualNames.java_lang_Object)), synthname));
+					return new ParensExpr(new BinaryExpr(new TypeTest(new ParensExpr(new AssignExpr(new Variable(synthname), expr)), type), BinaryExpr.Op.AND, new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), new CastExpr(type, new Variable(synthname)))), BinaryExpr.Op.NEQUAL, new Literal(/*null*/))));
 				}
 			} else {
-				return expr;
+				return new TypeTest(expr, type);
 			}
-		}
+		}));
+		addInfixOperator(new InfixOperator(PREC_RELATIONAL, false, BANG, () -> enabled(NOT_INSTANCEOF) && acceptPseudoOp(BANG, INSTANCEOF),
+										   expr -> wrapInNot(new TypeTest(expr, parseReferenceType()))));
+
+		addInfixOperator(new InfixOperator(PREC_AS, true, AS, () -> enabled(AS_CAST) && accept(AS), expr -> new CastExpr(parseType(), expr)));
 	}
-	
-	@Override
-	public Expression parseRelExpr() {
-		var expr = parseAsExpr();
-		for(;;) {
-			if(enabled(COMPARE_TO_OPERATOR) && acceptPseudoOp(LTEQ, GT)) {
-				var arg = parseAsExpr();
-				var qualifier1 = makeImportedQualifier(QualNames.java_util_Objects);
-				var qualifier2 = makeImportedQualifier(QualNames.java_util_Comparator);
-				expr = new FunctionCall(qualifier1, Names.compare, expr, arg, new FunctionCall(qualifier2, Names.naturalOrder));
-			} else {
-    			if(accept(LT)) {
-    				expr = new BinaryExpr(expr, BinaryExpr.Op.LTHAN, parseAsExpr());
-    			} else if(accept(GT)) {
-    				expr = new BinaryExpr(expr, BinaryExpr.Op.GTHAN, parseAsExpr());
-    			} else if(accept(LTEQ)) {
-    				expr = new BinaryExpr(expr, BinaryExpr.Op.LEQUAL, parseAsExpr());
-    			} else if(accept(GTEQ)) {
-    				expr = new BinaryExpr(expr, BinaryExpr.Op.GEQUAL, parseAsExpr());
-    			} else if(accept(INSTANCEOF)) {
-    				var type = parseReferenceType();
-    				if(enabled(VARDECL_EXPRESSIONS) && wouldAccept(Tag.NAMED)) {
-    					var name = parseName();
-    					preStmts.append(new VariableDecl(type.clone(), name));
-    					if(isSimple(expr)) {
-    						expr = new ParensExpr(new BinaryExpr(new TypeTest(expr, type), BinaryExpr.Op.AND, new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), new CastExpr(type, expr.clone()))), BinaryExpr.Op.NEQUAL, new Literal(/*null*/))));
-    					} else {
-        					var synthname = Name(syntheticName("typeTest", expr));
-        					preStmts.append(new VariableDecl(new GenericType(makeQualifiedName(QualNames.java_lang_Object)), synthname));
-        					expr = new ParensExpr(new BinaryExpr(new TypeTest(new ParensExpr(new AssignExpr(new Variable(synthname), expr)), type), BinaryExpr.Op.AND, new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), new CastExpr(type, new Variable(synthname)))), BinaryExpr.Op.NEQUAL, new Literal(/*null*/))));
-    					}
-    				} else {
-    					expr = new TypeTest(expr, type);
-    				}
-    			} else if(enabled(NOT_INSTANCEOF) && acceptPseudoOp(BANG, INSTANCEOF)) {
-    				expr = wrapInNot(new TypeTest(expr, parseReferenceType()));
-    			}
-    			return expr;
-			}
-		}
+
+	private void addRelationalOperator(JavaTokenType type, BinaryExpr.Op op) {
+		addInfixOperator(new InfixOperator(PREC_RELATIONAL, false, type, () -> accept(type),
+										   expr -> new BinaryExpr(expr, op, parseBinaryExpr(PREC_RELATIONAL + 1))));
 	}
-	
+
 	public Expression parseAsExpr() {
-		var expr = parseShiftExpr();
-		if(enabled(AS_CAST)) {
-			while(accept(AS)) {
-    			var type = parseType();
-    			expr = new CastExpr(type, expr);
-			}
-		}
-		return expr;
+		return parseBinaryExpr(PREC_AS);
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public Expression parseParens() {
+		int start = startOffset();
 		try(var $ = scope.enter(Scope.NORMAL)) {
 			require(LPAREN);
 			Expression expr;
-			if(enabled(VARDECL_EXPRESSIONS) && wouldAccept(AT.or(Tag.LOCAL_VAR_MODIFIER).or(Tag.NAMED).or(Tag.PRIMITIVE_TYPE))) {
+			if(enabled(VARDECL_EXPRESSIONS) && wouldAccept(LOCAL_VAR_START)) {
 				expr = null;
 			vardecl:
 				try(var state = tokens.enter()) {
@@ -3638,7 +3726,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					}
 					declarator.setInitializer();
 					preStmts.append(new VariableDecl(type, declarator, modifiers, annotations));
-					expr = new AssignExpr(new Variable(name), value);
+					expr = at(start(modifiers, start(annotations, type.start())), new AssignExpr(new Variable(name), value));
 				}
 				if(expr == null) {
 					expr = parseExpression();
@@ -3647,7 +3735,7 @@ public class JavaPlusPlusParser extends JavaParser {
 				expr = parseExpression();
 			}
 			require(RPAREN);
-			return new ParensExpr(expr);
+			return at(start, new ParensExpr(expr));
 		}
 	}
 	
@@ -3665,7 +3753,7 @@ public class JavaPlusPlusParser extends JavaParser {
 		require(LPAREN);
 		if(accept(RPAREN)) {
 			if(!classCreatorArguments && enabled(LAST_LAMBDA_ARGUMENT) && wouldAccept(LBRACE) && scope.current() != Scope.CONDITION) {
-				return List.of(new Lambda(Either.second(emptyList()), Either.first(parseBlock())));
+				return List.of(at(startOffset(), new Lambda(Either.second(emptyList()), Either.first(parseBlock()))));
 			} else {
 				return emptyList();
 			}
@@ -3680,7 +3768,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			}
 			require(RPAREN);
 			if(!classCreatorArguments && enabled(LAST_LAMBDA_ARGUMENT) && wouldAccept(LBRACE) && scope.current() != Scope.CONDITION) {
-				args.add(new Lambda(Either.second(emptyList()), Either.first(parseBlock())));
+				args.add(at(startOffset(), new Lambda(Either.second(emptyList()), Either.first(parseBlock()))));
 			}
 			return args;
 		}
@@ -3700,6 +3788,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Expression parseSuffix() {
+		int start = startOffset();
 		var expr = parsePrimary();
 		for(;;) {
 			if(wouldAccept(COLCOL)) {
@@ -3727,12 +3816,12 @@ public class JavaPlusPlusParser extends JavaParser {
 					expr = expr2;
 				} else {
     				if(isSimple(expr)) {
-    					expr = new ParensExpr(new ConditionalExpr(new BinaryExpr(expr.clone(), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), new Literal(/*null*/), expr2));
+    					expr = at(start, new ParensExpr(new ConditionalExpr(new BinaryExpr(expr.clone(), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), new Literal(/*null*/), expr2)));
     				} else if(preStmts.isWithinContext() && !functionParameters.isEmpty()) {
     					var name = Name(syntheticName("nullSafeDot", expr));
     					var varDecl = new VariableDecl(new GenericType(QualNames.var), name, new ConditionalExpr(new Literal(false), new Literal(/*null*/), expr.clone()));
     					preStmts.append(varDecl);
-    					expr = new ConditionalExpr(new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), expr.clone())), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), new Variable(name), expr2);
+    					expr = at(start, new ConditionalExpr(new BinaryExpr(new ParensExpr(new AssignExpr(new Variable(name), expr.clone())), BinaryExpr.Op.EQUAL, new Literal(/*null*/)), new Variable(name), expr2));
     				} else {
     					var qualifier = makeImportedQualifier(QualNames.java_util_Optional);
     					var object = new FunctionCall(qualifier, Names.ofNullable, expr.clone());
@@ -3746,7 +3835,7 @@ public class JavaPlusPlusParser extends JavaParser {
     						((MemberAccess)result).setExpression(new Variable(name));
     					}
     					var mapped = new FunctionCall(object, Names.map, new Lambda(List.of(new InformalParameter(name)), result));
-    					expr = new FunctionCall(mapped, Names.orElse, new Literal(/*null*/));
+    					expr = at(start, new FunctionCall(mapped, Names.orElse, new Literal(/*null*/)));
     				}
 				}
 			} else if(wouldAccept(LBRACKET)) {
@@ -3757,7 +3846,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					if(accept(THROW)) {
 						if(wouldAccept(LBRACE)) {
 							var body = parseBlock();
-							return new FunctionCall(expr, Names.orElseThrow, new Lambda(emptyList(), body));
+							return at(start, new FunctionCall(expr, Names.orElseThrow, new Lambda(emptyList(), body)));
 						} else {
 							Expression body;
 							if(wouldAccept(NEW)) {
@@ -3768,12 +3857,12 @@ public class JavaPlusPlusParser extends JavaParser {
 							} else {
 								body = parseSuffix();
 							}
-							return new FunctionCall(expr, Names.orElseThrow, new Lambda(emptyList(), body));
+							return at(start, new FunctionCall(expr, Names.orElseThrow, new Lambda(emptyList(), body)));
 						}
 					} else {
 						if(wouldAccept(LBRACE)) {
 							var body = parseBlock();
-							return new FunctionCall(expr, Names.orElseGet, new Lambda(emptyList(), body));
+							return at(start, new FunctionCall(expr, Names.orElseGet, new Lambda(emptyList(), body)));
 						} else {
 							Expression body;
 							if(wouldAccept(NEW)) {
@@ -3785,14 +3874,14 @@ public class JavaPlusPlusParser extends JavaParser {
 								body = parseSuffix();
 							}
 							if(isSimple(body)) {
-								return new FunctionCall(expr, Names.orElse, body);
+								return at(start, new FunctionCall(expr, Names.orElse, body));
 							} else {
-								return new FunctionCall(expr, Names.orElseGet, new Lambda(emptyList(), body));
+								return at(start, new FunctionCall(expr, Names.orElseGet, new Lambda(emptyList(), body)));
 							}
 						}
 					}
 				} else {
-					return new FunctionCall(expr, Names.orElseThrow);
+					return at(start, new FunctionCall(expr, Names.orElseThrow));
 				}
 			} else {
 				return expr;
@@ -3821,6 +3910,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	}
 
 	public Expression parseExpressionMethodReferenceRest(Optional<? extends Expression> object, List<? extends TypeArgument> typeArguments, Name name) {
+		int start = object.isPresent()? start(object.get()) : -1;
 		if(enabled(PARTIAL_METHOD_REFERENCES) && accept(LPAREN)) {
 			var params = new ArrayList<InformalParameter>();
 			var args = new ArrayList<Expression>();
@@ -3837,7 +3927,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			}
 			require(RPAREN);
 			if(enabled(LAST_LAMBDA_ARGUMENT) && wouldAccept(LBRACE) && scope.current() != Scope.CONDITION) {
-				args.add(new Lambda(Either.second(emptyList()), Either.first(parseBlock())));
+				args.add(at(startOffset(), new Lambda(Either.second(emptyList()), Either.first(parseBlock()))));
 			}
 			if(object.isEmpty() && !typeArguments.isEmpty()) {
 				if(context.isEmpty() || context.current() == Context.DYNAMIC || typeNames.isEmpty()) {
@@ -3847,7 +3937,7 @@ public class JavaPlusPlusParser extends JavaParser {
 				}
 			}
 			Expression functionCall = new FunctionCall(object, name, typeArguments, args);
-			return new ParensExpr(new Lambda(Either.second(params), Either.second(functionCall)));
+			return at(start, new ParensExpr(new Lambda(Either.second(params), Either.second(functionCall))));
 		}
 		if(object.isPresent()) {
 			return super.parseExpressionMethodReferenceRest(object.get(), typeArguments, name);
@@ -3868,15 +3958,16 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Expression parseTypeMethodReferenceRest(Either<ArrayType,GenericType> type, List<? extends TypeArgument> typeArguments) {
+		int start = start((Type)type.getValue());
 		if(enabled(PARTIAL_METHOD_REFERENCES)) {
 			if(accept(LPAREN)) {
 				var params = new ArrayList<InformalParameter>();
 				var args = new ArrayList<Expression>();
-				var comma = token;
+				var comma = getToken();
 				if(!wouldAccept(RPAREN)) {
 					try(var $ = scope.enter(Scope.NORMAL)) {
 						parsePartialMethodReferenceArgument(params, args);
-						comma = token;
+						comma = getToken();
 						while(accept(COMMA)) {
 							if(enabled(TRAILING_COMMAS) && wouldAccept(RPAREN)) {
 								break;
@@ -3909,7 +4000,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					}
 					functionCall = new ClassCreator(typeArguments, type.second(), args, members);
 				}
-				return new ParensExpr(new Lambda(Either.second(params), Either.second(functionCall)));
+				return at(start, new ParensExpr(new Lambda(Either.second(params), Either.second(functionCall))));
 			} else if(scope.current() != Scope.CONDITION && wouldAccept(LBRACE) && (type.isFirst() || enabled(OPTIONAL_CONSTRUCTOR_ARGUMENTS))) {
 				Expression functionCall;
 				if(type.isFirst()) {
@@ -3920,7 +4011,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					var members = Optional.of(parseClassBody(() -> parseClassMember(false)));
 					functionCall = new ClassCreator(typeArguments, type.second(), emptyList(), members);
 				}
-				return new ParensExpr(new Lambda(Either.second(emptyList()), Either.second(functionCall)));
+				return at(start, new ParensExpr(new Lambda(Either.second(emptyList()), Either.second(functionCall))));
 			}
 		}
 		return super.parseTypeMethodReferenceRest(type, typeArguments);
@@ -3944,7 +4035,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			}
 			require(RPAREN);
 			if(enabled(LAST_LAMBDA_ARGUMENT) && wouldAccept(LBRACE) && scope.current() != Scope.CONDITION) {
-				args.add(new Lambda(Either.second(emptyList()), Either.first(parseBlock())));
+				args.add(at(startOffset(), new Lambda(Either.second(emptyList()), Either.first(parseBlock()))));
 			}
 			Expression functionCall = new SuperFunctionCall(qualifier, name, typeArguments, args);
 			return new ParensExpr(new Lambda(Either.second(params), Either.second(functionCall)));
@@ -3966,7 +4057,8 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Expression parsePrimary() {
-		return switch(token.getType()) {
+		int start = startOffset();
+		return atIfAbsent(start, switch(tokenType()) {
 			case LBRACKET -> parseListLiteral();
 			case LBRACE -> parseMapOrSetLiteral();
 			case HASHTAG -> parseParameterLiteral();
@@ -3989,32 +4081,33 @@ public class JavaPlusPlusParser extends JavaParser {
 				}
 			}
 			default -> super.parsePrimary();
-		};
+		});
 	}
 	
 	public Expression parseEmptyOptionalLiteral() {
+		int start = startOffset();
 		if(enabled(OPTIONAL_LITERALS)) {
 			require(QUES);
 			if(accept(LT)) {
 				var annotations = parseAnnotations();
 				if(accept(INT, GT)) {
 					var qualifier = makeImportedQualifier(QualNames.java_util_OptionalInt);
-					return new FunctionCall(qualifier, Names.empty);
+					return at(start, new FunctionCall(qualifier, Names.empty));
 				} else if(accept(LONG, GT)) {
 					var qualifier = makeImportedQualifier(QualNames.java_util_OptionalLong);
-					return new FunctionCall(qualifier, Names.empty);
+					return at(start, new FunctionCall(qualifier, Names.empty));
 				} else if(accept(DOUBLE, GT)) {
 					var qualifier = makeImportedQualifier(QualNames.java_util_OptionalDouble);
-					return new FunctionCall(qualifier, Names.empty);
+					return at(start, new FunctionCall(qualifier, Names.empty));
 				} else {
 					var type = parseTypeArgument(annotations);
 					require(GT);
 					var qualifier = makeImportedQualifier(QualNames.java_util_Optional);
-					return new FunctionCall(qualifier, Names.empty, List.of(type));
+					return at(start, new FunctionCall(qualifier, Names.empty, List.of(type)));
 				}
 			} else {
 				var qualifier = makeImportedQualifier(QualNames.java_util_Optional);
-				return new FunctionCall(qualifier, Names.empty);
+				return at(start, new FunctionCall(qualifier, Names.empty));
 			}
 		} else {
 			throw syntaxError("invalid start of expression");
@@ -4022,20 +4115,21 @@ public class JavaPlusPlusParser extends JavaParser {
 	}
 	
 	public Expression parseParameterLiteral() {
+		int start = startOffset();
 		if(functionParameters.isEmpty() || !enabled(PARAMETER_LITERALS)) {
 			throw syntaxError("invalid start of expression");
 		} else {
 			require(HASHTAG);
 			var parameters = functionParameters.current();
-			if(!wouldAccept(NUMBER) || !token.getString().matches("\\d+(_+\\d+)*")) {
-				throw syntaxError("Expected argument index after #, got " + token);
+			if(!wouldAccept(NUMBER) || !tokenString().matches("\\d+(_+\\d+)*")) {
+				throw syntaxError(got -> "Expected argument index after #, got " + got);
 			}
-			var argIndex = Integer.parseUnsignedInt(token.getString().replace("_", ""));
+			var argIndex = Integer.parseUnsignedInt(tokenString().replace("_", ""));
 			if(argIndex == 0 || argIndex > parameters.size()) {
 				throw syntaxError("Invalid argument index " + argIndex + ", valid indices range from 1 to " + parameters.size());
 			}
 			nextToken();
-			return new Variable(parameters.get(argIndex-1).getName());
+			return at(start, new Variable(parameters.get(argIndex-1).getName()));
 		}
 	}
 	
@@ -4080,37 +4174,38 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Expression parseNumberLiteral() {
-		var token = this.token;
+		int start = startOffset();
+		var token = getToken();
 		var str = token.getString();
 		require(NUMBER);
-		assert !token.equals(this.token);
+		assert !token.equals(getToken());
 		try {
 			str = str.replace("_", "");
 			if(hasNumSuffix(str, "f")) {
 				if(hasNumPrefix(str, "0x") && !str.contains(".") && !str.contains("p")
 						&& !str.contains("P")) {
-					return new Literal(Integer.parseInt(removeNumPrefix(str, 2), 16), token.getString());
+					return at(start, new Literal(Integer.parseInt(removeNumPrefix(str, 2), 16), token.getString()));
 				} else if(enabled(MORE_NUMBER_LITERALS) && hasNumPrefix(str, "0b")) {
-					return new CastExpr(new PrimitiveType(PrimitiveType.FLOAT), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 2), removeNumSuffix(token.getString())));
+					return at(start, new CastExpr(new PrimitiveType(PrimitiveType.FLOAT), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 2), removeNumSuffix(token.getString()))));
 				} else if(enabled(MORE_NUMBER_LITERALS) && hasNumPrefix(str, "0o")) {
-					return new CastExpr(new PrimitiveType(PrimitiveType.FLOAT), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 8), removeNumSuffix(token.getString())));
+					return at(start, new CastExpr(new PrimitiveType(PrimitiveType.FLOAT), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 8), removeNumSuffix(token.getString()))));
 				}
-				return new Literal(Float.parseFloat(removeNumSuffix(str)), token.getString());
+				return at(start, new Literal(Float.parseFloat(removeNumSuffix(str)), token.getString()));
 			}
 			if(hasNumSuffix(str, "D")) {
 				if(hasNumPrefix(str, "0x") && !str.contains(".") && !str.contains("p")
 						&& !str.contains("P")) {
-					return new Literal(Integer.parseInt(removeNumPrefix(str, 2), 16), token.getString());
+					return at(start, new Literal(Integer.parseInt(removeNumPrefix(str, 2), 16), token.getString()));
 				} else if(enabled(MORE_NUMBER_LITERALS) && hasNumPrefix(str, "0b")) {
-					return new CastExpr(new PrimitiveType(PrimitiveType.DOUBLE), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 2), removeNumSuffix(token.getString())));
+					return at(start, new CastExpr(new PrimitiveType(PrimitiveType.DOUBLE), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 2), removeNumSuffix(token.getString()))));
 				} else if(enabled(MORE_NUMBER_LITERALS) && hasNumPrefix(str, "0o")) {
-					return new CastExpr(new PrimitiveType(PrimitiveType.DOUBLE), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 2), removeNumSuffix(token.getString())));
+					return at(start, new CastExpr(new PrimitiveType(PrimitiveType.DOUBLE), new Literal(Integer.parseInt(removeNumPrefixAndSuffix(str, 2), 2), removeNumSuffix(token.getString()))));
 				}
-				return new Literal(Double.parseDouble(removeNumSuffix(str)), token.getString());
+				return at(start, new Literal(Double.parseDouble(removeNumSuffix(str)), token.getString()));
 			}
 			
 			if(str.contains(".")) {
-				return new Literal(Double.parseDouble(str), token.getString());
+				return at(start, new Literal(Double.parseDouble(str), token.getString()));
 			}
 			String repr = token.getString();
 			int base = 10;
@@ -4137,23 +4232,23 @@ public class JavaPlusPlusParser extends JavaParser {
 				}
 			}
 			if(hasNumSuffix(str, "L")) {
-				return new Literal(Long.parseLong(removeNumSuffix(str), base), token.getString());
+				return at(start, new Literal(Long.parseLong(removeNumSuffix(str), base), token.getString()));
 			} else {
 				if(enabled(MORE_NUMBER_LITERALS)) {
 					if(hasNumSuffix(str, "b")) {
-						return new CastExpr(new PrimitiveType(PrimitiveType.BYTE), new Literal(Byte.parseByte(removeNumSuffix(str), base), removeNumSuffix(repr)));
+						return at(start, new CastExpr(new PrimitiveType(PrimitiveType.BYTE), new Literal(Byte.parseByte(removeNumSuffix(str), base), removeNumSuffix(repr))));
 					} else if(hasNumSuffix(str, "s")) {
-						return new CastExpr(new PrimitiveType(PrimitiveType.SHORT), new Literal(Short.parseShort(removeNumSuffix(str), base), removeNumSuffix(repr)));
+						return at(start, new CastExpr(new PrimitiveType(PrimitiveType.SHORT), new Literal(Short.parseShort(removeNumSuffix(str), base), removeNumSuffix(repr))));
 					} else if(hasNumSuffix(str, "c")) {
 						int value = Integer.parseInt(removeNumSuffix(str), base);
 						if(!Character.isValidCodePoint(value)) {
 							throw new SyntaxError("invalid number literal", filename, token.getStart().getLine(),
 									token.getStart().getColumn(), token.getLine());
 						}
-						return new CastExpr(new PrimitiveType(PrimitiveType.CHAR), new Literal(value, removeNumSuffix(repr)));
+						return at(start, new CastExpr(new PrimitiveType(PrimitiveType.CHAR), new Literal(value, removeNumSuffix(repr))));
 					}
 				}
-				return new Literal(Integer.parseInt(str, base), repr);
+				return at(start, new Literal(Integer.parseInt(str, base), repr));
 			}
 		} catch(NumberFormatException e) {
 			throw new SyntaxError("invalid number literal", filename, token.getStart().getLine(),
@@ -4260,14 +4355,14 @@ public class JavaPlusPlusParser extends JavaParser {
 			try {
 				return new Literal(isRaw? format : StringEscapeUtils.unescapeJava(format));
 			} catch(Exception e) {
-    			throw new SyntaxError("invalid string literal", filename, token.getStart().getLine(), token.getStart().getColumn(), token.getLine());
+    			throw new SyntaxError("invalid string literal", filename, getToken().getStart().getLine(), getToken().getStart().getColumn(), getToken().getLine());
     		}
 		} else {
 			var qualifier = makeQualifier(QualNames.java_lang_String);
 			try {
 				args.add(0, new Literal(isRaw? format : StringEscapeUtils.unescapeJava(format)));
 			} catch(Exception e) {
-    			var error = new SyntaxError("invalid string literal", filename, token.getStart().getLine(), token.getStart().getColumn(), token.getLine());
+    			var error = new SyntaxError("invalid string literal", filename, getToken().getStart().getLine(), getToken().getStart().getColumn(), getToken().getLine());
     			error.addSuppressed(e);
     			throw error;
     		}
@@ -4282,7 +4377,8 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Expression parseStringLiteral() {
-		var startToken = this.token;
+		int start = startOffset();
+		var startToken = getToken();
 		var str = startToken.getString();
 		require(STRING);
 		if(enabled(RAW_STRING_LITERALS) && rawStringRegex.matcher(str).find()) {
@@ -4303,7 +4399,7 @@ public class JavaPlusPlusParser extends JavaParser {
 					str = str.substring(2, str.length()-1);
 				}
     			try {
-    				return new Literal(str);
+    				return at(start, new Literal(str));
     			} catch(Exception e) {
         			throw syntaxError("invalid string literal", startToken);
         		}
@@ -4320,7 +4416,7 @@ public class JavaPlusPlusParser extends JavaParser {
 				if(enabled(TEXT_BLOCKS)) {
 					str = str.substring(3, str.length()-3).replace("\r\n", "\\n").replace("\n", "\\n");
 					try {
-						return new Literal(StringEscapeUtils.unescapeJava(str));
+						return at(start, new Literal(StringEscapeUtils.unescapeJava(str)));
 					} catch(Exception e) {
 						throw syntaxError("invalid string literal", startToken);
 					}
@@ -4330,7 +4426,7 @@ public class JavaPlusPlusParser extends JavaParser {
 			} else {
 				str = str.substring(1, str.length()-1);
 				try {
-	    			return new Literal(StringEscapeUtils.unescapeJava(str), startToken.getString());
+	    			return at(start, new Literal(StringEscapeUtils.unescapeJava(str), startToken.getString()));
 	    		} catch(Exception e) {
 	    			throw syntaxError("invalid string literal", startToken);
 	    		}
@@ -4397,8 +4493,8 @@ public class JavaPlusPlusParser extends JavaParser {
 				elements.add(args.size() + "$s");
 			}
 			String endStr = isMultiline? "\"\"\"" : "\"";
-			while(wouldAccept(STRING) && !token.getString().endsWith(endStr) && switch(token.getString().charAt(0)) { case '"' -> token.getString().equals(endStr); case 'r', 'R', 'f', 'F' -> token.getString().length() == 1 || token.getString().charAt(1) != '"'; default -> true; }) {
-				str = token.getString();
+			while(wouldAccept(STRING) && !tokenString().endsWith(endStr) && switch(tokenString().charAt(0)) { case '"' -> tokenString().equals(endStr); case 'r', 'R', 'f', 'F' -> tokenString().length() == 1 || tokenString().charAt(1) != '"'; default -> true; }) {
+				str = tokenString();
 				nextToken();
 				assert str.endsWith("%");
 				elements.add(str.substring(0, str.length()-1).replace("%", "%%") + "%");
@@ -4414,10 +4510,10 @@ public class JavaPlusPlusParser extends JavaParser {
 					elements.add(args.size() + "$s");
 				}
 			}
-			if(!wouldAccept(STRING) || !token.getString().endsWith("\"") || switch(token.getString().charAt(0)) { case '"' -> !token.getString().equals(endStr); case 'r', 'R', 'f', 'F' -> token.getString().length() == 1 || token.getString().charAt(1) == '"'; default -> false; }) {
-				throw syntaxError("expected format string end here, got " + token);
+			if(!wouldAccept(STRING) || !tokenString().endsWith("\"") || switch(tokenString().charAt(0)) { case '"' -> !tokenString().equals(endStr); case 'r', 'R', 'f', 'F' -> tokenString().length() == 1 || tokenString().charAt(1) == '"'; default -> false; }) {
+				throw syntaxError(got -> "expected format string end here, got " + got);
 			}
-			str = token.getString();
+			str = tokenString();
 			elements.add(str.substring(0, str.length()-endStr.length()).replace("%", "%%"));
 			nextToken();
 			var formatBuilder = new StringBuilder();
@@ -4453,6 +4549,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public Expression parseCreator() {
+		int start = startOffset();
 		try(var state = tokens.enter()) {
     		require(NEW);
     		if(wouldAccept(LT)) {
@@ -4474,11 +4571,11 @@ public class JavaPlusPlusParser extends JavaParser {
     			} else {
     				type = parseGenericType();
     			}
-    			return parseClassCreatorRest(typeArguments, type);
+    			return at(start, parseClassCreatorRest(typeArguments, type));
     		}
     		if(enabled(OPTIONAL_CONSTRUCTOR_TYPE) && !typeNames.isEmpty() && wouldAccept(LPAREN)) {
     			var type = new GenericType(typeNames.current().toQualifiedName());
-    			return parseClassCreatorRest(emptyList(), type);
+    			return at(start, parseClassCreatorRest(emptyList(), type));
     		}
     		state.reset();
 		}
@@ -4487,6 +4584,7 @@ public class JavaPlusPlusParser extends JavaParser {
 	
 	@Override
 	public ClassCreator parseClassCreator() {
+		int start = startOffset();
 		require(NEW);
 		var typeArguments = parseTypeArgumentsOpt();
 		GenericType type;
@@ -4506,7 +4604,7 @@ public class JavaPlusPlusParser extends JavaParser {
 		} else {
 			type = parseGenericType();
 		}
-		return parseClassCreatorRest(typeArguments, type);
+		return at(start, parseClassCreatorRest(typeArguments, type));
 	}
 
 	@Override
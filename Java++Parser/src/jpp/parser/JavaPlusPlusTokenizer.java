@@ -10,7 +10,6 @@ import java.util.NoSuchElementException;
 import java.util.Stack;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -21,6 +20,7 @@ import jtree.parser.JavaTokenizer;
 import jtree.parser.Position;
 import jtree.parser.SyntaxError;
 import jtree.parser.Token;
+import jtree.parser.TokenList;
 import lombok.NonNull;
 
 public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
@@ -44,8 +44,7 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 	
 	public JavaPlusPlusTokenizer(@NonNull CharSequence str, @NonNull String filename, @NonNull EnumSet<Feature> enabledFeatures) {
 		super(str, filename, ENDMARKER, ERRORTOKEN, STRING, CHARACTER, NUMBER, NAME, COMMENT,
-				JavaTokenType.NORMAL_TOKENS.stream()
-				.collect(Collectors.toMap(token -> token.getSymbol().orElseThrow(), token -> token)));
+				JavaTokenType.NORMAL_TOKEN_MATCHER);
 		this.regexType = STRING;
 		this.enabledFeatures = enabledFeatures;
 		this.initialEnabledFeatures = enabledFeatures.clone();
@@ -53,8 +52,7 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 	
 	public JavaPlusPlusTokenizer(@NonNull CharSequence str, @NonNull EnumSet<Feature> enabledFeatures) {
 		super(str, ENDMARKER, ERRORTOKEN, STRING, CHARACTER, NUMBER, NAME, COMMENT,
-				JavaTokenType.NORMAL_TOKENS.stream()
-				.collect(Collectors.toMap(token -> token.getSymbol().orElseThrow(), token -> token)));
+				JavaTokenType.NORMAL_TOKEN_MATCHER);
 		this.regexType = STRING;
 		this.enabledFeatures = enabledFeatures;
 		this.initialEnabledFeatures = enabledFeatures.clone();
@@ -1096,6 +1094,12 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 		state.accept(token);
 		return token;
 	}
+
+	@Override
+	protected boolean readInto(TokenList<?> tokens) {
+		// the states and the regex literals depend on the tokens before, which are made by next()
+		return false;
+	}
 	
 	protected Token<JavaTokenType> next0() {
 		if(pos >= str.length()) {
@@ -1544,7 +1548,6 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 		if(enabled(RAW_STRING_LITERALS) && (ch == 'r' || ch == 'R')) {
 			char startChar = ch;
 			var start = new Position(line, column);
-			int startPos = pos - column + 1;
 			nextChar();
 			var sb = new StringBuilder();
 			sb.append(startChar);
@@ -1580,18 +1583,10 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
     			}
 			}
 			var end = new Position(line, column);
-			int i = pos;
-			while(i+1 < str.length() && str.charAt(i) != '\n') {
-				i++;
-			}
-			if(i+1 > str.length()) {
-				i = str.length()-1;
-			}
-			return new Token<>(stringType, sb.toString(), start, end, str.subSequence(startPos, i+1));
+			return new Token<>(stringType, sb.toString(), start, end, lineTable.getLineText(start.getLine(), line));
 		} else if(enabled(FORMAT_STRINGS) && (ch == 'f' || ch == 'F')) {
 			char startChar = ch;
 			var start = new Position(line, column);
-			int startPos = pos - column + 1;
 			nextChar();
 			var sb = new StringBuilder();
 			sb.append(startChar);
@@ -1627,17 +1622,9 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
     			}
 			}
 			var end = new Position(line, column);
-			int i = pos;
-			while(i+1 < str.length() && str.charAt(i) != '\n') {
-				i++;
-			}
-			if(i+1 > str.length()) {
-				i = str.length()-1;
-			}
-			return new Token<>(stringType, sb.toString(), start, end, str.subSequence(startPos, i+1));
+			return new Token<>(stringType, sb.toString(), start, end, lineTable.getLineText(start.getLine(), line));
 		} else {
 			var start = new Position(line, column);
-			int startPos = pos - column + 1;
 			var sb = new StringBuilder();
 			if(!eat('"')) {
 				throw new SyntaxError("invalid string literal", filename, line, column, currentLine);
@@ -1653,14 +1640,7 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 				parseStringContents(sb);
 			}
 			var end = new Position(line, column);
-			int i = pos;
-			while(i+1 < str.length() && str.charAt(i) != '\n') {
-				i++;
-			}
-			if(i+1 > str.length()) {
-				i = str.length()-1;
-			}
-			return new Token<>(stringType, sb.toString(), start, end, str.subSequence(startPos, i+1));
+			return new Token<>(stringType, sb.toString(), start, end, lineTable.getLineText(start.getLine(), line));
 		}
 	}
 	
@@ -1958,7 +1938,6 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 	
 	protected Token<JavaTokenType> eatFStringRest() {
 		var start = new Position(line, column);
-		int startPos = pos - column + 1;
 		var sb = new StringBuilder();
 		boolean escape = false;
 		while(pos < str.length() && (ch != '"' && ch != '\n' || escape)) {
@@ -2002,19 +1981,11 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 			scope.pop();
 		}
 		var end = new Position(line, column);
-		int i = pos;
-		while(i+1 < str.length() && str.charAt(i) != '\n') {
-			i++;
-		}
-		if(i+1 > str.length()) {
-			i = str.length()-1;
-		}
-		return new Token<>(stringType, sb.toString(), start, end, str.subSequence(startPos, i+1));
+		return new Token<>(stringType, sb.toString(), start, end, lineTable.getLineText(start.getLine(), line));
 	}
 	
 	protected Token<JavaTokenType> eatMultilineFStringRest() {
 		var start = new Position(line, column);
-		int startPos = pos - column + 1;
 		var sb = new StringBuilder();
 		boolean escape = false;
 		int endCounter = 0;
@@ -2064,19 +2035,11 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 			scope.pop();
 		}
 		var end = new Position(line, column);
-		int i = pos;
-		while(i+1 < str.length() && str.charAt(i) != '\n') {
-			i++;
-		}
-		if(i+1 > str.length()) {
-			i = str.length()-1;
-		}
-		return new Token<>(stringType, sb.toString(), start, end, str.subSequence(startPos, i+1));
+		return new Token<>(stringType, sb.toString(), start, end, lineTable.getLineText(start.getLine(), line));
 	}
 	
 	protected Token<JavaTokenType> eatRawFStringRest() {
 		var start = new Position(line, column);
-		int startPos = pos - column + 1;
 		var sb = new StringBuilder();
 		boolean escape = false;
 		while(pos < str.length() && (ch != '"' && ch != '\n' || escape)) {
@@ -2120,19 +2083,11 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 			scope.pop();
 		}
 		var end = new Position(line, column);
-		int i = pos;
-		while(i+1 < str.length() && str.charAt(i) != '\n') {
-			i++;
-		}
-		if(i+1 > str.length()) {
-			i = str.length()-1;
-		}
-		return new Token<>(stringType, sb.toString(), start, end, str.subSequence(startPos, i+1));
+		return new Token<>(stringType, sb.toString(), start, end, lineTable.getLineText(start.getLine(), line));
 	}
 	
 	protected Token<JavaTokenType> eatMultilineRawFStringRest() {
 		var start = new Position(line, column);
-		int startPos = pos - column + 1;
 		var sb = new StringBuilder();
 		boolean escape = false;
 		int endCounter = 0;
@@ -2182,14 +2137,7 @@ public class JavaPlusPlusTokenizer extends JavaTokenizer<JavaTokenType> {
 			scope.pop();
 		}
 		var end = new Position(line, column);
-		int i = pos;
-		while(i+1 < str.length() && str.charAt(i) != '\n') {
-			i++;
-		}
-		if(i+1 > str.length()) {
-			i = str.length()-1;
-		}
-		return new Token<>(stringType, sb.toString(), start, end, str.subSequence(startPos, i+1));
+		return new Token<>(stringType, sb.toString(), start, end, lineTable.getLineText(start.getLine(), line));
 	}
 
 }
@@ -0,0 +1,91 @@
+package jpp.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jpp.Converter;
+import jpp.Watcher;
+import jpp.parser.JavaPlusPlusParser;
+
+class TestWatcher {
+
+	@Test
+	void testOutputInInputDirectory(@TempDir Path root) throws Exception {
+		var src = Files.createDirectory(root.resolve("src"));
+		// the files in src are converted into root/src, which is src itself
+		watch(src, root, false, () -> {
+			Files.writeString(src.resolve("Foo.jpp"), "class Foo {}");
+			awaitFile(src.resolve("Foo.java"));
+		});
+		assertEquals(List.of("Foo.java", "Foo.jpp"), list(src));
+	}
+
+	@Test
+	void testOutputInsideInputDirectory(@TempDir Path root) throws Exception {
+		var src = Files.createDirectory(root.resolve("src"));
+		var out = src.resolve("out");
+		watch(src, out, true, () -> {
+			Files.writeString(src.resolve("Foo.jpp"), "class Foo {}");
+			awaitFile(out.resolve("src").resolve("Foo.java"));
+		});
+		assertEquals(List.of("Foo.jpp", "out"), list(src));
+		assertEquals(List.of("src"), list(out));
+		assertEquals(List.of("Foo.java"), list(out.resolve("src")));
+	}
+
+	interface Changes {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Watches {@code dir} while making {@code changes}, then for long enough afterwards that
+	 * any conversions of the outputs would have happened.
+	 */
+	private static void watch(Path dir, Path outDir, boolean recursive, Changes changes) throws Exception {
+		var converter = new Converter(JavaPlusPlusParser::new, recursive, 1);
+		converter.setOut(new PrintStream(new ByteArrayOutputStream()));
+		var watcher = new Watcher(converter, List.of(dir.toFile()), outDir);
+		var thread = new Thread(() -> {
+			try {
+				watcher.run();
+			} catch(InterruptedException e) {
+				// stopped
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		thread.start();
+		try {
+			changes.run();
+			Thread.sleep(Watcher.DEBOUNCE_MILLIS * 10);
+		} finally {
+			thread.interrupt();
+			thread.join();
+		}
+	}
+
+	private static void awaitFile(Path file) throws InterruptedException {
+		for(int i = 0; i < 100 && !Files.exists(file); i++) {
+			Thread.sleep(100);
+		}
+		assertTrue(Files.exists(file), file + " was not written");
+	}
+
+	private static List<String> list(Path dir) throws IOException {
+		try(var stream = Files.list(dir)) {
+			return stream.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+		}
+	}
+
+}
@@ -144,6 +144,11 @@ public abstract class AbstractTreeVisitor implements TreeVisitor {
 		return true;
 	}
 
+	@Override
+	public boolean visitErrorNode(ErrorNode node, Node parent, Consumer<ErrorNode> replacer) {
+		return true;
+	}
+
 	@Override
 	public boolean visitExportsDirective(ExportsDirective node, Node parent, Consumer<ExportsDirective> replacer) {
 		return true;
@@ -7,6 +7,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Either;
 import jtree.util.Utils;
 import lombok.EqualsAndHashCode;
@@ -48,10 +49,17 @@ public class Annotation extends Node implements AnnotationValue {
 	
 	@Override
 	public String toCode() {
-		return "@" + getType().toCode()
-				+ getArguments().map(either -> either.unravel(nodes -> "(" + joinNodes(", ", nodes) + ")",
-				                                              value -> "(" + value.toCode() + ")")
-				                     ).orElse("");
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write('@').write(getType());
+		getArguments().ifPresent(either -> {
+			writer.write('(');
+			either.accept(nodes -> writer.writeAll(", ", nodes), value -> writer.write(value));
+			writer.write(')');
+		});
 	}
 	
 	public void setArguments(@NonNull Optional<Either<? extends List<AnnotationArgument>, ? extends AnnotationValue>> arguments) {
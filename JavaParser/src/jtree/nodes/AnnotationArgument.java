@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -24,7 +25,12 @@ public class AnnotationArgument extends Node {
 	
 	@Override
 	public String toCode() {
-		return getName() + " = " + getValue().toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(getName() + " = ").write(getValue());
 	}
 
 	@Override
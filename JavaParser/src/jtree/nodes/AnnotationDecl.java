@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -35,7 +36,13 @@ public class AnnotationDecl extends TypeDecl {
 	
 	@Override
 	public String toCode() {
-		return docString() + annotationString() + modifierString() + "@interface " + getName() + " " + bodyString();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(docString() + annotationString() + modifierString() + "@interface " + getName() + " ");
+		emitBody(writer);
 	}
 	
 	@Override
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -46,8 +47,14 @@ public class AnnotationProperty extends Declaration implements Member {
 	
 	@Override
 	public String toCode() {
-		return docString() + annotationString() + modifierString() + getType().toCode() + " " + getName() + "()"
-				+ getDefault().map(_default -> " default " + _default.toCode()).orElse("") + ";";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(docString() + annotationString() + modifierString() + getType().toCode() + " " + getName() + "()");
+		getDefault().ifPresent(_default -> writer.write(" default ").write(_default));
+		writer.write(';');
 	}
 	
 	public void setDefault(@NonNull Optional<? extends AnnotationValue> _default) {
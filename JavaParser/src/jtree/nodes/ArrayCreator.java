@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Either;
 import jtree.util.Utils;
 import lombok.EqualsAndHashCode;
@@ -66,9 +67,15 @@ public class ArrayCreator extends Node implements Expression, Dimensioned {
 	
 	@Override
 	public String toCode() {
-		return "new " + getBaseType().toCode() + getSizesOrInitializer().unravel(
-			sizes -> joinNodes("", sizes) + dimensionString(),
-			initializer -> dimensionString() + " " + initializer.toCode()
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("new ").write(getBaseType());
+		getSizesOrInitializer().accept(
+			sizes -> writer.writeAll("", sizes).write(dimensionString()),
+			initializer -> writer.write(dimensionString() + " ").write(initializer)
 		);
 	}
 	
@@ -5,6 +5,7 @@ import static jtree.util.Utils.*;
 import java.util.List;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -31,7 +32,12 @@ public class ArrayInitializer<V extends AnnotationValue> extends Node implements
 	
 	@Override
 	public String toCode() {
-		return "{" + joinNodes(", ", getElements()) + "}";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write('{').writeAll(", ", getElements()).write('}');
 	}
 	
 	public void setElements(@NonNull List<? extends V> elements) {
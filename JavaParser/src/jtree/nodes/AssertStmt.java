@@ -3,6 +3,7 @@ package jtree.nodes;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -34,7 +35,14 @@ public class AssertStmt extends Node implements Statement {
 	
 	@Override
 	public String toCode() {
-		return "assert " + getCondition().toCode() + getMessage().map(message -> " : " + message.toCode()).orElse("") + ";";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("assert ").write(getCondition());
+		getMessage().ifPresent(message -> writer.write(" : ").write(message));
+		writer.write(';');
 	}
 	
 	public void setMessage(@NonNull Optional<? extends Expression> message) {
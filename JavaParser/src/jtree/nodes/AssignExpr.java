@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -38,7 +39,12 @@ public class AssignExpr extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		return wrap(getAssigned()).toCode() + " " + getOperation() + " " + wrap(getValue()).toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(wrap(getAssigned())).write(" " + getOperation() + " ").write(wrap(getValue()));
 	}
 	
 	@RequiredArgsConstructor
@@ -1,7 +1,10 @@
 package jtree.nodes;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -32,9 +35,33 @@ public class BinaryExpr extends Node implements Expression {
 		return new BinaryExpr(getLeft().clone(), getOperation(), getRight().clone());
 	}
 	
+	/**
+	 * Left operands which are binary expressions themselves are written without recursion,
+	 * since long chains of operators would overflow the stack otherwise.
+	 */
 	@Override
 	public String toCode() {
-		return wrap(getLeft()).toCode() + " " + getOperation() + " " + wrap(getRight()).toCode(); 
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		var chain = new ArrayDeque<BinaryExpr>();
+		var expr = this;
+		chain.push(expr);
+		while(expr.getLeft() instanceof BinaryExpr && expr.wrap(expr.getLeft()) == expr.getLeft()) {
+			expr = (BinaryExpr)expr.getLeft();
+			chain.push(expr);
+		}
+		var operands = new ArrayList<Expression>(chain.size() + 1);
+		var operators = new ArrayList<String>(chain.size());
+		operands.add(expr.wrap(expr.getLeft()));
+		while(!chain.isEmpty()) {
+			expr = chain.pop();
+			operators.add(expr.getOperation().toString());
+			operands.add(expr.wrap(expr.getRight()));
+		}
+		writer.writeChain(operands, operators);
 	}
 	
 	@RequiredArgsConstructor
@@ -68,11 +95,31 @@ public class BinaryExpr extends Node implements Expression {
 		
 	}
 
+	/**
+	 * Like {@link #toCode()}, visits left operands which are binary expressions without recursion.
+	 */
 	@Override
 	public <N extends INode> void accept(TreeVisitor visitor, Node parent, Consumer<N> replacer) {
 		if(visitor.visitBinaryExpr(this, parent, cast(replacer))) {
-			getLeft().accept(visitor, this, this::setLeft);
-			getRight().accept(visitor, this, this::setRight);
+			var chain = new ArrayDeque<BinaryExpr>();
+			var expr = this;
+			for(;;) {
+				chain.push(expr);
+				var left = expr.getLeft();
+				if(!(left instanceof BinaryExpr)) {
+					left.accept(visitor, expr, expr::setLeft);
+					break;
+				}
+				Consumer<BinaryExpr> leftReplacer = expr::setLeft;
+				if(!visitor.visitBinaryExpr((BinaryExpr)left, expr, leftReplacer)) {
+					break;
+				}
+				expr = (BinaryExpr)left;
+			}
+			while(!chain.isEmpty()) {
+				expr = chain.pop();
+				expr.getRight().accept(visitor, expr, expr::setRight);
+			}
 		}
 	}
 	
@@ -5,6 +5,7 @@ import static jtree.util.Utils.*;
 import java.util.List;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -34,7 +35,12 @@ public class Block extends Node implements Statement {
 	
 	@Override
 	public String toCode() {
-		return "{\n" + join("", getStatements(), statement -> statement.toCode().indent(4)) + "}";
+		return CodeWriter.toCode(this);
+	}
+
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("{\n").writeIndented(getStatements()).write('}');
 	}
 	
 	public void setStatements(@NonNull List<? extends Statement> statements) {
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -30,7 +31,12 @@ public class CastExpr extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		return "(" + getType().toCode() + ")" + wrap(getExpression()).toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write('(').write(getType()).write(')').write(wrap(getExpression()));
 	}
 	
 	@Override
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -25,7 +26,12 @@ public class Catch extends Node {
 	
 	@Override
 	public String toCode() {
-		return "catch(" + getParameter().toCode() + ") " + body.toCode(); 
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("catch(" + getParameter().toCode() + ") ").write(body);
 	}
 
 	@Override
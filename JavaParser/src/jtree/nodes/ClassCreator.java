@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Utils;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -158,13 +159,24 @@ public class ClassCreator extends Node implements Expression, TypeArgumentHolder
 	
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var typeArguments = getTypeArguments();
 		var type = getType();
-		return getObject().map(object -> wrap(object).toCode() + ".").orElse("")
-				+ "new " + (typeArguments.isEmpty()? "" : typeArgumentString(typeArguments) + " ")
-				+ type.toCode() + (hasDiamond() && type.getTypeArguments().isEmpty()? "<>" : "")
-				+ "(" + joinNodes(", ", getArguments()) + ")"
-				+ getMembers().map(members -> members.isEmpty()? " {}" : " {\n" + join("", members, member -> member.toCode().indent(4)) + "}").orElse("");
+		getObject().ifPresent(object -> writer.write(wrap(object)).write('.'));
+		writer.write("new " + (typeArguments.isEmpty()? "" : typeArgumentString(typeArguments) + " ")
+				+ type.toCode() + (hasDiamond() && type.getTypeArguments().isEmpty()? "<>" : ""))
+			  .writeArguments(getArguments());
+		getMembers().ifPresent(members -> {
+			if(members.isEmpty()) {
+				writer.write(" {}");
+			} else {
+				writer.write(" {\n").writeMembers(members).write('}');
+			}
+		});
 	}
 	
 	public void setHasDiamond(boolean hasDiamond) {
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -77,11 +78,17 @@ public class ClassDecl extends TypeDecl implements Statement {
 
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var interfaces = getInterfaces();
-		return docString() + annotationString() + modifierString() + "class " + getName() + typeParameterString()
+		writer.write(docString() + annotationString() + modifierString() + "class " + getName() + typeParameterString()
 				+ getSuperClass().map(superClass -> " extends " + superClass.toCode()).orElse("")
 				+ (interfaces.isEmpty()? "" : " implements " + joinNodes(", ", interfaces))
-				+ " " + bodyString();
+				+ " ");
+		emitBody(writer);
 	}
 
 	public void setInterfaces(@NonNull List<GenericType> interfaces) {
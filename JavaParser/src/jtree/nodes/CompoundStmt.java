@@ -1,5 +1,7 @@
 package jtree.nodes;
 
+import jtree.util.CodeWriter;
+
 public interface CompoundStmt extends Statement {
 	
 	@Override
@@ -13,4 +15,12 @@ public interface CompoundStmt extends Statement {
 		}
 	}
 	
+	default void emitBody(CodeWriter writer, Statement body) {
+		if(body instanceof Block) {
+			writer.write(' ').write(body);
+		} else {
+			writer.write('\n').indent().write(body).dedent();
+		}
+	}
+	
 }
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -30,7 +31,12 @@ public class ConditionalExpr extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		return wrap(getCondition()).toCode() + "? " + getTruePart().toCode() + " : " + wrap(getFalsePart()).toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(wrap(getCondition())).write("? ").write(getTruePart()).write(" : ").write(wrap(getFalsePart()));
 	}
 
 	@Override
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -73,8 +74,13 @@ public class ConstructorCall extends Node implements Statement, TypeArgumentHold
 	
 	@Override
 	public String toCode() {
-		return getObject().map(object -> object.toCode() + ".").orElse("") + typeArgumentString() 
-				+ getType().toString() + "(" + joinNodes(", ", getArguments()) + ");";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		getObject().ifPresent(object -> writer.write(object).write('.'));
+		writer.write(typeArgumentString() + getType().toString()).writeArguments(getArguments()).write(';');
 	}
 	
 	public void setArguments(@NonNull List<? extends Expression> arguments) {
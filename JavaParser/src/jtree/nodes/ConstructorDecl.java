@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -88,16 +89,21 @@ public class ConstructorDecl extends GenericDecl implements REPLEntry {
 	
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var exceptions = getExceptions();
 		var parameters = getParameters();
-		return docString() + annotationString() + modifierString() + getName() 
+		writer.write(docString() + annotationString() + modifierString() + getName() 
 				+ "(" + (parameters.isEmpty()
 						? getThisParameter().map(ThisParameter::toCode)
 											.orElse("")
 						: getThisParameter().map(thisParameter -> thisParameter.toCode() + ", ")
 											.orElse("") + joinNodes(", ", parameters)) + ")"
 				+ (exceptions.isEmpty()? "" : " throws " + joinNodes(", ", exceptions))
-				+ " " + getBody().toCode();
+				+ " ").write(getBody());
 	}
 	
 	public void setExceptions(@NonNull List<GenericType> exceptions) {
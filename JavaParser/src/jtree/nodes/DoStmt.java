@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -25,8 +26,15 @@ public class DoStmt extends Node implements CompoundStmt {
 	
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var body = getBody();
-		return "do" + bodyString(body) + (body instanceof Block? " " : "\n") + "while(" + getCondition().toCode() + ");";
+		writer.write("do");
+		emitBody(writer, body);
+		writer.write(body instanceof Block? " while(" : "\nwhile(").write(getCondition()).write(");");
 	}
 
 	@Override
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -43,26 +44,31 @@ public class EnumDecl extends TypeDecl {
 
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var interfaces = getInterfaces();
 		var constants = getConstants();
 		var members = getMembers();
-		var result = docString() + annotationString() + modifierString() + "enum " + getName()
+		writer.write(docString() + annotationString() + modifierString() + "enum " + getName()
 				+ (interfaces.isEmpty()? "" : " implements " + joinNodes(", ", interfaces))
-				+ " {";
-		if(!constants.isEmpty() || !members.isEmpty()) {
-			if(!constants.isEmpty()) {
-				result += "\n" + join("", constants, constant -> constant.toCode().indent(4));
-			}
-			if(!members.isEmpty()) {
-				if(!constants.isEmpty() && result.endsWith("\n")) {
-					result = result.substring(0, result.length()-1);
-				} else {
-					result += "\n    ";
+				+ " {");
+		if(!constants.isEmpty()) {
+			writer.write('\n').indent();
+			for(var iter = constants.iterator(); iter.hasNext();) {
+				writer.write(iter.next());
+				if(iter.hasNext() || members.isEmpty()) {
+					writer.endLine();
 				}
-				result += ";\n\n" + join("", members, member -> member.toCode().indent(4));
 			}
+			writer.dedent();
+		}
+		if(!members.isEmpty()) {
+			writer.write(constants.isEmpty()? "\n    ;\n\n" : ";\n\n").writeMembers(members);
 		}
-		return result + "}";
+		writer.write('}');
 	}
 
 	public void setInterfaces(@NonNull List<GenericType> interfaces) {
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Utils;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -72,11 +73,21 @@ public class EnumField extends Node implements Member, Annotated, Documented {
 	
 	@Override
 	public String toCode() {
-		return docString() + annotationString() + getName()
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(docString() + annotationString() + getName()
 			+ getArguments().map(arguments -> "(" + joinNodes(", ", arguments) + ")")
-							.orElse("")
-			+ getMembers().map(members -> members.isEmpty()? " {}" : " {\n" + join("", members, member -> member.toCode().indent(4)) + "}")
-						  .orElse("");
+							.orElse(""));
+		getMembers().ifPresent(members -> {
+			if(members.isEmpty()) {
+				writer.write(" {}");
+			} else {
+				writer.write(" {\n").writeMembers(members).write('}');
+			}
+		});
 	}
 	
 	public void setArguments(@NonNull Optional<? extends List<? extends Expression>> arguments) {
@@ -0,0 +1,39 @@
+package jtree.nodes;
+
+import java.util.function.Consumer;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * A member or statement which did not parse, left in its place by a parser which is
+ * {@link jtree.parser.JavaParser#setRecovering(boolean) recovering} from syntax errors.
+ */
+@EqualsAndHashCode
+@Getter @Setter
+public class ErrorNode extends Node implements Member, Statement {
+	/** The text which was skipped, as it was written */
+	protected @NonNull String text;
+	
+	public ErrorNode(String text) {
+		setText(text);
+	}
+	
+	@Override
+	public ErrorNode clone() {
+		return new ErrorNode(getText());
+	}
+	
+	@Override
+	public String toCode() {
+		return text;
+	}
+
+	@Override
+	public <N extends INode> void accept(TreeVisitor visitor, Node parent, Consumer<N> replacer) {
+		visitor.visitErrorNode(this, parent, cast(replacer));
+	}
+	
+}
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -23,7 +24,12 @@ public class ExpressionStmt extends Node implements ResourceSpecifier {
 	
 	@Override
 	public String toCode() {
-		return getExpression().toCode() + ";";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(getExpression()).write(';');
 	}
 
 	@Override
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -27,7 +28,13 @@ public class ForEachStmt extends Node implements CompoundStmt {
 	
 	@Override
 	public String toCode() {
-		return "for(" + getVariable().toCode() + " : " + getIterable().toCode() + ")" + bodyString(getBody());
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("for(" + getVariable().toCode() + " : ").write(getIterable()).write(')');
+		emitBody(writer, getBody());
 	}
 
 	@Override
@@ -7,6 +7,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Either;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -71,11 +72,17 @@ public class ForStmt extends Node implements CompoundStmt {
 
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var updates = getUpdates();
-		return "for(" + getInitializer().map(either -> ((Node)either.getValue()).toCode()).orElse(";")
+		writer.write("for(" + getInitializer().map(either -> ((Node)either.getValue()).toCode()).orElse(";")
 				+ getCondition().map(condition -> " " + condition.toCode()).orElse("") + ";"
 				+ (updates.isEmpty()? "" : " " + joinNodes(", ", updates))
-				+ ")" + bodyString(getBody());
+				+ ")");
+		emitBody(writer, getBody());
 	}
 
 	public void setUpdates(@NonNull List<? extends Expression> updates) {
@@ -0,0 +1,452 @@
+package jtree.nodes;
+
+import java.util.function.Consumer;
+
+import lombok.NonNull;
+
+/**
+ * Passes every visit on to another visitor. Subclasses override the visits they handle differently.
+ */
+public class ForwardingTreeVisitor implements TreeVisitor {
+	protected final TreeVisitor visitor;
+
+	public ForwardingTreeVisitor(@NonNull TreeVisitor visitor) {
+		this.visitor = visitor;
+	}
+
+	@Override
+	public boolean visitNode(Node node, Node parent, Consumer<Node> replacer) {
+		return visitor.visitNode(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitAnnotation(Annotation node, Node parent, Consumer<Annotation> replacer) {
+		return visitor.visitAnnotation(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitAnnotationArgument(AnnotationArgument node, Node parent, Consumer<AnnotationArgument> replacer) {
+		return visitor.visitAnnotationArgument(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitAnnotationDecl(AnnotationDecl node, Node parent, Consumer<AnnotationDecl> replacer) {
+		return visitor.visitAnnotationDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitAnnotationProperty(AnnotationProperty node, Node parent, Consumer<AnnotationProperty> replacer) {
+		return visitor.visitAnnotationProperty(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitArrayCreator(ArrayCreator node, Node parent, Consumer<ArrayCreator> replacer) {
+		return visitor.visitArrayCreator(node, parent, replacer);
+	}
+
+	@Override
+	public <T extends AnnotationValue> boolean visitArrayInitializer(ArrayInitializer<T> node, Node parent, Consumer<ArrayInitializer<T>> replacer) {
+		return visitor.visitArrayInitializer(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitArrayType(ArrayType node, Node parent, Consumer<ArrayType> replacer) {
+		return visitor.visitArrayType(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitAssertStmt(AssertStmt node, Node parent, Consumer<AssertStmt> replacer) {
+		return visitor.visitAssertStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitAssignExpr(AssignExpr node, Node parent, Consumer<AssignExpr> replacer) {
+		return visitor.visitAssignExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitBinaryExpr(BinaryExpr node, Node parent, Consumer<BinaryExpr> replacer) {
+		return visitor.visitBinaryExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitBlock(Block node, Node parent, Consumer<Block> replacer) {
+		return visitor.visitBlock(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitBreakStmt(BreakStmt node, Node parent, Consumer<BreakStmt> replacer) {
+		return visitor.visitBreakStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitCastExpr(CastExpr node, Node parent, Consumer<CastExpr> replacer) {
+		return visitor.visitCastExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitCatch(Catch node, Node parent, Consumer<Catch> replacer) {
+		return visitor.visitCatch(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitClassCreator(ClassCreator node, Node parent, Consumer<ClassCreator> replacer) {
+		return visitor.visitClassCreator(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitClassDecl(ClassDecl node, Node parent, Consumer<ClassDecl> replacer) {
+		return visitor.visitClassDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitClassInitializer(ClassInitializer node, Node parent, Consumer<ClassInitializer> replacer) {
+		return visitor.visitClassInitializer(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitClassLiteral(ClassLiteral node, Node parent, Consumer<ClassLiteral> replacer) {
+		return visitor.visitClassLiteral(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitConditionalExpr(ConditionalExpr node, Node parent, Consumer<ConditionalExpr> replacer) {
+		return visitor.visitConditionalExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitConstructorCall(ConstructorCall node, Node parent, Consumer<ConstructorCall> replacer) {
+		return visitor.visitConstructorCall(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitConstructorDecl(ConstructorDecl node, Node parent, Consumer<ConstructorDecl> replacer) {
+		return visitor.visitConstructorDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitContinueStmt(ContinueStmt node, Node parent, Consumer<ContinueStmt> replacer) {
+		return visitor.visitContinueStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitDimension(Dimension node, Node parent, Consumer<Dimension> replacer) {
+		return visitor.visitDimension(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitDoStmt(DoStmt node, Node parent, Consumer<DoStmt> replacer) {
+		return visitor.visitDoStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitEmptyStmt(EmptyStmt node, Node parent, Consumer<EmptyStmt> replacer) {
+		return visitor.visitEmptyStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitEnumDecl(EnumDecl node, Node parent, Consumer<EnumDecl> replacer) {
+		return visitor.visitEnumDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitEnumField(EnumField node, Node parent, Consumer<EnumField> replacer) {
+		return visitor.visitEnumField(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitErrorNode(ErrorNode node, Node parent, Consumer<ErrorNode> replacer) {
+		return visitor.visitErrorNode(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitExportsDirective(ExportsDirective node, Node parent, Consumer<ExportsDirective> replacer) {
+		return visitor.visitExportsDirective(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitExpressionStmt(ExpressionStmt node, Node parent, Consumer<ExpressionStmt> replacer) {
+		return visitor.visitExpressionStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitForEachStmt(ForEachStmt node, Node parent, Consumer<ForEachStmt> replacer) {
+		return visitor.visitForEachStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitForStmt(ForStmt node, Node parent, Consumer<ForStmt> replacer) {
+		return visitor.visitForStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitFormalParameter(FormalParameter node, Node parent, Consumer<FormalParameter> replacer) {
+		return visitor.visitFormalParameter(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitFunctionCall(FunctionCall node, Node parent, Consumer<FunctionCall> replacer) {
+		return visitor.visitFunctionCall(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitFunctionDecl(FunctionDecl node, Node parent, Consumer<FunctionDecl> replacer) {
+		return visitor.visitFunctionDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitGenericType(GenericType node, Node parent, Consumer<GenericType> replacer) {
+		return visitor.visitGenericType(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitIfStmt(IfStmt node, Node parent, Consumer<IfStmt> replacer) {
+		return visitor.visitIfStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitImportDecl(ImportDecl node, Node parent, Consumer<ImportDecl> replacer) {
+		return visitor.visitImportDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitIndexExpr(IndexExpr node, Node parent, Consumer<IndexExpr> replacer) {
+		return visitor.visitIndexExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitInformalParameter(InformalParameter node, Node parent, Consumer<InformalParameter> replacer) {
+		return visitor.visitInformalParameter(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitInterfaceDecl(InterfaceDecl node, Node parent, Consumer<InterfaceDecl> replacer) {
+		return visitor.visitInterfaceDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitLabeledStmt(LabeledStmt node, Node parent, Consumer<LabeledStmt> replacer) {
+		return visitor.visitLabeledStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitLambda(Lambda node, Node parent, Consumer<Lambda> replacer) {
+		return visitor.visitLambda(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitLiteral(Literal node, Node parent, Consumer<Literal> replacer) {
+		return visitor.visitLiteral(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitMemberAccess(MemberAccess node, Node parent, Consumer<MemberAccess> replacer) {
+		return visitor.visitMemberAccess(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitMethodReference(MethodReference node, Node parent, Consumer<MethodReference> replacer) {
+		return visitor.visitMethodReference(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitModifier(Modifier node, Node parent, Consumer<Modifier> replacer) {
+		return visitor.visitModifier(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitModuleCompilationUnit(ModuleCompilationUnit node, Node parent, Consumer<ModuleCompilationUnit> replacer) {
+		return visitor.visitModuleCompilationUnit(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitName(Name node, Node parent, Consumer<Name> replacer) {
+		return visitor.visitName(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitNormalCompilationUnit(NormalCompilationUnit node, Node parent, Consumer<NormalCompilationUnit> replacer) {
+		return visitor.visitNormalCompilationUnit(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitOpensDirective(OpensDirective node, Node parent, Consumer<OpensDirective> replacer) {
+		return visitor.visitOpensDirective(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitPackageDecl(PackageDecl node, Node parent, Consumer<PackageDecl> replacer) {
+		return visitor.visitPackageDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitParensExpr(ParensExpr node, Node parent, Consumer<ParensExpr> replacer) {
+		return visitor.visitParensExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitPostIncrementExpr(PostIncrementExpr node, Node parent, Consumer<PostIncrementExpr> replacer) {
+		return visitor.visitPostIncrementExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitPostDecrementExpr(PostDecrementExpr node, Node parent, Consumer<PostDecrementExpr> replacer) {
+		return visitor.visitPostDecrementExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitPreIncrementExpr(PreIncrementExpr node, Node parent, Consumer<PreIncrementExpr> replacer) {
+		return visitor.visitPreIncrementExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitPreDecrementExpr(PreDecrementExpr node, Node parent, Consumer<PreDecrementExpr> replacer) {
+		return visitor.visitPreDecrementExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitPrimitiveType(PrimitiveType node, Node parent, Consumer<PrimitiveType> replacer) {
+		return visitor.visitPrimitiveType(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitProvidesDirective(ProvidesDirective node, Node parent, Consumer<ProvidesDirective> replacer) {
+		return visitor.visitProvidesDirective(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitQualifiedName(QualifiedName node, Node parent, Consumer<QualifiedName> replacer) {
+		return visitor.visitQualifiedName(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitRequiresDirective(RequiresDirective node, Node parent, Consumer<RequiresDirective> replacer) {
+		return visitor.visitRequiresDirective(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitReturnStmt(ReturnStmt node, Node parent, Consumer<ReturnStmt> replacer) {
+		return visitor.visitReturnStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitSize(Size node, Node parent, Consumer<Size> replacer) {
+		return visitor.visitSize(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitSuperFunctionCall(SuperFunctionCall node, Node parent, Consumer<SuperFunctionCall> replacer) {
+		return visitor.visitSuperFunctionCall(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitSuperMethodReference(SuperMethodReference node, Node parent, Consumer<SuperMethodReference> replacer) {
+		return visitor.visitSuperMethodReference(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitSwitch(Switch node, Node parent, Consumer<Switch> replacer) {
+		return visitor.visitSwitch(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitSwitchCase(SwitchCase node, Node parent, Consumer<SwitchCase> replacer) {
+		return visitor.visitSwitchCase(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitSynchronizedStmt(SynchronizedStmt node, Node parent, Consumer<SynchronizedStmt> replacer) {
+		return visitor.visitSynchronizedStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitThis(This node, Node parent, Consumer<This> replacer) {
+		return visitor.visitThis(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitThisParameter(ThisParameter node, Node parent, Consumer<ThisParameter> replacer) {
+		return visitor.visitThisParameter(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitThrowStmt(ThrowStmt node, Node parent, Consumer<ThrowStmt> replacer) {
+		return visitor.visitThrowStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitTryStmt(TryStmt node, Node parent, Consumer<TryStmt> replacer) {
+		return visitor.visitTryStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitTypeUnion(TypeUnion node, Node parent, Consumer<TypeUnion> replacer) {
+		return visitor.visitTypeUnion(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitTypeIntersection(TypeIntersection node, Node parent, Consumer<TypeIntersection> replacer) {
+		return visitor.visitTypeIntersection(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitTypeParameter(TypeParameter node, Node parent, Consumer<TypeParameter> replacer) {
+		return visitor.visitTypeParameter(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitTypeTest(TypeTest node, Node parent, Consumer<TypeTest> replacer) {
+		return visitor.visitTypeTest(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitUnaryExpr(UnaryExpr node, Node parent, Consumer<UnaryExpr> replacer) {
+		return visitor.visitUnaryExpr(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitUsesDirective(UsesDirective node, Node parent, Consumer<UsesDirective> replacer) {
+		return visitor.visitUsesDirective(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitVariable(Variable node, Node parent, Consumer<Variable> replacer) {
+		return visitor.visitVariable(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitVariableDecl(VariableDecl node, Node parent, Consumer<VariableDecl> replacer) {
+		return visitor.visitVariableDecl(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitVariableDeclarator(VariableDeclarator node, Node parent, Consumer<VariableDeclarator> replacer) {
+		return visitor.visitVariableDeclarator(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitVoidType(VoidType node, Node parent, Consumer<VoidType> replacer) {
+		return visitor.visitVoidType(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitWhileStmt(WhileStmt node, Node parent, Consumer<WhileStmt> replacer) {
+		return visitor.visitWhileStmt(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitWildcardTypeArgument(WildcardTypeArgument node, Node parent, Consumer<WildcardTypeArgument> replacer) {
+		return visitor.visitWildcardTypeArgument(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitWildcardTypeArgumentBound(WildcardTypeArgument.Bound node, Node parent, Consumer<WildcardTypeArgument.Bound> replacer) {
+		return visitor.visitWildcardTypeArgumentBound(node, parent, replacer);
+	}
+
+	@Override
+	public boolean visitYieldStmt(YieldStmt node, Node parent, Consumer<YieldStmt> replacer) {
+		return visitor.visitYieldStmt(node, parent, replacer);
+	}
+
+}
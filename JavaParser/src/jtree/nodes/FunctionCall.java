@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -82,9 +83,12 @@ public class FunctionCall extends Node implements Expression, TypeArgumentHolder
 	
 	@Override
 	public String toCode() {
-		return getObject().map(object -> wrap(object).toCode() + ".").orElse("")
-				+ typeArgumentString()
-				+ getName() + "(" + joinNodes(", ", getArguments()) + ")";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		Selectors.emit(this, writer);
 	}
 	
 	@Override
@@ -120,10 +124,7 @@ public class FunctionCall extends Node implements Expression, TypeArgumentHolder
 	@Override
 	public <N extends INode> void accept(TreeVisitor visitor, Node parent, Consumer<N> replacer) {
 		if(visitor.visitFunctionCall(this, parent, cast(replacer))) {
-			getObject().ifPresent(object -> object.<Expression>accept(visitor, this, this::setObject));
-			getName().accept(visitor, this, this::setName);
-			visitList(visitor, getTypeArguments());
-			visitList(visitor, getArguments());
+			Selectors.accept(this, visitor);
 		}
 	}
 	
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -310,6 +311,11 @@ public class FunctionDecl extends GenericDecl implements Dimensioned, REPLEntry
 
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var exceptions = getExceptions();
 		var parameters = getParameters();
 		var typeParameterString = typeParameterString();
@@ -320,15 +326,15 @@ public class FunctionDecl extends GenericDecl implements Dimensioned, REPLEntry
 		if(dimensionString.startsWith("@")) {
 			dimensionString = ' ' + dimensionString;
 		}
-		return docString() + annotationString() + modifierString() + typeParameterString + getReturnType().toCode()
+		writer.write(docString() + annotationString() + modifierString() + typeParameterString + getReturnType().toCode()
 				+ " " + getName() + "(" + (parameters.isEmpty()
 						? getThisParameter().map(ThisParameter::toCode)
 								.orElse("")
 						: getThisParameter().map(thisParameter -> thisParameter.toCode() + ", ")
 								.orElse("") + joinNodes(", ", parameters))
 				+ ")" + dimensionString
-				+ (exceptions.isEmpty()? "" : " throws " + joinNodes(", ", exceptions))
-				+ body.map(body -> " " + body.toCode()).orElse(";");
+				+ (exceptions.isEmpty()? "" : " throws " + joinNodes(", ", exceptions)));
+		body.ifPresentOrElse(body -> writer.write(' ').write(body), () -> writer.write(';'));
 	}
 
 	public void setExceptions(@NonNull List<GenericType> exceptions) {
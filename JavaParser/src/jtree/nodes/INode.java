@@ -2,9 +2,18 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
+
 public interface INode {
 	String toCode();
 	
+	/**
+	 * Writes this node's code to {@code writer}, producing the same text as {@link #toCode()}.
+	 */
+	default void emit(CodeWriter writer) {
+		writer.write(toCode());
+	}
+	
 	INode clone();
 	
 	/**
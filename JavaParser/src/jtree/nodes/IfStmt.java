@@ -3,6 +3,7 @@ package jtree.nodes;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -34,12 +35,33 @@ public class IfStmt extends Node implements CompoundStmt {
 		return new IfStmt(getCondition().clone(), getBody().clone(), clone(getElseBody()));
 	}
 	
+	/**
+	 * Else-if ladders are written without recursion, since long ones would overflow the stack otherwise.
+	 */
 	@Override
 	public String toCode() {
-		return "if(" + condition.toCode() + ")" + bodyString(body)
-				+ elseBody.map(body -> (getBody() instanceof Block? " else" : "\nelse") 
-				               + (body instanceof IfStmt? " " + body.toCode() : bodyString(body)))
-						  .orElse("");
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		var stmt = this;
+		for(;;) {
+			writer.write("if(").write(stmt.condition).write(')');
+			emitBody(writer, stmt.body);
+			if(stmt.elseBody.isEmpty()) {
+				return;
+			}
+			var body = stmt.elseBody.get();
+			writer.write(stmt.getBody() instanceof Block? " else" : "\nelse");
+			if(body instanceof IfStmt) {
+				writer.write(' ');
+				stmt = (IfStmt)body;
+			} else {
+				emitBody(writer, body);
+				return;
+			}
+		}
 	}
 	
 	public void setElseBody(@NonNull Optional<? extends Statement> elseBody) {
@@ -57,9 +79,25 @@ public class IfStmt extends Node implements CompoundStmt {
 	@Override
 	public <N extends INode> void accept(TreeVisitor visitor, Node parent, Consumer<N> replacer) {
 		if(visitor.visitIfStmt(this, parent, cast(replacer))) {
-			getCondition().accept(visitor, this, this::setCondition);
-			getBody().accept(visitor, this, this::setBody);
-			getElseBody().ifPresent(body -> body.<Statement>accept(visitor, this, this::setElseBody));
+			// like toCode(), visits else-if ladders without recursion
+			var stmt = this;
+			for(;;) {
+				stmt.getCondition().accept(visitor, stmt, stmt::setCondition);
+				stmt.getBody().accept(visitor, stmt, stmt::setBody);
+				if(stmt.getElseBody().isEmpty()) {
+					break;
+				}
+				var body = stmt.getElseBody().get();
+				Consumer<Statement> elseReplacer = stmt::setElseBody;
+				if(!(body instanceof IfStmt)) {
+					body.accept(visitor, stmt, elseReplacer);
+					break;
+				}
+				if(!visitor.visitIfStmt((IfStmt)body, stmt, cast(elseReplacer))) {
+					break;
+				}
+				stmt = (IfStmt)body;
+			}
 		}
 	}
 	
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -29,14 +30,18 @@ public class IndexExpr extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		return wrap(getIndexed()).toCode() + "[" + getIndex().toCode() + "]";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		Selectors.emit(this, writer);
 	}
 
 	@Override
 	public <N extends INode> void accept(TreeVisitor visitor, Node parent, Consumer<N> replacer) {
 		if(visitor.visitIndexExpr(this, parent, cast(replacer))) {
-			getIndexed().accept(visitor, this, this::setIndexed);
-			getIndex().accept(visitor, this, this::setIndex);
+			Selectors.accept(this, visitor);
 		}
 	}
 	
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -54,10 +55,16 @@ public class InterfaceDecl extends TypeDecl {
 
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var superInterfaces = getSuperInterfaces();
-		return docString() + annotationString() + modifierString() + "interface " + getName() + typeParameterString()
+		writer.write(docString() + annotationString() + modifierString() + "interface " + getName() + typeParameterString()
 				+ (superInterfaces.isEmpty()? "" : " extends " + joinNodes(", ", superInterfaces))
-				+ " " + bodyString();
+				+ " ");
+		emitBody(writer);
 	}
 
 	public void setSuperInterfaces(@NonNull List<GenericType> superInterfaces) {
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -25,7 +26,13 @@ public class LabeledStmt extends Node implements CompoundStmt {
 	
 	@Override
 	public String toCode() {
-		return getLabel() + ":" + bodyString(getStatement());
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(getLabel() + ":");
+		emitBody(writer, getStatement());
 	}
 
 	@Override
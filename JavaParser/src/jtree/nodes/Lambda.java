@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Either;
 import jtree.util.Utils;
 import lombok.EqualsAndHashCode;
@@ -76,27 +77,34 @@ public class Lambda extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		String result;
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var eitherParameters = getParameters();
 		if(eitherParameters.isFirst()) {
-			result = "(" + joinNodes(", ", eitherParameters.first()) + ")";
+			writer.write("(" + joinNodes(", ", eitherParameters.first()) + ")");
 		} else {
 			var parameters = eitherParameters.second();
 			if(parameters.size() == 1) {
-				result = parameters.get(0).toCode();
+				writer.write(parameters.get(0));
 			} else {
-				result = "(" + joinNodes(", ", parameters) + ")";
+				writer.write("(" + joinNodes(", ", parameters) + ")");
 			}
 		}
-		result += " -> ";
+		writer.write(" -> ");
 		var body = getBody();
 		if(body.isFirst()) {
 			var block = body.first();
-			result += block.isEmpty()? "{}" : block.toCode(); 
+			if(block.isEmpty()) {
+				writer.write("{}");
+			} else {
+				writer.write(block);
+			}
 		} else {
-			result += body.second().toCode();
+			writer.write(body.second());
 		}
-		return result;
 	}
 	
 	public void setParameters(@NonNull Either<? extends List<FormalParameter>, ? extends List<InformalParameter>> parameters) {
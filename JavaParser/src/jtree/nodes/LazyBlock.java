@@ -0,0 +1,42 @@
+package jtree.nodes;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import lombok.NonNull;
+
+/**
+ * A {@link Block} whose statements are parsed the first time they are asked for,
+ * including by {@link #toCode()} and visitors. Syntax errors in them are only thrown then.
+ */
+public class LazyBlock extends Block {
+	/** Parses the statements, or {@code null} once they have been parsed or set */
+	private Supplier<? extends List<? extends Statement>> parser;
+
+	public LazyBlock(@NonNull Supplier<? extends List<? extends Statement>> parser) {
+		this.parser = parser;
+	}
+
+	/**
+	 * @return whether the statements have been parsed or set yet
+	 */
+	public boolean isParsed() {
+		return parser == null;
+	}
+
+	@Override
+	public List<Statement> getStatements() {
+		if(parser != null) {
+			super.setStatements(parser.get());
+			parser = null;
+		}
+		return statements;
+	}
+
+	@Override
+	public void setStatements(@NonNull List<? extends Statement> statements) {
+		parser = null;
+		super.setStatements(statements);
+	}
+
+}
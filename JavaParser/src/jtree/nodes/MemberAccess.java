@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -30,14 +31,18 @@ public class MemberAccess extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		return wrap(getExpression()).toCode() + "." + getName();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		Selectors.emit(this, writer);
 	}
 
 	@Override
 	public <N extends INode> void accept(TreeVisitor visitor, Node parent, Consumer<N> replacer) {
 		if(visitor.visitMemberAccess(this, parent, cast(replacer))) {
-			getExpression().accept(visitor, this, this::setExpression);
-			getName().accept(visitor, this, this::setName);
+			Selectors.accept(this, visitor);
 		}
 	}
 	
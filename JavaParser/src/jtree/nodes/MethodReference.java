@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Either;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -45,8 +46,13 @@ public class MethodReference extends Node implements Expression, TypeArgumentHol
 	
 	@Override
 	public String toCode() {
-		return getObject().unravel(expr -> wrap(expr).toCode(), Type::toCode)
-				+ "::" + typeArgumentString() + getName();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		getObject().accept(expr -> writer.write(wrap(expr)), type -> writer.write(type));
+		writer.write("::" + typeArgumentString() + getName());
 	}
 	
 	public void setObject(@NonNull Either<? extends Expression, ? extends Type> object) {
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -48,9 +49,19 @@ public class ModuleCompilationUnit extends CompilationUnit implements Annotated,
 	
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var directives = getDirectives();
-		return importString() + docString() + annotationString() + (isOpen()? "open module " : "module ")
-				+ getName() + " {" + (directives.isEmpty()? "}" : "\n" + join("", directives, directive -> directive.toCode().indent(4)) + "}" );
+		writer.write(importString() + docString() + annotationString() + (isOpen()? "open module " : "module ")
+				+ getName() + " {");
+		if(directives.isEmpty()) {
+			writer.write('}');
+		} else {
+			writer.write('\n').writeIndented(directives).write('}');
+		}
 	}
 	
 	public void setDirectives(@NonNull List<? extends Directive> directives) {
@@ -1,7 +1,6 @@
 package jtree.nodes;
 
 import static jtree.util.Utils.*;
-import static lombok.AccessLevel.*;
 
 import java.lang.reflect.*;
 import java.lang.reflect.Type;
@@ -13,11 +12,52 @@ import java.util.stream.Collectors;
 import org.apache.commons.text.StringEscapeUtils;
 
 import jtree.util.Either;
-import lombok.Getter;
 import lombok.SneakyThrows;
 
 public abstract class Node implements INode {
-	
+	/** The offsets of the node's first character and just past its last one in the text it was parsed from */
+	private int start = -1, end = -1;
+
+	/**
+	 * @return the offset of the node's first character in the text it was parsed from,
+	 *         or {@code -1} if it was not parsed, as with synthesized nodes and shared constants
+	 *         such as {@link PrimitiveType#INT}
+	 * @see jtree.parser.IncrementalParser#start(Node)
+	 */
+	public final int start() {
+		return start;
+	}
+
+	/**
+	 * @return the offset just past the node's last character in the text it was parsed from,
+	 *         or {@code -1} if it was not parsed
+	 */
+	public final int end() {
+		return end;
+	}
+
+	/**
+	 * Sets where the node is in the text it was parsed from.
+	 * Line and column numbers can be had from the parser's {@link jtree.parser.LineTable LineTable}.
+	 */
+	public final void setRange(int start, int end) {
+		if(start < 0 || end < start) {
+			throw new IllegalArgumentException("invalid range " + start + ".." + end);
+		}
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Moves the node's range by {@code delta} characters, if it has one.
+	 */
+	public final void shiftRange(int delta) {
+		if(start >= 0) {
+			start += delta;
+			end += delta;
+		}
+	}
+
 	@Override
 	public abstract String toCode();
 	
@@ -52,7 +92,7 @@ public abstract class Node implements INode {
 	}
 	
 	@SneakyThrows
-	private static Class<?> resolve(Type type) {
+	static Class<?> resolve(Type type) {
 		if(type instanceof Class) {
 			return (Class<?>)type;
 		} else if(type instanceof GenericArrayType) {
@@ -68,7 +108,7 @@ public abstract class Node implements INode {
 		}
 	}
 	
-	private static Type resolveType(Type type) {
+	static Type resolveType(Type type) {
 		if(type instanceof TypeVariable) {
 			return resolveType(((TypeVariable<?>)type).getBounds()[0]);
 		} else if(type instanceof WildcardType) {
@@ -79,7 +119,7 @@ public abstract class Node implements INode {
 	}
 	
 	@SuppressWarnings("unchecked")
-	private static Function<?, String> selectToStringFuncFromType(Type type) {
+	static Function<?, String> selectToStringFuncFromType(Type type) {
 		if(type == null) {
 			return obj -> obj == null? "null" : ((Function<Object,String>)selectToStringFuncFromType(obj.getClass())).apply(obj);
 		}
@@ -215,83 +255,50 @@ public abstract class Node implements INode {
 		}
 	}
 	
-	private class ToStringFieldGetter<T> {
-		private final Method method;
-		@Getter
-		private final String name;
-		private final Function<? super T, String> toStringFunc;
-		
-		@SuppressWarnings("unchecked")
-		protected ToStringFieldGetter(Method method) {
-			this.method = method;
-			String name = method.getName();
-			if(name.startsWith("get")) {
-				this.name = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+	@Override
+	public String toString() {
+		var sb = new StringBuilder(getClass().getSimpleName()).append('(');
+		boolean first = true;
+		for(var property : NodeMetadata.of(getClass()).properties) {
+			if(first) {
+				first = false;
 			} else {
-				this.name = name;
-			}
-			this.toStringFunc = (Function<? super T,String>)selectToStringFuncFromType(method.getReturnType());
-		}
-		
-		@SuppressWarnings("unchecked")
-		@SneakyThrows
-		public T getValue() {
-			try {
-				return (T)method.invoke(Node.this);
-			} catch(InvocationTargetException e) {
-				throw e.getCause();
+				sb.append(", ");
 			}
+			sb.append(property.name).append('=').append(property.toStringFunc.apply(property.get(this)));
 		}
-		
-		public String getValueString() {
-			return toStringFunc.apply(getValue());
-		}
-		
-		@Override
-		public int hashCode() {
-			return name.hashCode();
-		}
-		
-		@Override
-		public boolean equals(Object obj) {
-			return obj instanceof ToStringFieldGetter && ((ToStringFieldGetter<?>)obj).name.equals(name);
-		}
-		
-		@Override
-		public String toString() {
-			return getName() + "=" + getValueString();
-		}
+		return sb.append(')').toString();
 	}
 	
-	@Getter(value = PRIVATE, lazy = true)
-	private final Set<ToStringFieldGetter<?>> fieldGetters = getFields();
-	
-	private Set<ToStringFieldGetter<?>> getFields() {
-		var fields = new HashSet<ToStringFieldGetter<?>>();
-		findFields(fields, getClass());
-		return fields;
+	/**
+	 * Walks this node and the nodes under it, in the order their fields are declared, without
+	 * replacing any of them. Unlike {@link #accept(TreeVisitor, Node, Consumer) accept}, which
+	 * creates a replacer for every node, walking allocates nothing, and it doesn't recurse,
+	 * so long chains of calls or operators can't overflow the stack.
+	 * The tree must not be changed while it is being walked.
+	 */
+	public final void walk(TreeWalker walker) {
+		TreeWalk.walk(this, walker);
 	}
 	
-	@SuppressWarnings({ "unchecked" })
-	private void findFields(HashSet<ToStringFieldGetter<?>> fields, Class<? extends Node> type) {
-		fields.addAll(Arrays.stream(type.getMethods())
-		              .filter(method -> !java.lang.reflect.Modifier.isStatic(method.getModifiers())
-		                      			&& method.getParameterCount() == 0
-		                      			&& method.getReturnType() != void.class
-		                      			&& !method.getName().equals("getClass")
-		                      			&& method.getName().matches("(get|is|has)[A-Z]\\w*"))
-		              .map(ToStringFieldGetter::new)
-		              .collect(Collectors.toList()));
-		type = (Class<? extends Node>)type.getSuperclass();
-		if(type != Node.class) {
-			findFields(fields, type);
-		}
+	/**
+	 * @return the nodes held by this node's fields, in the order the fields are declared
+	 */
+	public final List<INode> children() {
+		var children = new ArrayList<INode>();
+		forEachChild(children::add);
+		return children;
 	}
 	
-	@Override
-	public String toString() {
-		Set<ToStringFieldGetter<?>> getters = getFieldGetters();
-		return getClass().getSimpleName() + "(" + join(", ", getters, ToStringFieldGetter::toString) + ")";
+	/**
+	 * Passes each of the nodes held by this node's fields to {@code action},
+	 * in the order the fields are declared.
+	 */
+	@SneakyThrows
+	public final void forEachChild(Consumer<? super INode> action) {
+		for(var getter : NodeMetadata.of(getClass()).children) {
+			NodeMetadata.forEachNode((Object)getter.invokeExact(this), action);
+		}
 	}
 	
 	protected static Iterable<Integer> reverseRange(int end) {
@@ -332,12 +339,13 @@ public abstract class Node implements INode {
 	}
 	
 	protected final <N extends INode> void visitList(TreeVisitor visitor, List<N> list) {
-		for(int i : reverseRange(list.size())) {
+		for(int i = list.size()-1; i >= 0; i--) {
+			int index = i;
 			list.get(i).accept(visitor, this, (N node) -> {
 				if(node == null) {
-					list.remove(i);
+					list.remove(index);
 				} else {
-					list.set(i, node);
+					list.set(index, node);
 				}
 			});
 		}
@@ -0,0 +1,177 @@
+package jtree.nodes;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import jtree.util.Either;
+import lombok.SneakyThrows;
+
+/**
+ * What {@link Node#toString()} and {@link Node#children()} need to know about a node class,
+ * worked out once per class from its getters and fields.
+ */
+final class NodeMetadata {
+	private static final ClassValue<NodeMetadata> CACHE = new ClassValue<>() {
+		@Override
+		protected NodeMetadata computeValue(Class<?> type) {
+			return new NodeMetadata(type.asSubclass(Node.class));
+		}
+	};
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Node.class);
+
+	static NodeMetadata of(Class<? extends Node> type) {
+		return CACHE.get(type);
+	}
+
+	/**
+	 * A getter shown by {@link Node#toString()}
+	 */
+	static final class Property {
+		final String name;
+		final MethodHandle getter;
+		final Function<Object,String> toStringFunc;
+
+		Property(String name, MethodHandle getter, Function<Object,String> toStringFunc) {
+			this.name = name;
+			this.getter = getter;
+			this.toStringFunc = toStringFunc;
+		}
+
+		@SneakyThrows
+		Object get(Node node) {
+			return (Object)getter.invokeExact(node);
+		}
+	}
+
+	/** The getters shown by {@link Node#toString()}, sorted by name */
+	final Property[] properties;
+	/** The getters of the fields which hold child nodes, in the order the fields are declared */
+	final MethodHandle[] children;
+
+	@SuppressWarnings("unchecked")
+	private NodeMetadata(Class<? extends Node> type) {
+		var lookup = MethodHandles.lookup();
+		// sorted by name, since getMethods() doesn't list methods in any particular order
+		var properties = new TreeMap<String,Property>();
+		var getters = new HashMap<String,Method>();
+		for(var method : type.getMethods()) {
+			if(!Modifier.isStatic(method.getModifiers())
+					&& !method.isBridge()
+					&& method.getParameterCount() == 0
+					&& method.getReturnType() != void.class
+					&& !method.getName().equals("getClass")
+					&& method.getName().matches("(get|is|has)[A-Z]\\w*")) {
+				String name = method.getName();
+				getters.putIfAbsent(name, method);
+				if(name.startsWith("get")) {
+					name = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+				}
+				if(!properties.containsKey(name)) {
+					properties.put(name, new Property(name, getter(lookup, method),
+					                                  (Function<Object,String>)Node.selectToStringFuncFromType(method.getReturnType())));
+				}
+			}
+		}
+		this.properties = properties.values().toArray(new Property[0]);
+
+		var classes = new ArrayList<Class<?>>();
+		for(Class<?> c = type; c != Node.class; c = c.getSuperclass()) {
+			classes.add(0, c);
+		}
+		var children = new ArrayList<MethodHandle>();
+		for(var c : classes) {
+			for(var field : c.getDeclaredFields()) {
+				if(Modifier.isStatic(field.getModifiers()) || !holdsNodes(field.getGenericType())) {
+					continue;
+				}
+				var method = getterFor(field, getters);
+				if(method != null) {
+					children.add(getter(lookup, method));
+				}
+			}
+		}
+		this.children = children.toArray(new MethodHandle[0]);
+	}
+
+	private static Method getterFor(Field field, HashMap<String,Method> getters) {
+		String name = field.getName();
+		if(name.startsWith("_")) { // fields named after keywords, like _package
+			name = name.substring(1);
+		}
+		name = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		var getter = getters.get("get" + name);
+		return getter == null? getters.get("is" + name) : getter;
+	}
+
+	@SneakyThrows
+	private static MethodHandle getter(MethodHandles.Lookup lookup, Method method) {
+		MethodHandle handle;
+		try {
+			handle = lookup.unreflect(method);
+		} catch(IllegalAccessException e) {
+			// public methods inherited from classes outside of this package which aren't public
+			method.setAccessible(true);
+			handle = lookup.unreflect(method);
+		}
+		return handle.asType(GETTER_TYPE);
+	}
+
+	/**
+	 * @return whether a field of the given type holds nodes: either a node itself,
+	 *         or a {@link List}, {@link Optional} or {@link Either} of them
+	 */
+	private static boolean holdsNodes(Type type) {
+		Class<?> raw = Node.resolve(type);
+		if(INode.class.isAssignableFrom(raw)) {
+			return true;
+		}
+		if(raw == List.class || raw == Optional.class || raw == Either.class) {
+			type = Node.resolveType(type);
+			if(type instanceof ParameterizedType) {
+				for(var arg : ((ParameterizedType)type).getActualTypeArguments()) {
+					if(holdsNodes(arg)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Passes the nodes held by {@code value} to {@code action}.
+	 */
+	@SuppressWarnings("unchecked")
+	static void forEachNode(Object value, Consumer<? super INode> action) {
+		if(value instanceof INode) {
+			action.accept((INode)value);
+		} else if(value instanceof List) {
+			var list = (List<Object>)value;
+			for(int i = 0, size = list.size(); i < size; i++) {
+				forEachNode(list.get(i), action);
+			}
+		} else if(value instanceof Optional) {
+			var optional = (Optional<Object>)value;
+			if(optional.isPresent()) {
+				forEachNode(optional.get(), action);
+			}
+		} else if(value instanceof Either) {
+			forEachNode(((Either<?,?>)value).getValue(), action);
+		}
+	}
+
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -68,9 +69,18 @@ public class NormalCompilationUnit extends CompilationUnit {
 	
 	@Override
 	public String toCode() {
-		return (getPackage().map(pckg -> pckg.toCode() + "\n").orElse("")
-				+ importString()
-				+ joinNodes("\n\n", getDeclarations())).stripTrailing();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		var declarations = getDeclarations();
+		var header = getPackage().map(pckg -> pckg.toCode() + "\n").orElse("") + importString();
+		if(declarations.isEmpty()) {
+			writer.write(header.stripTrailing());
+		} else {
+			writer.write(header).writeAll("\n\n", declarations);
+		}
 	}
 	
 	public Optional<PackageDecl> getPackage() {
@@ -0,0 +1,265 @@
+package jtree.nodes;
+
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Visits and walks trees on several threads at once. The members of a class body don't
+ * depend on each other, so each member of a type declaration with at least {@link #THRESHOLD}
+ * members is handed to a task of its own, run in the {@link java.util.concurrent.ForkJoinPool ForkJoinPool}
+ * the caller is running in, or the common pool otherwise. The rest of the tree is visited on
+ * the thread of the task it belongs to.
+ * <p>
+ * Starting the tasks costs more than a cheap pass over the members would, so this is only worth
+ * it for visitors and walkers which do a lot of work per member.
+ */
+@UtilityClass
+public class ParallelTraversal {
+	/** How many members a type declaration needs for its members to be split into tasks */
+	public final int THRESHOLD = 8;
+
+	/**
+	 * Visits a tree like {@link INode#accept(TreeVisitor, Node, Consumer) node.accept(visitor, parent, replacer)}.
+	 * The visitor is called from several threads at once, so it must be safe to share between
+	 * them, and what it changes must stay within the member it is visiting: it may replace
+	 * or remove the member and change anything under it, but not the member's siblings or
+	 * anything above it. Replacements of split members are applied once every member
+	 * of their type declaration has been visited.
+	 */
+	public <N extends INode> void accept(N node, TreeVisitor visitor, Node parent, Consumer<N> replacer) {
+		if(hasLargeType(node)) {
+			new VisitTask(node, parent, visitor, Node.cast(replacer)).invoke();
+		} else {
+			node.accept(visitor, parent, replacer);
+		}
+	}
+
+	/**
+	 * Walks a tree like {@link Node#walk(TreeWalker)}, with a new walker from {@code newWalker}
+	 * for each task. Each walker only sees the part of the tree its task walked, so the
+	 * walkers are then combined with {@code merge}: the walker which walked the rest of a type
+	 * declaration first, followed by the walkers of its members in order.
+	 * @return the combined walker
+	 */
+	public <W extends TreeWalker> W walk(Node node, Supplier<? extends W> newWalker, BinaryOperator<W> merge) {
+		return new WalkTask<W>(node, null, newWalker, merge).invoke();
+	}
+
+	private boolean splits(INode node, Node parent) {
+		return node instanceof Member && parent instanceof TypeDecl && ((TypeDecl)parent).getMembers().size() >= THRESHOLD;
+	}
+
+	/**
+	 * @return whether {@code node} is or declares a type declaration whose members would be split into tasks
+	 */
+	private boolean hasLargeType(INode node) {
+		if(node instanceof NormalCompilationUnit) {
+			for(var decl : ((NormalCompilationUnit)node).getDeclarations()) {
+				if(hasLargeType(decl)) {
+					return true;
+				}
+			}
+		} else if(node instanceof TypeDecl) {
+			var members = ((TypeDecl)node).getMembers();
+			if(members.size() >= THRESHOLD) {
+				return true;
+			}
+			for(var member : members) {
+				if(hasLargeType(member)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@SuppressWarnings("serial")
+	private class VisitTask extends RecursiveAction {
+		final INode node;
+		final Node parent;
+		final TreeVisitor visitor;
+		/** Replaces the node, or {@code null} to record its replacement in this task instead */
+		final Consumer<INode> replacer;
+		boolean replaced;
+		INode replacement;
+
+		VisitTask(INode node, Node parent, TreeVisitor visitor, Consumer<INode> replacer) {
+			this.node = node;
+			this.parent = parent;
+			this.visitor = visitor;
+			this.replacer = replacer;
+		}
+
+		@Override
+		protected void compute() {
+			var replacer = this.replacer == null? (Consumer<INode>)this::replace : this.replacer;
+			if(!hasLargeType(node)) {
+				node.accept(visitor, parent, replacer);
+				return;
+			}
+			var splitter = new Splitter(node, visitor);
+			node.accept(splitter, parent, replacer);
+			var tasks = splitter.tasks;
+			var replacers = splitter.replacers;
+			invokeAll(tasks);
+			// in the order they were visited, which is from last to first within each list,
+			// so removing a member doesn't move the ones which have yet to be replaced
+			for(int i = 0; i < tasks.size(); i++) {
+				var task = tasks.get(i);
+				if(task.replaced) {
+					replacers.get(i).accept(task.replacement);
+				}
+			}
+		}
+
+		private void replace(INode replacement) {
+			this.replaced = true;
+			this.replacement = replacement;
+		}
+	}
+
+	/**
+	 * Passes every visit on to the visitor, except for the members which are split off into tasks,
+	 * and those of smaller type declarations, which are visited directly without going through here.
+	 */
+	private class Splitter extends ForwardingTreeVisitor {
+		final INode root;
+		final ArrayList<VisitTask> tasks = new ArrayList<>();
+		final ArrayList<Consumer<INode>> replacers = new ArrayList<>();
+
+		Splitter(INode root, TreeVisitor visitor) {
+			super(visitor);
+			this.root = root;
+		}
+
+		/**
+		 * @return whether the member should be visited here
+		 */
+		<N extends INode> boolean split(N member, Node parent, Consumer<N> replacer) {
+			if(member == root || !(parent instanceof TypeDecl)) {
+				return true;
+			}
+			if(splits(member, parent)) {
+				tasks.add(new VisitTask(member, parent, visitor, null));
+				replacers.add(Node.cast(replacer));
+				return false;
+			}
+			if(!hasLargeType(member)) {
+				member.accept(visitor, parent, replacer);
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visitNode(Node node, Node parent, Consumer<Node> replacer) {
+			if(node instanceof Member && !split(node, parent, replacer)) {
+				return false;
+			}
+			return super.visitNode(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitAnnotationDecl(AnnotationDecl node, Node parent, Consumer<AnnotationDecl> replacer) {
+			return split(node, parent, replacer) && super.visitAnnotationDecl(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitAnnotationProperty(AnnotationProperty node, Node parent, Consumer<AnnotationProperty> replacer) {
+			return split(node, parent, replacer) && super.visitAnnotationProperty(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitClassDecl(ClassDecl node, Node parent, Consumer<ClassDecl> replacer) {
+			return split(node, parent, replacer) && super.visitClassDecl(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitClassInitializer(ClassInitializer node, Node parent, Consumer<ClassInitializer> replacer) {
+			return split(node, parent, replacer) && super.visitClassInitializer(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitConstructorDecl(ConstructorDecl node, Node parent, Consumer<ConstructorDecl> replacer) {
+			return split(node, parent, replacer) && super.visitConstructorDecl(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitEnumDecl(EnumDecl node, Node parent, Consumer<EnumDecl> replacer) {
+			return split(node, parent, replacer) && super.visitEnumDecl(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitEnumField(EnumField node, Node parent, Consumer<EnumField> replacer) {
+			return split(node, parent, replacer) && super.visitEnumField(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitErrorNode(ErrorNode node, Node parent, Consumer<ErrorNode> replacer) {
+			return split(node, parent, replacer) && super.visitErrorNode(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitFunctionDecl(FunctionDecl node, Node parent, Consumer<FunctionDecl> replacer) {
+			return split(node, parent, replacer) && super.visitFunctionDecl(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitInterfaceDecl(InterfaceDecl node, Node parent, Consumer<InterfaceDecl> replacer) {
+			return split(node, parent, replacer) && super.visitInterfaceDecl(node, parent, replacer);
+		}
+
+		@Override
+		public boolean visitVariableDecl(VariableDecl node, Node parent, Consumer<VariableDecl> replacer) {
+			return split(node, parent, replacer) && super.visitVariableDecl(node, parent, replacer);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private class WalkTask<W extends TreeWalker> extends RecursiveTask<W> {
+		final Node node, parent;
+		final Supplier<? extends W> newWalker;
+		final BinaryOperator<W> merge;
+
+		WalkTask(Node node, Node parent, Supplier<? extends W> newWalker, BinaryOperator<W> merge) {
+			this.node = node;
+			this.parent = parent;
+			this.newWalker = newWalker;
+			this.merge = merge;
+		}
+
+		@Override
+		protected W compute() {
+			W walker = newWalker.get();
+			var tasks = new ArrayList<WalkTask<W>>();
+			TreeWalk.walk(node, parent, new TreeWalker() {
+				@Override
+				public boolean enter(Node visited, Node visitedParent) {
+					if(visited != node && splits(visited, visitedParent)) {
+						tasks.add(new WalkTask<>(visited, visitedParent, newWalker, merge));
+						return false;
+					}
+					return walker.enter(visited, visitedParent);
+				}
+
+				@Override
+				public void leave(Node visited, Node visitedParent) {
+					walker.leave(visited, visitedParent);
+				}
+			});
+			invokeAll(tasks);
+			W result = walker;
+			for(var task : tasks) {
+				result = merge.apply(result, task.join());
+			}
+			return result;
+		}
+	}
+
+}
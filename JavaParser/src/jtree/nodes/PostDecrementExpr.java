@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -28,7 +29,12 @@ public class PostDecrementExpr extends Node implements ChangeExpr {
 	
 	@Override
 	public String toCode() {
-		return wrap(getExpression()).toCode() + "--";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(wrap(getExpression())).write("--");
 	}
 
 	@Override
@@ -3,6 +3,7 @@ package jtree.nodes;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -32,7 +33,14 @@ public class ReturnStmt extends Node implements Statement {
 	
 	@Override
 	public String toCode() {
-		return "return" + getExpression().map(expression -> " " + expression.toCode()).orElse("") + ";";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("return");
+		getExpression().ifPresent(expression -> writer.write(' ').write(expression));
+		writer.write(';');
 	}
 	
 	public void setExpression(@NonNull Optional<? extends Expression> expression) {
@@ -0,0 +1,130 @@
+package jtree.nodes;
+
+import static jtree.util.Utils.joinNodes;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+import jtree.util.CodeWriter;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Writes and visits chains of function calls, member accesses and array indexes without recursion,
+ * since long chains of them, such as generated builder calls, would overflow the stack otherwise.
+ */
+@UtilityClass
+class Selectors {
+
+	private boolean isSelector(Expression expr) {
+		return expr instanceof FunctionCall || expr instanceof MemberAccess || expr instanceof IndexExpr;
+	}
+
+	/**
+	 * @return the expression {@code selector} selects from, or {@code null} if it is a function call without an object
+	 */
+	private Expression object(Expression selector) {
+		if(selector instanceof FunctionCall) {
+			return ((FunctionCall)selector).getObject().orElse(null);
+		} else if(selector instanceof MemberAccess) {
+			return ((MemberAccess)selector).getExpression();
+		} else {
+			return ((IndexExpr)selector).getIndexed();
+		}
+	}
+
+	private Consumer<Expression> objectReplacer(Expression selector) {
+		if(selector instanceof FunctionCall) {
+			return ((FunctionCall)selector)::setObject;
+		} else if(selector instanceof MemberAccess) {
+			return ((MemberAccess)selector)::setExpression;
+		} else {
+			return ((IndexExpr)selector)::setIndexed;
+		}
+	}
+
+	public void emit(Expression selector, CodeWriter writer) {
+		var chain = new ArrayDeque<Expression>();
+		Expression object;
+		for(;;) {
+			chain.push(selector);
+			object = object(selector);
+			if(object == null || !isSelector(object) || selector.wrap(object) != object) {
+				break;
+			}
+			selector = object;
+		}
+		if(object != null) {
+			writer.write(selector.wrap(object));
+		}
+		boolean limited = writer.getProfile().getMaxWidth() != 0, wrapped = false;
+		while(!chain.isEmpty()) {
+			selector = chain.pop();
+			if(selector instanceof FunctionCall) {
+				var call = (FunctionCall)selector;
+				if(call.getObject().isPresent()) {
+					// long call chains are broken before the dots
+					if(limited && !writer.fits("." + call.typeArgumentString() + call.getName() + "(" + joinNodes(", ", call.getArguments()) + ")")) {
+						wrapped = writer.wrap(wrapped);
+					}
+					writer.write('.');
+				}
+				writer.write(call.typeArgumentString() + call.getName()).writeArguments(call.getArguments());
+			} else if(selector instanceof MemberAccess) {
+				writer.write("." + ((MemberAccess)selector).getName());
+			} else {
+				writer.write('[').write(((IndexExpr)selector).getIndex()).write(']');
+			}
+		}
+		if(wrapped) {
+			writer.dedent().dedent();
+		}
+	}
+
+	/**
+	 * Visits the children of {@code selector}, which the visitor has already visited.
+	 */
+	public void accept(Expression selector, TreeVisitor visitor) {
+		var chain = new ArrayDeque<Expression>();
+		for(;;) {
+			chain.push(selector);
+			var object = object(selector);
+			if(object == null) {
+				break;
+			}
+			var parent = (Node)selector;
+			var replacer = objectReplacer(selector);
+			if(!isSelector(object)) {
+				object.accept(visitor, parent, replacer);
+				break;
+			}
+			boolean visitChildren;
+			if(object instanceof FunctionCall) {
+				visitChildren = visitor.visitFunctionCall((FunctionCall)object, parent, Node.cast(replacer));
+			} else if(object instanceof MemberAccess) {
+				visitChildren = visitor.visitMemberAccess((MemberAccess)object, parent, Node.cast(replacer));
+			} else {
+				visitChildren = visitor.visitIndexExpr((IndexExpr)object, parent, Node.cast(replacer));
+			}
+			if(!visitChildren) {
+				break;
+			}
+			selector = object;
+		}
+		while(!chain.isEmpty()) {
+			selector = chain.pop();
+			if(selector instanceof FunctionCall) {
+				var call = (FunctionCall)selector;
+				call.getName().accept(visitor, call, call::setName);
+				call.visitList(visitor, call.getTypeArguments());
+				call.visitList(visitor, call.getArguments());
+			} else if(selector instanceof MemberAccess) {
+				var access = (MemberAccess)selector;
+				access.getName().accept(visitor, access, access::setName);
+			} else {
+				var index = (IndexExpr)selector;
+				index.getIndex().accept(visitor, index, index::setIndex);
+			}
+		}
+	}
+
+}
@@ -5,6 +5,7 @@ import static jtree.util.Utils.*;
 import java.util.List;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -32,7 +33,12 @@ public class Size extends Node implements Annotated {
 	
 	@Override
 	public String toCode() {
-		return annotationString() + "[" + getExpression().toCode() + "]";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(annotationString() + "[").write(getExpression()).write(']');
 	}
 	
 	@Override
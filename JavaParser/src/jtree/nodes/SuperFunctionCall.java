@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -82,9 +83,14 @@ public class SuperFunctionCall extends Node implements Expression, TypeArgumentH
 	
 	@Override
 	public String toCode() {
-		return getObject().map(object -> object.toCode() + ".").orElse("")
-				+ "super." + typeArgumentString()
-				+ getName() + "(" + joinNodes(", ", getArguments()) + ")";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(getObject().map(object -> object.toCode() + ".").orElse("")
+				+ "super." + typeArgumentString() + getName())
+			  .writeArguments(getArguments());
 	}
 	
 	@Override
@@ -5,6 +5,7 @@ import static jtree.util.Utils.*;
 import java.util.List;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -37,7 +38,12 @@ public class Switch extends Node implements Expression, CompoundStmt {
 	
 	@Override
 	public String toCode() {
-		return "switch(" + expression.toCode() + ") {\n" + join("", getCases(), aCase -> aCase.toCode().indent(4)) + "}";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("switch(" + expression.toCode() + ") {\n").writeIndented(getCases()).write('}');
 	}
 	
 	public void setCases(@NonNull List<SwitchCase> cases) {
@@ -5,6 +5,7 @@ import static jtree.util.Utils.*;
 import java.util.List;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import jtree.util.Either;
 import jtree.util.Utils;
 import lombok.EqualsAndHashCode;
@@ -50,14 +51,21 @@ public class SwitchCase extends Node {
 	
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var labels = getLabels();
-		return (labels.isEmpty()? "default" : "case " + joinNodes(", ", labels))
-				+ body.unravel(stmts -> ":" + (stmts.isEmpty()
-												? "" 
-												: stmts.size() == 1 && stmts.get(0) instanceof Block
-													? " " + stmts.get(0).toCode() 
-													: "\n" + join("", stmts, stmt -> stmt.toCode().indent(4))),
-				               stmt -> " -> " + stmt.toCode());
+		writer.write(labels.isEmpty()? "default" : "case " + joinNodes(", ", labels));
+		body.accept(stmts -> {
+			writer.write(':');
+			if(stmts.size() == 1 && stmts.get(0) instanceof Block) {
+				writer.write(' ').write(stmts.get(0));
+			} else if(!stmts.isEmpty()) {
+				writer.write('\n').writeIndented(stmts);
+			}
+		}, stmt -> writer.write(" -> ").write(stmt));
 	}
 	
 	public void setBody(Either<? extends List<? extends Statement>, ? extends Statement> body) {
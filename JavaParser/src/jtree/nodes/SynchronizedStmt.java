@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -25,7 +26,12 @@ public class SynchronizedStmt extends Node implements CompoundStmt {
 	
 	@Override
 	public String toCode() {
-		return "synchronized(" + getLock().toCode() + ") " + getBody().toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("synchronized(" + getLock().toCode() + ") ").write(getBody());
 	}
 
 	@Override
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -23,7 +24,12 @@ public class ThrowStmt extends Node implements Statement {
 	
 	@Override
 	public String toCode() {
-		return "throw " + expression.toCode() + ";";
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("throw ").write(expression).write(';');
 	}
 
 	@Override
@@ -61,6 +61,8 @@ public interface TreeVisitor {
 
 	boolean visitEnumField(EnumField node, Node parent, Consumer<EnumField> replacer);
 
+	boolean visitErrorNode(ErrorNode node, Node parent, Consumer<ErrorNode> replacer);
+
 	boolean visitExportsDirective(ExportsDirective node, Node parent, Consumer<ExportsDirective> replacer);
 
 	boolean visitExpressionStmt(ExpressionStmt node, Node parent, Consumer<ExpressionStmt> replacer);
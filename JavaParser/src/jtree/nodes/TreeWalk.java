@@ -0,0 +1,94 @@
+package jtree.nodes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import jtree.util.Either;
+import lombok.SneakyThrows;
+
+/**
+ * The stack of nodes waiting to be walked by {@link Node#walk(TreeWalker)}. Each thread
+ * reuses its own stack, so that walking allocates nothing once the stack has grown to fit
+ * the trees it walks. Walks started from within a walk push above the frames of the outer one.
+ */
+final class TreeWalk {
+	private static final ThreadLocal<TreeWalk> STACKS = ThreadLocal.withInitial(TreeWalk::new);
+
+	private Node[] nodes = new Node[64], parents = new Node[64];
+	/** Whether each frame is for {@link TreeWalker#leave(Node, Node) leaving} its node rather than entering it */
+	private boolean[] leaving = new boolean[64];
+	private int size;
+
+	static void walk(Node root, TreeWalker walker) {
+		walk(root, null, walker);
+	}
+
+	/**
+	 * Walks {@code root} as though the walk had reached it from {@code rootParent}.
+	 */
+	@SneakyThrows
+	static void walk(Node root, Node rootParent, TreeWalker walker) {
+		var walk = STACKS.get();
+		int base = walk.size;
+		walk.push(root, rootParent, false);
+		try {
+			while(walk.size > base) {
+				int top = --walk.size;
+				Node node = walk.nodes[top], parent = walk.parents[top];
+				walk.nodes[top] = walk.parents[top] = null;
+				if(walk.leaving[top]) {
+					walker.leave(node, parent);
+				} else if(walker.enter(node, parent)) {
+					walk.push(node, parent, true);
+					// pushed last to first, so that they are entered first to last
+					var children = NodeMetadata.of(node.getClass()).children;
+					for(int i = children.length-1; i >= 0; i--) {
+						walk.pushAll((Object)children[i].invokeExact(node), node);
+					}
+				}
+			}
+		} finally {
+			while(walk.size > base) {
+				int top = --walk.size;
+				walk.nodes[top] = walk.parents[top] = null;
+			}
+		}
+	}
+
+	private void push(Node node, Node parent, boolean leaving) {
+		if(size == nodes.length) {
+			int capacity = size * 2;
+			nodes = Arrays.copyOf(nodes, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			this.leaving = Arrays.copyOf(this.leaving, capacity);
+		}
+		nodes[size] = node;
+		parents[size] = parent;
+		this.leaving[size] = leaving;
+		size++;
+	}
+
+	/**
+	 * Pushes the nodes held by {@code value}, a node or a {@link List}, {@link Optional}
+	 * or {@link Either} of them, in reverse order.
+	 */
+	private void pushAll(Object value, Node parent) {
+		if(value instanceof Node) {
+			push((Node)value, parent, false);
+		} else if(value instanceof List) {
+			var list = (List<?>)value;
+			for(int i = list.size()-1; i >= 0; i--) {
+				pushAll(list.get(i), parent);
+			}
+		} else if(value instanceof Optional) {
+			var optional = (Optional<?>)value;
+			if(optional.isPresent()) {
+				pushAll(optional.get(), parent);
+			}
+		} else if(value instanceof Either) {
+			pushAll(((Either<?,?>)value).getValue(), parent);
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package jtree.nodes;
+
+/**
+ * Looks at the nodes of a tree without replacing any of them.
+ * @see Node#walk(TreeWalker)
+ */
+@FunctionalInterface
+public interface TreeWalker {
+	
+	/**
+	 * Called for each node before the nodes under it.
+	 * @param parent the node's parent, or {@code null} for the node the walk started at
+	 * @return whether to walk the nodes under {@code node}
+	 */
+	boolean enter(Node node, Node parent);
+	
+	/**
+	 * Called for each node after the nodes under it, if {@link #enter(Node, Node) enter} returned {@code true}.
+	 */
+	default void leave(Node node, Node parent) {}
+	
+}
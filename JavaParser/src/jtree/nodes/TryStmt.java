@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -53,15 +54,23 @@ public class TryStmt extends Node implements CompoundStmt {
 	
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var resources = getResources();
-		String result = "try";
+		writer.write("try");
 		if(!resources.isEmpty()) {
 			String joined = joinNodes(" ", resources);
 			joined = joined.substring(0, joined.length() - 1); // removes trailing ';'
-			result += "(" + joined + ")";
+			writer.write("(" + joined + ")");
+		}
+		writer.write(' ').write(getBody());
+		for(var aCatch : getCatches()) {
+			writer.write(' ').write(aCatch);
 		}
-		return (result + " " + getBody().toCode() + " " + joinNodes(" ", getCatches())).stripTrailing()
-			+ getFinallyBody().map(finallyBody -> " finally " + finallyBody.toCode()).orElse("");
+		getFinallyBody().ifPresent(finallyBody -> writer.write(" finally ").write(finallyBody));
 	}
 	
 	public void setResources(@NonNull List<? extends ResourceSpecifier> resources) {
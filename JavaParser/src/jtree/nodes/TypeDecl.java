@@ -5,6 +5,7 @@ import static jtree.util.Utils.*;
 import java.util.List;
 import java.util.Optional;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -28,6 +29,15 @@ public abstract class TypeDecl extends GenericDecl implements REPLEntry {
 		return members.isEmpty()? "{}" : "{\n" + join("", getMembers(), member -> member.toCode().indent(4)) + "}";
 	}
 	
+	public void emitBody(CodeWriter writer) {
+		var members = getMembers();
+		if(members.isEmpty()) {
+			writer.write("{}");
+		} else {
+			writer.write("{\n").writeMembers(members).write('}');
+		}
+	}
+	
 	public void setMembers(@NonNull List<? extends Member> members) {
 		this.members = newList(members);
 	}
@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -30,7 +31,12 @@ public class TypeTest extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		return getExpression().toCode() + " instanceof " + getType().toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(getExpression()).write(" instanceof ").write(getType());
 	}
 
 	@Override
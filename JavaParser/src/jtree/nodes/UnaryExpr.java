@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -32,7 +33,12 @@ public class UnaryExpr extends Node implements Expression {
 	
 	@Override
 	public String toCode() {
-		return getOperation() + wrap(getOperand()).toCode();
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(getOperation().toString()).write(wrap(getOperand()));
 	}
 	
 	@RequiredArgsConstructor
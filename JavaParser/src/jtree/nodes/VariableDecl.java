@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -90,7 +91,14 @@ public class VariableDecl extends Declaration implements ResourceSpecifier, Memb
 
 	@Override
 	public String toCode() {
-		return toCode(true);
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write(docString() + annotationString(true) + modifierString() + getType().toCode() + " ")
+			  .writeAll(", ", getDeclarators())
+			  .write(';');
 	}
 	
 	public void setDeclarators(@NonNull List<VariableDeclarator> declarators) {
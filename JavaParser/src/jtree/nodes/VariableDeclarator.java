@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -55,9 +56,14 @@ public class VariableDeclarator extends Node implements Dimensioned {
 
 	@Override
 	public String toCode() {
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
 		var dimensionStr = dimensionString();
-		return getName() + (dimensionStr.startsWith("@")? " " : "") + dimensionStr
-				+ initializer.map(initializer -> " = " + initializer.toCode()).orElse("");
+		writer.write(getName() + (dimensionStr.startsWith("@")? " " : "") + dimensionStr);
+		initializer.ifPresent(initializer -> writer.write(" = ").write(initializer));
 	}
 
 	@Override
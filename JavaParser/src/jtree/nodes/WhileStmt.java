@@ -2,6 +2,7 @@ package jtree.nodes;
 
 import java.util.function.Consumer;
 
+import jtree.util.CodeWriter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -25,7 +26,13 @@ public class WhileStmt extends Node implements CompoundStmt {
 	
 	@Override
 	public String toCode() {
-		return "while(" + getCondition().toCode() + ")" + bodyString(getBody());
+		return CodeWriter.toCode(this);
+	}
+	
+	@Override
+	public void emit(CodeWriter writer) {
+		writer.write("while(").write(getCondition()).write(')');
+		emitBody(writer, getBody());
 	}
 
 	@Override
@@ -0,0 +1,570 @@
+package jtree.parser;
+
+import static jtree.parser.JavaTokenType.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import jtree.nodes.AnnotationDecl;
+import jtree.nodes.AnnotationProperty;
+import jtree.nodes.CompilationUnit;
+import jtree.nodes.EnumDecl;
+import jtree.nodes.EnumField;
+import jtree.nodes.INode;
+import jtree.nodes.InterfaceDecl;
+import jtree.nodes.Member;
+import jtree.nodes.Node;
+import jtree.nodes.NormalCompilationUnit;
+import jtree.nodes.TreeWalker;
+import jtree.nodes.TypeDecl;
+import jtree.nodes.VariableDecl;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Keeps a compilation unit up to date with edits of its text. Only the text between the closest
+ * members around the edits which they do not touch is parsed again, and the members parsed from it
+ * replace the ones in between in the existing tree. Edits to the package, the imports or the header
+ * of a top-level type, and edits which the smaller parse does not account for, parse the whole text again.
+ * <p>
+ * The parts are parsed by a {@link JavaParser}, since Java++ parsers carry state from the imports
+ * and enclosing types into each member.
+ * <p>
+ * An edit moves the members after it by adding to how far each of their entries has moved,
+ * without touching their nodes, so the nodes of moved members keep the offsets they were parsed at.
+ * {@link #start(Node)} and {@link #end(Node)} add the distance back.
+ */
+public class IncrementalParser {
+	@Getter
+	private final String filename;
+	private final StringBuilder text;
+	/**
+	 * The unit as of the last edit, or {@code null} if its text did not parse.
+	 * Edits which are not parsed in full change it in place.
+	 */
+	@Getter
+	private CompilationUnit compilationUnit;
+	/** Where the declarations of the unit are, or {@code null} if they are not tracked */
+	private Entry root;
+
+	/**
+	 * The offsets of a type declaration or of members which were declared together,
+	 * and the entries of the members in their body.
+	 */
+	private static class Entry {
+		final Entry parent;
+		/** The compilation unit, or the first of the members */
+		final INode node;
+		final List<? extends Member> members;
+		/** Whether the members are enum constants */
+		final boolean constant;
+		/** The start is {@code -1} if it is not known */
+		int start, end;
+		/**
+		 * How far the members have moved since the ranges of their nodes were set. It is added to
+		 * the ranges of the nodes which are not in the entries of the body.
+		 */
+		int shift;
+		/** The entries of the members in the body, in order, or {@code null} if they are not tracked */
+		ArrayList<Entry> children;
+
+		Entry(Entry parent, INode node, List<? extends Member> members, boolean constant, int start, int end) {
+			this.parent = parent;
+			this.node = node;
+			this.members = members;
+			this.constant = constant;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	public IncrementalParser(@NonNull CharSequence text, @NonNull String filename) {
+		this.filename = filename;
+		this.text = new StringBuilder(text);
+		parseAll();
+	}
+
+	public IncrementalParser(CharSequence text) {
+		this(text, "<unknown source>");
+	}
+
+	/**
+	 * @return the current text, which changes with later edits
+	 */
+	public CharSequence getText() {
+		return text;
+	}
+
+	/**
+	 * @return the offset of {@code node}'s first character in the current text,
+	 *         or {@code -1} if it was not parsed
+	 * @throws IllegalArgumentException if the node is not in the {@linkplain #getCompilationUnit() unit}
+	 */
+	public int start(@NonNull Node node) {
+		return node.start() < 0? -1 : node.start() + shiftOf(node);
+	}
+
+	/**
+	 * @return the offset just past {@code node}'s last character in the current text,
+	 *         or {@code -1} if it was not parsed
+	 * @throws IllegalArgumentException if the node is not in the {@linkplain #getCompilationUnit() unit}
+	 */
+	public int end(@NonNull Node node) {
+		return node.start() < 0? -1 : node.end() + shiftOf(node);
+	}
+
+	private int shiftOf(Node node) {
+		if(root == null) {
+			// the unit was parsed in full, and has not been moved since
+			if(compilationUnit == null) {
+				throw new IllegalArgumentException("node is not in the compilation unit");
+			}
+			return 0;
+		}
+		var entry = entryOf(root, node);
+		if(entry == null) {
+			throw new IllegalArgumentException("node is not in the compilation unit");
+		}
+		return entry.shift;
+	}
+
+	/**
+	 * @return the entry under {@code entry} which {@linkplain #owns(Entry, Node) owns} {@code node}, or {@code null}.
+	 *         Only the entries whose range contains the node's range moved by their shift are looked in.
+	 */
+	private static Entry entryOf(Entry entry, Node node) {
+		// the entries of the body first, since most nodes are in the innermost members.
+		// The ones whose range does not contain the node's cannot be skipped, since the
+		// entries in their body may have moved further.
+		if(entry.children != null) {
+			for(var child : entry.children) {
+				var found = entryOf(child, node);
+				if(found != null) {
+					return found;
+				}
+			}
+		}
+		if((entry.start < 0 || entry.start <= node.start() + entry.shift) && node.end() + entry.shift <= entry.end && owns(entry, node)) {
+			return entry;
+		}
+		return null;
+	}
+
+	/**
+	 * @return whether {@code node} is in the members of {@code entry} but not in the entries of their body
+	 */
+	private static boolean owns(Entry entry, Node node) {
+		Set<INode> children = Collections.newSetFromMap(new IdentityHashMap<>());
+		if(entry.children != null) {
+			for(var child : entry.children) {
+				children.addAll(child.members);
+			}
+		}
+		var found = new boolean[1];
+		var walker = new TreeWalker() {
+			@Override
+			public boolean enter(Node visited, Node parent) {
+				if(found[0] || children.contains(visited)) {
+					return false;
+				}
+				found[0] = visited == node;
+				return !found[0];
+			}
+		};
+		if(entry.parent == null) {
+			((Node)entry.node).walk(walker);
+		} else {
+			for(var member : entry.members) {
+				if(!found[0]) {
+					((Node)member).walk(walker);
+				}
+			}
+		}
+		return found[0];
+	}
+
+	/**
+	 * Creates the parser for the whole text or a part of it.
+	 */
+	protected JavaParser createParser(CharSequence text, String filename) {
+		return new JavaParser(text, filename);
+	}
+
+	public final CompilationUnit edit(TextEdit... edits) {
+		return edit(List.of(edits));
+	}
+
+	/**
+	 * Applies the edits to the text and updates the compilation unit.
+	 * If the text does not parse anymore, the {@link SyntaxError} is thrown after the edits have been applied
+	 * and the unit is {@code null} until an edit makes it parse again.
+	 *
+	 * @param edits edits which do not overlap, with offsets into the text before any of them
+	 * @return the updated unit, which is a new one if the whole text was parsed again
+	 */
+	public CompilationUnit edit(@NonNull List<TextEdit> edits) {
+		if(edits.isEmpty()) {
+			return compilationUnit;
+		}
+		var sorted = new ArrayList<>(edits);
+		sorted.sort(Comparator.comparingInt(TextEdit::getStart));
+		int delta = 0, last = 0;
+		for(var edit : sorted) {
+			if(edit.getStart() < last) {
+				throw new IllegalArgumentException("overlapping edits");
+			}
+			if(edit.getEnd() > text.length()) {
+				throw new IllegalArgumentException("edit past the end of the text");
+			}
+			last = edit.getEnd();
+			delta += edit.delta();
+		}
+		for(int i = sorted.size()-1; i >= 0; i--) {
+			var edit = sorted.get(i);
+			text.replace(edit.getStart(), edit.getEnd(), edit.getReplacement());
+		}
+		if(root == null || !reparse(sorted.get(0).getStart(), last, delta)) {
+			parseAll();
+		}
+		return compilationUnit;
+	}
+
+	private void parseAll() {
+		compilationUnit = null;
+		root = null;
+		var parser = createParser(text.toString(), filename);
+		parser.memberRanges = new IdentityHashMap<>();
+		var unit = parser.parseCompilationUnit();
+		if(unit instanceof NormalCompilationUnit) {
+			root = new Entry(null, unit, List.of(), false, 0, text.length());
+			root.children = entries(root, ((NormalCompilationUnit)unit).getDeclarations(), false, parser.memberRanges, 0);
+		}
+		compilationUnit = unit;
+	}
+
+	/**
+	 * @return the entries of {@code members}, or {@code null} if not all of them were recorded
+	 */
+	private ArrayList<Entry> entries(Entry parent, List<? extends Member> members, boolean constant, IdentityHashMap<Member,int[]> ranges, int base) {
+		var entries = new ArrayList<Entry>(members.size());
+		for(int i = 0; i < members.size();) {
+			var range = ranges.get(members.get(i));
+			if(range == null) {
+				return null;
+			}
+			int j = i+1;
+			while(j < members.size() && ranges.get(members.get(j)) == range) {
+				j++;
+			}
+			var group = List.copyOf(members.subList(i, j));
+			var entry = new Entry(parent, group.get(0), group, constant, range[0] < 0? -1 : range[0] + base, range[1] + base);
+			if(group.size() == 1) {
+				entry.children = children(entry, ranges, base);
+			}
+			entries.add(entry);
+			i = j;
+		}
+		return entries;
+	}
+
+	private ArrayList<Entry> children(Entry entry, IdentityHashMap<Member,int[]> ranges, int base) {
+		if(entry.node instanceof EnumDecl) {
+			var decl = (EnumDecl)entry.node;
+			var constants = entries(entry, decl.getConstants(), true, ranges, base);
+			var members = entries(entry, decl.getMembers(), false, ranges, base);
+			if(constants == null || members == null) {
+				return null;
+			}
+			constants.addAll(members);
+			return constants;
+		} else if(entry.node instanceof TypeDecl) {
+			return entries(entry, ((TypeDecl)entry.node).getMembers(), false, ranges, base);
+		} else if(entry.node instanceof EnumField) {
+			return ((EnumField)entry.node).getMembers().map(members -> entries(entry, members, false, ranges, base)).orElse(null);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses the text around the edited range again, in the smallest tracked body around it.
+	 *
+	 * @param from where the edits start in the old text
+	 * @param to where the edits end in the old text
+	 * @param delta how much longer the text got
+	 * @return whether it could be done
+	 */
+	private boolean reparse(int from, int to, int delta) {
+		var entry = root;
+		while(entry.children != null) {
+			var children = entry.children;
+			int i = lastStartingAtOrBefore(children, from);
+			if(i >= 0 && from < children.get(i).end && to <= children.get(i).end) {
+				entry = children.get(i);
+			} else {
+				break;
+			}
+		}
+		if(entry.children == null) {
+			entry = entry.parent;
+		}
+		for(; entry != null; entry = entry.parent) {
+			if(entry.children != null && reparseChildren(entry, from, to, delta)) {
+				root.end = text.length();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean reparseChildren(Entry entry, int from, int to, int delta) {
+		var children = entry.children;
+		// the children between before and after are the ones the edits may have changed
+		int before = lastEndingAtOrBefore(children, from);
+		int after = lastStartingAtOrBefore(children, to) + 1;
+		int first = before + 1;
+		int start, end;
+		boolean constant = false;
+		for(int i = first; i < after; i++) {
+			constant |= children.get(i).constant;
+		}
+		if(constant) {
+			// only one constant can be parsed on its own, without the commas around it
+			if(after - first != 1) {
+				return false;
+			}
+			var child = children.get(first);
+			if(child.start > from || child.end < to) {
+				return false;
+			}
+			start = child.start;
+			end = child.end;
+		} else {
+			if(before >= 0 && !children.get(before).constant && isTerminated(children.get(before))) {
+				start = children.get(before).end;
+			} else if(first < after && children.get(first).start < from) {
+				// an edit right at the start could join the first token to a doc comment before it
+				start = children.get(first).start;
+			} else {
+				return false;
+			}
+			if(after < children.size()) {
+				end = children.get(after).start;
+			} else if(entry == root) {
+				end = text.length() - delta;
+			} else {
+				// up to the closing brace
+				end = entry.end - 1;
+			}
+			if(start < 0 || to > end) {
+				return false;
+			}
+		}
+
+		if(!isBoundary(start) || !isBoundary(end + delta)) {
+			return false;
+		}
+		var source = text.substring(start, end + delta);
+		JavaParser parser;
+		var members = new ArrayList<Member>();
+		try {
+			parser = createParser(source, filename);
+			parser.memberRanges = new IdentityHashMap<>();
+			if(constant) {
+				members.addAll(parser.parseMember(() -> List.of(parser.parseEnumField())));
+			} else {
+				var memberParser = memberParser(entry, parser);
+				while(!parser.wouldAccept(ENDMARKER)) {
+					if(!parser.accept(SEMI)) {
+						members.addAll(parser.parseMember(memberParser));
+					}
+				}
+			}
+			if(!parser.wouldAccept(ENDMARKER)) {
+				return false;
+			}
+			if(parser.lookType(-2) == COMMENT) {
+				// a comment at the end would become the doc comment of the next member
+				if(after < children.size() && !startsWithComment(children.get(after).start + delta)) {
+					return false;
+				}
+				// and it must be closed, or it would go on past the end in the whole text
+				int commentStart = parser.offset(parser.tokens.look(-2).getStart());
+				if(source.startsWith("//", commentStart)? source.indexOf('\n', commentStart) < 0 : !isClosed(source.substring(commentStart).stripTrailing())) {
+					return false;
+				}
+			}
+		} catch(SyntaxError e) {
+			return false;
+		}
+		var entries = entries(entry, members, constant, parser.memberRanges, start);
+		if(entries == null) {
+			return false;
+		}
+
+		// the lists of nodes are always their own ArrayLists, so they can be changed in place
+		@SuppressWarnings("unchecked")
+		var container = (List<Member>)members(entry, constant);
+		int index;
+		if(first < after) {
+			index = indexOf(container, children.get(first).members.get(0));
+		} else {
+			var previous = children.get(before).members;
+			index = indexOf(container, previous.get(previous.size()-1)) + 1;
+		}
+		int count = 0;
+		for(int i = first; i < after; i++) {
+			count += children.get(i).members.size();
+		}
+		container.subList(index, index + count).clear();
+		for(var member : members) {
+			((Node)member).walk((node, parent) -> {
+				node.shiftRange(start);
+				return true;
+			});
+		}
+		container.addAll(index, members);
+
+		children.subList(first, after).clear();
+		shift(root.children, end, delta);
+		children.addAll(first, entries);
+		compilationUnit.setRange(0, text.length());
+		return true;
+	}
+
+	private Supplier<List<Member>> memberParser(Entry entry, JavaParser parser) {
+		if(entry == root) {
+			return () -> List.of(parser.parseTypeDecl());
+		} else if(entry.node instanceof InterfaceDecl) {
+			return () -> parser.parseClassMember(true);
+		} else if(entry.node instanceof AnnotationDecl) {
+			return parser::parseAnnotationMember;
+		} else {
+			return () -> parser.parseClassMember(false);
+		}
+	}
+
+	private List<? extends Member> members(Entry entry, boolean constant) {
+		if(entry == root) {
+			return ((NormalCompilationUnit)entry.node).getDeclarations();
+		} else if(constant) {
+			return ((EnumDecl)entry.node).getConstants();
+		} else if(entry.node instanceof TypeDecl) {
+			return ((TypeDecl)entry.node).getMembers();
+		} else {
+			return ((EnumField)entry.node).getMembers().orElseThrow();
+		}
+	}
+
+	/**
+	 * @return whether the entry ends the same no matter what comes after it. Fields and annotation
+	 *         properties may leave out their semicolon before the closing brace of the body.
+	 */
+	private boolean isTerminated(Entry entry) {
+		return !(entry.node instanceof VariableDecl || entry.node instanceof AnnotationProperty) || text.charAt(entry.end-1) == ';';
+	}
+
+	/**
+	 * @return whether the tokens before and after {@code offset} in the text are always separate ones
+	 */
+	private boolean isBoundary(int offset) {
+		if(offset == 0 || offset == text.length()) {
+			return true;
+		}
+		char before = text.charAt(offset-1), after = text.charAt(offset);
+		return Character.isWhitespace(before) || Character.isWhitespace(after) || ";{},".indexOf(before) >= 0 || ";{},".indexOf(after) >= 0;
+	}
+
+	private static boolean isClosed(String blockComment) {
+		return blockComment.length() >= 4 && blockComment.endsWith("*/");
+	}
+
+	private boolean startsWithComment(int offset) {
+		return offset + 1 < text.length() && text.charAt(offset) == '/' && (text.charAt(offset+1) == '/' || text.charAt(offset+1) == '*');
+	}
+
+	/**
+	 * Moves the entries which start at or after {@code offset} by {@code delta},
+	 * and the ends of the ones which contain it and of their members.
+	 */
+	private static void shift(List<Entry> entries, int offset, int delta) {
+		if(entries == null || delta == 0) {
+			return;
+		}
+		for(int i = lastEndingAtOrBefore(entries, offset) + 1; i < entries.size(); i++) {
+			var entry = entries.get(i);
+			if(entry.start >= offset) {
+				move(entry, delta);
+			} else {
+				entry.end += delta;
+				for(var member : entry.members) {
+					var node = (Node)member;
+					if(node.start() >= 0) {
+						node.setRange(node.start(), node.end() + delta);
+					}
+				}
+				shift(entry.children, offset, delta);
+			}
+		}
+	}
+
+	private static void move(Entry entry, int delta) {
+		if(entry.start >= 0) {
+			entry.start += delta;
+		}
+		entry.end += delta;
+		entry.shift += delta;
+		if(entry.children != null) {
+			for(var child : entry.children) {
+				move(child, delta);
+			}
+		}
+	}
+
+	private static int indexOf(List<Member> members, Member member) {
+		for(int i = 0; i < members.size(); i++) {
+			if(members.get(i) == member) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("member is not in its parent");
+	}
+
+	/**
+	 * @return the index of the last entry which starts at or before {@code offset}, or {@code -1}
+	 */
+	private static int lastStartingAtOrBefore(List<Entry> entries, int offset) {
+		int low = 0, high = entries.size() - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(entries.get(mid).start <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * @return the index of the last entry which ends at or before {@code offset}, or {@code -1}
+	 */
+	private static int lastEndingAtOrBefore(List<Entry> entries, int offset) {
+		int low = 0, high = entries.size() - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(entries.get(mid).end <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+}
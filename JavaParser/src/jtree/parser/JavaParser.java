@@ -96,12 +96,23 @@ import static jtree.util.Utils.iter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -137,6 +148,7 @@ import jtree.nodes.DoStmt;
 import jtree.nodes.EmptyStmt;
 import jtree.nodes.EnumDecl;
 import jtree.nodes.EnumField;
+import jtree.nodes.ErrorNode;
 import jtree.nodes.ExportsDirective;
 import jtree.nodes.Expression;
 import jtree.nodes.ExpressionStmt;
@@ -146,6 +158,7 @@ import jtree.nodes.FormalParameter;
 import jtree.nodes.FunctionCall;
 import jtree.nodes.FunctionDecl;
 import jtree.nodes.GenericType;
+import jtree.nodes.INode;
 import jtree.nodes.IfStmt;
 import jtree.nodes.ImportDecl;
 import jtree.nodes.IndexExpr;
@@ -153,6 +166,7 @@ import jtree.nodes.InformalParameter;
 import jtree.nodes.Initializer;
 import jtree.nodes.InterfaceDecl;
 import jtree.nodes.LabeledStmt;
+import jtree.nodes.LazyBlock;
 import jtree.nodes.Lambda;
 import jtree.nodes.Literal;
 import jtree.nodes.Member;
@@ -162,6 +176,7 @@ import jtree.nodes.Modifier;
 import jtree.nodes.Modifier.Modifiers;
 import jtree.nodes.ModuleCompilationUnit;
 import jtree.nodes.Name;
+import jtree.nodes.Node;
 import jtree.nodes.NormalCompilationUnit;
 import jtree.nodes.OpensDirective;
 import jtree.nodes.PackageDecl;
@@ -206,6 +221,8 @@ import jtree.nodes.WhileStmt;
 import jtree.nodes.WildcardTypeArgument;
 import jtree.nodes.YieldStmt;
 import jtree.parser.JavaTokenType.Tag;
+import jtree.parser.Outline.MemberOutline;
+import jtree.parser.Outline.TypeOutline;
 import jtree.util.ContextManager;
 import jtree.util.ContextStack;
 import jtree.util.Either;
@@ -216,6 +233,10 @@ import lombok.NonNull;
 public class JavaParser {
 	@Getter
 	protected LookAheadListIterator<Token<JavaTokenType>> tokens;
+	/**
+	 * The current token, or {@code null} if it has not been made yet because the tokens are stored
+	 * {@link TokenStorage#COMPACT compactly}. Read it through {@link #getToken()}.
+	 */
 	protected Token<JavaTokenType> token;
 	@Getter
 	protected String filename;
@@ -299,6 +320,10 @@ public class JavaParser {
 			return stack.enter(new ArrayList<>());
 		}
 
+		public void clear() {
+			stack.clear();
+		}
+
 		public boolean isWithinContext() {
 			return !stack.isEmpty();
 		}
@@ -323,37 +348,423 @@ public class JavaParser {
 
 	protected PreStmtManager preStmts = new PreStmtManager();
 
+	/**
+	 * How far back the parser looks in the token stream, see {@link #getDocComment()} and {@link #lastEndOffset()}.
+	 * The tokens are {@link #collapseComments(Iterator) collapsed} so that this is enough.
+	 */
+	protected static final int TOKEN_LOOK_BEHIND = 3;
+
+	/**
+	 * How the parser keeps the tokens of its input.
+	 */
+	public static enum TokenStorage {
+		/** Tokenize the whole text up front and keep every {@link Token} */
+		LIST,
+		/**
+		 * Tokenize the text on demand while parsing, only keeping the tokens in memory
+		 * that the parser can still go back to
+		 */
+		STREAMING,
+		/**
+		 * Tokenize the whole text up front into a {@link TokenList}, which stores token types and
+		 * offsets in primitive arrays and only creates {@link Token} objects as they are looked at
+		 */
+		COMPACT;
+	}
+
+	/** How the tokens are stored, or {@code null} if the parser was created for a list of tokens */
+	protected final TokenStorage storage;
+
+	/** The tokens of the input if they are stored {@link TokenStorage#COMPACT compactly}, else {@code null} */
+	protected TokenList<JavaTokenType> tokenList;
+
+	/** The lines of the text being parsed, which also maps the offsets of node {@link Node#start() ranges} to positions */
+	@Getter
+	protected LineTable lineTable;
+
+	/** Rule ids for {@link #memoize(int, Supplier)} */
+	protected static final int SUFFIX_RULE = 0;
+
+	/**
+	 * The outcome of a parse which may be asked for again after the parser goes back.
+	 */
+	protected static final class MemoEntry {
+		final Object result;
+		final SyntaxError failure;
+		/** The token index the parse ended at */
+		final int end;
+		/** What {@link #memoContext()} returned when the parse was made */
+		final Object context;
+
+		MemoEntry(Object result, SyntaxError failure, int end, Object context) {
+			this.result = result;
+			this.failure = failure;
+			this.end = end;
+			this.context = context;
+		}
+	}
+
+	/**
+	 * Memoized parses keyed by the token index they started at and their rule id,
+	 * or {@code null} if memoization is off
+	 */
+	protected HashMap<Long,MemoEntry> memo;
+
+	/** Whether bodies are parsed lazily, see {@link #setLazy(boolean)} */
+	protected boolean lazy;
+
+	/**
+	 * Where the members parsed so far start and end if the parser is making an
+	 * {@link #parseOutline() outline}, else {@code null}
+	 */
+	protected IdentityHashMap<Member,Position[]> outline;
+
+	/**
+	 * The offsets at which the members parsed so far start and end if the parser is recording them
+	 * for an {@link IncrementalParser}, else {@code null}. A member starts at the comment just before it, if any.
+	 * The start is {@code -1} for a top-level type whose modifiers were parsed before it was known to be one.
+	 */
+	protected IdentityHashMap<Member,int[]> memberRanges;
+
+	/**
+	 * The syntax errors found so far by their line and column if the parser is
+	 * {@link #setRecovering(boolean) recovering}, else {@code null}
+	 */
+	protected TreeMap<Long,SyntaxError> diagnostics;
+
 	public JavaParser(CharSequence text) {
 		this(text, "<unknown source>");
 	}
 
 	public JavaParser(CharSequence text, String filename) {
-		this.tokens = new LookAheadListIterator<>(iter(this.tokenizer = createTokenizer(text, filename)), token -> {
+		this(text, filename, TokenStorage.LIST);
+	}
+
+	public JavaParser(CharSequence text, String filename, @NonNull TokenStorage storage) {
+		this.storage = storage;
+		readTokens(text, filename);
+		addInfixOperators();
+	}
+
+	/**
+	 * Creates a parser over tokens which have already been made, such as those of a
+	 * {@link #setLazy(boolean) lazily parsed} body.
+	 */
+	protected JavaParser(List<Token<JavaTokenType>> tokens, String filename) {
+		this.storage = null;
+		this.tokens = LookAheadListIterator.ofList(tokens, tokenSetter());
+		this.filename = filename;
+		nextToken();
+		addInfixOperators();
+	}
+
+	private void readTokens(CharSequence text, String filename) {
+		this.tokenizer = createTokenizer(text, filename);
+		this.lineTable = tokenizer.getLineTable();
+		if(tokens == null) {
+			var setter = tokenSetter();
+			this.tokens = switch(storage) {
+				case LIST -> new LookAheadListIterator<>(iter(tokenizer), setter);
+				case STREAMING -> new LookAheadListIterator<>(collapseComments(tokenizer), TOKEN_LOOK_BEHIND, setter);
+				case COMPACT -> LookAheadListIterator.ofList(this.tokenList = new TokenList<>(JavaTokenType.class, tokenizer), tokenIndexSetter());
+			};
+		} else if(storage == TokenStorage.COMPACT) {
+			// lazy bodies may still be reading the old list
+			tokens.reset(this.tokenList = new TokenList<>(JavaTokenType.class, tokenizer));
+		} else if(storage == TokenStorage.STREAMING) {
+			tokens.reset(collapseComments(tokenizer));
+		} else {
+			tokens.reset(tokenizer);
+		}
+		this.filename = filename;
+		nextToken();
+	}
+
+	/**
+	 * Makes the parser parse {@code text} from its start, as if it had just been created for it.
+	 * The token storage, options and operator tables are kept, and so are the buffers of the
+	 * tokens unless they are stored {@link TokenStorage#COMPACT compactly}.
+	 * This is cheaper than creating a new parser for each of many small texts, see {@link ParserPool}.
+	 */
+	public void reset(@NonNull CharSequence text, @NonNull String filename) {
+		if(storage == null) {
+			throw new IllegalStateException("parser was not created for a text");
+		}
+		readTokens(text, filename);
+		typeNames.clear();
+		preStmts.clear();
+		if(memo != null) {
+			memo.clear();
+		}
+		outline = null;
+		memberRanges = null;
+		if(diagnostics != null) {
+			diagnostics.clear();
+		}
+	}
+
+	public final void reset(CharSequence text) {
+		reset(text, "<unknown source>");
+	}
+
+	/**
+	 * Drops each comment which is directly followed by another one, so that no more than one
+	 * comment comes between any two other tokens. The parser only ever looks at the comment just
+	 * before a token, so this keeps the tokens it has to be able to go back to few.
+	 */
+	private static Iterator<Token<JavaTokenType>> collapseComments(Iterator<Token<JavaTokenType>> tokens) {
+		return new Iterator<>() {
+			Token<JavaTokenType> pending;
+
+			@Override
+			public boolean hasNext() {
+				return pending != null || tokens.hasNext();
+			}
+
+			@Override
+			public Token<JavaTokenType> next() {
+				var token = pending != null? pending : tokens.next();
+				pending = null;
+				while(token.getType() == COMMENT && tokens.hasNext()) {
+					var next = tokens.next();
+					if(next.getType() == COMMENT) {
+						token = next;
+					} else {
+						pending = next;
+						break;
+					}
+				}
+				return token;
+			}
+		};
+	}
+
+	private Consumer<Token<JavaTokenType>> tokenSetter() {
+		return token -> {
 			this.token = token;
 			if(this.token.getType() == COMMENT) {
 				nextToken();
 			}
-		});
-		this.filename = filename;
-		this.token = nextToken();
+		};
 	}
 
 	protected JavaTokenizer<JavaTokenType> createTokenizer(CharSequence text, String filename) {
 		return new JavaTokenizer<>(text, filename, ENDMARKER, ERRORTOKEN, STRING, CHARACTER, NUMBER, NAME, COMMENT,
-				JavaTokenType.NORMAL_TOKENS.stream()
-						.collect(Collectors.toMap(token -> token.getSymbol().orElseThrow(), token -> token)));
+				JavaTokenType.NORMAL_TOKEN_MATCHER);
 	}
 
-	protected Token<JavaTokenType> nextToken() {
-		do {
-			token = tokens.next();
-		} while(token.getType() == COMMENT);
+	/**
+	 * Same as {@link #tokenSetter()}, but leaves the token to be made by {@link #getToken()}.
+	 */
+	private IntConsumer tokenIndexSetter() {
+		return index -> {
+			this.token = null;
+			if(tokenType() == COMMENT) {
+				nextToken();
+			}
+		};
+	}
+
+	protected void nextToken() {
+		if(tokenList != null) {
+			do {
+				tokens.skip();
+			} while(tokenType() == COMMENT);
+			token = null;
+		} else {
+			do {
+				token = tokens.next();
+			} while(token.getType() == COMMENT);
+		}
+	}
+
+	/**
+	 * @return the current token, which is only made when this is called if the tokens are
+	 *         stored {@link TokenStorage#COMPACT compactly}
+	 */
+	protected Token<JavaTokenType> getToken() {
+		if(token == null) {
+			token = tokenList.get(Math.max(tokens.getIndex()-1, 0));
+		}
 		return token;
 	}
 
+	/**
+	 * Same as {@code getToken().getType()}, but does not make the token.
+	 */
+	protected JavaTokenType tokenType() {
+		return lookType(-1);
+	}
+
+	/**
+	 * Same as {@code getToken().getString()}, but does not make the token.
+	 */
+	protected String tokenString() {
+		if(token != null) {
+			return token.getString();
+		}
+		return tokenList.getString(Math.max(tokens.getIndex()-1, 0));
+	}
+
+	/**
+	 * Same as {@code test.test(tokens.look(n))}, but only makes the token
+	 * if {@code test} looks at more than its type.
+	 */
+	private boolean lookTest(TokenPredicate<JavaTokenType> test, int n) {
+		if(test instanceof JavaTokenType) {
+			return lookType(n) == test;
+		} else if(test instanceof Tag) {
+			return lookType(n).hasTag((Tag)test);
+		} else if(test instanceof TokenTypeSet) {
+			return ((TokenTypeSet)test).contains(lookType(n));
+		} else {
+			return test.test(n == -1? getToken() : tokens.look(n));
+		}
+	}
+
+	/**
+	 * Same as {@code tokens.look(n).getType()}, but does not create a {@link Token}
+	 * if the tokens are stored {@link TokenStorage#COMPACT compactly}.
+	 */
+	protected JavaTokenType lookType(int n) {
+		if(tokenList == null) {
+			return tokens.look(n).getType();
+		}
+		int i = tokens.getIndex() + n;
+		if(i < 0) {
+			i = 0;
+		} else if(i >= tokenList.size()) {
+			i = tokenList.size()-1;
+		}
+		return tokenList.getType(i);
+	}
+
+	/**
+	 * Same as {@code tokens.look(n).getString().equals(str)}, but does not create a {@link Token}
+	 * if the tokens are stored {@link TokenStorage#COMPACT compactly}.
+	 */
+	protected boolean lookEquals(int n, String str) {
+		if(tokenList == null) {
+			return tokens.look(n).getString().equals(str);
+		}
+		int i = tokens.getIndex() + n;
+		if(i < 0) {
+			i = 0;
+		} else if(i >= tokenList.size()) {
+			i = tokenList.size()-1;
+		}
+		return tokenList.stringEquals(i, str);
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * Turns lazy parsing of method, constructor and initializer bodies on or off. When it is on,
+	 * bodies are skipped by matching braces and parsed the first time their statements are
+	 * asked for, see {@link LazyBlock}. Syntax errors in a body are only thrown then.
+	 */
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	public boolean isRecovering() {
+		return diagnostics != null;
+	}
+
+	/**
+	 * Turns recovery from syntax errors on or off. When it is on, a member or statement which does not
+	 * parse is recorded in the {@link #getDiagnostics() diagnostics}, skipped up to the next {@code ';'}
+	 * or {@code '}'}, and left in the tree as an {@link ErrorNode}, so that one parse finds all the errors
+	 * in a text. A top-level type which does not parse is left out. Errors before the first type, and
+	 * errors of the tokenizer, are still thrown. Bodies are not parsed lazily while recovering.
+	 */
+	public void setRecovering(boolean recovering) {
+		if(recovering != isRecovering()) {
+			diagnostics = recovering? new TreeMap<>() : null;
+		}
+	}
+
+	/**
+	 * @return the syntax errors the parser has recovered from, in the order they appear in the text
+	 */
+	public List<SyntaxError> getDiagnostics() {
+		return diagnostics == null? List.of() : List.copyOf(diagnostics.values());
+	}
+
+	public boolean isMemoizing() {
+		return memo != null;
+	}
+
+	/**
+	 * Turns packrat memoization of speculative parses on or off. When it is on, a rule which is
+	 * tried, abandoned and then parsed again at the same token, such as the object of a
+	 * qualified {@code super(...)} call which turns out to be an ordinary expression statement,
+	 * is only parsed once. Without it, the time taken by such nested retries grows exponentially
+	 * with their depth.
+	 */
+	public void setMemoizing(boolean memoizing) {
+		memo = memoizing? new HashMap<>() : null;
+	}
+
+	/**
+	 * Calls {@code parser}, or returns what it returned or throws what it threw the last time
+	 * it was called at the current token with the same rule id and {@link #memoContext() context}.
+	 * A remembered result is given out at most once, since the parser which abandoned it is the
+	 * only one which may have held on to it. The parser must not have side effects beyond those
+	 * of its first call.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T memoize(int rule, Supplier<T> parser) {
+		if(memo == null) {
+			return parser.get();
+		}
+		long key = (long)tokens.getIndex() << 8 | rule;
+		var context = memoContext();
+		var entry = memo.get(key);
+		if(entry != null && Objects.equals(entry.context, context)) {
+			if(entry.failure != null) {
+				throw entry.failure;
+			}
+			memo.remove(key);
+			tokens.seek(entry.end);
+			return (T)entry.result;
+		}
+		T result;
+		try {
+			result = parser.get();
+		} catch(SyntaxError e) {
+			memo.put(key, new MemoEntry(null, e, -1, context));
+			throw e;
+		}
+		memo.put(key, new MemoEntry(result, null, tokens.getIndex(), context));
+		return result;
+	}
+
+	/**
+	 * @return the state outside of the tokens which memoized parses depend on
+	 */
+	protected Object memoContext() {
+		return null;
+	}
+
+	/**
+	 * Forgets memoized parses, unless the parser may still go back to before the current token.
+	 * Called before each member of a class body.
+	 */
+	protected void clearMemo() {
+		if(memo != null && !tokens.isMarked()) {
+			memo.clear();
+		}
+	}
+
 	protected Optional<String> getDocComment() {
+		if(lookType(-2) != COMMENT) {
+			return Optional.empty();
+		}
 		var token = tokens.look(-2);
-		if(token.getType() == COMMENT && token.getString().startsWith("/**") && token.getString().length() > 4) {
+		if(token.getString().startsWith("/**") && token.getString().length() > 4) {
 			return Optional.of(token.getString());
 		} else {
 			return Optional.empty();
@@ -370,11 +781,11 @@ public class JavaParser {
 	}
 
 	protected boolean wouldAccept(TokenPredicate<JavaTokenType> test) {
-		return test.test(token);
+		return lookTest(test, -1);
 	}
 
 	protected boolean wouldAccept(String str) {
-		return token.getString().equals(str);
+		return lookEquals(-1, str);
 	}
 
 	@SafeVarargs
@@ -382,9 +793,9 @@ public class JavaParser {
 		if(tests.length == 0) {
 			throw new IllegalArgumentException("no tests given");
 		}
-		if(tests[0].test(token)) {
+		if(lookTest(tests[0], -1)) {
 			for(int i = 1; i < tests.length; i++) {
-				if(!tests[i].test(tokens.look(i - 1))) {
+				if(!lookTest(tests[i], i - 1)) {
 					return false;
 				}
 			}
@@ -399,8 +810,8 @@ public class JavaParser {
 		if(tests.length == 0) {
 			throw new IllegalArgumentException("no tests given");
 		}
-		if(tests[0].test(token)) {
-			var last = token;
+		if(lookTest(tests[0], -1)) {
+			var last = getToken();
 			for(int i = 1; i < tests.length; i++) {
 				var nextTok = tokens.look(i - 1);
 				if(!tests[i].test(nextTok) || !last.getEnd().equals(nextTok.getStart())) {
@@ -418,9 +829,9 @@ public class JavaParser {
 		if(strs.length == 0) {
 			throw new IllegalArgumentException("no tests given");
 		}
-		if(token.getString().equals(strs[0])) {
+		if(lookEquals(-1, strs[0])) {
 			for(int i = 1; i < strs.length; i++) {
-				if(!tokens.look(i - 1).getString().equals(strs[i])) {
+				if(!lookEquals(i - 1, strs[i])) {
 					return false;
 				}
 			}
@@ -431,16 +842,16 @@ public class JavaParser {
 	}
 
 	protected boolean wouldNotAccept(TokenPredicate<JavaTokenType> test) {
-		return token.getType() != ENDMARKER && !test.test(token);
+		return tokenType() != ENDMARKER && !lookTest(test, -1);
 	}
 
 	protected boolean wouldNotAccept(String str) {
-		return token.getType() != ENDMARKER && !token.getString().equals(str);
+		return tokenType() != ENDMARKER && !lookEquals(-1, str);
 	}
 
 	@SafeVarargs
 	protected final boolean wouldNotAccept(TokenPredicate<JavaTokenType>... tests) {
-		return token.getType() != ENDMARKER && !wouldAccept(tests);
+		return tokenType() != ENDMARKER && !wouldAccept(tests);
 	}
 
 	protected boolean accept(TokenPredicate<JavaTokenType> test) {
@@ -491,7 +902,7 @@ public class JavaParser {
 	}
 	
 	protected SyntaxError syntaxError(String message) {
-		return syntaxError(message, token);
+		return syntaxError(message, getToken());
 	}
 
 	protected SyntaxError syntaxError(String message, Token<JavaTokenType> token) {
@@ -499,22 +910,112 @@ public class JavaParser {
 				token.getLine());
 	}
 
+	/**
+	 * @param message makes the message from the current token, and is only called if the message is asked for
+	 */
+	protected SyntaxError syntaxError(Function<? super Token<JavaTokenType>,String> message) {
+		var token = getToken();
+		throw new SyntaxError(() -> message.apply(token), filename, token.getStart().getLine(), token.getStart().getColumn(),
+				token.getLine());
+	}
+
+	/**
+	 * Parses with {@code parser}. If the parser is {@link #setRecovering(boolean) recovering} and that fails,
+	 * the error is recorded, the member or statement is {@link #skipErroneous() skipped}, and the result of
+	 * {@code onError} for an {@link ErrorNode} of the skipped text is returned instead.
+	 */
+	protected <T> T recover(Supplier<? extends T> parser, Function<ErrorNode,? extends T> onError) {
+		if(diagnostics == null) {
+			return parser.get();
+		}
+		int start = startOffset();
+		try(var state = tokens.enter()) {
+			try {
+				return parser.get();
+			} catch(SyntaxError e) {
+				// an error which a speculative parse ran into is found again when the parser goes back
+				diagnostics.putIfAbsent((long)e.getLineNumber() << 32 | e.getColumn(), e);
+				state.reset();
+			}
+		}
+		skipErroneous();
+		int end = Math.max(lastEndOffset(), start);
+		var error = new ErrorNode(lineTable.getText().subSequence(start, end).toString());
+		error.setRange(start, end);
+		return onError.apply(error);
+	}
+
+	/**
+	 * Skips a member or statement which does not parse, from its first token: up to and including the
+	 * first {@code ';'} outside of brackets, or up to the first {@code '}'} which closes a brace opened
+	 * before it. A body in braces ends it too, unless it goes on with the {@code ';'} after an initializer,
+	 * the {@code ')'} after a lambda argument, the {@code else} after the body of an {@code if} or the like.
+	 */
+	protected void skipErroneous() {
+		// the ';'s of a for loop's header are in parentheses, any other one ends a statement
+		boolean isFor = tokenType() == FOR;
+		int braces = 0, parens = 0;
+		for(;;) {
+			var type = tokenType();
+			if(type == ENDMARKER) {
+				return;
+			} else if(type == LBRACE) {
+				braces++;
+			} else if(type == RBRACE) {
+				if(braces == 0) {
+					return;
+				} else if(--braces == 0) {
+					nextToken();
+					if(!wouldAccept(SEMI.or(COMMA).or(DOT).or(RPAREN).or(RBRACKET).or(ELSE).or(CATCH).or(FINALLY))) {
+						return;
+					}
+					continue;
+				}
+			} else if(type == LPAREN || type == LBRACKET) {
+				parens++;
+			} else if(type == RPAREN || type == RBRACKET) {
+				if(parens > 0) {
+					parens--;
+				}
+			} else if(type == SEMI && braces == 0 && (parens == 0 || !isFor)) {
+				nextToken();
+				return;
+			}
+			nextToken();
+		}
+	}
+
+	/**
+	 * Requires the {@code '}'} which closes a body. A parser which is {@link #setRecovering(boolean) recovering}
+	 * only records it as missing at the end of the text, so that what was parsed of the body is kept.
+	 */
+	protected void requireClosingBrace() {
+		try {
+			require(RBRACE);
+		} catch(SyntaxError e) {
+			if(diagnostics == null || tokenType() != ENDMARKER) {
+				throw e;
+			}
+			diagnostics.putIfAbsent((long)e.getLineNumber() << 32 | e.getColumn(), e);
+		}
+	}
+
 	protected void require(TokenPredicate<JavaTokenType> test) {
 		if(!accept(test)) {
-			throw syntaxError("expected '" + test + "' here, got " + token);
+			throw syntaxError(got -> "expected '" + test + "' here, got " + got);
 		}
 	}
 
 	protected void require(String test) {
 		if(!accept(test)) {
-			throw syntaxError("expected '" + test + "' here, got " + token);
+			throw syntaxError(got -> "expected '" + test + "' here, got " + got);
 		}
 	}
 
 	@SafeVarargs
 	protected final void require(TokenPredicate<JavaTokenType>... tests) {
 		if(!accept(tests)) {
-			throw syntaxError("expected " + Arrays.toString(tests) + " here, got " + token);
+			throw syntaxError(got -> "expected " + Arrays.toString(tests) + " here, got " + got);
 		}
 	}
 
@@ -549,17 +1050,19 @@ public class JavaParser {
 	}
 	
 	public String parseIdent() {
-		var token = this.token;
+		var name = tokenString();
 		require(Tag.NAMED);
-		return token.getString();
+		return name;
 	}
 
 	public Name parseName() {
-		return new Name(parseIdent());
+		int start = startOffset();
+		return at(start, new Name(parseIdent()));
 	}
 
 	public QualifiedName parseQualName() {
-		return new QualifiedName(listOf(DOT, this::parseName));
+		int start = startOffset();
+		return at(start, new QualifiedName(listOf(DOT, this::parseName)));
 	}
 
 	public Name parseTypeName() {
@@ -570,17 +1073,19 @@ public class JavaParser {
 	}
 
 	public QualifiedName parseQualTypeName() {
+		int start = startOffset();
 		var names = new ArrayList<Name>();
-		Token<JavaTokenType> last;
+		int lastIndex;
 		do {
-			last = token;
+			lastIndex = tokens.getIndex();
 			names.add(parseName());
 		} while(accept(DOT));
 		if(names.get(names.size() - 1).equals("var") && names.size() > 1) {
+			var last = tokens.look(lastIndex - 1 - tokens.getIndex());
 			throw new SyntaxError("'var' is not allowed as a type name", filename, last.getStart().getLine(),
 					last.getStart().getColumn(), last.getLine());
 		}
-		return new QualifiedName(names);
+		return at(start, new QualifiedName(names));
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -599,7 +1104,7 @@ public class JavaParser {
     			modsAndAnnos = modsAndAnnos2;
     			entries.addAll((List<? extends REPLEntry>)parseClassMember(false, docComment, modsAndAnnos));
     		} else {
-        		switch(token.getType()) {
+        		switch(tokenType()) {
         			case AT, INTERFACE, CLASS, ENUM:
         				entries.add(parseTypeDecl(getDocComment(), new ModsAndAnnotations()));
         				break;
@@ -608,8 +1113,9 @@ public class JavaParser {
         				break;
         			case VOID: {
     					var docComment = getDocComment();
+    					int start = startOffset();
     					nextToken();
-    					entries.addAll((List<? extends REPLEntry>)parseMethod(false, new VoidType(), emptyList(), docComment, new ModsAndAnnotations()));
+    					entries.addAll((List<? extends REPLEntry>)parseMethod(false, at(start, new VoidType()), emptyList(), docComment, new ModsAndAnnotations()));
     					break;
         			}
         			case PACKAGE:
@@ -693,6 +1199,236 @@ public class JavaParser {
 		}
 	}
 
+	/**
+	 * Parses only the declarations of a compilation unit and notes where each of them is.
+	 * The bodies of methods, constructors, initializers and enum constants and the initializers
+	 * and arguments of fields and enum constants are skipped without being parsed.
+	 */
+	public Outline parseOutline() {
+		outline = new IdentityHashMap<>();
+		try {
+			Optional<PackageDecl> pckg;
+			if(wouldAcceptAfterAnnotations(() -> wouldAccept(PACKAGE, Tag.NAMED))) {
+				var docComment = getDocComment();
+				pckg = Optional.of(parsePackageDecl(docComment, parseAnnotations()));
+			} else {
+				pckg = Optional.empty();
+			}
+			var imports = parseImportSection();
+			var types = new ArrayList<TypeOutline>();
+			if(pckg.isEmpty() && wouldAcceptAfterAnnotations(() -> wouldAccept(OPEN.or(MODULE)))) {
+				parseModuleCompilationUnit(imports);
+			} else {
+				while(!wouldAccept(ENDMARKER)) {
+					if(!accept(SEMI)) {
+						types.add(typeOutline(parseMember(() -> List.of(parseTypeDecl())).get(0)));
+					}
+				}
+			}
+			return new Outline(pckg, imports, types);
+		} finally {
+			outline = null;
+		}
+	}
+
+	private boolean wouldAcceptAfterAnnotations(BooleanSupplier test) {
+		try(var state = tokens.enter()) {
+			parseAnnotations();
+			state.reset();
+			return test.getAsBoolean();
+		}
+	}
+
+	private TypeOutline typeOutline(TypeDecl decl) {
+		var members = new ArrayList<MemberOutline>();
+		var types = new ArrayList<TypeOutline>();
+		if(decl instanceof EnumDecl) {
+			for(var constant : ((EnumDecl)decl).getConstants()) {
+				var position = outline.get(constant);
+				members.add(new MemberOutline(constant, position[0], position[1]));
+			}
+		}
+		for(var member : decl.getMembers()) {
+			if(member instanceof TypeDecl) {
+				types.add(typeOutline((TypeDecl)member));
+			} else {
+				var position = outline.get(member);
+				members.add(new MemberOutline(member, position[0], position[1]));
+			}
+		}
+		var position = outline.get(decl);
+		return new TypeOutline(decl, position[0], position[1], members, types);
+	}
+
+	/**
+	 * Calls {@code parser} and notes where the members it parsed are
+	 * if the parser is making an {@link #parseOutline() outline}.
+	 */
+	protected <M extends Member> List<M> parseMember(Supplier<? extends List<M>> parser) {
+		int start = startOffset();
+		if(outline == null && memberRanges == null) {
+			return at(start, parser.get());
+		}
+		int startOffset = memberRanges == null? -1 : offset(lookType(-2) == COMMENT? tokens.look(-2).getStart() : getToken().getStart());
+		return parseMember(getToken().getStart(), startOffset, () -> at(start, parser.get()));
+	}
+
+	/**
+	 * Gives each of {@code nodes}, which were all parsed from the same declaration,
+	 * the range from {@code start} to the end of the last token accepted.
+	 * This is where members which begin with type parameters get the right start.
+	 *
+	 * @return {@code nodes}
+	 */
+	protected <N extends INode> List<N> at(int start, List<N> nodes) {
+		if(start >= 0 && !nodes.isEmpty()) {
+			int end = lastEndOffset();
+			for(var node : nodes) {
+				if(node instanceof Node) {
+					((Node)node).setRange(start, end);
+				}
+			}
+		}
+		return nodes;
+	}
+
+	private <M extends Member> List<M> parseMember(Position start, int startOffset, Supplier<? extends List<M>> parser) {
+		// keeps the tokens of the member around, since it may end with comments
+		try(var $ = tokens.enter()) {
+			List<M> members = parser.get();
+			int i = -2;
+			while(lookType(i) == COMMENT) {
+				i--;
+			}
+			var last = tokens.look(i);
+			var end = last.getEnd();
+			var range = memberRanges == null? null : new int[] {startOffset, endOffset(last, lookType(i+1) == ENDMARKER)};
+			for(var member : members) {
+				if(outline != null) {
+					outline.put(member, new Position[] {start, end});
+				}
+				if(range != null) {
+					memberRanges.put(member, range);
+				}
+			}
+			return members;
+		}
+	}
+
+	/**
+	 * @return the offset of {@code position} in the text being parsed
+	 */
+	protected int offset(Position position) {
+		return lineTable.getLineStart(position.getLine()) + position.getColumn() - 1;
+	}
+
+	/**
+	 * @param last whether only the end of the text comes after {@code token}
+	 * @return the offset just past the last character of {@code token} in the text being parsed
+	 */
+	protected int endOffset(Token<JavaTokenType> token, boolean last) {
+		return endOffset(offset(token.getEnd()), last);
+	}
+
+	private int endOffset(int end, boolean last) {
+		var text = lineTable.getText();
+		// the tokenizer does not step past the last character of the text,
+		// so the last token ends one short of it unless there is whitespace after it
+		if(last && end == text.length() - 1 && !Character.isWhitespace(text.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * @return the offset at which the current token starts
+	 */
+	protected int startOffset() {
+		if(tokenList != null) {
+			return tokenList.getStart(tokens.getIndex()-1);
+		}
+		return offset(getToken().getStart());
+	}
+
+	/**
+	 * @return the offset just past the last token the parser has accepted, not counting comments
+	 */
+	protected int lastEndOffset() {
+		int i = -2;
+		while(lookType(i) == COMMENT) {
+			i--;
+		}
+		if(tokenList != null) {
+			int index = Math.max(tokens.getIndex() + i, 0);
+			return endOffset(tokenList.getEnd(index), index+1 < tokenList.size() && tokenList.getType(index+1) == ENDMARKER);
+		}
+		return endOffset(tokens.look(i), lookType(i+1) == ENDMARKER);
+	}
+
+	/**
+	 * Gives {@code node} the range from {@code start} to the end of the last token accepted,
+	 * unless {@code start} is negative. Called on each node as it is created.
+	 *
+	 * @return {@code node}
+	 */
+	protected <N extends INode> N at(int start, N node) {
+		if(start >= 0 && node instanceof Node) {
+			((Node)node).setRange(start, lastEndOffset());
+		}
+		return node;
+	}
+
+	/**
+	 * Gives {@code node} the range from the start of {@code first} to the end of {@code last},
+	 * if they have ranges.
+	 *
+	 * @return {@code node}
+	 */
+	protected <N extends Node> N span(Node first, Node last, N node) {
+		if(first.start() >= 0 && last.end() >= 0) {
+			node.setRange(first.start(), last.end());
+		}
+		return node;
+	}
+
+	/**
+	 * Same as {@link #at(int, INode)}, but leaves {@code node} alone if it already has a range.
+	 * Used where a rule which may be overridden returns, for nodes its overrides create.
+	 */
+	protected <N extends INode> N atIfAbsent(int start, N node) {
+		if(start >= 0 && node instanceof Node && ((Node)node).start() < 0) {
+			((Node)node).setRange(start, lastEndOffset());
+		}
+		return node;
+	}
+
+	/**
+	 * @return where {@code node} starts, or {@code -1} if it has no range
+	 */
+	protected static int start(INode node) {
+		return node instanceof Node? ((Node)node).start() : -1;
+	}
+
+	/**
+	 * @return where a declaration with the given modifiers and annotations starts, or {@code start}
+	 *         if it has none which come before it
+	 */
+	protected static int start(ModsAndAnnotations modsAndAnnos, int start) {
+		return start(modsAndAnnos.annos, start(modsAndAnnos.mods, start));
+	}
+
+	/**
+	 * @return the least of {@code start} and where the parsed ones of {@code nodes} start
+	 */
+	protected static int start(List<? extends Node> nodes, int start) {
+		for(var node : nodes) {
+			if(node.start() >= 0 && (start < 0 || node.start() < start)) {
+				start = node.start();
+			}
+		}
+		return start;
+	}
+
 	public ModuleCompilationUnit parseModuleCompilationUnit() {
 		return parseModuleCompilationUnit(parseImportSection());
 	}
@@ -711,7 +1447,17 @@ public class JavaParser {
 			directives.add(parseDirective());
 		}
 		require(RBRACE);
-		return new ModuleCompilationUnit(imports, name, open, directives, annotations, docComment);
+		return whole(new ModuleCompilationUnit(imports, name, open, directives, annotations, docComment));
+	}
+
+	/**
+	 * Gives {@code unit} the range of the whole text being parsed.
+	 *
+	 * @return {@code unit}
+	 */
+	protected <N extends Node> N whole(N unit) {
+		unit.setRange(0, lineTable.getText().length());
+		return unit;
 	}
 
 	public NormalCompilationUnit parseNormalCompilationUnit() {
@@ -756,14 +1502,18 @@ public class JavaParser {
 															Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
 		var types = new ArrayList<TypeDecl>();
 		if(!modsAndAnnos.isEmpty()) {
-			types.add(parseTypeDecl(docComment, modsAndAnnos));
+			if(memberRanges == null) {
+				types.addAll(recover(() -> List.of(parseTypeDecl(docComment, modsAndAnnos)), error -> List.of()));
+			} else {
+				types.addAll(recover(() -> parseMember(getToken().getStart(), -1, () -> List.of(parseTypeDecl(docComment, modsAndAnnos))), error -> List.of()));
+			}
 		}
 		while(!wouldAccept(ENDMARKER)) {
 			if(!accept(SEMI)) {
-				types.add(parseTypeDecl());
+				types.addAll(recover(() -> parseMember(() -> List.of(parseTypeDecl())), error -> List.of()));
 			}
 		}
-		return new NormalCompilationUnit(pckg, imports, types);
+		return whole(new NormalCompilationUnit(pckg, imports, types));
 	}
 
 	public PackageDecl parsePackageDecl() {
@@ -771,10 +1521,11 @@ public class JavaParser {
 	}
 
 	public PackageDecl parsePackageDecl(Optional<String> docComment, List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		require(PACKAGE);
 		QualifiedName name = parseQualName();
 		requireSemi();
-		return new PackageDecl(name, annotations, docComment);
+		return at(start, new PackageDecl(name, annotations, docComment));
 	}
 
 	public ArrayList<ImportDecl> parseImportSection() {
@@ -786,6 +1537,7 @@ public class JavaParser {
 	}
 
 	public List<ImportDecl> parseImport() {
+		int start = startOffset();
 		require(IMPORT);
 		boolean isStatic = accept(STATIC);
 		boolean wildcard = false;
@@ -799,8 +1551,9 @@ public class JavaParser {
 				names.add(parseName());
 			}
 		}
+		var name = span(names.get(0), names.get(names.size()-1), new QualifiedName(names));
 		requireSemi();
-		return Collections.singletonList(new ImportDecl(new QualifiedName(names), isStatic, wildcard));
+		return Collections.singletonList(at(start, new ImportDecl(name, isStatic, wildcard)));
 	}
 
 	public ArrayList<Annotation> parseAnnotations() {
@@ -821,15 +1574,15 @@ public class JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else {
@@ -842,7 +1595,7 @@ public class JavaParser {
 		ArrayList<Annotation> annos = parseAnnotations();
 		List<Modifier> mods;
 		if(wouldAccept(FINAL)) {
-			mods = singletonList(createModifier(token));
+			mods = singletonList(createModifier(getToken()));
 			nextToken();
 			if(wouldAccept(AT)) {
 				annos.addAll(parseAnnotations());
@@ -850,10 +1603,10 @@ public class JavaParser {
 			if(wouldAccept(FINAL)) {
 				throw syntaxError("Duplicate modifier 'final'");
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-    			throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+    			throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
     		}
 		} else if(wouldAccept(KEYWORD_MODIFIER)) {
-			throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+			throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 		} else {
 			mods = emptyList();
 		}
@@ -870,19 +1623,19 @@ public class JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.CLASS_MODIFIER)) {
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos);
 			}
@@ -899,19 +1652,19 @@ public class JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.METHOD_MODIFIER)) {
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos);
 			}
@@ -928,19 +1681,19 @@ public class JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.CONSTRUCTOR_MODIFIER)) {
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos);
 			}
@@ -957,19 +1710,19 @@ public class JavaParser {
 				annos.add(parseAnnotation());
 			} else if(wouldAccept(Tag.VISIBILITY_MODIFIER)) {
 				if(visibilityModifier != null) {
-					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + token.getString() + "'");
+					throw syntaxError("Incompatible modifiers '" + visibilityModifier + "' and '" + tokenString() + "'");
 				}
-				if(!mods.add(createModifier(visibilityModifier = token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(visibilityModifier = getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(Tag.FIELD_MODIFIER)) {
-				if(!mods.add(createModifier(token))) {
-					throw syntaxError("Duplicate modifier '" + token.getString() + "'");
+				if(!mods.add(createModifier(getToken()))) {
+					throw syntaxError("Duplicate modifier '" + tokenString() + "'");
 				}
 				nextToken();
 			} else if(wouldAccept(KEYWORD_MODIFIER)) {
-				throw syntaxError("Modifier '" + token.getString() + "' not allowed here");
+				throw syntaxError("Modifier '" + tokenString() + "' not allowed here");
 			} else {
 				return new ModsAndAnnotations(new ArrayList<>(mods), annos);
 			}
@@ -1007,7 +1760,9 @@ public class JavaParser {
 
 	public Modifier createModifier(Token<JavaTokenType> token) {
 		try {
-			return createModifier(token.getType());
+			var modifier = createModifier(token.getType());
+			modifier.setRange(offset(token.getStart()), endOffset(token, false));
+			return modifier;
 		} catch(IllegalArgumentException e) {
 			throw syntaxError(e.getMessage(), token);
 		}
@@ -1037,9 +1792,10 @@ public class JavaParser {
 	}
 
 	public Annotation parseAnnotation() {
+		int start = startOffset();
 		require(AT);
 		Optional<Either<? extends List<AnnotationArgument>,? extends AnnotationValue>> arguments;
-		var type = new GenericType(parseQualName());
+		var type = at(startOffset(), new GenericType(parseQualName()));
 		if(accept(LPAREN)) {
 			if(wouldAccept(RPAREN)) {
 				arguments = Optional.of(Either.first(emptyList()));
@@ -1056,14 +1812,15 @@ public class JavaParser {
 		} else {
 			arguments = Optional.empty();
 		}
-		return new Annotation(type, arguments);
+		return at(start, new Annotation(type, arguments));
 	}
 
 	public AnnotationArgument parseAnnotationArgument() {
+		int start = startOffset();
 		var name = parseName();
 		require(EQ);
 		var value = parseAnnotationValue();
-		return new AnnotationArgument(name, value);
+		return at(start, new AnnotationArgument(name, value));
 	}
 
 	public AnnotationValue parseAnnotationValue() {
@@ -1077,6 +1834,7 @@ public class JavaParser {
 	}
 
 	public <T extends AnnotationValue> ArrayInitializer<? extends T> parseArrayInitializer(Supplier<? extends T> elementParser) {
+		int start = startOffset();
 		require(LBRACE);
 		var elems = new ArrayList<T>();
 		if(!wouldAccept(RBRACE)) {
@@ -1090,7 +1848,7 @@ public class JavaParser {
 			}
 		}
 		require(RBRACE);
-		return new ArrayInitializer<>(elems);
+		return at(start, new ArrayInitializer<>(elems));
 	}
 
 	public Directive parseDirective() {
@@ -1105,11 +1863,12 @@ public class JavaParser {
 		} else if(wouldAccept(PROVIDES)) {
 			return parseProvidesDirective();
 		} else {
-			throw syntaxError("expected 'requires', 'exports', 'opens', 'uses', or 'provides' here, got " + token);
+			throw syntaxError(got -> "expected 'requires', 'exports', 'opens', 'uses', or 'provides' here, got " + got);
 		}
 	}
 
 	public RequiresDirective parseRequiresDirective() {
+		int start = startOffset();
 		require(REQUIRES);
 		var modifiers = new ArrayList<Modifier>();
 		while(wouldAccept(Tag.REQUIRES_MODIFIER)) {
@@ -1117,54 +1876,58 @@ public class JavaParser {
 													   // transitive is not a modifier
 				break;
 			}
-			modifiers.add(createModifier(token));
+			modifiers.add(createModifier(getToken()));
 			nextToken();
 		}
 		var name = parseQualName();
 		requireSemi();
-		return new RequiresDirective(name, modifiers);
+		return at(start, new RequiresDirective(name, modifiers));
 	}
 
 	public ExportsDirective parseExportsDirective() {
+		int start = startOffset();
 		require(EXPORTS);
 		var name = parseQualName();
 		if(accept(TO)) {
 			var friends = listOf(this::parseQualName);
 			requireSemi();
-			return new ExportsDirective(name, friends);
+			return at(start, new ExportsDirective(name, friends));
 		} else {
 			requireSemi();
-			return new ExportsDirective(name);
+			return at(start, new ExportsDirective(name));
 		}
 	}
 
 	public OpensDirective parseOpensDirective() {
+		int start = startOffset();
 		require(OPENS);
 		var name = parseQualName();
 		if(accept(TO)) {
 			var friends = listOf(this::parseQualName);
 			requireSemi();
-			return new OpensDirective(name, friends);
+			return at(start, new OpensDirective(name, friends));
 		} else {
 			requireSemi();
-			return new OpensDirective(name);
+			return at(start, new OpensDirective(name));
 		}
 	}
 
 	public UsesDirective parseUsesDirective() {
+		int start = startOffset();
 		require(USES);
 		var name = parseQualTypeName();
 		requireSemi();
-		return new UsesDirective(name);
+		return at(start, new UsesDirective(name));
 	}
 
 	public ProvidesDirective parseProvidesDirective() {
+		int start = startOffset();
 		require(PROVIDES);
 		var name = parseQualTypeName();
 		require(WITH);
 		var providers = listOf(this::parseQualTypeName);
 		requireSemi();
-		return new ProvidesDirective(name, providers);
+		return at(start, new ProvidesDirective(name, providers));
 	}
 
 	public TypeDecl parseTypeDecl() {
@@ -1182,7 +1945,7 @@ public class JavaParser {
 		} else if(wouldAccept(AT, INTERFACE)) {
 			return parseAnnotationDecl(docComment, modsAndAnnos);
 		} else {
-			throw syntaxError("expected 'class', 'interface', '@interface', or 'enum' here, got " + token);
+			throw syntaxError(got -> "expected 'class', 'interface', '@interface', or 'enum' here, got " + got);
 		}
 	}
 
@@ -1192,6 +1955,7 @@ public class JavaParser {
 	}
 
 	public ClassDecl parseClassDecl(Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeClassMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
@@ -1214,7 +1978,7 @@ public class JavaParser {
 		try(var $ = typeNames.enter(name)) {
 			members = parseClassBody(() -> this.parseClassMember(false));
 		}
-		return new ClassDecl(name, typeParameters, superClass, interfaces, members, modifiers, annotations, docComment);
+		return at(start, new ClassDecl(name, typeParameters, superClass, interfaces, members, modifiers, annotations, docComment));
 	}
 
 	public InterfaceDecl parseInterfaceDecl() {
@@ -1223,6 +1987,7 @@ public class JavaParser {
 	}
 
 	public InterfaceDecl parseInterfaceDecl(Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeClassMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
@@ -1239,7 +2004,7 @@ public class JavaParser {
 		try(var $ = typeNames.enter(name)) {
 			members = parseClassBody(() -> this.parseClassMember(true));
 		}
-		return new InterfaceDecl(name, typeParameters, superInterfaces, members, modifiers, annotations, docComment);
+		return at(start, new InterfaceDecl(name, typeParameters, superInterfaces, members, modifiers, annotations, docComment));
 	}
 
 	public EnumDecl parseEnumDecl() {
@@ -1248,6 +2013,7 @@ public class JavaParser {
 	}
 
 	public EnumDecl parseEnumDecl(Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeClassMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
@@ -1266,7 +2032,7 @@ public class JavaParser {
 			fields = fieldsAndMembers.getLeft();
 			members = fieldsAndMembers.getRight();
 		}
-		return new EnumDecl(name, interfaces, fields, members, modifiers, annotations, docComment);
+		return at(start, new EnumDecl(name, interfaces, fields, members, modifiers, annotations, docComment));
 	}
 
 	public Pair<List<EnumField>,List<Member>> parseEnumBody() {
@@ -1275,12 +2041,12 @@ public class JavaParser {
 		List<Member> members;
 		if(wouldAccept(AT.or(Tag.NAMED))) {
 			fields = new ArrayList<>();
-			fields.add(parseEnumField());
+			fields.addAll(parseMember(() -> List.of(parseEnumField())));
 			while(accept(COMMA)) {
 				if(wouldAccept(SEMI.or(RBRACE))) {
 					break;
 				}
-				fields.add(parseEnumField());
+				fields.addAll(parseMember(() -> List.of(parseEnumField())));
 			}
 		} else {
 			fields = emptyList();
@@ -1288,14 +2054,15 @@ public class JavaParser {
 		if(accept(SEMI)) {
 			members = new ArrayList<>();
 			while(wouldNotAccept(RBRACE)) {
+				clearMemo();
 				if(!accept(SEMI)) {
-					members.addAll(parseClassMember(false));
+					members.addAll(recover(() -> parseMember(() -> parseClassMember(false)), error -> List.of(error)));
 				}
 			}
 		} else {
 			members = emptyList();
 		}
-		require(RBRACE);
+		requireClosingBrace();
 		return Pair.of(fields, members);
 	}
 
@@ -1304,20 +2071,31 @@ public class JavaParser {
 	}
 
 	public EnumField parseEnumField(Optional<String> docComment, List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var name = parseName();
 		Optional<? extends List<? extends Expression>> arguments;
 		if(wouldAccept(LPAREN)) {
-			arguments = Optional.of(parseArguments(true));
+			if(outline != null) {
+				skipBracketed(false);
+				arguments = Optional.empty();
+			} else {
+				arguments = Optional.of(parseArguments(true));
+			}
 		} else {
 			arguments = Optional.empty();
 		}
 		Optional<? extends List<Member>> members;
 		if(wouldAccept(LBRACE)) {
-			members = Optional.of(parseClassBody(() -> this.parseClassMember(false)));
+			if(outline != null) {
+				skipBracketed(false);
+				members = Optional.empty();
+			} else {
+				members = Optional.of(parseClassBody(() -> this.parseClassMember(false)));
+			}
 		} else {
 			members = Optional.empty();
 		}
-		return new EnumField(name, arguments, members, annotations, docComment);
+		return at(start, new EnumField(name, arguments, members, annotations, docComment));
 	}
 
 	public AnnotationDecl parseAnnotationDecl() {
@@ -1326,6 +2104,7 @@ public class JavaParser {
 	}
 
 	public AnnotationDecl parseAnnotationDecl(Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeClassMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
@@ -1335,7 +2114,7 @@ public class JavaParser {
 		try(var $ = typeNames.enter(name)) {
 			members = parseClassBody(this::parseAnnotationMember);
 		}
-		return new AnnotationDecl(name, members, modifiers, annotations, docComment);
+		return at(start, new AnnotationDecl(name, members, modifiers, annotations, docComment));
 	}
 
 	public List<Member> parseAnnotationMember() {
@@ -1386,6 +2165,7 @@ public class JavaParser {
 	}
 
 	public AnnotationProperty parseAnnotationProperty(Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeMethodMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
@@ -1399,7 +2179,7 @@ public class JavaParser {
 			defaultValue = Optional.empty();
 		}
 		endStatement();
-		return new AnnotationProperty(name, type, defaultValue, modifiers, annotations, docComment);
+		return at(start, new AnnotationProperty(name, type, defaultValue, modifiers, annotations, docComment));
 	}
 
 	public List<TypeParameter> parseTypeParametersOpt() {
@@ -1414,6 +2194,7 @@ public class JavaParser {
 	}
 
 	public TypeParameter parseTypeParameter() {
+		int start = startOffset();
 		var annotations = parseAnnotations();
 		var name = parseTypeName();
 		Optional<? extends ReferenceType> bound;
@@ -1422,18 +2203,20 @@ public class JavaParser {
 		} else {
 			bound = Optional.empty();
 		}
-		return new TypeParameter(name, bound, annotations);
+		return at(start, new TypeParameter(name, bound, annotations));
 	}
 
+	@SuppressWarnings("unchecked")
 	public <M extends Member> ArrayList<M> parseClassBody(Supplier<? extends List<M>> memberParser) {
 		require(LBRACE);
 		var members = new ArrayList<M>();
 		while(wouldNotAccept(RBRACE)) {
+			clearMemo();
 			if(!accept(SEMI)) {
-				members.addAll(memberParser.get());
+				members.addAll(recover(() -> parseMember(memberParser), error -> List.of((M)error)));
 			}
 		}
-		require(RBRACE);
+		requireClosingBrace();
 		return members;
 	}
 
@@ -1442,13 +2225,14 @@ public class JavaParser {
 	}
 
 	public List<Member> parseClassMember(boolean inInterface) {
+		int start = startOffset();
 		if(wouldAccept(STATIC, LBRACE)) {
 			nextToken();
-			var body = parseBlock();
-			return List.of(new ClassInitializer(true, body));
+			var body = parseBodyBlock();
+			return List.of(at(start, new ClassInitializer(true, body)));
 		} else if(wouldAccept(LBRACE)) {
-			var body = parseBlock();
-			return List.of(new ClassInitializer(false, body));
+			var body = parseBodyBlock();
+			return List.of(at(start, new ClassInitializer(false, body)));
 		} else {
 			var docComment = getDocComment();
 			/*var modifiers = new LinkedHashSet<Modifier>();
@@ -1544,10 +2328,11 @@ public class JavaParser {
 			if(!inInterface && modsAndAnnos.canBeConstructorMods() && wouldAccept(Tag.NAMED, LPAREN)) {
 				return parseConstructor(typeParameters, docComment, modsAndAnnos);
 			} else {
+				int typeStart = startOffset();
 				var typeAnnotations = parseAnnotations();
 				Type type;
 				if(accept(VOID)) {
-					type = new VoidType(typeAnnotations);
+					type = at(typeStart, new VoidType(typeAnnotations));
 				} else {
 					type = parseType(typeAnnotations);
 				}
@@ -1572,16 +2357,19 @@ public class JavaParser {
 			return List.of(parseTypeDecl(docComment, modsAndAnnos));
 		} else if(modsAndAnnos.canBeMethodMods() && wouldAccept(LT)) {
 			var typeParameters = parseTypeParameters();
+			int typeStart = startOffset();
 			var typeAnnotations = parseAnnotations();
 			Type type;
 			if(accept(VOID)) {
-				type = new VoidType(typeAnnotations);
+				type = at(typeStart, new VoidType(typeAnnotations));
 			} else {
 				type = parseType(typeAnnotations);
 			}
 			return parseMethod(inInterface, type, typeParameters, parseName(), docComment, modsAndAnnos);
-		} else if(modsAndAnnos.canBeMethodMods() && accept(VOID)) {
-			return parseMethod(inInterface, new VoidType(), emptyList(), parseName(), docComment, modsAndAnnos);
+		} else if(modsAndAnnos.canBeMethodMods() && wouldAccept(VOID)) {
+			int typeStart = startOffset();
+			nextToken();
+			return parseMethod(inInterface, at(typeStart, new VoidType()), emptyList(), parseName(), docComment, modsAndAnnos);
 		} else {
 			var type = parseType();
 			if(modsAndAnnos.canBeMethodMods() && wouldAccept(Tag.NAMED, LPAREN)) {
@@ -1604,9 +2392,59 @@ public class JavaParser {
 	}
 
 	public List<Member> parseFieldDecl(Type type, Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		if(outline != null) {
+			assert modsAndAnnos.canBeFieldMods();
+			var declarators = listOf(() -> {
+				var name = parseName();
+				var dimensions = parseDimensions();
+				if(accept(EQ)) {
+					skipFieldInitializer();
+				}
+				return at(name.start(), new VariableDeclarator(name, dimensions));
+			});
+			endStatement();
+			return List.of(at(start(modsAndAnnos, type.start()), new VariableDecl(type, declarators, modsAndAnnos.mods, modsAndAnnos.annos, docComment)));
+		}
 		return List.of(parseVariableDecl(type, docComment, modsAndAnnos));
 	}
 
+	/**
+	 * Skips a field initializer up to the ';' or ',' which ends it.
+	 */
+	protected void skipFieldInitializer() {
+		for(int depth = 0;; nextToken()) {
+			switch(tokenType()) {
+				case LPAREN, LBRACKET, LBRACE -> depth++;
+				case RPAREN, RBRACKET, RBRACE -> depth--;
+				case SEMI -> {
+					if(depth == 0) {
+						return;
+					}
+				}
+				case COMMA -> {
+					// commas also separate type arguments, as in 'new HashMap<K, V>()'
+					if(depth == 0 && wouldStartDeclaratorAfterComma()) {
+						return;
+					}
+				}
+				case ENDMARKER -> throw syntaxError(got -> "expected ';' here, got " + got);
+				default -> {}
+			}
+		}
+	}
+
+	private boolean wouldStartDeclaratorAfterComma() {
+		if(lookType(0) != NAME) {
+			return false;
+		}
+		int i = 1;
+		while(lookType(i) == LBRACKET && lookType(i+1) == RBRACKET) {
+			i += 2;
+		}
+		var type = lookType(i);
+		return type == EQ || type == COMMA || type == SEMI;
+	}
+
 	public List<Member> parseMethod() {
 		return parseMethod(false);
 	}
@@ -1622,10 +2460,11 @@ public class JavaParser {
 
 	public List<Member> parseMethod(boolean inInterface, List<TypeParameter> typeParameters,
 										  Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int typeStart = startOffset();
 		var typeAnnotations = parseAnnotations();
 		Type type;
 		if(accept(VOID)) {
-			type = new VoidType(typeAnnotations);
+			type = at(typeStart, new VoidType(typeAnnotations));
 		} else {
 			type = parseType(typeAnnotations);
 		}
@@ -1640,6 +2479,7 @@ public class JavaParser {
 	public List<Member> parseMethod(boolean inInterface, Type returnType, List<TypeParameter> typeParameters,
 										  Name name, Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
 		assert modsAndAnnos.canBeMethodMods();
+		int start = start(modsAndAnnos, start(typeParameters, returnType.start()));
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
 		var thisParameterAndParameters = parseParameters();
@@ -1653,8 +2493,8 @@ public class JavaParser {
 			exceptions = emptyList();
 		}
 		Optional<Block> body = parseMethodBody(returnType instanceof VoidType, parameters);
-		return List.of(new FunctionDecl(name, typeParameters, returnType, thisParameter, parameters, dimensions,
-				exceptions, body, modifiers, annotations, docComment));
+		return List.of(at(start, new FunctionDecl(name, typeParameters, returnType, thisParameter, parameters, dimensions,
+				exceptions, body, modifiers, annotations, docComment)));
 	}
 
 	public List<Member> parseConstructor() {
@@ -1673,6 +2513,7 @@ public class JavaParser {
 	public List<Member> parseConstructor(Name name, List<TypeParameter> typeParameters,
 												  Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
 		assert modsAndAnnos.canBeConstructorMods();
+		int start = start(modsAndAnnos, start(typeParameters, name.start()));
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
 		var bodyStmts = new ArrayList<Statement>();
@@ -1686,27 +2527,113 @@ public class JavaParser {
 			exceptions = emptyList();
 		}
 		Block body = parseConstructorBody(parameters);
-		if(!body.getStatements().isEmpty() && body.getStatements().get(0) instanceof ConstructorCall) {
-			body.getStatements().addAll(1, bodyStmts);
-		} else {
-			body.getStatements().addAll(0, bodyStmts);
+		if(!bodyStmts.isEmpty()) {
+			if(!body.getStatements().isEmpty() && body.getStatements().get(0) instanceof ConstructorCall) {
+				body.getStatements().addAll(1, bodyStmts);
+			} else {
+				body.getStatements().addAll(0, bodyStmts);
+			}
 		}
-		return List.of(new ConstructorDecl(name, typeParameters, thisParameter, parameters, exceptions, body, modifiers,
-				annotations, docComment));
+		return List.of(at(start, new ConstructorDecl(name, typeParameters, thisParameter, parameters, exceptions, body, modifiers,
+				annotations, docComment)));
 	}
 
 	public Block parseConstructorBody(List<FormalParameter> parameters) {
-		return parseBlock();
+		return parseBodyBlock();
 	}
 
 	public Optional<Block> parseMethodBody(boolean isVoidMethod, List<FormalParameter> parameters) {
 		if(accept(SEMI)) {
 			return Optional.empty();
 		} else {
-			return Optional.of(parseBlock());
+			return Optional.of(parseBodyBlock());
+		}
+	}
+
+	/**
+	 * Parses the body of a method, constructor or initializer, or skips it if the parser is
+	 * {@link #setLazy(boolean) lazy}.
+	 */
+	public Block parseBodyBlock() {
+		int start = startOffset();
+		if(outline != null) {
+			if(!wouldAccept(LBRACE)) {
+				throw syntaxError(got -> "expected '{' here, got " + got);
+			}
+			skipBracketed(false);
+			return at(start, new Block());
+		}
+		if(!lazy || diagnostics != null) {
+			return parseBlock();
+		}
+		if(!wouldAccept(LBRACE)) {
+			throw syntaxError(got -> "expected '{' here, got " + got);
 		}
+		var bodyTokens = skipBracketed(true);
+		var filename = this.filename;
+		var lineTable = this.lineTable;
+		boolean memoizing = isMemoizing();
+		return at(start, new LazyBlock(() -> {
+			var parser = new JavaParser(bodyTokens, filename);
+			parser.lineTable = lineTable;
+			parser.setMemoizing(memoizing);
+			return parser.parseBlock().getStatements();
+		}));
 	}
 	
+	/**
+	 * Skips from the current '(', '[' or '{' to after the bracket which closes it.
+	 *
+	 * @param keep whether to return the skipped tokens
+	 * @return the skipped tokens including the brackets, or {@code null} if {@code keep} is {@code false}
+	 */
+	protected List<Token<JavaTokenType>> skipBracketed(boolean keep) {
+		var open = tokenType();
+		var close = switch(open) {
+			case LPAREN -> RPAREN;
+			case LBRACKET -> RBRACKET;
+			case LBRACE -> RBRACE;
+			default -> throw syntaxError(got -> "expected '(', '[', or '{' here, got " + got);
+		};
+		if(tokenList != null) {
+			int start = tokens.getIndex()-1, end = start;
+			for(int depth = 0;; end++) {
+				var type = tokenList.getType(end);
+				if(type == open) {
+					depth++;
+				} else if(type == close) {
+					if(--depth == 0) {
+						break;
+					}
+				} else if(type == ENDMARKER) {
+					throw syntaxError("unclosed '" + tokenString() + "'");
+				}
+			}
+			tokens.seek(end+2);
+			return keep? tokenList.subList(start, end+1) : null;
+		} else {
+			var skipped = keep? new ArrayList<Token<JavaTokenType>>() : null;
+			var token = getToken();
+			for(int depth = 0;; token = tokens.next()) {
+				if(keep) {
+					skipped.add(token);
+				}
+				var type = token.getType();
+				if(type == open) {
+					depth++;
+				} else if(type == close) {
+					if(--depth == 0) {
+						break;
+					}
+				} else if(type == ENDMARKER) {
+					throw syntaxError("unclosed '" + getToken().getString() + "'");
+				}
+			}
+			nextToken();
+			return skipped;
+		}
+	}
+
 	public Pair<Optional<ThisParameter>,List<FormalParameter>> parseConstructorParameters(ArrayList<Statement> bodyStmts) {
 		return parseParameters(this::parseName);
 	}
@@ -1764,6 +2691,7 @@ public class JavaParser {
 	}
 
 	public FormalParameter parseFormalParameter(Supplier<Name> parseName, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, startOffset());
 		assert modsAndAnnos.canBeLocalVarMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
@@ -1771,7 +2699,7 @@ public class JavaParser {
 		boolean variadic = accept(ELLIPSIS);
 		var name = parseName.get();
 		var dimensions = parseDimensions();
-		return new FormalParameter(type, name, variadic, dimensions, modifiers, annotations);
+		return at(start, new FormalParameter(type, name, variadic, dimensions, modifiers, annotations));
 	}
 
 	public ThisParameter parseThisParameter() {
@@ -1779,6 +2707,7 @@ public class JavaParser {
 	}
 
 	public ThisParameter parseThisParameter(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var type = parseGenericType();
 		Optional<Name> qualifier;
 		if(wouldAccept(Tag.NAMED)) {
@@ -1789,9 +2718,9 @@ public class JavaParser {
 		}
 		require(THIS);
 		if(qualifier.isEmpty() && wouldAccept(DOT)) {
-			throw syntaxError("unexpected token " + token);
+			throw syntaxError(got -> "unexpected token " + got);
 		}
-		return new ThisParameter(type, qualifier, annotations);
+		return at(start, new ThisParameter(type, qualifier, annotations));
 	}
 
 	public VariableDecl parseVariableDecl() {
@@ -1804,12 +2733,13 @@ public class JavaParser {
 	}
 
 	public VariableDecl parseVariableDecl(Type type, Optional<String> docComment, ModsAndAnnotations modsAndAnnos) {
+		int start = start(modsAndAnnos, type.start());
 		assert modsAndAnnos.canBeFieldMods();
 		var modifiers = modsAndAnnos.mods;
 		var annotations = modsAndAnnos.annos;
 		var declarators = listOf(() -> parseVariableDeclarator(type));
 		endStatement();
-		return new VariableDecl(type, declarators, modifiers, annotations, docComment);
+		return at(start, new VariableDecl(type, declarators, modifiers, annotations, docComment));
 	}
 
 	public VariableDeclarator parseVariableDeclarator(Type type) {
@@ -1819,8 +2749,9 @@ public class JavaParser {
 	}
 
 	public VariableDeclarator parseVariableDeclarator(Type type, Name name, ArrayList<Dimension> dimensions) {
+		int start = name.start();
 		Optional<? extends Initializer> initializer = parseVariableInitializerOpt(type, dimensions);
-		return new VariableDeclarator(name, dimensions, initializer);
+		return at(start, new VariableDeclarator(name, dimensions, initializer));
 	}
 	
 	protected int dimensionCount(Type type, List<Dimension> dimensions) {
@@ -1854,16 +2785,17 @@ public class JavaParser {
 
 	public ArrayList<Dimension> parseDimensions() {
 		var dimensions = new ArrayList<Dimension>();
-		while(wouldAccept(AT.or(LBRACKET))) {
+		while(wouldAccept(DIMENSION_START)) {
 			dimensions.add(parseDimension());
 		}
 		return dimensions;
 	}
 
 	public Dimension parseDimension() {
+		int start = startOffset();
 		var annotations = parseAnnotations();
 		require(LBRACKET, RBRACKET);
-		return new Dimension(annotations);
+		return at(start, new Dimension(annotations));
 	}
 
 	public ArrayList<GenericType> parseGenericTypeList() {
@@ -1874,31 +2806,36 @@ public class JavaParser {
 		return parseType(parseAnnotations());
 	}
 
-	protected static final TokenPredicate<JavaTokenType> PRIMITIVE_TYPES = (Token<JavaTokenType> token) -> switch(token.getType()) {
+	protected static final TokenPredicate<JavaTokenType> PRIMITIVE_TYPES = TokenTypeSet.of("PRIMITIVE_TYPES", type -> switch(type) {
 		case BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE -> true;
 		default -> false;
-	};
+	});
 	
-	protected static final TokenPredicate<JavaTokenType> KEYWORD_MODIFIER = (Token<JavaTokenType> token) -> {
-		var type = token.getType();
-		return type.isKeyword() && 
+	protected static final TokenPredicate<JavaTokenType> KEYWORD_MODIFIER = TokenTypeSet.of("KEYWORD_MODIFIER", type -> 
+		type.isKeyword() && 
 				(type.hasTag(Tag.CLASS_MODIFIER) 
 				|| type.hasTag(Tag.METHOD_MODIFIER)
 				|| type.hasTag(Tag.CONSTRUCTOR_MODIFIER) 
 				|| type.hasTag(Tag.FIELD_MODIFIER)
-				|| type.hasTag(Tag.LOCAL_VAR_MODIFIER));
-	};
+				|| type.hasTag(Tag.LOCAL_VAR_MODIFIER)));
+	
+	/** Tokens which can start the dimensions of an array type */
+	protected static final TokenPredicate<JavaTokenType> DIMENSION_START = AT.or(LBRACKET);
+	
+	/** Tokens which can start a local variable declaration */
+	protected static final TokenPredicate<JavaTokenType> LOCAL_VAR_START = AT.or(Tag.NAMED).or(Tag.PRIMITIVE_TYPE).or(Tag.LOCAL_VAR_MODIFIER);
 	
 	protected void requireSemi() {
 		require(SEMI);
 	}
 
 	public Type parseType(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var base = parseNonArrayType(annotations);
-		if(wouldAccept(AT.or(LBRACKET))) {
+		if(wouldAccept(DIMENSION_START)) {
 			var dimensions = parseDimensions();
 			base.setAnnotations(emptyList());
-			return new ArrayType(base, dimensions, annotations);
+			return at(start, new ArrayType(base, dimensions, annotations));
 		} else {
 			return base;
 		}
@@ -1909,10 +2846,11 @@ public class JavaParser {
 	}
 
 	public Type parseNonArrayType(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		if(wouldAccept(PRIMITIVE_TYPES)) {
-			var name = token.getString();
+			var name = tokenString();
 			nextToken();
-			return new PrimitiveType(name, annotations);
+			return at(start, new PrimitiveType(name, annotations));
 		} else {
 			return parseGenericType(annotations);
 		}
@@ -1923,17 +2861,18 @@ public class JavaParser {
 	}
 
 	public ReferenceType parseReferenceType(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var base = parseNonArrayType(annotations);
 		if(base instanceof PrimitiveType) {
 			base.setAnnotations(emptyList());
 			var dimension = parseDimension();
 			var dimensions = parseDimensions();
 			dimensions.add(0, dimension);
-			return new ArrayType(base, dimensions, annotations);
-		} else if(wouldAccept(AT.or(LBRACKET))) {
+			return at(start, new ArrayType(base, dimensions, annotations));
+		} else if(wouldAccept(DIMENSION_START)) {
 			var dimensions = parseDimensions();
 			base.setAnnotations(emptyList());
-			return new ArrayType(base, dimensions, annotations);
+			return at(start, new ArrayType(base, dimensions, annotations));
 		} else {
 			return (GenericType)base;
 		}
@@ -1944,20 +2883,21 @@ public class JavaParser {
 	}
 
 	public GenericType parseGenericType(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var name = parseQualTypeName();
 		var typeArgs = parseTypeArgumentsOpt();
 		if(wouldAccept(DOT, Tag.NAMED)) {
 			nextToken();
-			var result = new GenericType(name, typeArgs);
+			var result = at(start, new GenericType(name, typeArgs));
 			do {
 				name = parseQualTypeName();
 				typeArgs = parseTypeArgumentsOpt();
-				result = new GenericType(name, typeArgs, result);
+				result = at(start, new GenericType(name, typeArgs, result));
 			} while(accept(DOT));
 			result.setAnnotations(annotations);
 			return result;
 		} else {
-			return new GenericType(name, typeArgs, annotations);
+			return at(start, new GenericType(name, typeArgs, annotations));
 		}
 	}
 
@@ -1966,12 +2906,13 @@ public class JavaParser {
 	}
 
 	public ReferenceType parseTypeIntersection(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var type = parseReferenceType(annotations);
 		if(accept(AMP)) {
 			type.setAnnotations(emptyList());
 			var types = listOf(AMP, this::parseReferenceType);
 			types.add(0, type);
-			return new TypeIntersection(types, annotations);
+			return at(start, new TypeIntersection(types, annotations));
 		} else {
 			return type;
 		}
@@ -1982,12 +2923,13 @@ public class JavaParser {
 	}
 
 	public ReferenceType parseTypeUnion(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		var type = parseReferenceType(annotations);
 		if(accept(BAR)) {
 			type.setAnnotations(emptyList());
 			var types = listOf(BAR, this::parseReferenceType);
 			types.add(0, type);
-			return new TypeUnion(types, annotations);
+			return at(start, new TypeUnion(types, annotations));
 		} else {
 			return type;
 		}
@@ -2017,9 +2959,11 @@ public class JavaParser {
 	}
 
 	public WildcardTypeArgument parseWildcardTypeArgument(List<Annotation> annotations) {
+		int start = start(annotations, startOffset());
 		require(QUES);
 		Optional<WildcardTypeArgument.Bound> bound;
 		if(wouldAccept(SUPER.or(EXTENDS))) {
+			int boundStart = startOffset();
 			WildcardTypeArgument.Bound.Kind kind;
 			if(accept(SUPER)) {
 				kind = WildcardTypeArgument.Bound.Kind.SUPER;
@@ -2028,37 +2972,40 @@ public class JavaParser {
 				kind = WildcardTypeArgument.Bound.Kind.EXTENDS;
 			}
 			var type = parseTypeIntersection();
-			bound = Optional.of(new WildcardTypeArgument.Bound(kind, type));
+			bound = Optional.of(at(boundStart, new WildcardTypeArgument.Bound(kind, type)));
 		} else {
 			bound = Optional.empty();
 		}
-		return new WildcardTypeArgument(bound, annotations);
+		return at(start, new WildcardTypeArgument(bound, annotations));
 	}
 
 	public EmptyStmt parseEmptyStmt() {
+		int start = startOffset();
 		require(SEMI);
-		return new EmptyStmt();
+		return at(start, new EmptyStmt());
 	}
 
 	public Block parseBlock() {
+		int start = startOffset();
 		try(var $ = preStmts.enter()) {
 			require(LBRACE);
 			var stmts = new ArrayList<Statement>();
 			while(wouldNotAccept(RBRACE)) {
-				stmts.add(parseBlockStatement());
+				stmts.add(recover(this::parseBlockStatement, error -> error));
 			}
-			require(RBRACE);
-			return preStmts.apply(new Block(stmts));
+			requireClosingBrace();
+			return preStmts.apply(at(start, new Block(stmts)));
 		}
 	}
 
 	public Statement parseBlockStatement() {
+		int start = startOffset();
 		if(wouldAccept(AT)) {
 			var docComment = getDocComment();
 			var mods = new ArrayList<Modifier>();
 			var annos = parseAnnotations();
 			while(wouldAccept(Tag.LOCAL_VAR_MODIFIER)) {
-				mods.add(createModifier(token));
+				mods.add(createModifier(getToken()));
 				nextToken();
 				if(wouldAccept(AT)) {
 					annos.addAll(parseAnnotations());
@@ -2066,22 +3013,22 @@ public class JavaParser {
 			}
 			if(wouldAccept(Tag.CLASS_MODIFIER)) {
 				do {
-					mods.add(createModifier(token));
+					mods.add(createModifier(getToken()));
 					nextToken();
 					if(wouldAccept(AT)) {
 						annos.addAll(parseAnnotations());
 					}
 				} while(wouldAccept(Tag.CLASS_MODIFIER));
 				try(var $ = preStmts.enter()) {
-					return preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS))));
+					return atIfAbsent(start, preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS)))));
 				}
 			} else if(wouldAccept(CLASS)) {
 				try(var $ = preStmts.enter()) {
-					return preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS))));
+					return atIfAbsent(start, preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS)))));
 				}
 			} else {
 				try(var $ = preStmts.enter()) {
-					return preStmts.apply(parseVariableDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.LOCAL_VAR))));
+					return atIfAbsent(start, preStmts.apply(parseVariableDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.LOCAL_VAR)))));
 				}
 			}
 		}
@@ -2090,7 +3037,7 @@ public class JavaParser {
 			var mods = new ArrayList<Modifier>();
 			var annos = new ArrayList<Annotation>();
 			while(wouldAccept(Tag.LOCAL_VAR_MODIFIER)) {
-				mods.add(createModifier(token));
+				mods.add(createModifier(getToken()));
 				nextToken();
 				if(wouldAccept(AT)) {
 					annos.addAll(parseAnnotations());
@@ -2098,22 +3045,22 @@ public class JavaParser {
 			}
 			if(wouldAccept(Tag.CLASS_MODIFIER)) {
 				do {
-					mods.add(createModifier(token));
+					mods.add(createModifier(getToken()));
 					nextToken();
 					if(wouldAccept(AT)) {
 						annos.addAll(parseAnnotations());
 					}
 				} while(wouldAccept(Tag.CLASS_MODIFIER));
 				try(var $ = preStmts.enter()) {
-					return preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS))));
+					return atIfAbsent(start, preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS)))));
 				}
 			} else if(wouldAccept(CLASS)) {
 				try(var $ = preStmts.enter()) {
-					return preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS))));
+					return atIfAbsent(start, preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS)))));
 				}
 			} else {
 				try(var $ = preStmts.enter()) {
-					return preStmts.apply(parseVariableDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.LOCAL_VAR))));
+					return atIfAbsent(start, preStmts.apply(parseVariableDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.LOCAL_VAR)))));
 				}
 			}
 		}
@@ -2122,14 +3069,14 @@ public class JavaParser {
 			var mods = new ArrayList<Modifier>();
 			var annos = new ArrayList<Annotation>();
 			do {
-				mods.add(createModifier(token));
+				mods.add(createModifier(getToken()));
 				nextToken();
 				if(wouldAccept(AT)) {
 					annos.addAll(parseAnnotations());
 				}
 			} while(wouldAccept(Tag.CLASS_MODIFIER));
 			try(var $ = preStmts.enter()) {
-				return preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS))));
+				return atIfAbsent(start, preStmts.apply(parseClassDecl(docComment, new ModsAndAnnotations(mods, annos, EnumSet.of(ModsAndAnnotations.Type.CLASS)))));
 			}
 		}
 		vardecl: if(wouldAccept(Tag.NAMED.or(Tag.PRIMITIVE_TYPE))) {
@@ -2146,15 +3093,16 @@ public class JavaParser {
 					state.reset();
 					break vardecl;
 				}
-				return preStmts.apply(parseVariableDecl(type, docComment, new ModsAndAnnotations()));
+				return atIfAbsent(start, preStmts.apply(parseVariableDecl(type, docComment, new ModsAndAnnotations())));
 			}
 		}
 		return parseStatement();
 	}
 
 	public Statement parseStatement() {
+		int start = startOffset();
 		try(var $ = preStmts.enter()) {
-			return preStmts.apply(switch(token.getType()) {
+			return atIfAbsent(start, preStmts.apply(switch(tokenType()) {
 				case IF -> parseIfStmt();
 				case DO -> parseDoStmt();
 				case FOR -> parseForStmt();
@@ -2181,26 +3129,26 @@ public class JavaParser {
 					}
 					var args = parseConstructorArguments();
 					endStatement();
-					break new ConstructorCall(typeArguments, type, args);
+					break at(start, new ConstructorCall(typeArguments, type, args));
 				}
 				case THIS -> {
 					if(wouldAccept(THIS, LPAREN)) {
 						nextToken();
 						var args = parseConstructorArguments();
 						endStatement();
-						break new ConstructorCall(ConstructorCall.Type.THIS, args);
+						break at(start, new ConstructorCall(ConstructorCall.Type.THIS, args));
 					} else {
 						break statementDefault();
 					}
 				}
 				case SUPER -> {
-					assert tokens.look(0).equals(token);
-					assert !tokens.look(1).equals(token);
+					assert tokens.look(0).equals(getToken());
+					assert !tokens.look(1).equals(getToken());
 					if(wouldAccept(SUPER, LPAREN)) {
 						nextToken();
 						var args = parseConstructorArguments();
 						endStatement();
-						break new ConstructorCall(ConstructorCall.Type.SUPER, args);
+						break at(start, new ConstructorCall(ConstructorCall.Type.SUPER, args));
 					} else {
 						break statementDefault();
 					}
@@ -2211,11 +3159,12 @@ public class JavaParser {
 				case CASE -> throw syntaxError("'case' without 'switch'");
 				case DEFAULT -> throw syntaxError("'default' without 'switch'");
 				default -> statementDefault();
-			});
+			}));
 		}
 	}
 
 	protected Statement statementDefault() {
+		int start = startOffset();
 		if(wouldAccept(NAME, COLON)) {
 			return parseLabeledStmt();
 		} else {
@@ -2223,7 +3172,7 @@ public class JavaParser {
 			try(var state = tokens.enter()) {
 				Expression object;
 				try {
-					object = parseSuffix();
+					object = memoize(SUFFIX_RULE, this::parseSuffix);
 					require(DOT);
 				} catch(SyntaxError e) {
 					state.reset();
@@ -2242,7 +3191,7 @@ public class JavaParser {
 				if(wouldAccept(LPAREN)) {
 					var args = parseConstructorArguments();
 					endStatement();
-					return new ConstructorCall(object, typeArguments, ConstructorCall.Type.SUPER, args);
+					return at(start, new ConstructorCall(object, typeArguments, ConstructorCall.Type.SUPER, args));
 				} else {
 					state.reset();
 					break call;
@@ -2253,7 +3202,7 @@ public class JavaParser {
 	}
 
 	public void endStatement() {
-		if(tokens.look(-1).getType() == RBRACE) {
+		if(lookType(-1) == RBRACE) {
 			accept(SEMI);
 		} else {
 			requireSemi();
@@ -2272,65 +3221,101 @@ public class JavaParser {
 	}
 
 	public ExpressionStmt parseExpressionStmt() {
+		int start = startOffset();
 		var expr = parseExpression();
 		endStatement();
-		return new ExpressionStmt(expr);
+		return at(start, new ExpressionStmt(expr));
 	}
 
 	public LabeledStmt parseLabeledStmt() {
+		int start = startOffset();
 		var name = parseName();
 		require(COLON);
 		var stmt = parseStatement();
-		return new LabeledStmt(name, stmt);
+		return at(start, new LabeledStmt(name, stmt));
 	}
 
 	public Statement parseBody() {
 		return parseStatement();
 	}
 
+	/**
+	 * Parses an if statement. The if statements of an else-if ladder are parsed in a loop
+	 * instead of each one recursing through {@link #parseBody()}, since long ladders would
+	 * overflow the stack otherwise. Each of them still gets its own {@link #preStmts} context,
+	 * as if it had been parsed by {@link #parseStatement()}.
+	 */
 	public IfStmt parseIfStmt() {
-		require(IF);
-		var condition = parseCondition();
-		var body = parseBody();
-		Optional<Statement> elseBody;
-		if(accept(ELSE)) {
-			elseBody = Optional.of(parseBody());
-		} else {
-			elseBody = Optional.empty();
+		var conditions = new ArrayList<Expression>();
+		var bodies = new ArrayList<Statement>();
+		var contexts = new ArrayList<ContextManager>();
+		var starts = new ArrayList<Integer>();
+		try {
+			Optional<Statement> elseBody = Optional.empty();
+			for(;;) {
+				starts.add(startOffset());
+				require(IF);
+				conditions.add(parseIfCondition());
+				bodies.add(parseBody());
+				if(!accept(ELSE)) {
+					break;
+				}
+				if(!wouldAccept(IF)) {
+					elseBody = Optional.of(parseBody());
+					break;
+				}
+				contexts.add(preStmts.enter());
+			}
+			for(int i = conditions.size()-1; i > 0; i--) {
+				elseBody = Optional.of(preStmts.apply(at(starts.get(i), new IfStmt(conditions.get(i), bodies.get(i), elseBody))));
+				contexts.remove(i-1).exit();
+			}
+			return at(starts.get(0), new IfStmt(conditions.get(0), bodies.get(0), elseBody));
+		} finally {
+			for(int i = contexts.size()-1; i >= 0; i--) {
+				contexts.get(i).exit();
+			}
 		}
-		return new IfStmt(condition, body, elseBody);
+	}
+
+	public Expression parseIfCondition() {
+		return parseCondition();
 	}
 
 	public WhileStmt parseWhileStmt() {
+		int start = startOffset();
 		require(WHILE);
 		var condition = parseCondition();
 		var body = parseBody();
-		return new WhileStmt(condition, body);
+		return at(start, new WhileStmt(condition, body));
 	}
 
 	public DoStmt parseDoStmt() {
+		int start = startOffset();
 		require(DO);
 		var body = parseBody();
 		require(WHILE);
 		var condition = parseCondition();
 		endStatement();
-		return new DoStmt(body, condition);
+		return at(start, new DoStmt(body, condition));
 	}
 
 	public Statement parseForStmt() {
+		int start = startOffset();
 		require(FOR, LPAREN);
-		boolean mayHaveVariable = wouldAccept(AT.or(Tag.NAMED).or(Tag.PRIMITIVE_TYPE).or(Tag.LOCAL_VAR_MODIFIER));
+		boolean mayHaveVariable = wouldAccept(LOCAL_VAR_START);
 		if(mayHaveVariable) {
 			foreach:
 			try(var state = tokens.enter()) {
 				FormalParameter vardecl;
 				try {
+					int varStart = startOffset();
 					var modsAndAnnos = parseFinalAndAnnotations();
 					var type = parseType();
 					var name = parseName();
 					var dimensions = parseDimensions();
+					vardecl = at(varStart, new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos));
 					require(COLON);
-					vardecl = new FormalParameter(type, name, dimensions, modsAndAnnos.mods, modsAndAnnos.annos);
 				} catch(SyntaxError e) {
 					state.reset();
 					break foreach;
@@ -2338,7 +3323,7 @@ public class JavaParser {
 				var iterable = parseExpression();
 				require(RPAREN);
 				var body = parseBody();
-				return new ForEachStmt(vardecl, iterable, body);
+				return at(start, new ForEachStmt(vardecl, iterable, body));
 			}
 		}
 
@@ -2346,6 +3331,7 @@ public class JavaParser {
 		if(mayHaveVariable) {
 			vardecl: 
 			try(var state = tokens.enter()) {
+				int varStart = startOffset();
 				var modsAndAnnos = parseFinalAndAnnotations();
 				Type type;
 				Name name;
@@ -2362,7 +3348,7 @@ public class JavaParser {
 				Optional<? extends Initializer> init = parseVariableInitializerOpt(type, dimensions);
 
 				var declarators = new ArrayList<VariableDeclarator>();
-				declarators.add(new VariableDeclarator(name, dimensions, init));
+				declarators.add(at(name.start(), new VariableDeclarator(name, dimensions, init)));
 
 				while(accept(COMMA)) {
 					declarators.add(parseVariableDeclarator(type));
@@ -2370,7 +3356,7 @@ public class JavaParser {
 
 				endStatement();
 
-				initializer = Optional.of(Either.first(new VariableDecl(type, declarators, modsAndAnnos.mods, modsAndAnnos.annos, Optional.empty())));
+				initializer = Optional.of(Either.first(at(varStart, new VariableDecl(type, declarators, modsAndAnnos.mods, modsAndAnnos.annos, Optional.empty()))));
 			}
 			if(initializer.isEmpty()) {
 				initializer = Optional.of(Either.second(parseExpressionStmt()));
@@ -2393,17 +3379,19 @@ public class JavaParser {
 		}
 		require(RPAREN);
 		var body = parseBody();
-		return new ForStmt(initializer, condition, updates, body);
+		return at(start, new ForStmt(initializer, condition, updates, body));
 	}
 
 	public SynchronizedStmt parseSynchronizedStmt() {
+		int start = startOffset();
 		require(SYNCHRONIZED);
 		var lock = parseCondition();
 		var body = parseBodyAsBlock();
-		return new SynchronizedStmt(lock, body);
+		return at(start, new SynchronizedStmt(lock, body));
 	}
 
 	public Statement parseTryStmt() {
+		int start = startOffset();
 		require(TRY);
 		List<ResourceSpecifier> resources;
 		if(accept(LPAREN)) {
@@ -2424,9 +3412,9 @@ public class JavaParser {
 		var catches = parseCatches();
 		Optional<Block> finallyBody = parseFinally();
 		if(resources.isEmpty() && catches.isEmpty() && finallyBody.isEmpty()) {
-			throw syntaxError("expected 'catch' or 'finally' here, got " + token);
+			throw syntaxError(got -> "expected 'catch' or 'finally' here, got " + got);
 		}
-		return new TryStmt(resources, body, catches, finallyBody);
+		return at(start, new TryStmt(resources, body, catches, finallyBody));
 	}
 
 	public Optional<Block> parseFinally() {
@@ -2446,17 +3434,21 @@ public class JavaParser {
 	}
 
 	public Catch parseCatch() {
+		int start = startOffset();
 		require(CATCH, LPAREN);
+		int paramStart = startOffset();
 		var modsAndAnnos = parseFinalAndAnnotations();
 		var type = parseTypeUnion();
 		var name = parseName();
+		var param = at(paramStart, new FormalParameter(type, name, modsAndAnnos.mods, modsAndAnnos.annos));
 		require(RPAREN);
 		var body = parseBodyAsBlock();
-		return new Catch(new FormalParameter(type, name, modsAndAnnos.mods, modsAndAnnos.annos), body);
+		return at(start, new Catch(param, body));
 	}
 
 	public ResourceSpecifier parseResourceSpecifier() {
-		if(wouldAccept(AT.or(Tag.NAMED).or(Tag.PRIMITIVE_TYPE).or(Tag.LOCAL_VAR_MODIFIER))) {
+		int start = startOffset();
+		if(wouldAccept(LOCAL_VAR_START)) {
 			vardecl:
 			try(var state = tokens.enter()) {
 				var modsAndAnnos = parseFinalAndAnnotations();
@@ -2472,14 +3464,17 @@ public class JavaParser {
 
 				var dimensions = parseDimensions();
 				var init = Optional.of(parseVariableInitializer(type, dimensions));
-				return new VariableDecl(type, name, dimensions, init, modsAndAnnos.mods, modsAndAnnos.annos,
-						Optional.empty());
+				var vardecl = at(start, new VariableDecl(type, name, dimensions, init, modsAndAnnos.mods, modsAndAnnos.annos,
+						Optional.empty()));
+				at(name.start(), vardecl.getDeclarators().get(0));
+				return vardecl;
 			}
 		}
-		return new ExpressionStmt(parseExpression());
+		return at(start, new ExpressionStmt(parseExpression()));
 	}
 
 	public Switch parseSwitch() {
+		int start = startOffset();
 		require(SWITCH);
 		var expression = parseCondition();
 		require(LBRACE);
@@ -2488,10 +3483,11 @@ public class JavaParser {
 			cases.add(parseSwitchCase());
 		}
 		require(RBRACE);
-		return new Switch(expression, cases);
+		return at(start, new Switch(expression, cases));
 	}
 
 	public SwitchCase parseSwitchCase() {
+		int start = startOffset();
 		List<Expression> labels;
 
 		if(accept(DEFAULT)) {
@@ -2503,7 +3499,7 @@ public class JavaParser {
 
 		var body = parseCaseBody();
 
-		return new SwitchCase(labels, body);
+		return at(start, new SwitchCase(labels, body));
 	}
 	
 	public Either<List<Statement>,Statement> parseCaseBody() {
@@ -2514,7 +3510,7 @@ public class JavaParser {
 			require(COLON);
 			var stmts = new ArrayList<Statement>();
 			while(wouldNotAccept(CASE.or(DEFAULT).or(RBRACE))) {
-				stmts.add(parseBlockStatement());
+				stmts.add(recover(this::parseBlockStatement, error -> error));
 			}
 			return Either.first(stmts);
 		}
@@ -2532,10 +3528,10 @@ public class JavaParser {
 
 	public Expression parseSwitchLabel() {
 		if(wouldAccept(Tag.NAMED, ARROW)) {
-			return new Variable(parseName());
+			return at(startOffset(), new Variable(parseName()));
 		} else if(wouldAccept(LPAREN, Tag.NAMED, RPAREN, ARROW)) {
 			require(LPAREN);
-			var result = new Variable(parseName());
+			var result = at(startOffset(), new Variable(parseName()));
 			require(RPAREN);
 			return result;
 		} else {
@@ -2544,46 +3540,51 @@ public class JavaParser {
 	}
 
 	public ThrowStmt parseThrowStmt() {
+		int start = startOffset();
 		require(THROW);
 		var expr = parseExpression();
 		endStatement();
-		return new ThrowStmt(expr);
+		return at(start, new ThrowStmt(expr));
 	}
 
 	public ReturnStmt parseReturnStmt() {
+		int start = startOffset();
 		require(RETURN);
 		if(accept(SEMI)) {
-			return new ReturnStmt();
+			return at(start, new ReturnStmt());
 		} else {
 			var expr = parseExpression();
 			endStatement();
-			return new ReturnStmt(expr);
+			return at(start, new ReturnStmt(expr));
 		}
 	}
 
 	public BreakStmt parseBreakStmt() {
+		int start = startOffset();
 		require(BREAK);
 		if(accept(SEMI)) {
-			return new BreakStmt();
+			return at(start, new BreakStmt());
 		} else {
 			var label = parseName();
 			endStatement();
-			return new BreakStmt(label);
+			return at(start, new BreakStmt(label));
 		}
 	}
 
 	public ContinueStmt parseContinueStmt() {
+		int start = startOffset();
 		require(BREAK);
 		if(accept(SEMI)) {
-			return new ContinueStmt();
+			return at(start, new ContinueStmt());
 		} else {
 			var label = parseName();
 			endStatement();
-			return new ContinueStmt(label);
+			return at(start, new ContinueStmt(label));
 		}
 	}
 
 	public Statement parseYieldStmt() {
+		int start = startOffset();
 		parse: try(var state = tokens.enter()) {
 			require(YIELD);
 			Expression expr;
@@ -2594,12 +3595,13 @@ public class JavaParser {
 				break parse;
 			}
 			endStatement();
-			return new YieldStmt(expr);
+			return at(start, new YieldStmt(expr));
 		}
 		return parseExpressionStmt();
 	}
 
 	public AssertStmt parseAssertStmt() {
+		int start = startOffset();
 		require(ASSERT);
 		var condition = parseExpression();
 		Optional<? extends Expression> message;
@@ -2609,7 +3611,7 @@ public class JavaParser {
 			message = Optional.empty();
 		}
 		endStatement();
-		return new AssertStmt(condition, message);
+		return at(start, new AssertStmt(condition, message));
 	}
 
 	public Initializer parseInitializer(int arrayBracketDepth) {
@@ -2625,6 +3627,7 @@ public class JavaParser {
 	}
 
 	public Expression parseLambdaOr(Supplier<? extends Expression> parser) {
+		int start = startOffset();
 		parse: if(wouldAccept(Tag.NAMED, ARROW) || wouldAccept(LPAREN)) {
 			Either<? extends List<FormalParameter>,? extends List<InformalParameter>> parameters;
 			try(var state = tokens.enter()) {
@@ -2635,7 +3638,7 @@ public class JavaParser {
 					state.reset();
 					break parse;
 				}
-				return new Lambda(parameters, parseLambdaBody());
+				return at(start, new Lambda(parameters, parseLambdaBody()));
 			}
 		}
 		return parser.get();
@@ -2661,7 +3664,8 @@ public class JavaParser {
 	}
 
 	public InformalParameter parseInformalParameter() {
-		return new InformalParameter(parseName());
+		int start = startOffset();
+		return at(start, new InformalParameter(parseName()));
 	}
 
 	public Either<Block,? extends Expression> parseLambdaBody() {
@@ -2669,13 +3673,14 @@ public class JavaParser {
 	}
 
 	public Expression parseAssignExpr() {
+		int start = startOffset();
 		var expr = parseConditionalExpr();
 		if(expr instanceof Variable || expr instanceof IndexExpr || expr instanceof MemberAccess) {
-			switch(token.getType()) {
+			switch(tokenType()) {
 				case EQ, PLUSEQ, SUBEQ, STAREQ, SLASHEQ, PERCENTEQ, CARETEQ, LTLTEQ, GTGTEQ, GTGTGTEQ, AMPEQ, BAREQ:
-					var op = AssignExpr.Op.fromString(token.getString());
+					var op = AssignExpr.Op.fromString(tokenString());
 					nextToken();
-					expr = new AssignExpr(expr, op, parseExpression());
+					expr = at(start, new AssignExpr(expr, op, parseExpression()));
 				default:
 			}
 		}
@@ -2683,166 +3688,239 @@ public class JavaParser {
 	}
 
 	public Expression parseConditionalExpr() {
+		int start = startOffset();
 		var expr = parseLogicalOrExpr();
 		if(accept(QUES)) {
 			var truepart = parseExpression();
 			require(COLON);
 			var falsepart = parseLambdaOr(this::parseConditionalExpr);
-			return new ConditionalExpr(expr, truepart, falsepart);
+			return at(start, new ConditionalExpr(expr, truepart, falsepart));
 		} else {
 			return expr;
 		}
 	}
 
-	public Expression parseLogicalOrExpr() {
-		var expr = parseLogicalAndExpr();
-		while(accept(BARBAR)) {
-			expr = new BinaryExpr(expr, BinaryExpr.Op.OR, parseLogicalAndExpr());
+	/** Precedences of the binary operator levels, higher ones bind tighter */
+	protected static final int PREC_LOGICAL_OR = 10,
+							   PREC_LOGICAL_AND = 20,
+							   PREC_BIT_OR = 30,
+							   PREC_XOR = 40,
+							   PREC_BIT_AND = 50,
+							   PREC_EQUALITY = 60,
+							   PREC_RELATIONAL = 70,
+							   PREC_SHIFT = 80,
+							   PREC_ADDITIVE = 90,
+							   PREC_MULTIPLICATIVE = 100;
+
+	/**
+	 * An operator which {@link #parseBinaryExpr(int)} parses between two operands.
+	 */
+	protected static final class InfixOperator {
+		final int precedence;
+		/**
+		 * Whether another operator of the same precedence may follow this one's right operand.
+		 * If not, the expression it makes can only be the left operand of a lower precedence operator.
+		 */
+		final boolean chains;
+		/** The type of the token the operator starts with */
+		final JavaTokenType first;
+		/** Accepts the operator if it is at the current token */
+		final BooleanSupplier accept;
+		/** Given the left operand, parses the right operand and returns the resulting expression */
+		final UnaryOperator<Expression> parser;
+
+		public InfixOperator(int precedence, boolean chains, @NonNull JavaTokenType first, @NonNull BooleanSupplier accept, @NonNull UnaryOperator<Expression> parser) {
+			this.precedence = precedence;
+			this.chains = chains;
+			this.first = first;
+			this.accept = accept;
+			this.parser = parser;
+		}
+	}
+
+	/**
+	 * The infix operators by the type of their first token. Each list is sorted by descending
+	 * precedence, so that like in a recursive descent parser with a method per level, the
+	 * operators of a tighter level get the first chance to accept the tokens.
+	 */
+	private final EnumMap<JavaTokenType,ArrayList<InfixOperator>> infixOperators = new EnumMap<>(JavaTokenType.class);
+
+	/**
+	 * Adds the infix operators. Called by the constructor.
+	 */
+	protected void addInfixOperators() {
+		addBinaryOperator(PREC_LOGICAL_OR, BARBAR, BinaryExpr.Op.OR);
+		addBinaryOperator(PREC_LOGICAL_AND, AMPAMP, BinaryExpr.Op.AND);
+		addBinaryOperator(PREC_BIT_OR, BAR, BinaryExpr.Op.BIT_OR);
+		addBinaryOperator(PREC_XOR, CARET, BinaryExpr.Op.XOR);
+		addBinaryOperator(PREC_BIT_AND, AMP, BinaryExpr.Op.BIT_AND);
+		addBinaryOperator(PREC_EQUALITY, EQEQ, BinaryExpr.Op.EQUAL);
+		addBinaryOperator(PREC_EQUALITY, BANGEQ, BinaryExpr.Op.NEQUAL);
+		addBinaryOperator(PREC_RELATIONAL, LT, BinaryExpr.Op.LTHAN);
+		addBinaryOperator(PREC_RELATIONAL, GT, BinaryExpr.Op.GTHAN);
+		addBinaryOperator(PREC_RELATIONAL, LTEQ, BinaryExpr.Op.LEQUAL);
+		addBinaryOperator(PREC_RELATIONAL, GTEQ, BinaryExpr.Op.GEQUAL);
+		addInfixOperator(new InfixOperator(PREC_RELATIONAL, true, INSTANCEOF, () -> accept(INSTANCEOF),
+										   expr -> new TypeTest(expr, parseReferenceType())));
+		addBinaryOperator(PREC_SHIFT, LTLT, BinaryExpr.Op.LSHIFT);
+		addBinaryOperator(PREC_SHIFT, GT, () -> acceptPseudoOp(GT, GT, GT), BinaryExpr.Op.URSHIFT);
+		addBinaryOperator(PREC_SHIFT, GT, () -> acceptPseudoOp(GT, GT), BinaryExpr.Op.RSHIFT);
+		addBinaryOperator(PREC_ADDITIVE, PLUS, BinaryExpr.Op.PLUS);
+		addBinaryOperator(PREC_ADDITIVE, SUB, BinaryExpr.Op.MINUS);
+		addBinaryOperator(PREC_MULTIPLICATIVE, STAR, BinaryExpr.Op.TIMES);
+		addBinaryOperator(PREC_MULTIPLICATIVE, SLASH, BinaryExpr.Op.DIVIDE);
+		addBinaryOperator(PREC_MULTIPLICATIVE, PERCENT, BinaryExpr.Op.MODULUS);
+	}
+
+	/**
+	 * Adds an operator after the ones with the same first token and the same or a higher precedence.
+	 */
+	protected void addInfixOperator(@NonNull InfixOperator operator) {
+		var operators = infixOperators.computeIfAbsent(operator.first, type -> new ArrayList<>(2));
+		int i = 0;
+		while(i < operators.size() && operators.get(i).precedence >= operator.precedence) {
+			i++;
+		}
+		operators.add(i, operator);
+	}
+
+	/**
+	 * Adds a left-associative operator whose right operand is parsed at the next higher precedence.
+	 */
+	protected void addBinaryOperator(int precedence, @NonNull JavaTokenType first, @NonNull BooleanSupplier accept, @NonNull BiFunction<Expression,Expression,Expression> combiner) {
+		addInfixOperator(new InfixOperator(precedence, true, first, accept, left -> combiner.apply(left, parseBinaryExpr(precedence + 1))));
+	}
+
+	protected void addBinaryOperator(int precedence, @NonNull JavaTokenType first, @NonNull BooleanSupplier accept, @NonNull BinaryExpr.Op op) {
+		addBinaryOperator(precedence, first, accept, (left, right) -> new BinaryExpr(left, op, right));
+	}
+
+	protected void addBinaryOperator(int precedence, @NonNull JavaTokenType type, @NonNull BinaryExpr.Op op) {
+		addBinaryOperator(precedence, type, () -> accept(type), op);
+	}
+
+	/**
+	 * Removes the operators of the given precedence, so that a subclass can replace a whole level.
+	 */
+	protected void removeInfixOperators(int precedence) {
+		for(var operators : infixOperators.values()) {
+			operators.removeIf(operator -> operator.precedence == precedence);
+		}
+	}
+
+	/**
+	 * Parses a unary expression followed by any number of infix operators with a precedence of
+	 * at least {@code minPrecedence} and their right operands, by precedence climbing.
+	 */
+	public Expression parseBinaryExpr(int minPrecedence) {
+		int start = startOffset();
+		var expr = parseUnaryExpr();
+		int maxPrecedence = Integer.MAX_VALUE;
+		for(;;) {
+			var operator = acceptInfixOperator(minPrecedence, maxPrecedence);
+			if(operator == null) {
+				return expr;
+			}
+			expr = at(start, operator.parser.apply(expr));
+			maxPrecedence = operator.chains? operator.precedence : operator.precedence - 1;
 		}
-		return expr;
 	}
 
-	public Expression parseLogicalAndExpr() {
-		var expr = parseBitOrExpr();
-		while(accept(AMPAMP)) {
-			expr = new BinaryExpr(expr, BinaryExpr.Op.AND, parseBitOrExpr());
+	/**
+	 * Accepts the first operator at the current token whose precedence is within the given bounds.
+	 * @return the operator, or {@code null} if there is none
+	 */
+	protected InfixOperator acceptInfixOperator(int minPrecedence, int maxPrecedence) {
+		var operators = infixOperators.get(tokenType());
+		if(operators != null) {
+			for(var operator : operators) {
+				if(operator.precedence >= minPrecedence && operator.precedence <= maxPrecedence && operator.accept.getAsBoolean()) {
+					return operator;
+				}
+			}
 		}
-		return expr;
+		return null;
+	}
+
+	public Expression parseLogicalOrExpr() {
+		return parseBinaryExpr(PREC_LOGICAL_OR);
+	}
+
+	public Expression parseLogicalAndExpr() {
+		return parseBinaryExpr(PREC_LOGICAL_AND);
 	}
 
 	public Expression parseBitOrExpr() {
-		var expr = parseXorExpr();
-		while(accept(BAR)) {
-			expr = new BinaryExpr(expr, BinaryExpr.Op.BIT_OR, parseXorExpr());
-		}
-		return expr;
+		return parseBinaryExpr(PREC_BIT_OR);
 	}
 
 	public Expression parseXorExpr() {
-		var expr = parseBitAndExpr();
-		while(accept(CARET)) {
-			expr = new BinaryExpr(expr, BinaryExpr.Op.XOR, parseBitAndExpr());
-		}
-		return expr;
+		return parseBinaryExpr(PREC_XOR);
 	}
 
 	public Expression parseBitAndExpr() {
-		var expr = parseEqualityExpr();
-		while(accept(AMP)) {
-			expr = new BinaryExpr(expr, BinaryExpr.Op.BIT_AND, parseEqualityExpr());
-		}
-		return expr;
+		return parseBinaryExpr(PREC_BIT_AND);
 	}
 
 	public Expression parseEqualityExpr() {
-		var expr = parseRelExpr();
-		for(;;) {
-			if(accept(EQEQ)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.EQUAL, parseRelExpr());
-			} else if(accept(BANGEQ)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.NEQUAL, parseRelExpr());
-			} else {
-				return expr;
-			}
-		}
+		return parseBinaryExpr(PREC_EQUALITY);
 	}
 
 	public Expression parseRelExpr() {
-		var expr = parseShiftExpr();
-		for(;;) {
-			if(accept(LT)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.LTHAN, parseShiftExpr());
-			} else if(accept(GT)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.GTHAN, parseShiftExpr());
-			} else if(accept(LTEQ)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.LEQUAL, parseShiftExpr());
-			} else if(accept(GTEQ)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.GEQUAL, parseShiftExpr());
-			} else if(accept(INSTANCEOF)) {
-				expr = new TypeTest(expr, parseReferenceType());
-			} else {
-				return expr;
-			}
-		}
+		return parseBinaryExpr(PREC_RELATIONAL);
 	}
 
 	public Expression parseShiftExpr() {
-		var expr = parseAddExpr();
-		for(;;) {
-			if(accept(LTLT)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.LSHIFT, parseAddExpr());
-			} else if(acceptPseudoOp(GT, GT, GT)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.URSHIFT, parseAddExpr());
-			} else if(acceptPseudoOp(GT, GT)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.RSHIFT, parseAddExpr());
-			} else {
-				return expr;
-			}
-		}
+		return parseBinaryExpr(PREC_SHIFT);
 	}
 
 	public Expression parseAddExpr() {
-		var expr = parseMulExpr();
-		for(;;) {
-			if(accept(PLUS)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.PLUS, parseMulExpr());
-			} else if(accept(SUB)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.MINUS, parseMulExpr());
-			} else {
-				return expr;
-			}
-		}
+		return parseBinaryExpr(PREC_ADDITIVE);
 	}
 
 	public Expression parseMulExpr() {
-		var expr = parseUnaryExpr();
-		for(;;) {
-			if(accept(STAR)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.TIMES, parseUnaryExpr());
-			} else if(accept(SLASH)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.DIVIDE, parseUnaryExpr());
-			} else if(accept(PERCENT)) {
-				expr = new BinaryExpr(expr, BinaryExpr.Op.MODULUS, parseUnaryExpr());
-			} else {
-				return expr;
-			}
-		}
+		return parseBinaryExpr(PREC_MULTIPLICATIVE);
 	}
 
 	public Expression parseUnaryExpr() {
+		int start = startOffset();
 		if(accept(PLUSPLUS)) {
-			return new PreIncrementExpr(parseUnaryExpr());
+			return at(start, new PreIncrementExpr(parseUnaryExpr()));
 		} else if(accept(SUBSUB)) {
-			return new PreDecrementExpr(parseUnaryExpr());
+			return at(start, new PreDecrementExpr(parseUnaryExpr()));
 		} else if(accept(PLUS)) {
-			return new UnaryExpr(UnaryExpr.Op.POSITIVE, parseUnaryExpr());
+			return at(start, new UnaryExpr(UnaryExpr.Op.POSITIVE, parseUnaryExpr()));
 		} else if(accept(SUB)) {
-			return new UnaryExpr(UnaryExpr.Op.NEGATE, parseUnaryExpr());
+			return at(start, new UnaryExpr(UnaryExpr.Op.NEGATE, parseUnaryExpr()));
 		} else {
 			return parseUnaryExprNotPlusMinus();
 		}
 	}
 
 	public Expression parseUnaryExprNotPlusMinus() {
+		int start = startOffset();
 		if(accept(TILDE)) {
-			return new UnaryExpr(UnaryExpr.Op.INVERT, parseUnaryExpr());
+			return at(start, new UnaryExpr(UnaryExpr.Op.INVERT, parseUnaryExpr()));
 		} else if(accept(BANG)) {
-			return new UnaryExpr(UnaryExpr.Op.NOT, parseUnaryExpr());
+			return at(start, new UnaryExpr(UnaryExpr.Op.NOT, parseUnaryExpr()));
 		} else {
 			return parseCastExpr();
 		}
 	}
 
 	public Expression parseCastExpr() {
+		int start = startOffset();
 		cast: if(wouldAccept(LPAREN)) {
 			try(var state = tokens.enter()) {
 				try {
 					require(LPAREN);
 					Type type;
+					int typeStart = startOffset();
 					var annotations = parseAnnotations();
 					if(wouldAccept(PRIMITIVE_TYPES, RPAREN)) {
-						type = new PrimitiveType(token.getString(), annotations);
+						type = new PrimitiveType(tokenString(), annotations);
 						nextToken();
+						at(typeStart, type);
 					} else {
 						type = parseTypeIntersection(annotations);
 					}
@@ -2853,7 +3931,7 @@ public class JavaParser {
 					} else {
 						expr = parseLambdaOr(this::parseUnaryExprNotPlusMinus);
 					}
-					return new CastExpr(type, expr);
+					return at(start, new CastExpr(type, expr));
 				} catch(SyntaxError e) {
 					state.reset();
 					break cast;
@@ -2864,12 +3942,13 @@ public class JavaParser {
 	}
 
 	public Expression parsePostfixExpr() {
-		var expr = parseSuffix();
+		int start = startOffset();
+		var expr = memoize(SUFFIX_RULE, this::parseSuffix);
 		for(;;) {
 			if(accept(PLUSPLUS)) {
-				expr = new PostIncrementExpr(expr);
+				expr = at(start, new PostIncrementExpr(expr));
 			} else if(accept(SUBSUB)) {
-				expr = new PostDecrementExpr(expr);
+				expr = at(start, new PostDecrementExpr(expr));
 			} else {
 				return expr;
 			}
@@ -2877,10 +3956,11 @@ public class JavaParser {
 	}
 
 	public Expression parseSuffix() {
+		int start = startOffset();
 		var expr = parsePrimary();
 		for(;;) {
 			if(wouldAccept(COLCOL)) {
-				expr = parseMethodReferenceRest(expr);
+				expr = atIfAbsent(start, parseMethodReferenceRest(expr));
 			} else if(wouldAccept(DOT)
 					&& (!wouldAccept(DOT, SUPER.or(THIS)) || wouldAccept(DOT, SUPER.or(THIS), not(LPAREN)))) {
 				List<? extends TypeArgument> typeArguments;
@@ -2897,9 +3977,9 @@ public class JavaParser {
 					require(DOT);
 					typeArguments = emptyList();
 				}
-				expr = parseMemberAccessRest(expr, typeArguments);
+				expr = atIfAbsent(start, parseMemberAccessRest(expr, typeArguments));
 			} else if(wouldAccept(LBRACKET)) {
-				expr = parseIndexRest(expr);
+				expr = atIfAbsent(start, parseIndexRest(expr));
 			} else {
 				return expr;
 			}
@@ -2915,14 +3995,14 @@ public class JavaParser {
 
 	public Expression parseExpressionMethodReferenceRest(Expression object, List<? extends TypeArgument> typeArguments,
 														 Name name) {
-		return new MethodReference(object, typeArguments, name);
+		return at(start(object), new MethodReference(object, typeArguments, name));
 	}
 	
 	private static final Name name_new = new Name("new");
 
 	public Expression parseTypeMethodReferenceRest(Either<ArrayType,GenericType> type,
 												   List<? extends TypeArgument> typeArguments) {
-		return new MethodReference((Type)type.getValue(), typeArguments, name_new);
+		return at(start((Type)type.getValue()), new MethodReference((Type)type.getValue(), typeArguments, name_new));
 	}
 
 	public Expression parseSuperMethodReferenceRest(Optional<QualifiedName> qualifier,
@@ -2931,32 +4011,34 @@ public class JavaParser {
 	}
 
 	public Expression parseMemberAccessRest(Expression object, List<? extends TypeArgument> typeArguments) {
+		int start = start(object);
 		if(!typeArguments.isEmpty()) {
 			var name = parseName();
 			var args = parseArguments(false);
-			return new FunctionCall(object, name, typeArguments, args);
+			return at(start, new FunctionCall(object, name, typeArguments, args));
 		} else if(wouldAccept(NEW)) {
 			var creator = parseClassCreator();
 			creator.setObject(object);
-			return creator;
+			return at(start, creator);
 		}
 		var name = parseName();
 		if(wouldAccept(LPAREN)) {
 			var args = parseArguments(false);
-			return new FunctionCall(object, name, args);
+			return at(start, new FunctionCall(object, name, args));
 		}
-		return new MemberAccess(object, name);
+		return at(start, new MemberAccess(object, name));
 	}
 
 	public Expression parseIndexRest(Expression indexed) {
 		require(LBRACKET);
 		var index = parseExpression();
 		require(RBRACKET);
-		return new IndexExpr(indexed, index);
+		return at(start(indexed), new IndexExpr(indexed, index));
 	}
 
 	public Expression parsePrimary() {
-		return switch(token.getType()) {
+		int start = startOffset();
+		return atIfAbsent(start, switch(tokenType()) {
 			case NUMBER -> parseNumberLiteral();
 			case STRING -> parseStringLiteral();
 			case CHARACTER -> parseCharLiteral();
@@ -2975,16 +4057,17 @@ public class JavaParser {
 					throw syntaxError("invalid start of expression");
 				}
 			}
-		};
+		});
 	}
 
 	public Expression parseStringLiteral() {
-		var token = this.token;
+		int start = startOffset();
+		var token = getToken();
 		var str = token.getString();
 		require(STRING);
 		str = str.substring(1, str.length() - 1);
 		try {
-			return new Literal(StringEscapeUtils.unescapeJava(str), token.getString());
+			return at(start, new Literal(StringEscapeUtils.unescapeJava(str), token.getString()));
 		} catch(Exception e) {
 			throw new SyntaxError("invalid string literal", filename, token.getStart().getLine(),
 					token.getStart().getColumn(), token.getLine());
@@ -2992,7 +4075,8 @@ public class JavaParser {
 	}
 
 	public Expression parseCharLiteral() {
-		var token = this.token;
+		int start = startOffset();
+		var token = getToken();
 		var str = token.getString();
 		require(CHARACTER);
 		str = str.substring(1, str.length() - 1);
@@ -3001,7 +4085,7 @@ public class JavaParser {
 			if(str.length() != 1) {
 				throw new IllegalArgumentException();
 			}
-			return new Literal(str.charAt(0), token.getString());
+			return at(start, new Literal(str.charAt(0), token.getString()));
 		} catch(Exception e) {
 			throw new SyntaxError("invalid char literal", filename, token.getStart().getLine(),
 					token.getStart().getColumn(), token.getLine());
@@ -3009,42 +4093,45 @@ public class JavaParser {
 	}
 
 	public Expression parseNullLiteral() {
+		int start = startOffset();
 		require(NULL);
-		return new Literal();
+		return at(start, new Literal());
 	}
 
 	public Expression parseBooleanLiteral() {
+		int start = startOffset();
 		if(accept(TRUE)) {
-			return new Literal(true);
+			return at(start, new Literal(true));
 		} else {
 			require(FALSE);
-			return new Literal(false);
+			return at(start, new Literal(false));
 		}
 	}
 
 	public Expression parseNumberLiteral() {
-		var token = this.token;
+		int start = startOffset();
+		var token = getToken();
 		var str = token.getString();
 		require(NUMBER);
-		assert !token.equals(this.token);
+		assert !token.equals(getToken());
 		try {
 			str = str.replace("_", "");
 			if(str.endsWith("f") || str.endsWith("F")) {
 				if((str.startsWith("0x") || str.startsWith("0X")) && !str.contains(".") && !str.contains("p")
 						&& !str.contains("P")) {
-					return new Literal(Integer.parseInt(str.substring(2), 16), token.getString());
+					return at(start, new Literal(Integer.parseInt(str.substring(2), 16), token.getString()));
 				}
-				return new Literal(Float.parseFloat(str.substring(0, str.length() - 1)), token.getString());
+				return at(start, new Literal(Float.parseFloat(str.substring(0, str.length() - 1)), token.getString()));
 			}
 			if(str.endsWith("d") || str.endsWith("D")) {
 				if((str.startsWith("0x") || str.startsWith("0X")) && !str.contains(".") && !str.contains("p")
 						&& !str.contains("P")) {
-					return new Literal(Integer.parseInt(str.substring(2), 16), token.getString());
+					return at(start, new Literal(Integer.parseInt(str.substring(2), 16), token.getString()));
 				}
-				return new Literal(Double.parseDouble(str.substring(0, str.length() - 1)), token.getString());
+				return at(start, new Literal(Double.parseDouble(str.substring(0, str.length() - 1)), token.getString()));
 			}
 			if(str.contains(".")) {
-				return new Literal(Double.parseDouble(str), token.getString());
+				return at(start, new Literal(Double.parseDouble(str), token.getString()));
 			}
 			int base = 10;
 			if(str.startsWith("0x") || str.startsWith("0X")) {
@@ -3055,9 +4142,9 @@ public class JavaParser {
 				str = str.substring(2);
 			}
 			if(str.endsWith("l") || str.endsWith("L")) {
-				return new Literal(Long.parseLong(str.substring(0, str.length() - 1), base), token.getString());
+				return at(start, new Literal(Long.parseLong(str.substring(0, str.length() - 1), base), token.getString()));
 			} else {
-				return new Literal(Integer.parseInt(str, base), token.getString());
+				return at(start, new Literal(Integer.parseInt(str, base), token.getString()));
 			}
 		} catch(NumberFormatException e) {
 			throw new SyntaxError("invalid number literal", filename, token.getStart().getLine(),
@@ -3066,6 +4153,7 @@ public class JavaParser {
 	}
 
 	public Expression parsePrimaryName() {
+		int start = startOffset();
 		try(var state = tokens.enter()) {
 			try {
 				var names = new ArrayList<Name>();
@@ -3074,25 +4162,25 @@ public class JavaParser {
 					require(DOT);
 					names.add(parseName());
 				}
+				var qualName = span(names.get(0), names.get(names.size()-1), new QualifiedName(names));
 				require(DOT);
 				if(accept(SUPER)) {
 					if(accept(DOT)) {
 						var typeArguments = parseTypeArgumentsOpt();
 						var name = parseName();
 						var args = parseArguments(false);
-						return new SuperFunctionCall(new QualifiedName(names), name, typeArguments, args);
+						return at(start, new SuperFunctionCall(qualName, name, typeArguments, args));
 					} else {
 						require(COLCOL);
 						var typeArguments = parseTypeArgumentsOpt();
 						var name = parseName();
-						return parseSuperMethodReferenceRest(Optional.of(new QualifiedName(names)), typeArguments,
-															 name);
+						return at(start, parseSuperMethodReferenceRest(Optional.of(qualName), typeArguments, name));
 					}
 				} else if(accept(CLASS)) {
-					return new ClassLiteral(new GenericType(new QualifiedName(names)));
+					return at(start, new ClassLiteral(span(qualName, qualName, new GenericType(qualName))));
 				} else {
 					require(THIS);
-					return new This(new QualifiedName(names));
+					return at(start, new This(qualName));
 				}
 			} catch(SyntaxError e) {
 				state.reset();
@@ -3115,7 +4203,7 @@ public class JavaParser {
 					}
 				}
 				require(DOT, CLASS);
-				return new ClassLiteral(type);
+				return at(start, new ClassLiteral(type));
 			} catch(SyntaxError e) {
 				state.reset();
 			}
@@ -3123,43 +4211,48 @@ public class JavaParser {
 		var name = parseName();
 		if(wouldAccept(LPAREN)) {
 			var args = parseArguments(false);
-			return new FunctionCall(name, args);
+			return at(start, new FunctionCall(name, args));
 		} else {
-			return new Variable(name);
+			return at(start, new Variable(name));
 		}
 	}
 
 	public Expression parseSuper() {
+		int start = startOffset();
 		require(SUPER);
 		if(accept(COLCOL)) {
 			var typeArguments = parseTypeArgumentsOpt();
 			var name = parseName();
-			return parseSuperMethodReferenceRest(Optional.empty(), typeArguments, name);
+			return at(start, parseSuperMethodReferenceRest(Optional.empty(), typeArguments, name));
 		} else {
 			require(DOT);
 			var typeArguments = parseTypeArgumentsOpt();
 			var name = parseName();
 			var args = parseArguments(false);
-			return new SuperFunctionCall(name, typeArguments, args);
+			return at(start, new SuperFunctionCall(name, typeArguments, args));
 		}
 	}
 
 	public Expression parseThis() {
+		int start = startOffset();
 		require(THIS);
-		return new This();
+		return at(start, new This());
 	}
 
 	public Expression parseParens() {
+		int start = startOffset();
 		require(LPAREN);
 		var expr = parseExpression();
 		require(RPAREN);
-		return new ParensExpr(expr);
+		return at(start, new ParensExpr(expr));
 	}
 
 	public Expression parseClassLiteralOrMethodReference() {
+		int start = startOffset();
 		if(accept(VOID)) {
+			var type = at(start, new VoidType());
 			require(DOT, CLASS);
-			return new ClassLiteral(new VoidType());
+			return at(start, new ClassLiteral(type));
 		}
 		var type = parseType(emptyList());
 		if(type instanceof ArrayType && accept(COLCOL)) {
@@ -3167,7 +4260,7 @@ public class JavaParser {
 			return parseTypeMethodReferenceRest(Either.first((ArrayType)type), emptyList());
 		}
 		require(DOT, CLASS);
-		return new ClassLiteral(type);
+		return at(start, new ClassLiteral(type));
 	}
 
 	public List<? extends Expression> parseConstructorArguments() {
@@ -3194,95 +4287,107 @@ public class JavaParser {
 	}
 
 	public Expression parseCreator() {
+		int start = startOffset();
 		require(NEW);
 		if(wouldAccept(LT)) {
 			var typeArguments = parseTypeArguments();
 			var type = parseGenericType();
-			return parseClassCreatorRest(typeArguments, type);
+			return at(start, parseClassCreatorRest(typeArguments, type));
 		}
 		var typeAnnotations = parseAnnotations();
 		if(wouldAccept(PRIMITIVE_TYPES)) {
-			var base = new PrimitiveType(token.getString(), typeAnnotations);
+			int baseStart = start(typeAnnotations, startOffset());
+			var base = new PrimitiveType(tokenString(), typeAnnotations);
 			nextToken();
+			at(baseStart, base);
 			var annotations = parseAnnotations();
+			int dimStart = start(annotations, startOffset());
 			require(LBRACKET);
 			if(accept(RBRACKET)) {
 				var dimensions = new ArrayList<Dimension>();
-				dimensions.add(new Dimension(annotations));
-				while(wouldAccept(AT.or(LBRACKET))) {
+				dimensions.add(at(dimStart, new Dimension(annotations)));
+				while(wouldAccept(DIMENSION_START)) {
 					dimensions.add(parseDimension());
 				}
 				var initializer = parseArrayInitializer(() -> parseInitializer(dimensions.size()));
-				return new ArrayCreator(base, initializer, dimensions);
+				return at(start, new ArrayCreator(base, initializer, dimensions));
 			} else {
 				var sizes = new ArrayList<Size>();
-				sizes.add(new Size(parseExpression(), annotations));
-				var dimensions = new ArrayList<Dimension>();
+				var size = parseExpression();
 				require(RBRACKET);
-				while(wouldAccept(AT.or(LBRACKET))) {
+				sizes.add(at(dimStart, new Size(size, annotations)));
+				var dimensions = new ArrayList<Dimension>();
+				while(wouldAccept(DIMENSION_START)) {
 					annotations = parseAnnotations();
+					dimStart = start(annotations, startOffset());
 					require(LBRACKET);
 					if(accept(RBRACKET)) {
-						dimensions.add(new Dimension(annotations));
+						dimensions.add(at(dimStart, new Dimension(annotations)));
 						break;
 					} else {
-						sizes.add(new Size(parseExpression(), annotations));
+						size = parseExpression();
 						require(RBRACKET);
+						sizes.add(at(dimStart, new Size(size, annotations)));
 					}
 				}
-				while(wouldAccept(AT.or(LBRACKET))) {
+				while(wouldAccept(DIMENSION_START)) {
 					dimensions.add(parseDimension());
 				}
-				return new ArrayCreator(base, sizes, dimensions);
+				return at(start, new ArrayCreator(base, sizes, dimensions));
 			}
 		} else {
 			var type = parseGenericType(typeAnnotations);
 			if(type.getTypeArguments().isEmpty() && wouldAccept(LT, GT)) {
-				return parseClassCreatorRest(emptyList(), type);
+				return at(start, parseClassCreatorRest(emptyList(), type));
 			}
-			if(wouldAccept(AT.or(LBRACKET))) {
+			if(wouldAccept(DIMENSION_START)) {
 				var annotations = parseAnnotations();
+				int dimStart = start(annotations, startOffset());
 				require(LBRACKET);
 				if(accept(RBRACKET)) {
 					var dimensions = new ArrayList<Dimension>();
-					dimensions.add(new Dimension(annotations));
-					while(wouldAccept(AT.or(LBRACKET))) {
+					dimensions.add(at(dimStart, new Dimension(annotations)));
+					while(wouldAccept(DIMENSION_START)) {
 						dimensions.add(parseDimension());
 					}
 					var initializer = parseArrayInitializer(() -> parseInitializer(dimensions.size()));
-					return new ArrayCreator(type, initializer, dimensions);
+					return at(start, new ArrayCreator(type, initializer, dimensions));
 				} else {
 					var sizes = new ArrayList<Size>();
-					sizes.add(new Size(parseExpression(), annotations));
-					var dimensions = new ArrayList<Dimension>();
+					var size = parseExpression();
 					require(RBRACKET);
-					while(wouldAccept(AT.or(LBRACKET))) {
+					sizes.add(at(dimStart, new Size(size, annotations)));
+					var dimensions = new ArrayList<Dimension>();
+					while(wouldAccept(DIMENSION_START)) {
 						annotations = parseAnnotations();
+						dimStart = start(annotations, startOffset());
 						require(LBRACKET);
 						if(accept(RBRACKET)) {
-							dimensions.add(new Dimension(annotations));
+							dimensions.add(at(dimStart, new Dimension(annotations)));
 							break;
 						} else {
-							sizes.add(new Size(parseExpression(), annotations));
+							size = parseExpression();
 							require(RBRACKET);
+							sizes.add(at(dimStart, new Size(size, annotations)));
 						}
 					}
-					while(wouldAccept(AT.or(LBRACKET))) {
+					while(wouldAccept(DIMENSION_START)) {
 						dimensions.add(parseDimension());
 					}
-					return new ArrayCreator(type, sizes, dimensions);
+					return at(start, new ArrayCreator(type, sizes, dimensions));
 				}
 			} else {
-				return parseClassCreatorRest(emptyList(), type);
+				return at(start, parseClassCreatorRest(emptyList(), type));
 			}
 		}
 	}
 
 	public ClassCreator parseClassCreator() {
+		int start = startOffset();
 		require(NEW);
 		var typeArguments = parseTypeArgumentsOpt();
 		var type = parseGenericType();
-		return parseClassCreatorRest(typeArguments, type);
+		return at(start, parseClassCreatorRest(typeArguments, type));
 	}
 
 	public ClassCreator parseClassCreatorRest(List<? extends TypeArgument> typeArguments, GenericType type) {
@@ -5,6 +5,8 @@ import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import lombok.Getter;
 import lombok.NonNull;
@@ -217,6 +219,9 @@ public enum JavaTokenType implements CharSequence, TokenPredicate<JavaTokenType>
 	
 	public static final Set<JavaTokenType> VALUES = Collections.unmodifiableSet(mutableValues);
 	public static final Set<JavaTokenType> NORMAL_TOKENS = Collections.unmodifiableSet(mutableNormalTokens);
+	/** Matches the {@link #NORMAL_TOKENS}, shared by every tokenizer of Java tokens */
+	public static final TokenMatcher<JavaTokenType> NORMAL_TOKEN_MATCHER =
+			TokenMatcher.of(NORMAL_TOKENS.stream().collect(Collectors.toMap(token -> token.getSymbol().orElseThrow(), token -> token)));
 	
 	/*/// JavaTokenType()
 	private static final Constructor<JavaTokenType> constructor1;
@@ -354,6 +359,23 @@ public enum JavaTokenType implements CharSequence, TokenPredicate<JavaTokenType>
 		return this == t.getType();
 	}
 	
+	@Override
+	public TokenPredicate<JavaTokenType> or(@NonNull Predicate<? super Token<JavaTokenType>> pred) {
+		var result = TokenTypeSet.or(this, pred);
+		return result == null? TokenPredicate.super.or(pred) : result;
+	}
+	
+	@Override
+	public TokenPredicate<JavaTokenType> and(@NonNull Predicate<? super Token<JavaTokenType>> pred) {
+		var result = TokenTypeSet.and(this, pred);
+		return result == null? TokenPredicate.super.and(pred) : result;
+	}
+	
+	@Override
+	public TokenPredicate<JavaTokenType> negate() {
+		return TokenTypeSet.not(this);
+	}
+	
 	public boolean hasTag(@NonNull Tag tag) {
 		return tags.contains(tag);
 	}
@@ -377,6 +399,23 @@ public enum JavaTokenType implements CharSequence, TokenPredicate<JavaTokenType>
 			return token.getType().hasTag(this);
 		}
 		
+		@Override
+		public TokenPredicate<JavaTokenType> or(@NonNull Predicate<? super Token<JavaTokenType>> pred) {
+			var result = TokenTypeSet.or(this, pred);
+			return result == null? TokenPredicate.super.or(pred) : result;
+		}
+		
+		@Override
+		public TokenPredicate<JavaTokenType> and(@NonNull Predicate<? super Token<JavaTokenType>> pred) {
+			var result = TokenTypeSet.and(this, pred);
+			return result == null? TokenPredicate.super.and(pred) : result;
+		}
+		
+		@Override
+		public TokenPredicate<JavaTokenType> negate() {
+			return TokenTypeSet.not(this);
+		}
+		
 	}
 	
 }
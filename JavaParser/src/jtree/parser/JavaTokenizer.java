@@ -3,14 +3,13 @@ package jtree.parser;
 import static java.lang.Character.*;
 
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
 
 import org.apache.commons.text.StringEscapeUtils;
 
 import jtree.nodes.Name;
+import lombok.Getter;
 import lombok.NonNull;
 
 public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
@@ -19,10 +18,18 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 	protected char ch;
 	protected boolean returnedEndmarker = false;
 	protected CharSequence currentLine;
+	@Getter
+	protected final LineTable lineTable;
 	protected TokenType defaultType, stringType, numberType, charType, wordType, errorType, commentType;
 	protected Map<String, TokenType> tokens;
-	protected List<String> sortedTokens, wordTokens;
+	protected TokenMatcher<TokenType> matcher;
 	protected String filename;
+	/**
+	 * The string of the token the last {@code scan} method read if it made one, such as a keyword
+	 * from the token table or a string which is not the same as the text the token was read from,
+	 * else {@code null}
+	 */
+	protected String scannedString;
 	
 	public JavaTokenizer(@NonNull CharSequence str, TokenType defaultType, TokenType errorType, TokenType stringType,
 						 TokenType charType, TokenType numberType, TokenType wordType, TokenType commentType,
@@ -34,6 +41,23 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 						 TokenType errorType, TokenType stringType,
 						 TokenType charType, TokenType numberType, TokenType wordType, TokenType commentType,
 						 @NonNull Map<String,TokenType> tokens) {
+		this(str, filename, defaultType, errorType, stringType, charType, numberType, wordType, commentType, TokenMatcher.of(tokens));
+	}
+
+	public JavaTokenizer(@NonNull CharSequence str, TokenType defaultType, TokenType errorType, TokenType stringType,
+						 TokenType charType, TokenType numberType, TokenType wordType, TokenType commentType,
+						 @NonNull TokenMatcher<TokenType> matcher) {
+		this(str, "<unknown source>", defaultType, errorType, stringType, charType, numberType, wordType, commentType, matcher);
+	}
+
+	/**
+	 * Creates a tokenizer which uses an already made {@link TokenMatcher}, which saves looking it up
+	 * by its token table.
+	 */
+	public JavaTokenizer(@NonNull CharSequence str, @NonNull String filename, TokenType defaultType,
+						 TokenType errorType, TokenType stringType,
+						 TokenType charType, TokenType numberType, TokenType wordType, TokenType commentType,
+						 @NonNull TokenMatcher<TokenType> matcher) {
 		this.str = str;
 		this.pos = 0;
 		this.line = this.column = 1;
@@ -48,31 +72,10 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 		this.charType = charType;
 		this.wordType = wordType;
 		this.commentType = commentType;
-		int i = 0;
-		while(i+1 < str.length() && str.charAt(i) != '\n') {
-			i++;
-		}
-		this.currentLine = i+1 > str.length()? "" : str.subSequence(0, i+1);
-		this.tokens = tokens;
-		/*this.sortedTokens = new TreeSet<>((token1, token2) -> Integer.compare(token2.length(), token1.length()));
-		this.wordTokens = new TreeSet<>((token1, token2) -> Integer.compare(token2.length(), token1.length()));
-		for(var key : tokens.keySet()) {
-			if(isJavaIdentifierPart(key.charAt(key.length()-1))) {
-				boolean added = wordTokens.add(key);
-				assert added;
-			} else {
-				boolean added = sortedTokens.add(key);
-				assert added;
-			}
-		}*/
-		this.sortedTokens = tokens.keySet().stream()
-										   .filter(token -> !isJavaIdentifierPart(token.charAt(token.length()-1)))
-										   .sorted((token1, token2) -> Integer.compare(token2.length(), token1.length()))
-										   .collect(Collectors.toList());
-		this.wordTokens = tokens.keySet().stream()
-										 .filter(token -> isJavaIdentifierPart(token.charAt(token.length()-1)))
-										 .sorted((token1, token2) -> Integer.compare(token2.length(), token1.length()))
-										 .collect(Collectors.toList());
+		this.lineTable = new LineTable(str);
+		this.currentLine = lineTable.getLineText(1);
+		this.matcher = matcher;
+		this.tokens = matcher.getTokens();
 		eatWhite();
 	}
 	
@@ -84,11 +87,7 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 			if(ch == '\n') {
 				line++;
 				column = 1;
-				int i = pos+1;
-				while(i+1 < str.length() && str.charAt(i+1) != '\n') {
-					i++;
-				}
-				currentLine = str.subSequence(pos+1, i+1);
+				currentLine = lineTable.getLineText(line);
 			} else {
 				column += 1;
 			}
@@ -99,31 +98,35 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 	}
 	
 	protected void setPos(int newpos) {
-		if(pos < newpos) {
-			for(int i = 0, end = newpos - pos; i < end && pos < str.length(); i++) {
-				nextChar();
-			}
-		} else if(pos > newpos) {
-			for(int i = 0, end = pos - newpos; i < end && pos > 0; i++) {
-				ch = str.charAt(--pos);
-				if(ch == '\n') {
-					int j = pos-1;
-					while(j > 0 && str.charAt(j) != '\n') {
-						j--;
-					}
-					if(str.charAt(j) == '\n') {
-						j++;
-					}
-					currentLine = str.subSequence(j, pos+1);
-					line--;
-					column = currentLine.length();
-				} else {
-					column--;
-				}
+		if(newpos == pos) {
+			return;
+		}
+		int lineOffset;
+		if(newpos >= str.length()) {
+			// same as stepping there with nextChar(), which leaves the position on the last character
+			ch = 0;
+			pos = str.length();
+			lineOffset = pos-1;
+			if(lineOffset < 0) {
+				return;
 			}
+		} else {
+			pos = Math.max(newpos, 0);
+			ch = str.charAt(pos);
+			lineOffset = pos;
+		}
+		int newline = lineTable.getLine(lineOffset, line);
+		column = lineOffset - lineTable.getLineStart(newline) + 1;
+		if(newline != line) {
+			line = newline;
+			currentLine = lineTable.getLineText(line);
 		}
 	}
 	
+	public Position getPosition(int offset) {
+		return lineTable.getPosition(offset);
+	}
+	
 	protected boolean eat(char c) {
 		if(ch == c) {
 			nextChar();
@@ -136,7 +139,7 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 	protected boolean eat(String sub) {
 		if(pos + sub.length() > str.length()) {
 			return false;
-		} else if(sub.contentEquals(str.subSequence(pos, pos + sub.length()))) {
+		} else if(regionMatches(sub)) {
 			setPos(pos + sub.length());
 			return true;
 		} else {
@@ -147,7 +150,7 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 	protected boolean eatWord(String sub) {
 		if(pos + sub.length() > str.length()) {
 			return false;
-		} else if(sub.contentEquals(str.subSequence(pos, pos + sub.length())) && (pos + sub.length() == str.length() || !isJavaIdentifierPart(str.charAt(pos + sub.length())))) {
+		} else if(regionMatches(sub) && (pos + sub.length() == str.length() || !isJavaIdentifierPart(str.charAt(pos + sub.length())))) {
 			setPos(pos + sub.length());
 			return true;
 		} else {
@@ -155,6 +158,27 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 		}
 	}
 	
+	private boolean regionEquals(String sub, int start, int end) {
+		if(end - start != sub.length()) {
+			return false;
+		}
+		for(int i = 0; i < sub.length(); i++) {
+			if(str.charAt(start + i) != sub.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private boolean regionMatches(String sub) {
+		for(int i = 0; i < sub.length(); i++) {
+			if(str.charAt(pos + i) != sub.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	@Override
 	public boolean hasNext() {
 		return pos < str.length() || !returnedEndmarker;
@@ -183,45 +207,97 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 		eatWhite();
 		return result;
 	}
+
+	/**
+	 * Reads the rest of the tokens into {@code tokens}, recording the type and offsets of each
+	 * without creating a {@link Token} for it. A subclass which changes how tokens are read must
+	 * override this to return {@code false}.
+	 *
+	 * @return whether the tokens were read, else they are to be read through {@link #next()}
+	 */
+	protected boolean readInto(@NonNull TokenList<?> tokens) {
+		while(pos < str.length()) {
+			int start = pos;
+			var type = switch(ch) {
+				case '"' -> scanString('"', stringType);
+				case '\'' -> scanString('\'', charType);
+				case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> scanNumber();
+				case '/' -> scanCommentOrDefault();
+				default -> scanDefault();
+			};
+			int end = tokenOffset();
+			var string = scannedString;
+			scannedString = null;
+			if(end != pos) {
+				// the token runs to the end of the text, one past its end offset
+				if(string == null) {
+					string = str.subSequence(start, pos).toString();
+				}
+			} else if(string != null && regionEquals(string, start, end)) {
+				string = null;
+			}
+			tokens.add(((Enum<?>)type).ordinal(), start, end, string);
+			eatWhite();
+		}
+		if(!returnedEndmarker) {
+			returnedEndmarker = true;
+			int offset = tokenOffset();
+			tokens.add(((Enum<?>)defaultType).ordinal(), offset, offset, null);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the offset of the {@link Position} a token ending here would be given, which stays
+	 *         on the last character at the end of the text, see {@link #nextChar()}
+	 */
+	protected int tokenOffset() {
+		return pos < str.length()? pos : Math.max(str.length()-1, 0);
+	}
 	
 	protected Token<TokenType> defaultNext() {
 		if(ch == '.' && pos + 1 < str.length() && isDigit(str.charAt(pos+1))) {
 			return eatNumber();
 		}
 		var start = new Position(line, column);
-		for(String word : wordTokens) {
-			if(eatWord(word)) {
-				var end = new Position(line, column);
-				return new Token<>(tokens.get(word), word, start, end, currentLine);
-			}
-		}
-		for(String symbol : sortedTokens) {
-			if(eat(symbol)) {
-				var end = new Position(line, column);
-				return new Token<>(tokens.get(symbol), symbol, start, end, currentLine);
-			}
+		int startPos = pos;
+		return token(scanDefault(), startPos, start);
+	}
+
+	/**
+	 * Same as {@link #defaultNext()}, but only returns the type of the token.
+	 */
+	protected TokenType scanDefault() {
+		if(ch == '.' && pos + 1 < str.length() && isDigit(str.charAt(pos+1))) {
+			return scanNumber();
 		}
-		
 		int startPos = pos;
+		int wordEnd = TokenMatcher.wordEnd(str, pos);
+		String word = matcher.matchWord(str, pos, wordEnd);
+		if(word != null) {
+			setPos(pos + word.length());
+			scannedString = word;
+			return tokens.get(word);
+		}
+		String symbol = matcher.matchSymbol(str, pos);
+		if(symbol != null) {
+			setPos(pos + symbol.length());
+			scannedString = symbol;
+			return tokens.get(symbol);
+		}
 		
 		if(isJavaIdentifierStart(ch)) {
-			int endPos = pos+1;
-			nextChar();
-			while(pos < str.length() && isJavaIdentifierPart(ch)) {
-				endPos = pos+1;
-				nextChar();
-			}
-			var end = new Position(line, column);
-			var content = str.subSequence(startPos, endPos).toString();
+			setPos(wordEnd);
+			var content = str.subSequence(startPos, wordEnd).toString();
 			if(!Name.isValidName(content)) {
 				throw new AssertionError(StringEscapeUtils.escapeJava(content));
 			}
-			return new Token<>(wordType, content, start, end, currentLine);
+			scannedString = content;
+			return wordType;
 		}
 
 		nextChar();
-		var end = new Position(line, column);
-		return new Token<>(errorType, str.subSequence(startPos, pos).toString(), start, end, currentLine);
+		return errorType;
 	}
 	
 	protected void eatWhite() {
@@ -231,9 +307,27 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 	}
 	
 	protected Token<TokenType> eatCommentOrDefault() {
+		if(!isCommentStart()) {
+			return defaultNext();
+		}
 		var start = new Position(line, column);
-		var startPos = pos;
-		var startPos2 = pos - column + 1;
+		int startPos = pos;
+		return token(scanComment(), startPos, start);
+	}
+
+	protected boolean isCommentStart() {
+		return ch == '/' && pos + 1 < str.length() && (str.charAt(pos+1) == '/' || str.charAt(pos+1) == '*');
+	}
+
+	/**
+	 * Same as {@link #eatCommentOrDefault()}, but only returns the type of the token.
+	 */
+	protected TokenType scanCommentOrDefault() {
+		return isCommentStart()? scanComment() : scanDefault();
+	}
+
+	protected TokenType scanComment() {
+		int startPos = pos;
 		if(eat("//")) {							// single-line comment
 			while(pos < str.length() && !eat('\n')) {
 				nextChar();
@@ -242,18 +336,13 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 			while(pos < str.length() && !eat("*/")) {
 				nextChar();
 			}
-		} else {								// not a comment
-			return defaultNext();
 		}
-		var end = new Position(line, column);
-		int i = pos;
-		while(i+1 < str.length() && str.charAt(i) != '\n') {
-			i++;
-		}
-		if(i+1 > str.length()) {
-			i = str.length()-1;
+		var text = str.subSequence(startPos, pos).toString();
+		var string = text.indent(-100);
+		if(!string.equals(text)) {
+			scannedString = string;
 		}
-		return new Token<>(commentType, str.subSequence(startPos, pos).toString().indent(-100), start, end, str.subSequence(startPos2, i+1));
+		return commentType;
 	}
 	
 	protected Token<TokenType> eatString() {
@@ -265,52 +354,72 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
 	}
 
 	protected Token<TokenType> eatString(char ends, TokenType type) {
-		assert ch == ends;
 		var start = new Position(line, column);
-		int startPos = pos - column + 1;
+		int startPos = pos;
+		return token(scanString(ends, type), startPos, start);
+	}
+
+	/**
+	 * Same as {@link #eatString(char, TokenType)}, but only returns {@code type}.
+	 */
+	protected TokenType scanString(char ends, TokenType type) {
+		assert ch == ends;
+		int startPos = pos;
 		nextChar();
-		var sb = new StringBuilder();
-		sb.append(ends);
+		// only made for a line continuation, which is left out of the string
+		StringBuilder sb = null;
+		int copied = startPos;
 		boolean escape = false;
 		while(pos < str.length() && (ch != ends && ch != '\n' || escape)) {
 			if(escape) {
 				escape = false;
 				if(ch == '\n') {
+					if(sb == null) {
+						sb = new StringBuilder();
+					}
+					sb.append(str, copied, pos-1);
 					nextChar();
 					while(ch != '\n' && isWhitespace(ch)) {
 						nextChar();
 					}
+					copied = pos;
 					continue;
-				} else {
-					sb.append('\\').append(ch);
 				}
 			} else if(ch == '\\') {
 				escape = true;
-			} else {
-				sb.append(ch);
 			}
 			nextChar();
 		}
 		if(!eat(ends)) {
 			throw new SyntaxError("unterminated string", filename, line, column, currentLine);
 		}
-		sb.append(ends);
-		var end = new Position(line, column);
-		int i = pos;
-		while(i+1 < str.length() && str.charAt(i) != '\n') {
-			i++;
-		}
-		if(i+1 > str.length()) {
-			i = str.length()-1;
+		if(sb != null) {
+			scannedString = sb.append(str, copied, pos).toString();
 		}
-		return new Token<>(type, sb.toString(), start, end, str.subSequence(startPos, i+1));
+		return type;
+	}
+
+	/**
+	 * @return a token of the given type from {@code startPos} to the current position
+	 */
+	private Token<TokenType> token(TokenType type, int startPos, Position start) {
+		var string = scannedString != null? scannedString : str.subSequence(startPos, pos).toString();
+		scannedString = null;
+		var end = new Position(line, column);
+		return new Token<>(type, string, start, end, start.getLine() == line? currentLine : lineTable.getLineText(start.getLine(), line));
 	}
 	
 	protected Token<TokenType> eatNumber() {
-		assert ch == '.' || isDigit(ch);
-		
-		int startPos = pos;
 		var start = new Position(line, column);
+		int startPos = pos;
+		return token(scanNumber(), startPos, start);
+	}
+
+	/**
+	 * Same as {@link #eatNumber()}, but only returns the type of the token.
+	 */
+	protected TokenType scanNumber() {
+		assert ch == '.' || isDigit(ch);
 		
 		if(eat("0x") || eat("0X")) {
 			if(!isHexDigit(ch)) {
@@ -505,8 +614,7 @@ public class JavaTokenizer<TokenType> implements Iterator<Token<TokenType>> {
     		
 		}
 		
-		var end = new Position(line, column);
-		return new Token<>(numberType, str.subSequence(startPos, pos).toString(), start, end, currentLine);
+		return numberType;
 	}
 	
 	public static boolean isOctalDigit(char c) {
@@ -0,0 +1,223 @@
+package jtree.parser;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import jtree.nodes.Node;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Maps character offsets of a source text to line and column numbers.
+ * The offsets at which lines start are recorded incrementally as far as they have been
+ * needed, so position queries cost a binary search instead of a scan over the text.
+ * Lines and columns are 1-based, and the {@code '\n'} ending a line belongs to that line.
+ */
+public final class LineTable {
+	@Getter
+	private final CharSequence text;
+	private int[] starts = new int[64];
+	private int count = 1;
+	/** How far the text has been searched for line breaks */
+	private int scanned = 0;
+
+	public LineTable(@NonNull CharSequence text) {
+		this.text = text;
+	}
+
+	private void ensureScanned(int offset) {
+		if(offset < scanned) {
+			return;
+		}
+		int end = Math.min(offset + 1, text.length());
+		for(int i = scanned; i < end; i++) {
+			if(text.charAt(i) == '\n') {
+				if(count == starts.length) {
+					starts = Arrays.copyOf(starts, count * 2);
+				}
+				starts[count++] = i+1;
+			}
+		}
+		scanned = Math.max(scanned, end);
+	}
+
+	private void ensureLine(int line) {
+		while(count <= line && scanned < text.length()) {
+			int next = scanned + Math.max(1024, scanned >> 3);
+			ensureScanned(next);
+		}
+	}
+
+	/**
+	 * @return the number of the line containing {@code offset}
+	 */
+	public int getLine(int offset) {
+		ensureScanned(offset);
+		int low = 0, high = count - 1;
+		while(low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if(starts[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low + 1;
+	}
+
+	/**
+	 * Same as {@link #getLine(int)}, but checks {@code hint} and the line after it
+	 * before doing a search. This makes sequential queries constant-time.
+	 */
+	public int getLine(int offset, int hint) {
+		if(hint >= 1 && hint <= count) {
+			ensureScanned(offset);
+			int start = starts[hint-1];
+			if(start <= offset) {
+				if(hint == count || offset < starts[hint]) {
+					return hint;
+				}
+				if(hint+1 == count || offset < starts[hint+1]) {
+					return hint+1;
+				}
+			}
+		}
+		return getLine(offset);
+	}
+
+	public int getColumn(int offset) {
+		return offset - getLineStart(getLine(offset)) + 1;
+	}
+
+	public Position getPosition(int offset) {
+		int line = getLine(offset);
+		return new Position(line, offset - getLineStart(line) + 1);
+	}
+
+	/**
+	 * @return where {@code node} starts, see {@link Node#start()}
+	 * @throws IllegalArgumentException if the node was not parsed
+	 */
+	public Position getStart(@NonNull Node node) {
+		if(node.start() < 0) {
+			throw new IllegalArgumentException("node has no range");
+		}
+		return getPosition(node.start());
+	}
+
+	/**
+	 * @return the position just past the end of {@code node}, see {@link Node#end()}
+	 * @throws IllegalArgumentException if the node was not parsed
+	 */
+	public Position getEnd(@NonNull Node node) {
+		if(node.end() < 0) {
+			throw new IllegalArgumentException("node has no range");
+		}
+		return getPosition(node.end());
+	}
+
+	/**
+	 * @return the offset of the first character of the given line
+	 */
+	public int getLineStart(int line) {
+		ensureLine(line - 1);
+		if(line < 1 || line > count) {
+			throw new IndexOutOfBoundsException("line " + line);
+		}
+		return starts[line-1];
+	}
+
+	/**
+	 * @return the offset of the {@code '\n'} ending the given line, or the length of the text
+	 *         if it is the last line
+	 */
+	public int getLineEnd(int line) {
+		ensureLine(line);
+		if(line < 1 || line > count) {
+			throw new IndexOutOfBoundsException("line " + line);
+		}
+		return line == count? text.length() : starts[line] - 1;
+	}
+
+	/**
+	 * @return a view of the text of the given line, excluding its line break
+	 */
+	public CharSequence getLineText(int line) {
+		return getLineText(line, line);
+	}
+
+	/**
+	 * @return a view of the text from the start of {@code firstLine} to the end of {@code lastLine},
+	 *         excluding the final line break
+	 */
+	public CharSequence getLineText(int firstLine, int lastLine) {
+		return new LineView(getLineStart(firstLine), lastLine);
+	}
+
+	/**
+	 * Lazily bounded view of a range of lines. The end of the last line is only searched for
+	 * once the contents are actually needed, usually to report a {@link SyntaxError}.
+	 */
+	private class LineView implements CharSequence {
+		private final int start, lastLine;
+		private int end = -1;
+
+		LineView(int start, int lastLine) {
+			this.start = start;
+			this.lastLine = lastLine;
+		}
+
+		private int end() {
+			if(end == -1) {
+				end = getLineEnd(lastLine);
+			}
+			return end;
+		}
+
+		@Override
+		public int length() {
+			return end() - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return text.charAt(start + Objects.checkIndex(index, length()));
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if(start < 0 || end > length() || start > end) {
+				throw new IndexOutOfBoundsException();
+			}
+			return text.subSequence(this.start + start, this.start + end);
+		}
+
+		@Override
+		public String toString() {
+			return text.subSequence(start, end()).toString();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(obj == this) {
+				return true;
+			}
+			if(!(obj instanceof LineView)) {
+				return false;
+			}
+			var other = (LineView)obj;
+			return length() == other.length() && CharSequence.compare(this, other) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = 0;
+			for(int i = start, end = end(); i < end; i++) {
+				h = 31*h + text.charAt(i);
+			}
+			return h;
+		}
+	}
+
+}
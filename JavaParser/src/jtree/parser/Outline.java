@@ -0,0 +1,35 @@
+package jtree.parser;
+
+import java.util.List;
+import java.util.Optional;
+
+import jtree.nodes.ImportDecl;
+import jtree.nodes.Member;
+import jtree.nodes.PackageDecl;
+import jtree.nodes.TypeDecl;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * The declarations of a compilation unit and where they are, see {@link JavaParser#parseOutline()}.
+ * Method, constructor and initializer bodies are empty, and fields and enum constants have no
+ * initializers, arguments or bodies.
+ */
+public @Value class Outline {
+	@NonNull Optional<PackageDecl> packageDecl;
+	@NonNull List<ImportDecl> imports;
+	@NonNull List<TypeOutline> types;
+
+	public static @Value class TypeOutline {
+		@NonNull TypeDecl declaration;
+		@NonNull Position start, end;
+		/** The members of the type other than nested types, enum constants first */
+		@NonNull List<MemberOutline> members;
+		@NonNull List<TypeOutline> types;
+	}
+
+	public static @Value class MemberOutline {
+		@NonNull Member declaration;
+		@NonNull Position start, end;
+	}
+}
@@ -0,0 +1,45 @@
+package jtree.parser;
+
+import java.util.function.BiFunction;
+
+import lombok.NonNull;
+
+/**
+ * Hands out one parser per thread, {@link JavaParser#reset(CharSequence, String) reset} for each
+ * text, for code which parses many small snippets. A parser it returns may only be used until
+ * the same thread asks the pool for another one.
+ */
+public final class ParserPool<P extends JavaParser> {
+	private final BiFunction<? super CharSequence, ? super String, ? extends P> constructor;
+	private final ThreadLocal<P> parsers = new ThreadLocal<>();
+
+	/**
+	 * @param constructor creates a parser for a text and file name, such as {@code JavaParser::new}
+	 */
+	public ParserPool(@NonNull BiFunction<? super CharSequence, ? super String, ? extends P> constructor) {
+		this.constructor = constructor;
+	}
+
+	public P get(@NonNull CharSequence text, @NonNull String filename) {
+		var parser = parsers.get();
+		if(parser == null) {
+			parser = constructor.apply(text, filename);
+			parsers.set(parser);
+		} else {
+			parser.reset(text, filename);
+		}
+		return parser;
+	}
+
+	public P get(CharSequence text) {
+		return get(text, "<unknown source>");
+	}
+
+	/**
+	 * Drops the current thread's parser, along with the buffers it holds on to.
+	 */
+	public void remove() {
+		parsers.remove();
+	}
+
+}
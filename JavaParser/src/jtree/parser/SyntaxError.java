@@ -1,11 +1,17 @@
 package jtree.parser;
 
+import java.util.function.Supplier;
+
+import lombok.Getter;
 import lombok.Setter;
 
 public class SyntaxError extends RuntimeException {
+	@Getter
 	private int lineNumber, column;
 	private CharSequence line;
-	@Setter
+	/** If not {@code null}, builds the message in place of the one given to the superclass */
+	private Supplier<String> message;
+	@Getter @Setter
 	private String filename;
 
 	public SyntaxError(String message, String filename, int lineNumber, int column, CharSequence line) {
@@ -15,10 +21,19 @@ public class SyntaxError extends RuntimeException {
 		this.column = column;
 		this.line = line;
 	}
+
+	/**
+	 * @param message builds the message when it is asked for. Parsers throw and discard many errors
+	 *                while trying alternatives, and messages which describe tokens are costly to format.
+	 */
+	public SyntaxError(Supplier<String> message, String filename, int lineNumber, int column, CharSequence line) {
+		this((String)null, filename, lineNumber, column, line);
+		this.message = message;
+	}
 	
 	@Override
 	public String getMessage() {
-		return super.getMessage() + "\n" + (filename == null? "" : "in file " + filename + " ") + "on line " + lineNumber + ":" + formatLine(line, column);
+		return (message == null? super.getMessage() : message.get()) + "\n" + (filename == null? "" : "in file " + filename + " ") + "on line " + lineNumber + ":" + formatLine(line, column);
 	}
 	
 	private static String formatLine(CharSequence line, int column) {
@@ -15,7 +15,6 @@ import java.util.Scanner;
 import java.util.Stack;
 import java.util.function.Function;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.text.StringEscapeUtils;
@@ -531,8 +530,7 @@ public class Tester {
 	
 	protected JavaTokenizer<JavaTokenType> createTokenizer(CharSequence text, String filename) {
 		return new JavaTokenizer<>(text, filename, ENDMARKER, ERRORTOKEN, STRING, CHARACTER, NUMBER, NAME, COMMENT,
-				   JavaTokenType.NORMAL_TOKENS.stream()
-				   							  .collect(Collectors.toMap(token -> token.getSymbol().orElseThrow(), token -> token)));
+				   JavaTokenType.NORMAL_TOKEN_MATCHER);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -633,7 +631,7 @@ public class Tester {
 										throw e.getCause();
 									}
 									if(!parser.accept(ENDMARKER)) {
-										throw parser.syntaxError("unexpected token " + parser.token, parser.token);
+										throw parser.syntaxError("unexpected token " + parser.getToken(), parser.getToken());
 									}
 									return result;
 								}
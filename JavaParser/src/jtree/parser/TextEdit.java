@@ -0,0 +1,36 @@
+package jtree.parser;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Replaces the characters from {@code start} up to {@code end} of a text with {@code replacement}.
+ */
+public @Value class TextEdit {
+	int start, end;
+	@NonNull String replacement;
+
+	public TextEdit(int start, int end, @NonNull String replacement) {
+		if(start < 0 || end < start) {
+			throw new IllegalArgumentException("invalid range " + start + ".." + end);
+		}
+		this.start = start;
+		this.end = end;
+		this.replacement = replacement;
+	}
+
+	public static TextEdit insert(int offset, String text) {
+		return new TextEdit(offset, offset, text);
+	}
+
+	public static TextEdit delete(int start, int end) {
+		return new TextEdit(start, end, "");
+	}
+
+	/**
+	 * @return how much longer the text gets
+	 */
+	public int delta() {
+		return replacement.length() - (end - start);
+	}
+}
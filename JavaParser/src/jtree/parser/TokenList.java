@@ -0,0 +1,189 @@
+package jtree.parser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Compact token storage which keeps the type ordinal and the start and end offsets of each
+ * token in primitive arrays over the source text. A token's string is only stored when it
+ * differs from the source text it was read from, as with comments, whose indentation is removed.
+ * {@link Token} objects are created on request by {@link #get(int)}, and the last few of them
+ * are cached so that looking at the same token repeatedly does not create it again.
+ */
+public final class TokenList<TokenType extends Enum<TokenType>> extends AbstractList<Token<TokenType>> implements RandomAccess {
+	private static final int CACHE_SIZE = 32;
+
+	private final TokenType[] typeValues;
+	@Getter
+	private final LineTable lineTable;
+	private final CharSequence text;
+	private int[] types, starts, ends;
+	private String[] strings;
+	private int size;
+
+	private final Token<TokenType>[] cache;
+	private final int[] cacheIndices;
+
+	/**
+	 * Reads all tokens from {@code tokenizer}.
+	 */
+	@SuppressWarnings("unchecked")
+	public TokenList(@NonNull Class<TokenType> tokenTypeClass, @NonNull JavaTokenizer<TokenType> tokenizer) {
+		this.typeValues = tokenTypeClass.getEnumConstants();
+		this.lineTable = tokenizer.getLineTable();
+		this.text = lineTable.getText();
+		// sources run from about 5 characters per token in dense code to over 10 in heavily commented code
+		int capacity = 16 + text.length() / 8;
+		this.types = new int[capacity];
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		this.strings = new String[capacity];
+		this.cache = (Token<TokenType>[])new Token<?>[CACHE_SIZE];
+		this.cacheIndices = new int[CACHE_SIZE];
+		Arrays.fill(cacheIndices, -1);
+		if(!tokenizer.readInto(this)) {
+			while(tokenizer.hasNext()) {
+				add(tokenizer.next());
+			}
+		}
+		if(size < types.length) {
+			types = Arrays.copyOf(types, size);
+			starts = Arrays.copyOf(starts, size);
+			ends = Arrays.copyOf(ends, size);
+			strings = Arrays.copyOf(strings, size);
+		}
+	}
+
+	@Override
+	public boolean add(Token<TokenType> token) {
+		int start = offsetOf(token.getStart());
+		int end = offsetOf(token.getEnd());
+		String string = token.getString();
+		add(token.getType().ordinal(), start, end, string.contentEquals(text.subSequence(start, end))? null : string);
+		return true;
+	}
+
+	/**
+	 * Adds a token read by {@link JavaTokenizer#readInto(TokenList)}.
+	 *
+	 * @param string the token's string, or {@code null} if it is the same as the text from {@code start} to {@code end}
+	 */
+	void add(int type, int start, int end, String string) {
+		if(size == types.length) {
+			int capacity = size + (size >> 1);
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			strings = Arrays.copyOf(strings, capacity);
+		}
+		types[size] = type;
+		starts[size] = start;
+		ends[size] = end;
+		strings[size] = string;
+		size++;
+		modCount++;
+	}
+
+	private int offsetOf(Position position) {
+		return Math.min(lineTable.getLineStart(position.getLine()) + position.getColumn() - 1, text.length());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public int getTypeOrdinal(int index) {
+		return types[checkIndex(index)];
+	}
+
+	public TokenType getType(int index) {
+		return typeValues[types[checkIndex(index)]];
+	}
+
+	/**
+	 * @return the offset in the source text at which the token starts
+	 */
+	public int getStart(int index) {
+		return starts[checkIndex(index)];
+	}
+
+	/**
+	 * @return the offset in the source text just past the end of the token
+	 */
+	public int getEnd(int index) {
+		return ends[checkIndex(index)];
+	}
+
+	public String getString(int index) {
+		var string = strings[checkIndex(index)];
+		if(string == null) {
+			return text.subSequence(starts[index], ends[index]).toString();
+		} else {
+			return string;
+		}
+	}
+
+	/**
+	 * @return whether the token's string is equal to {@code str}, without creating the string
+	 */
+	public boolean stringEquals(int index, @NonNull String str) {
+		var string = strings[checkIndex(index)];
+		if(string != null) {
+			return string.equals(str);
+		}
+		int start = starts[index];
+		if(ends[index] - start != str.length()) {
+			return false;
+		}
+		for(int i = 0; i < str.length(); i++) {
+			if(text.charAt(start + i) != str.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Token<TokenType> get(int index) {
+		checkIndex(index);
+		int slot = index & (CACHE_SIZE-1);
+		if(cacheIndices[slot] == index) {
+			return cache[slot];
+		}
+		var start = lineTable.getPosition(starts[index]);
+		var end = lineTable.getPosition(ends[index]);
+		var token = new Token<>(typeValues[types[index]], getString(index), start, end, lineTable.getLineText(start.getLine(), end.getLine()));
+		cache[slot] = token;
+		cacheIndices[slot] = index;
+		return token;
+	}
+
+	@Override
+	public Iterator<Token<TokenType>> iterator() {
+		return new Iterator<>() {
+			int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public Token<TokenType> next() {
+				return get(index++);
+			}
+		};
+	}
+
+	private int checkIndex(int index) {
+		return Objects.checkIndex(index, size);
+	}
+
+}
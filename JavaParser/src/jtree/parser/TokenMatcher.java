@@ -0,0 +1,240 @@
+package jtree.parser;
+
+import static java.lang.Character.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Precomputed lookup structure for the fixed tokens of a token table.
+ * Keywords (tokens made up entirely of identifier characters) are found through a
+ * perfect hash of the scanned word, and all other tokens through a longest-match
+ * character trie. Instances are immutable and shared between tokenizers which use an
+ * equal token table.
+ */
+public final class TokenMatcher<TokenType> {
+	private static final ConcurrentHashMap<Map<String,?>, TokenMatcher<?>> cache = new ConcurrentHashMap<>();
+
+	@SuppressWarnings("unchecked")
+	public static <TokenType> TokenMatcher<TokenType> of(@NonNull Map<String,TokenType> tokens) {
+		var matcher = (TokenMatcher<TokenType>)cache.get(tokens);
+		if(matcher == null) {
+			var copy = Map.copyOf(tokens);
+			matcher = (TokenMatcher<TokenType>)cache.computeIfAbsent(copy, key -> new TokenMatcher<>(copy));
+		}
+		return matcher;
+	}
+
+	@Getter
+	private final Map<String,TokenType> tokens;
+
+	private final String[] keywords;
+	private final int keywordMask, keywordSeed;
+
+	/** Tokens ending in an identifier character which still cannot go through the keyword hash, longest first */
+	private final String[] otherWords;
+
+	private final Node root = new Node();
+
+	private TokenMatcher(Map<String,TokenType> tokens) {
+		this.tokens = tokens;
+		var keywords = new ArrayList<String>();
+		var otherWords = new ArrayList<String>();
+		for(var key : tokens.keySet()) {
+			if(key.isEmpty()) {
+				throw new IllegalArgumentException("empty token");
+			}
+			if(isJavaIdentifierPart(key.charAt(key.length()-1))) {
+				if(key.chars().allMatch(Character::isJavaIdentifierPart)) {
+					keywords.add(key);
+				} else {
+					otherWords.add(key);
+				}
+			} else {
+				root.insert(key);
+			}
+		}
+		otherWords.sort((word1, word2) -> Integer.compare(word2.length(), word1.length()));
+		this.otherWords = otherWords.toArray(new String[otherWords.size()]);
+
+		int size = Integer.highestOneBit(Math.max(keywords.size(), 1)) << 1;
+		for(;;) {
+			int seed = findSeed(keywords, size-1);
+			if(seed != -1) {
+				this.keywordMask = size-1;
+				this.keywordSeed = seed;
+				break;
+			}
+			size <<= 1;
+		}
+		this.keywords = new String[size];
+		for(var keyword : keywords) {
+			int i = hash(keyword, 0, keyword.length(), keywordSeed) & keywordMask;
+			this.keywords[i] = keyword;
+		}
+	}
+
+	private static int findSeed(List<String> keywords, int mask) {
+		var used = new boolean[mask+1];
+		seeds:
+		for(int seed = 1; seed < 4096; seed++) {
+			Arrays.fill(used, false);
+			for(var keyword : keywords) {
+				int i = hash(keyword, 0, keyword.length(), seed) & mask;
+				if(used[i]) {
+					continue seeds;
+				}
+				used[i] = true;
+			}
+			return seed;
+		}
+		return -1;
+	}
+
+	private static int hash(CharSequence str, int start, int end, int seed) {
+		int h = seed * 0x9E3779B9;
+		for(int i = start; i < end; i++) {
+			h = (h ^ str.charAt(i)) * 0x01000193;
+		}
+		h ^= h >>> 15;
+		h *= 0x2C1B3C6D;
+		return h ^ (h >>> 13);
+	}
+
+	/**
+	 * @return the index just past the run of identifier characters starting at {@code start}
+	 */
+	public static int wordEnd(CharSequence str, int start) {
+		int end = start;
+		while(end < str.length() && isJavaIdentifierPart(str.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * @return the keyword spelled by {@code str[start:end]}, or {@code null} if there is none
+	 */
+	public String keyword(CharSequence str, int start, int end) {
+		if(start == end) {
+			return null;
+		}
+		int i = hash(str, start, end, keywordSeed) & keywordMask;
+		var keyword = keywords[i];
+		if(keyword == null || keyword.length() != end - start) {
+			return null;
+		}
+		for(int j = 0; j < keyword.length(); j++) {
+			if(keyword.charAt(j) != str.charAt(start + j)) {
+				return null;
+			}
+		}
+		return keyword;
+	}
+
+	/**
+	 * Finds a word token at {@code start}, which must be followed by a non-identifier character.
+	 * @param end the result of {@link #wordEnd(CharSequence, int) wordEnd(str, start)}
+	 * @return the word token, or {@code null} if there is none
+	 */
+	public String matchWord(CharSequence str, int start, int end) {
+		var keyword = keyword(str, start, end);
+		if(keyword != null) {
+			return keyword;
+		}
+		for(var word : otherWords) {
+			if(regionMatches(str, start, word) && (start + word.length() == str.length() || !isJavaIdentifierPart(str.charAt(start + word.length())))) {
+				return word;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a word token at {@code start}, like {@link #matchWord(CharSequence, int, int)}
+	 * with the end of the word found by {@link #wordEnd(CharSequence, int)}.
+	 * @return the keyword spelled by the identifier characters at {@code start}, else the longest other
+	 *         token ending in an identifier character which is there and not followed by one,
+	 *         or {@code null} if there is none
+	 */
+	public String matchWord(CharSequence str, int start) {
+		return matchWord(str, start, wordEnd(str, start));
+	}
+
+	/**
+	 * @return the longest non-word token at {@code start}, or {@code null} if there is none
+	 */
+	public String matchSymbol(CharSequence str, int start) {
+		Node node = root;
+		String result = null;
+		for(int i = start; i < str.length(); i++) {
+			node = node.child(str.charAt(i));
+			if(node == null) {
+				break;
+			}
+			if(node.symbol != null) {
+				result = node.symbol;
+			}
+		}
+		return result;
+	}
+
+	private static boolean regionMatches(CharSequence str, int start, String sub) {
+		if(start + sub.length() > str.length()) {
+			return false;
+		}
+		for(int i = 0; i < sub.length(); i++) {
+			if(str.charAt(start + i) != sub.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static class Node {
+		/** Children indexed directly by their character, used for ASCII */
+		Node[] ascii;
+		HashMap<Character,Node> others;
+		String symbol;
+
+		Node child(char c) {
+			if(c < 128) {
+				return ascii == null? null : ascii[c];
+			} else {
+				return others == null? null : others.get(c);
+			}
+		}
+
+		void insert(String symbol) {
+			Node node = this;
+			for(int i = 0; i < symbol.length(); i++) {
+				char c = symbol.charAt(i);
+				Node next = node.child(c);
+				if(next == null) {
+					next = new Node();
+					if(c < 128) {
+						if(node.ascii == null) {
+							node.ascii = new Node[128];
+						}
+						node.ascii[c] = next;
+					} else {
+						if(node.others == null) {
+							node.others = new HashMap<>();
+						}
+						node.others.put(c, next);
+					}
+				}
+				node = next;
+			}
+			node.symbol = symbol;
+		}
+	}
+
+}
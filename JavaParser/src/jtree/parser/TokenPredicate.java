@@ -12,7 +12,6 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 	@Override
 	default TokenPredicate<TokenType> or(@NonNull Predicate<? super Token<TokenType>> pred) {
 		var oldThis = this;
-		var str = oldThis.toString() + " || " + pred.toString();
 		return new TokenPredicate<>() {
 			
 			public boolean test(Token<TokenType> token) {
@@ -20,7 +19,7 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 			}
 			
 			public String toString() {
-				return str; 
+				return oldThis.toString() + " || " + pred.toString();
 			}
 			
 		};
@@ -28,7 +27,6 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 	
 	default TokenPredicate<TokenType> or(@NonNull String str) {
 		var oldThis = this;
-		var toString = oldThis.toString() + " || \"" + StringEscapeUtils.escapeJava(str) + '"';
 		return new TokenPredicate<>() {
 			
 			public boolean test(Token<TokenType> token) {
@@ -36,7 +34,7 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 			}
 			
 			public String toString() {
-				return toString;
+				return oldThis.toString() + " || \"" + StringEscapeUtils.escapeJava(str) + '"';
 			}
 			
 		};
@@ -45,71 +43,6 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 	@Override
 	default TokenPredicate<TokenType> and(@NonNull Predicate<? super Token<TokenType>> pred) {
 		var oldThis = this;
-		String toString1 = oldThis.toString(), toString2 = pred.toString();
-		int depth;
-		boolean inString, escape;
-		char stringChar;
-		depth = stringChar = 0;
-		inString = escape = false;
-	loop:
-		for(int i = 0; i < toString1.length(); i++) {
-			char c = toString1.charAt(i);
-			if(inString) {
-				if(escape) {
-					escape = false;
-				} else if(c == stringChar) {
-    				inString = false;
-				} else if(c == '\\') {
-					escape = true;
-				}
-			} else {
-    			switch(c) {
-    				case '(' -> depth++;
-    				case ')' -> depth--;
-    				case '"', '\'' -> {
-    					inString = true;
-    					stringChar = c;
-    				}
-    				case '|' -> {
-    					if(depth == 0 && i + 1 < toString1.length() && toString1.charAt(i+1) == '|') {
-    						toString1 = '(' + toString1 + ')';
-    						break loop;
-    					}
-    				}
-    			}
-			}
-		}
-		depth = stringChar = 0;
-		inString = escape = false;
-	loop:
-		for(int i = 0; i < toString2.length(); i++) {
-			char c = toString2.charAt(i);
-			if(inString) {
-				if(escape) {
-					escape = false;
-				} else if(c == stringChar) {
-    				inString = false;
-				} else if(c == '\\') {
-					escape = true;
-				}
-			} else {
-    			switch(c) {
-    				case '(' -> depth++;
-    				case ')' -> depth--;
-    				case '"', '\'' -> {
-    					inString = true;
-    					stringChar = c;
-    				}
-    				case '|' -> {
-    					if(depth == 0 && i + 1 < toString2.length() && toString2.charAt(i+1) == '|') {
-    						toString2 = '(' + toString2 + ')';
-    						break loop;
-    					}
-    				}
-    			}
-			}
-		}
-		var toString = toString1 + " && " + toString2;
 		return new TokenPredicate<>() {
 			
 			public boolean test(Token<TokenType> token) {
@@ -117,7 +50,7 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 			}
 			
 			public String toString() {
-				return toString;
+				return parenthesize(oldThis.toString(), false) + " && " + parenthesize(pred.toString(), false);
 			}
 			
 		};
@@ -125,41 +58,6 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 	
 	default TokenPredicate<TokenType> and(@NonNull String str) {
 		var oldThis = this;
-		String toString1 = oldThis.toString();
-		int depth;
-		boolean inString, escape;
-		char stringChar;
-		depth = stringChar = 0;
-		inString = escape = false;
-	loop:
-		for(int i = 0; i < toString1.length(); i++) {
-			char c = toString1.charAt(i);
-			if(inString) {
-				if(escape) {
-					escape = false;
-				} else if(c == stringChar) {
-    				inString = false;
-				} else if(c == '\\') {
-					escape = true;
-				}
-			} else {
-    			switch(c) {
-    				case '(' -> depth++;
-    				case ')' -> depth--;
-    				case '"', '\'' -> {
-    					inString = true;
-    					stringChar = c;
-    				}
-    				case '|' -> {
-    					if(depth == 0 && i + 1 < toString1.length() && toString1.charAt(i+1) == '|') {
-    						toString1 = '(' + toString1 + ')';
-    						break loop;
-    					}
-    				}
-    			}
-			}
-		}
-		var toString = toString1 + " && \"" + StringEscapeUtils.escapeJava(str) + '"';
 		return new TokenPredicate<>() {
 			
 			public boolean test(Token<TokenType> token) {
@@ -167,7 +65,7 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 			}
 			
 			public String toString() {
-				return toString;
+				return parenthesize(oldThis.toString(), false) + " && \"" + StringEscapeUtils.escapeJava(str) + '"';
 			}
 			
 		};
@@ -177,51 +75,9 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 	default TokenPredicate<TokenType> negate() {
 		class NotTokenPredicate implements TokenPredicate<TokenType> {
 			private final TokenPredicate<TokenType> pred;
-			private final String toString;
 			
 			public NotTokenPredicate(TokenPredicate<TokenType> pred) {
 				this.pred = pred;
-				String toString1 = pred.toString();
-				int depth;
-				boolean inString, escape;
-				char stringChar;
-				depth = stringChar = 0;
-				inString = escape = false;
-			loop:
-				for(int i = 0; i < toString1.length(); i++) {
-					char c = toString1.charAt(i);
-					if(inString) {
-						if(escape) {
-							escape = false;
-						} else if(c == stringChar) {
-		    				inString = false;
-						} else if(c == '\\') {
-							escape = true;
-						}
-					} else {
-		    			switch(c) {
-		    				case '(' -> depth++;
-		    				case ')' -> depth--;
-		    				case '"', '\'' -> {
-		    					inString = true;
-		    					stringChar = c;
-		    				}
-		    				case '&' -> {
-		    					if(depth == 0 && i + 1 < toString1.length() && toString1.charAt(i+1) == '&') {
-		    						toString1 = '(' + toString1 + ')';
-		    						break loop;
-		    					}
-		    				}
-		    				case '|' -> {
-		    					if(depth == 0 && i + 1 < toString1.length() && toString1.charAt(i+1) == '|') {
-		    						toString1 = '(' + toString1 + ')';
-		    						break loop;
-		    					}
-		    				}
-		    			}
-					}
-				}
-				toString = "!" + toString1;
 			}
 			
 			@Override
@@ -231,7 +87,7 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 			
 			@Override
 			public String toString() {
-				return toString;
+				return "!" + parenthesize(pred.toString(), true);
 			}
 			
 			@Override
@@ -244,12 +100,53 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 		return new NotTokenPredicate(this);
 	}
 	
+	/**
+	 * Wraps the description of a predicate in parentheses if it has a top-level {@code ||},
+	 * or if {@code ands} is true, a top-level {@code &&}.
+	 */
+	static String parenthesize(@NonNull String str, boolean ands) {
+		int depth = 0;
+		boolean inString = false, escape = false;
+		char stringChar = 0;
+		for(int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if(inString) {
+				if(escape) {
+					escape = false;
+				} else if(c == stringChar) {
+    				inString = false;
+				} else if(c == '\\') {
+					escape = true;
+				}
+			} else {
+    			switch(c) {
+    				case '(' -> depth++;
+    				case ')' -> depth--;
+    				case '"', '\'' -> {
+    					inString = true;
+    					stringChar = c;
+    				}
+    				case '&' -> {
+    					if(ands && depth == 0 && i + 1 < str.length() && str.charAt(i+1) == '&') {
+    						return '(' + str + ')';
+    					}
+    				}
+    				case '|' -> {
+    					if(depth == 0 && i + 1 < str.length() && str.charAt(i+1) == '|') {
+    						return '(' + str + ')';
+    					}
+    				}
+    			}
+			}
+		}
+		return str;
+	}
+	
 	static <TokenType> TokenPredicate<TokenType> not(TokenPredicate<TokenType> pred) {
 		return pred.negate();
 	}
 	
 	static <TokenType> TokenPredicate<TokenType> ofString(@NonNull String str) {
-		var toString = '"' + StringEscapeUtils.escapeJava(str) + '"';
 		return new TokenPredicate<>() {
 
 			@Override
@@ -258,7 +155,7 @@ public interface TokenPredicate<TokenType> extends Predicate<Token<TokenType>> {
 			}
 			
 			public String toString() {
-				return toString;
+				return '"' + StringEscapeUtils.escapeJava(str) + '"';
 			}
 			
 		};
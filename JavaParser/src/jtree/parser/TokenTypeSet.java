@@ -0,0 +1,164 @@
+package jtree.parser;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import jtree.parser.JavaTokenType.Tag;
+import lombok.NonNull;
+
+/**
+ * A {@link TokenPredicate} which only looks at the type of a token, backed by a bit set of the
+ * accepted {@link JavaTokenType}s. {@link JavaTokenType}s, {@link Tag}s and other type sets combine
+ * into a new type set with {@link #or(Predicate) or}, {@link #and(Predicate) and} and {@link #negate()}
+ * instead of into a chain of predicates, so a combined predicate costs a single bit test no matter
+ * how many types it accepts. Type sets are immutable, and combinations which do not depend on
+ * parser state can be kept in constants.
+ * <p>
+ * The description returned by {@link #toString()} is only built when it is first needed,
+ * which is usually for a {@link SyntaxError} message.
+ */
+public final class TokenTypeSet implements TokenPredicate<JavaTokenType> {
+	private static final EnumMap<JavaTokenType,TokenTypeSet> typeSets = new EnumMap<>(JavaTokenType.class);
+	private static final EnumMap<Tag,TokenTypeSet> tagSets = new EnumMap<>(Tag.class);
+	static {
+		for(var type : JavaTokenType.values()) {
+			typeSets.put(type, new TokenTypeSet(EnumSet.of(type), type::toString));
+		}
+		for(var tag : Tag.values()) {
+			var types = EnumSet.noneOf(JavaTokenType.class);
+			for(var type : JavaTokenType.values()) {
+				if(type.hasTag(tag)) {
+					types.add(type);
+				}
+			}
+			tagSets.put(tag, new TokenTypeSet(types, tag::name));
+		}
+	}
+
+	private final EnumSet<JavaTokenType> types;
+	private final Supplier<String> describer;
+	private String description;
+	/** The type set this one is the complement of, returned again by {@link #negate()} */
+	private TokenTypeSet complement;
+
+	private TokenTypeSet(EnumSet<JavaTokenType> types, Supplier<String> describer) {
+		this.types = types;
+		this.describer = describer;
+	}
+
+	/**
+	 * @return a type set accepting the types matched by {@code filter}, described as {@code name}
+	 */
+	public static TokenTypeSet of(@NonNull String name, @NonNull Predicate<JavaTokenType> filter) {
+		var types = EnumSet.noneOf(JavaTokenType.class);
+		for(var type : JavaTokenType.values()) {
+			if(filter.test(type)) {
+				types.add(type);
+			}
+		}
+		return new TokenTypeSet(types, () -> name);
+	}
+
+	/**
+	 * @return the type set equivalent to {@code pred}, or {@code null} if {@code pred} does not
+	 *         only look at token types
+	 */
+	public static TokenTypeSet of(Predicate<? super Token<JavaTokenType>> pred) {
+		if(pred instanceof TokenTypeSet) {
+			return (TokenTypeSet)pred;
+		} else if(pred instanceof JavaTokenType) {
+			return typeSets.get(pred);
+		} else if(pred instanceof Tag) {
+			return tagSets.get(pred);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the union of {@code pred1} and {@code pred2}, or {@code null} if either of them
+	 *         does not only look at token types
+	 */
+	static TokenTypeSet or(TokenPredicate<JavaTokenType> pred1, Predicate<? super Token<JavaTokenType>> pred2) {
+		TokenTypeSet set1 = of(pred1), set2;
+		if(set1 == null || (set2 = of(pred2)) == null) {
+			return null;
+		}
+		var types = EnumSet.copyOf(set1.types);
+		types.addAll(set2.types);
+		return new TokenTypeSet(types, () -> pred1 + " || " + pred2);
+	}
+
+	/**
+	 * @return the intersection of {@code pred1} and {@code pred2}, or {@code null} if either of them
+	 *         does not only look at token types
+	 */
+	static TokenTypeSet and(TokenPredicate<JavaTokenType> pred1, Predicate<? super Token<JavaTokenType>> pred2) {
+		TokenTypeSet set1 = of(pred1), set2;
+		if(set1 == null || (set2 = of(pred2)) == null) {
+			return null;
+		}
+		var types = EnumSet.copyOf(set1.types);
+		types.retainAll(set2.types);
+		return new TokenTypeSet(types, () -> TokenPredicate.parenthesize(pred1.toString(), false) + " && " + TokenPredicate.parenthesize(pred2.toString(), false));
+	}
+
+	/**
+	 * @return the complement of {@code pred}, or {@code null} if it does not only look at token types
+	 */
+	static TokenTypeSet not(TokenPredicate<JavaTokenType> pred) {
+		var set = of(pred);
+		if(set == null) {
+			return null;
+		}
+		if(set.complement != null) {
+			return set.complement;
+		}
+		var result = new TokenTypeSet(EnumSet.complementOf(set.types), () -> "!" + TokenPredicate.parenthesize(pred.toString(), true));
+		result.complement = set;
+		return result;
+	}
+
+	public boolean contains(JavaTokenType type) {
+		return types.contains(type);
+	}
+
+	public Set<JavaTokenType> getTypes() {
+		return Collections.unmodifiableSet(types);
+	}
+
+	@Override
+	public boolean test(Token<JavaTokenType> token) {
+		return types.contains(token.getType());
+	}
+
+	@Override
+	public TokenPredicate<JavaTokenType> or(@NonNull Predicate<? super Token<JavaTokenType>> pred) {
+		var result = or(this, pred);
+		return result == null? TokenPredicate.super.or(pred) : result;
+	}
+
+	@Override
+	public TokenPredicate<JavaTokenType> and(@NonNull Predicate<? super Token<JavaTokenType>> pred) {
+		var result = and(this, pred);
+		return result == null? TokenPredicate.super.and(pred) : result;
+	}
+
+	@Override
+	public TokenPredicate<JavaTokenType> negate() {
+		return not(this);
+	}
+
+	@Override
+	public String toString() {
+		if(description == null) {
+			description = describer.get();
+		}
+		return description;
+	}
+
+}
@@ -0,0 +1,293 @@
+package jtree.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+
+import jtree.nodes.INode;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Streams source code into an {@link Appendable}, keeping track of the current
+ * indentation so nested nodes don't have to be rendered to a string and re-indented
+ * by each of their parents. A {@link java.nio.channels.FileChannel FileChannel} can
+ * be written to through {@link java.nio.channels.Channels#newWriter Channels.newWriter}.
+ * <p>
+ * While indented, text is written the way {@link String#indent(int) indent} would
+ * format it: every line, blank ones included, is prefixed with the indentation and
+ * line terminators are normalized to {@code \n}.
+ * <p>
+ * How the code is laid out is decided by the writer's {@link FormatProfile}.
+ */
+public class CodeWriter {
+	private final Appendable out;
+	@Getter
+	private final FormatProfile profile;
+	private final String indent;
+	@Getter
+	private int level;
+	/** The column the next character is written at, not counting indentation which has yet to be written */
+	@Getter
+	private int column;
+	private boolean atLineStart = true;
+	/** Whether the last character written was a {@code \r}, so a following {@code \n} belongs to it */
+	private boolean afterCR;
+
+	public CodeWriter(@NonNull Appendable out) {
+		this(out, FormatProfile.DEFAULT);
+	}
+
+	public CodeWriter(@NonNull Appendable out, @NonNull FormatProfile profile) {
+		this.out = out;
+		this.profile = profile;
+		this.indent = profile.getIndent();
+	}
+
+	public static String toCode(INode node) {
+		return toCode(node, FormatProfile.DEFAULT);
+	}
+
+	public static String toCode(INode node, FormatProfile profile) {
+		var sb = new StringBuilder();
+		new CodeWriter(sb, profile).write(node);
+		return sb.toString();
+	}
+
+	public CodeWriter write(INode node) {
+		node.emit(this);
+		return this;
+	}
+
+	public CodeWriter write(CharSequence text) {
+		try {
+			if(level == 0) {
+				int length = text.length();
+				if(length != 0) {
+					out.append(text);
+					int i = length-1;
+					while(i >= 0 && text.charAt(i) != '\n' && text.charAt(i) != '\r') {
+						i--;
+					}
+					column = i == -1? column + length : length-1 - i;
+					char last = text.charAt(length-1);
+					atLineStart = last == '\n' || last == '\r';
+					afterCR = last == '\r';
+				}
+			} else {
+				for(int i = 0, length = text.length(); i < length; i++) {
+					put(text.charAt(i));
+				}
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return this;
+	}
+
+	public CodeWriter write(char c) {
+		try {
+			if(level == 0) {
+				out.append(c);
+				atLineStart = c == '\n' || c == '\r';
+				afterCR = c == '\r';
+				column = atLineStart? 0 : column + 1;
+			} else {
+				put(c);
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return this;
+	}
+
+	private void put(char c) throws IOException {
+		if(c == '\n' && afterCR) {
+			afterCR = false;
+			return;
+		}
+		afterCR = c == '\r';
+		if(atLineStart) {
+			for(int i = 0; i < level; i++) {
+				out.append(indent);
+			}
+			column = level * profile.getIndentWidth();
+			atLineStart = false;
+		}
+		if(c == '\r' || c == '\n') {
+			out.append('\n');
+			atLineStart = true;
+			column = 0;
+		} else {
+			out.append(c);
+			column++;
+		}
+	}
+
+	/**
+	 * Ends the current line unless nothing has been written on it yet.
+	 */
+	public CodeWriter endLine() {
+		if(!atLineStart) {
+			write('\n');
+		}
+		afterCR = false;
+		return this;
+	}
+
+	private void blankLine() {
+		try {
+			out.append('\n');
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public CodeWriter indent() {
+		level++;
+		return this;
+	}
+
+	public CodeWriter dedent() {
+		if(level == 0) {
+			throw new IllegalStateException("not indented");
+		}
+		level--;
+		return this;
+	}
+
+	/**
+	 * @return whether the first line of {@code text} would fit within the profile's
+	 *         {@link FormatProfile#getMaxWidth() maximum width} if written now
+	 */
+	public boolean fits(CharSequence text) {
+		int maxWidth = profile.getMaxWidth();
+		if(maxWidth == 0) {
+			return true;
+		}
+		int column = atLineStart? level * profile.getIndentWidth() : this.column;
+		for(int i = 0, length = text.length(); i < length; i++) {
+			char c = text.charAt(i);
+			if(c == '\n' || c == '\r') {
+				break;
+			}
+			if(++column > maxWidth) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes each node on lines of its own, one level further in than the current level,
+	 * the same as {@code join("", nodes, node -> node.toCode().indent(4))}.
+	 */
+	public CodeWriter writeIndented(Iterable<? extends INode> nodes) {
+		indent();
+		for(var node : nodes) {
+			write(node).endLine();
+		}
+		return dedent();
+	}
+
+	/**
+	 * Writes the members of a class body like {@link #writeIndented(Iterable)}, separated
+	 * by the profile's number of {@link FormatProfile#getBlankLines() blank lines}.
+	 */
+	public CodeWriter writeMembers(Iterable<? extends INode> members) {
+		indent();
+		boolean first = true;
+		for(var member : members) {
+			if(first) {
+				first = false;
+			} else {
+				for(int i = profile.getBlankLines(); i > 0; i--) {
+					blankLine();
+				}
+			}
+			write(member).endLine();
+		}
+		return dedent();
+	}
+
+	public CodeWriter writeAll(String separator, Iterable<? extends INode> nodes) {
+		Iterator<? extends INode> iter = nodes.iterator();
+		if(iter.hasNext()) {
+			write(iter.next());
+			while(iter.hasNext()) {
+				write(separator).write(iter.next());
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a parenthesized argument list. If it would run past the maximum width, each
+	 * argument is put on a line of its own with a double indent.
+	 */
+	public CodeWriter writeArguments(List<? extends INode> arguments) {
+		write('(');
+		if(!arguments.isEmpty()) {
+			if(profile.getMaxWidth() == 0 || fits(Utils.joinNodes(", ", arguments) + ")")) {
+				writeAll(", ", arguments);
+			} else {
+				indent().indent();
+				for(var iter = arguments.iterator(); iter.hasNext();) {
+					write('\n').write(iter.next());
+					if(iter.hasNext()) {
+						write(',');
+					}
+				}
+				dedent().dedent();
+			}
+		}
+		return write(')');
+	}
+
+	/**
+	 * Writes a chain of binary operations. Operations which would run past the maximum
+	 * width are moved onto the next line with a double indent.
+	 * @param operators the operator between each operand and the next
+	 */
+	public CodeWriter writeChain(List<? extends INode> operands, List<String> operators) {
+		var iter = operands.iterator();
+		write(iter.next());
+		if(profile.getMaxWidth() == 0) {
+			for(var operator : operators) {
+				write(' ').write(operator).write(' ').write(iter.next());
+			}
+		} else {
+			boolean wrapped = false;
+			for(var operator : operators) {
+				var operand = iter.next();
+				if(fits(" " + operator + " " + CodeWriter.toCode(operand))) {
+					write(' ');
+				} else {
+					wrapped = wrap(wrapped);
+				}
+				write(operator).write(' ').write(operand);
+			}
+			if(wrapped) {
+				dedent().dedent();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Moves onto a continuation line, which is indented twice. The first time this is
+	 * called the indentation is added, and the caller must {@link #dedent() dedent} twice
+	 * once it is done writing continuation lines.
+	 * @param wrapped whether the caller has already moved onto a continuation line before
+	 * @return {@code true}
+	 */
+	public boolean wrap(boolean wrapped) {
+		if(!wrapped) {
+			indent().indent();
+		}
+		write('\n');
+		return true;
+	}
+
+}
@@ -53,6 +53,13 @@ public final class ContextStack<T> implements ContextManager {
 	public void exit() {
 		stack.pop();
 	}
+
+	/**
+	 * Exits every context, including the initial one.
+	 */
+	public void clear() {
+		stack.clear();
+	}
 	
 	@Override
 	public String toString() {
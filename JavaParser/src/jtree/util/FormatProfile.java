@@ -0,0 +1,91 @@
+package jtree.util;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * How a {@link CodeWriter} lays out code. The {@link #DEFAULT default} profile lays it out
+ * the same as {@link jtree.nodes.INode#toCode() toCode()}.
+ */
+@Value
+public class FormatProfile {
+	public static final FormatProfile DEFAULT = new FormatProfile(4, false, 4, 0, 0);
+
+	/** How many spaces each level of indentation is, unless indenting with tabs */
+	int indentSize;
+	boolean tabs;
+	/** How many columns a tab counts as when measuring lines */
+	int tabWidth;
+	/** How long lines may get before argument lists and operator chains are wrapped, or {@code 0} to never wrap them */
+	int maxWidth;
+	/** How many blank lines are put between the members of a class body */
+	int blankLines;
+
+	public FormatProfile(int indentSize, boolean tabs, int tabWidth, int maxWidth, int blankLines) {
+		if(indentSize < 0 || tabWidth < 1 || maxWidth < 0 || blankLines < 0) {
+			throw new IllegalArgumentException("invalid format profile");
+		}
+		this.indentSize = indentSize;
+		this.tabs = tabs;
+		this.tabWidth = tabWidth;
+		this.maxWidth = maxWidth;
+		this.blankLines = blankLines;
+	}
+
+	public String getIndent() {
+		return tabs? "\t" : " ".repeat(indentSize);
+	}
+
+	public int getIndentWidth() {
+		return tabs? tabWidth : indentSize;
+	}
+
+	/**
+	 * Parses a profile written as comma-separated {@code key=value} settings, with the keys
+	 * {@code indent} (a number of spaces, or {@code tab}), {@code tab-width}, {@code width}
+	 * and {@code blank-lines}. Settings which are left out keep their default value.
+	 * @throws IllegalArgumentException if {@code spec} is malformed
+	 */
+	public static FormatProfile parse(@NonNull String spec) {
+		int indentSize = DEFAULT.indentSize, tabWidth = DEFAULT.tabWidth, maxWidth = DEFAULT.maxWidth, blankLines = DEFAULT.blankLines;
+		boolean tabs = DEFAULT.tabs;
+		for(var setting : spec.split(",")) {
+			setting = setting.strip();
+			if(setting.isEmpty()) {
+				continue;
+			}
+			int i = setting.indexOf('=');
+			if(i == -1) {
+				throw new IllegalArgumentException("malformed format setting: " + setting);
+			}
+			String key = setting.substring(0, i).strip(), value = setting.substring(i+1).strip();
+			try {
+				switch(key) {
+					case "indent" -> {
+						tabs = value.equals("tab");
+						if(!tabs) {
+							indentSize = Integer.parseInt(value);
+						}
+					}
+					case "tab-width" -> tabWidth = Integer.parseInt(value);
+					case "width" -> maxWidth = Integer.parseInt(value);
+					case "blank-lines" -> blankLines = Integer.parseInt(value);
+					default -> throw new IllegalArgumentException("unknown format setting " + key);
+				}
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("malformed format setting: " + setting);
+			}
+		}
+		return new FormatProfile(indentSize, tabs, tabWidth, maxWidth, blankLines);
+	}
+
+	/**
+	 * @return the profile in the form read by {@link #parse(String)}
+	 */
+	@Override
+	public String toString() {
+		return "indent=" + (tabs? "tab" : Integer.toString(indentSize)) + ",tab-width=" + tabWidth
+				+ ",width=" + maxWidth + ",blank-lines=" + blankLines;
+	}
+
+}
@@ -1,50 +1,245 @@
 package jtree.util;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 import java.util.Stack;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
+import lombok.Getter;
+import lombok.NonNull;
 import lombok.Setter;
 
 public class LookAheadListIterator<T> implements ListIterator<T>, Iterable<T> {
-	private List<T> items;
+	/** Where items come from, or {@code null} once it has been exhausted */
+	private Iterator<? extends T> source;
+	/** Ring buffer holding the items with absolute indices in {@code [base, end)} */
+	private Object[] buffer = new Object[16];
+	/** Used instead of the buffer when the items are read from a random access list */
+	private List<? extends T> list;
+	private int base, end;
+	/**
+	 * How many items before the current position and before each mark must be kept,
+	 * or {@code -1} to keep every item
+	 */
+	private final int lookBehind;
 	private Stack<Integer> marks = new Stack<>();
+	@Getter
 	private int index;
 	private Consumer<? super T> setter;
+	/** Told the index the iterator went back to instead of {@link #setter}, or {@code null} */
+	private IntConsumer indexSetter;
 	
 	public LookAheadListIterator(Iterable<? extends T> items) {
 		this(items, null);
 	}
 	
 	public LookAheadListIterator(Iterable<? extends T> items, Consumer<? super T> setter) {
-		this.items = new ArrayList<>();
-		for(T t : items) {
-			this.items.add(t);
+		this.source = items.iterator();
+		this.lookBehind = -1;
+		while(fetch()) {}
+		if(end == 0) {
+			throw new IllegalArgumentException("No items given");
+		}
+		this.setter = setter;
+	}
+	
+	/**
+	 * Creates a streaming iterator which pulls items from {@code source} only when they are
+	 * looked at. Items are dropped once neither the current position nor an outstanding
+	 * {@link ResettableMarkContext} can reach them anymore, so memory use is bounded by the
+	 * furthest look-ahead and the longest marked region instead of the total number of items.
+	 *
+	 * @param lookBehind how far {@link #look(int)} and {@link #previous()} may look back from the
+	 *                   current position and from each mark
+	 */
+	public LookAheadListIterator(Iterator<? extends T> source, int lookBehind, Consumer<? super T> setter) {
+		if(lookBehind < 0) {
+			throw new IllegalArgumentException("lookBehind < 0");
+		}
+		this.source = source;
+		this.lookBehind = lookBehind;
+		if(!fetch()) {
+			throw new IllegalArgumentException("No items given");
 		}
-		if(this.items.isEmpty()) {
+		this.setter = setter;
+	}
+
+	private LookAheadListIterator(List<? extends T> list, Consumer<? super T> setter) {
+		if(list.isEmpty()) {
 			throw new IllegalArgumentException("No items given");
 		}
+		this.list = list;
+		this.buffer = null;
+		this.end = list.size();
+		this.lookBehind = -1;
 		this.setter = setter;
 	}
+
+	/**
+	 * Creates an iterator which reads its items directly from {@code list} instead of copying them.
+	 * The list must not be structurally modified while it is in use.
+	 */
+	public static <T> LookAheadListIterator<T> ofList(List<? extends T> list, Consumer<? super T> setter) {
+		if(!(list instanceof RandomAccess)) {
+			throw new IllegalArgumentException("List does not support random access");
+		}
+		return new LookAheadListIterator<>(list, setter);
+	}
+
+	/**
+	 * Same as {@link #ofList(List, Consumer)}, but when the iterator goes back it tells
+	 * {@code indexSetter} the index it went back to instead of getting the item before it,
+	 * so that a list which creates its items as they are looked at does not have to.
+	 */
+	public static <T> LookAheadListIterator<T> ofList(List<? extends T> list, @NonNull IntConsumer indexSetter) {
+		var iterator = LookAheadListIterator.<T>ofList(list, (Consumer<? super T>)null);
+		iterator.indexSetter = indexSetter;
+		return iterator;
+	}
+
+	/**
+	 * Starts over with the items of {@code source}, keeping the buffer, the look-behind and the setter.
+	 */
+	public void reset(@NonNull Iterator<? extends T> source) {
+		if(list != null) {
+			throw new IllegalStateException("iterator reads from a list");
+		}
+		for(int i = base; i < end; i++) {
+			buffer[i & (buffer.length-1)] = null;
+		}
+		base = end = index = 0;
+		marks.clear();
+		this.source = source;
+		if(lookBehind < 0) {
+			while(fetch()) {}
+		} else {
+			fetch();
+		}
+		if(end == 0) {
+			throw new IllegalArgumentException("No items given");
+		}
+	}
 	
+	/**
+	 * Starts over with the items of {@code list}, which must support random access.
+	 */
+	public void reset(@NonNull List<? extends T> list) {
+		if(this.list == null) {
+			throw new IllegalStateException("iterator does not read from a list");
+		}
+		if(!(list instanceof RandomAccess)) {
+			throw new IllegalArgumentException("List does not support random access");
+		}
+		if(list.isEmpty()) {
+			throw new IllegalArgumentException("No items given");
+		}
+		this.list = list;
+		end = list.size();
+		index = 0;
+		marks.clear();
+	}
+
+	private boolean fetch() {
+		if(source == null) {
+			return false;
+		}
+		if(!source.hasNext()) {
+			source = null;
+			return false;
+		}
+		T item = source.next();
+		if(end - base == buffer.length) {
+			discard();
+			if(end - base == buffer.length) {
+				var newBuffer = new Object[buffer.length * 2];
+				for(int i = base; i < end; i++) {
+					newBuffer[i & (newBuffer.length-1)] = buffer[i & (buffer.length-1)];
+				}
+				buffer = newBuffer;
+			}
+		}
+		buffer[end & (buffer.length-1)] = item;
+		end++;
+		return true;
+	}
+
+	private void discard() {
+		if(lookBehind < 0) {
+			return;
+		}
+		int floor = index;
+		for(int mark : marks) {
+			floor = Math.min(floor, mark);
+		}
+		// the last item is returned by next() once the source is exhausted
+		floor = Math.min(floor - lookBehind, end-1);
+		while(base < floor) {
+			buffer[base & (buffer.length-1)] = null;
+			base++;
+		}
+	}
+
+	/**
+	 * Makes sure the item at absolute index {@code i} has been fetched if it exists.
+	 * @return whether it exists
+	 */
+	private boolean fill(int i) {
+		while(end <= i) {
+			if(!fetch()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T get(int i) {
+		if(list != null) {
+			return list.get(i);
+		}
+		if(i < base) {
+			throw new IllegalStateException("item " + i + " is no longer buffered");
+		}
+		return (T)buffer[i & (buffer.length-1)];
+	}
+
 	@Override
 	public T next() {
-		if(index == items.size()) {
-			return items.get(items.size()-1);
+		if(!fill(index)) {
+			return get(end-1);
 		} else {
-			return items.get(index++);
+			return get(index++);
+		}
+	}
+
+	/**
+	 * Same as {@link #next()}, but does not get the item.
+	 */
+	public void skip() {
+		if(fill(index)) {
+			index++;
 		}
 	}
 	
+	/**
+	 * Moves back one item and returns it. At the first item, a streaming iterator throws
+	 * {@link NoSuchElementException}, while the others return the first item again.
+	 */
 	@Override
 	public T previous() {
 		if(index == 0) {
-			return items.get(0);
+			if(lookBehind >= 0) {
+				throw new NoSuchElementException();
+			}
+			return get(0);
 		} else {
-			return items.get(--index);
+			T item = get(index-1);
+			index--;
+			return item;
 		}
 	}
 	
@@ -52,10 +247,10 @@ public class LookAheadListIterator<T> implements ListIterator<T>, Iterable<T> {
 		int i = index + look;
 		if(i < 0) {
 			i = 0;
-		} else if(i >= items.size()) {
-			i = items.size()-1;
+		} else if(!fill(i)) {
+			i = end-1;
 		}
-		return items.get(i);
+		return get(i);
 	}
 	
 	public class ResettableMarkContext implements AutoCloseable {
@@ -84,9 +279,7 @@ public class LookAheadListIterator<T> implements ListIterator<T>, Iterable<T> {
 			closed = true;
 			if(reset) {
 				index = marks.pop();
-				if(setter != null) {
-					setter.accept(look(-1));
-				}
+				moved();
 			} else {
 				marks.pop();
 			}
@@ -98,6 +291,33 @@ public class LookAheadListIterator<T> implements ListIterator<T>, Iterable<T> {
 		return new ResettableMarkContext();
 	}
 
+	/**
+	 * @return whether there is a {@link ResettableMarkContext} which has not been closed yet,
+	 *         in which case the iterator may still go back to its mark
+	 */
+	public boolean isMarked() {
+		return !marks.isEmpty();
+	}
+
+	/**
+	 * Moves to absolute index {@code index}, which must be one the iterator has already been at.
+	 */
+	public void seek(int index) {
+		if(index < 0 || index > end || list == null && Math.max(index - 1, 0) < base) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		this.index = index;
+		moved();
+	}
+
+	private void moved() {
+		if(setter != null) {
+			setter.accept(look(-1));
+		} else if(indexSetter != null) {
+			indexSetter.accept(index);
+		}
+	}
+
 	@Override
 	public Iterator<T> iterator() {
 		return new Iterator<>() {
@@ -105,15 +325,15 @@ public class LookAheadListIterator<T> implements ListIterator<T>, Iterable<T> {
 
 			@Override
 			public boolean hasNext() {
-				return pos < items.size();
+				return fill(pos);
 			}
 
 			@Override
 			public T next() {
-				if(pos >= items.size()) {
+				if(!fill(pos)) {
 					throw new IllegalArgumentException();
 				} else {
-					return items.get(pos++);
+					return get(pos++);
 				}
 			}
 		};
@@ -121,7 +341,7 @@ public class LookAheadListIterator<T> implements ListIterator<T>, Iterable<T> {
 
 	@Override
 	public boolean hasNext() {
-		return index < items.size();
+		return fill(index);
 	}
 
 	@Override
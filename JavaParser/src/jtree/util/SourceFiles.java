@@ -0,0 +1,125 @@
+package jtree.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Reads source files for the parsers without going through intermediate {@link String}s.
+ * Files which are entirely ASCII are used as they are, anything else is decoded as UTF-8
+ * straight into a {@link java.nio.CharBuffer CharBuffer}. Only very large files are memory-mapped.
+ * Reading a mapped file which has been truncated in the meantime fails with an {@link InternalError},
+ * which is turned into an {@link IOException}, or an {@link UncheckedIOException} once the
+ * text is being parsed.
+ */
+@UtilityClass
+public class SourceFiles {
+	/** Files smaller than this are read into the heap instead of being mapped */
+	private final int MAP_THRESHOLD = 8 * 1024 * 1024;
+
+	/**
+	 * @return the contents of the file, or an empty sequence if it is empty
+	 * @throws java.nio.charset.CharacterCodingException if the file is not valid UTF-8
+	 */
+	public CharSequence read(@NonNull Path file) throws IOException {
+		try(var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size == 0) {
+				return "";
+			}
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large");
+			}
+			ByteBuffer bytes;
+			if(size < MAP_THRESHOLD) {
+				bytes = ByteBuffer.allocate((int)size);
+				while(bytes.hasRemaining() && channel.read(bytes) != -1) {}
+				bytes.flip();
+			} else {
+				bytes = channel.map(MapMode.READ_ONLY, 0, size);
+			}
+			try {
+				if(isAscii(bytes)) {
+					return new AsciiSequence(bytes, 0, bytes.limit());
+				}
+				return StandardCharsets.UTF_8.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPORT)
+						.onUnmappableCharacter(CodingErrorAction.REPORT)
+						.decode(bytes);
+			} catch(InternalError e) {
+				throw truncated(e);
+			}
+		}
+	}
+
+	private IOException truncated(InternalError e) {
+		return new IOException("the file was truncated while it was being read", e);
+	}
+
+	private boolean isAscii(ByteBuffer bytes) {
+		for(int i = 0, end = bytes.limit(); i < end; i++) {
+			if(bytes.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A view of ASCII bytes as characters.
+	 */
+	private static final class AsciiSequence implements CharSequence {
+		private final ByteBuffer bytes;
+		private final int start, end;
+
+		AsciiSequence(ByteBuffer bytes, int start, int end) {
+			this.bytes = bytes;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			try {
+				return (char)bytes.get(start + Objects.checkIndex(index, end - start));
+			} catch(InternalError e) {
+				throw new UncheckedIOException(truncated(e));
+			}
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if(start < 0 || end > length() || start > end) {
+				throw new IndexOutOfBoundsException();
+			}
+			return new AsciiSequence(bytes, this.start + start, this.start + end);
+		}
+
+		@Override
+		public String toString() {
+			var array = new byte[end - start];
+			try {
+				bytes.duplicate().position(start).get(array);
+			} catch(InternalError e) {
+				throw new UncheckedIOException(truncated(e));
+			}
+			return new String(array, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package jtree.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import jtree.parser.JavaParser;
+import jtree.util.CodeWriter;
+import jtree.util.FormatProfile;
+
+class TestCodeWriter {
+	private static final Pattern INDENT = Pattern.compile("^(?: {4})+", Pattern.MULTILINE);
+	private static final String SOURCE = String.join("\n",
+		"class Nested {",
+		"	Object[] objects = {new Object() {",
+		"		int x = 1;",
+		"	}};",
+		"	void run(boolean b) {",
+		"		Runnable r = (Runnable) () -> {",
+		"			System.out.println(\"run\");",
+		"		};",
+		"		Object o = b? (Runnable) () -> {",
+		"			r.run();",
+		"		} : new Object() {",
+		"			int y;",
+		"		};",
+		"		(b? r : (Runnable) () -> {",
+		"			o.hashCode();",
+		"		}).run();",
+		"		assert b : new Object() {",
+		"			int z;",
+		"		};",
+		"		int[] sizes = new int[((java.util.function.IntSupplier) () -> {",
+		"			return 2;",
+		"		}).getAsInt()];",
+		"	}",
+		"}");
+
+	@Test
+	void testTabs() {
+		var unit = new JavaParser(SOURCE, "Nested.java").parseCompilationUnit();
+		var code = CodeWriter.toCode(unit, FormatProfile.parse("indent=tab"));
+		assertEquals(reindent(unit.toCode(), "\t"), code);
+		assertTrue(code.lines().noneMatch(line -> line.startsWith(" ")), code);
+		assertTrue(code.contains("\t\tRunnable r = (Runnable)() -> {\n\t\t\tSystem.out.println(\"run\");\n\t\t};\n"), code);
+		assertTrue(code.contains("\tObject[] objects = {new Object() {\n\t\tint x = 1;\n\t}};\n"), code);
+	}
+
+	@Test
+	void testIndentSize() {
+		var unit = new JavaParser(SOURCE, "Nested.java").parseCompilationUnit();
+		var code = CodeWriter.toCode(unit, FormatProfile.parse("indent=2"));
+		assertEquals(reindent(unit.toCode(), "  "), code);
+	}
+
+	/**
+	 * @return {@code code} with each level of its default indentation replaced by {@code indent}
+	 */
+	private static String reindent(String code, String indent) {
+		return INDENT.matcher(code).replaceAll(match -> indent.repeat(match.group().length() / 4));
+	}
+
+}
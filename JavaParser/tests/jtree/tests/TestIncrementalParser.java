@@ -0,0 +1,248 @@
+package jtree.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jtree.nodes.CompilationUnit;
+import jtree.nodes.Node;
+import jtree.parser.IncrementalParser;
+import jtree.parser.JavaParser;
+import jtree.parser.SyntaxError;
+import jtree.parser.TextEdit;
+
+class TestIncrementalParser {
+	private static final String SOURCE = String.join("\n",
+		"package test.incremental;",
+		"",
+		"import java.util.List;",
+		"import static java.lang.Math.*;",
+		"",
+		"/** A class */",
+		"public class Outer<T> extends Object implements Comparable<Outer<T>> {",
+		"	private int a = 1, b;",
+		"	static final String NAME = \"outer\";",
+		"	// a comment between members",
+		"	protected List<T> items;",
+		"",
+		"	static {",
+		"		System.out.println(NAME);",
+		"	}",
+		"",
+		"	{",
+		"		b = a + 2;",
+		"	}",
+		"",
+		"	public Outer(int a) {",
+		"		this.a = a;",
+		"	}",
+		"",
+		"	/**",
+		"	 * Compares them.",
+		"	 */",
+		"	@Override",
+		"	public int compareTo(Outer<T> other) {",
+		"		return Integer.compare(a, other.a);",
+		"	}",
+		"",
+		"	int sum(int... values) {",
+		"		int total = 0;",
+		"		for(int value : values) {",
+		"			total += value * 10;",
+		"		}",
+		"		return total;",
+		"	}",
+		"",
+		"	void run() {",
+		"		Runnable r = () -> {",
+		"			int x = 3;",
+		"			sum(x, 4, 5);",
+		"		};",
+		"		r.run();",
+		"		new Object() {",
+		"			int y = 6;",
+		"		};",
+		"	}",
+		"",
+		"	class Inner {",
+		"		int c = 7;",
+		"		void f() { c++; }",
+		"		void g() {}",
+		"	}",
+		"",
+		"	interface Shape {",
+		"		double area();",
+		"		default double twice() { return area() * 2; }",
+		"	}",
+		"",
+		"	enum Color {",
+		"		RED(1) {",
+		"			int h() { return 8; }",
+		"		},",
+		"		GREEN(2),",
+		"		BLUE(3);",
+		"",
+		"		final int code;",
+		"",
+		"		Color(int code) { this.code = code; }",
+		"	}",
+		"",
+		"	@interface Marker {",
+		"		int value() default 9;",
+		"		String name();",
+		"	}",
+		"}",
+		"",
+		"class Second {",
+		"	void z() { int w = 10; }",
+		"}",
+		"");
+
+	/** Snippets which are inserted at random, some of which leave the text unparseable */
+	private static final String[] INSERTS = {
+		" ", "\n", "1", "2", "x", "/* c */", "// c\n", ";", ",", "{", "}", "()",
+		"int q;", "void q() {}", "int q = 1;", "@Deprecated ", "static ", "/** doc */",
+		"class Q {}", "return;", "q();", "\"s\"",
+	};
+
+	@Test
+	void testRandomEdits() {
+		var random = new Random(42);
+		var parser = new IncrementalParser(SOURCE, "Outer.java");
+		assertSameTree(parser, "the first parse");
+		int parsed = 0;
+		for(int i = 0; i < 1000; i++) {
+			var text = parser.getText().toString();
+			var edits = randomEdits(random, text);
+			var what = "edit " + i + " " + edits + " of\n" + text;
+			if(edit(parser, edits)) {
+				parsed++;
+				assertSameTree(parser, what);
+			} else {
+				// go back to the last text which parsed, to keep most edits parseable
+				edit(parser, undo(edits, text));
+				assertEquals(text, parser.getText().toString());
+				assertSameTree(parser, "undoing " + what);
+			}
+		}
+		assertTrue(parsed > 100, "only " + parsed + " edits parsed");
+	}
+
+	@Test
+	void testSeparateEdits() {
+		var parser = new IncrementalParser(SOURCE, "Outer.java");
+		int first = SOURCE.indexOf("b = a + 2;") + 9;
+		int second = SOURCE.indexOf("int y = 6;") + 9;
+		int third = SOURCE.indexOf("int w = 10;") + 8;
+		assertTrue(edit(parser, List.of(TextEdit.delete(third, third + 1), TextEdit.insert(first, "0"), TextEdit.insert(second, "7"))));
+		assertSameTree(parser, "separate edits");
+		var text = parser.getText().toString();
+		assertTrue(text.contains("b = a + 20;"));
+		assertTrue(text.contains("int y = 67;"));
+		assertTrue(text.contains("int w = 0;"));
+	}
+
+	@Test
+	void testNotInUnit() {
+		var parser = new IncrementalParser(SOURCE, "Outer.java");
+		var other = new JavaParser(SOURCE, "Outer.java").parseCompilationUnit();
+		assertThrows(IllegalArgumentException.class, () -> parser.start((Node)other));
+	}
+
+	/**
+	 * @return whether the edited text parsed
+	 */
+	private static boolean edit(IncrementalParser parser, List<TextEdit> edits) {
+		var sorted = new ArrayList<>(edits);
+		sorted.sort(Comparator.comparingInt(TextEdit::getStart));
+		var expected = new StringBuilder(parser.getText());
+		for(int i = sorted.size()-1; i >= 0; i--) {
+			var edit = sorted.get(i);
+			expected.replace(edit.getStart(), edit.getEnd(), edit.getReplacement());
+		}
+		boolean parses;
+		try {
+			new JavaParser(expected.toString(), "Outer.java").parseCompilationUnit();
+			parses = true;
+		} catch(SyntaxError e) {
+			parses = false;
+		}
+		try {
+			assertNotNull(parser.edit(edits));
+			assertTrue(parses, "the edited text does not parse on its own");
+		} catch(SyntaxError e) {
+			assertFalse(parses, "the edited text parses on its own");
+			assertNull(parser.getCompilationUnit());
+		}
+		assertEquals(expected.toString(), parser.getText().toString());
+		return parses;
+	}
+
+	private static List<TextEdit> randomEdits(Random random, String text) {
+		var edits = new ArrayList<TextEdit>();
+		int count = random.nextInt(8) == 0? 2 : 1;
+		int from = 0;
+		for(int i = 0; i < count && from < text.length(); i++) {
+			int start = from + random.nextInt(Math.max((text.length() - from) / (count - i), 1));
+			int end;
+			switch(random.nextInt(3)) {
+				case 0:
+					end = start;
+					break;
+				case 1:
+					end = Math.min(start + 1 + random.nextInt(8), text.length());
+					break;
+				default:
+					// a whole line
+					end = text.indexOf('\n', start);
+					end = end < 0? text.length() : end + 1;
+					start = Math.max(text.lastIndexOf('\n', start - 1) + 1, from);
+			}
+			var replacement = start == end || random.nextBoolean()? INSERTS[random.nextInt(INSERTS.length)] : "";
+			edits.add(new TextEdit(start, end, replacement));
+			from = end + 1;
+		}
+		return edits;
+	}
+
+	/**
+	 * @param text the text before {@code edits}
+	 * @return the edits which turn the edited text back into {@code text}
+	 */
+	private static List<TextEdit> undo(List<TextEdit> edits, String text) {
+		var undo = new ArrayList<TextEdit>();
+		int delta = 0;
+		for(var edit : edits) {
+			int start = edit.getStart() + delta;
+			undo.add(new TextEdit(start, start + edit.getReplacement().length(), text.substring(edit.getStart(), edit.getEnd())));
+			delta += edit.delta();
+		}
+		return undo;
+	}
+
+	/**
+	 * Asserts that the parser's unit is the one a fresh parse of its text gives, down to the ranges of its nodes.
+	 */
+	private static void assertSameTree(IncrementalParser parser, String what) {
+		CompilationUnit fresh = new JavaParser(parser.getText().toString(), "Outer.java").parseCompilationUnit();
+		var unit = parser.getCompilationUnit();
+		assertEquals(fresh.toCode(), unit.toCode(), what);
+		var expected = new ArrayList<String>();
+		((Node)fresh).walk((node, parent) -> {
+			expected.add(node.getClass().getSimpleName() + " " + node.start() + ".." + node.end());
+			return true;
+		});
+		var actual = new ArrayList<String>();
+		((Node)unit).walk((node, parent) -> {
+			actual.add(node.getClass().getSimpleName() + " " + parser.start(node) + ".." + parser.end(node));
+			return true;
+		});
+		assertEquals(expected, actual, what);
+	}
+
+}
@@ -3,7 +3,9 @@ package jtree.tests;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -88,5 +90,61 @@ class TestLookAheadListIterator {
 		
 		
 	}
+	
+	@Test
+	void testStreaming() {
+		var source = IntStream.rangeClosed(1, 100).iterator();
+		var iter = new LookAheadListIterator<Integer>(source, 2, null);
+		
+		assertThrows(NoSuchElementException.class, () -> iter.previous());
+		assertEquals(1, iter.next());
+		assertEquals(2, iter.next());
+		assertEquals(3, iter.look(0));
+		assertTrue(source.hasNext());
+		
+		try(var state = iter.enter()) {
+			assertEquals(3, iter.next());
+			assertEquals(4, iter.next());
+			assertEquals(5, iter.next());
+			assertEquals(1, iter.look(-5));
+			
+			state.reset();
+		}
+		
+		assertEquals(3, iter.next());
+		assertEquals(2, iter.look(-2));
+		
+		for(int i = 4; i <= 100; i++) {
+			assertEquals(i, iter.next());
+		}
+		assertEquals(100, iter.next());
+		assertEquals(100, iter.look(5));
+		assertEquals(99, iter.look(-2));
+		assertFalse(iter.hasNext());
+		assertThrows(IllegalStateException.class, () -> iter.look(-50));
+	}
+
+	@Test
+	void testSeek() {
+		var iter = new LookAheadListIterator<>(List.of(1,2,3,4,5,6));
+		int end;
+
+		try(var state = iter.enter()) {
+			assertTrue(iter.isMarked());
+			iter.next();
+			iter.next();
+			iter.next();
+			end = iter.getIndex();
+
+			state.reset();
+		}
+
+		assertFalse(iter.isMarked());
+		assertEquals(1, iter.look(0));
+		iter.seek(end);
+		assertEquals(3, iter.look(-1));
+		assertEquals(4, iter.next());
+		assertThrows(IndexOutOfBoundsException.class, () -> iter.seek(7));
+	}
 
 }
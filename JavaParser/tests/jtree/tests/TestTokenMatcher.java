@@ -0,0 +1,96 @@
+package jtree.tests;
+
+import static jtree.parser.JavaTokenType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import jtree.parser.JavaTokenType;
+import jtree.parser.TokenMatcher;
+
+class TestTokenMatcher {
+
+	@Test
+	void testKeywords() {
+		var matcher = NORMAL_TOKEN_MATCHER;
+		assertEquals("int", matcher.matchWord("int x;", 0));
+		assertEquals("interface", matcher.matchWord("interface I {}", 0));
+		assertEquals("int", matcher.matchWord("int[] a;", 0));
+		assertEquals("class", matcher.matchWord("x.class", 2));
+		// only the whole run of identifier characters is looked up
+		assertNull(matcher.matchWord("integer", 0));
+		assertNull(matcher.matchWord("inte", 0));
+		assertNull(matcher.matchWord("intx", 0));
+		assertNull(matcher.matchWord("+int", 0));
+		assertEquals("int", matcher.keyword("integer", 0, 3));
+		assertNull(matcher.keyword("integer", 0, 0));
+		assertEquals(INT, matcher.getTokens().get(matcher.matchWord("int", 0)));
+	}
+
+	@Test
+	void testSymbols() {
+		var matcher = NORMAL_TOKEN_MATCHER;
+		assertEquals(">>>=", matcher.matchSymbol("a >>>= 1", 2));
+		assertEquals(">>=", matcher.matchSymbol("a >>= 1", 2));
+		// shifts are left to the parser, so that they can close type arguments, and the longest token is '>'
+		assertEquals(">", matcher.matchSymbol("a >>> 1", 2));
+		assertEquals("<<", matcher.matchSymbol("a <<- 1", 2));
+		assertEquals("->", matcher.matchSymbol("x -> x", 2));
+		assertEquals("-", matcher.matchSymbol("-x", 0));
+		assertEquals("...", matcher.matchSymbol("int... a", 3));
+		// a prefix which is not a token itself falls back to the longest token before it
+		assertEquals(".", matcher.matchSymbol("a..b", 1));
+		assertEquals("<<", matcher.matchSymbol("<<", 0));
+		assertNull(matcher.matchSymbol("`", 0));
+		assertNull(matcher.matchSymbol("", 0));
+		assertNull(matcher.matchSymbol("x", 0));
+	}
+
+	@Test
+	void testOtherWords() {
+		var tokens = new HashMap<String,String>();
+		tokens.put("sealed", "SEALED");
+		tokens.put("non-sealed", "NON_SEALED");
+		tokens.put("a-b", "A_B");
+		tokens.put("a-b-c", "A_B_C");
+		tokens.put("-", "SUB");
+		tokens.put("\u2192", "ARROW");
+		tokens.put("\u2192\u2192", "DOUBLE_ARROW");
+		var matcher = TokenMatcher.of(tokens);
+
+		assertEquals("non-sealed", matcher.matchWord("non-sealed class", 0));
+		assertEquals("non-sealed", matcher.matchWord("non-sealed", 0));
+		assertNull(matcher.matchWord("non-sealedx", 0));
+		assertEquals("sealed", matcher.matchWord("non-sealed", 4));
+		// the longest word which is not followed by an identifier character wins
+		assertEquals("a-b-c", matcher.matchWord("a-b-c d", 0));
+		assertEquals("a-b", matcher.matchWord("a-b-x", 0));
+		assertNull(matcher.matchWord("a-bc", 0));
+		// words are never found by matchSymbol
+		assertEquals("-", matcher.matchSymbol("-sealed", 0));
+		assertNull(matcher.matchSymbol("a-b", 0));
+
+		assertEquals("\u2192\u2192", matcher.matchSymbol("\u2192\u2192\u2192", 0));
+		assertEquals("\u2192", matcher.matchSymbol("x\u2192", 1));
+	}
+
+	@Test
+	void testShared() {
+		Map<String,JavaTokenType> tokens = new HashMap<>(NORMAL_TOKEN_MATCHER.getTokens());
+		assertSame(NORMAL_TOKEN_MATCHER, TokenMatcher.of(tokens));
+		tokens.put("=>", ARROW);
+		var other = TokenMatcher.of(tokens);
+		assertNotSame(NORMAL_TOKEN_MATCHER, other);
+		assertEquals("=>", other.matchSymbol("=>", 0));
+		assertEquals("=", NORMAL_TOKEN_MATCHER.matchSymbol("=>", 0));
+	}
+
+	@Test
+	void testEmptyToken() {
+		assertThrows(IllegalArgumentException.class, () -> TokenMatcher.of(Map.of("", "EMPTY")));
+	}
+
+}